@@ -87,6 +87,15 @@ import org.apache.commons.imaging.formats.xpm.XpmImageParser;
  * reading methods permit the calling application to require strict
  * format compliance.</p>
  *
+ * <h3>Thread safety</h3>
+ *
+ * <p>Parser instances are shared: {@link org.apache.commons.imaging.internal.ImageParserFactory}
+ * creates each parser once and hands the same instance to every caller, on any
+ * thread. Implementations must therefore keep no per-call state in fields; all
+ * state of a read or a write belongs in objects created for that call. Parsers
+ * registered as {@link java.util.ServiceLoader} providers of this class are
+ * subject to the same rule.</p>
+ *
  * @param <T> type of parameters used by this image parser
  */
 public abstract class ImageParser<T extends ImagingParameters<T>> extends BinaryFileParser {
@@ -95,6 +104,10 @@ public abstract class ImageParser<T extends ImagingParameters<T>> extends Binary
 
     /**
      * Gets an array of new instances of all image parsers.
+     * <p>
+     * Prefer {@link org.apache.commons.imaging.internal.ImageParserFactory#getImageParsers()}, which returns shared instances and
+     * includes parsers registered through {@link java.util.ServiceLoader}.
+     * </p>
      *
      * @return A valid array of image parsers
      */
@@ -240,7 +253,9 @@ public abstract class ImageParser<T extends ImagingParameters<T>> extends Binary
             LOGGER.finest(getName() + ": " + file.getName());
         }
 
-        return dumpImageFile(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return dumpImageFile(byteSource);
+        }
     }
 
     /**
@@ -329,7 +344,9 @@ public abstract class ImageParser<T extends ImagingParameters<T>> extends Binary
             return null;
         }
 
-        return getAllBufferedImages(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getAllBufferedImages(byteSource);
+        }
     }
 
     /**
@@ -391,7 +408,9 @@ public abstract class ImageParser<T extends ImagingParameters<T>> extends Binary
             return null;
         }
 
-        return getBufferedImage(ByteSource.file(file), params);
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getBufferedImage(byteSource, params);
+        }
     }
 
     /**
@@ -475,7 +494,9 @@ public abstract class ImageParser<T extends ImagingParameters<T>> extends Binary
             return null;
         }
 
-        return getFormatCompliance(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getFormatCompliance(byteSource);
+        }
     }
 
     /**
@@ -570,7 +591,9 @@ public abstract class ImageParser<T extends ImagingParameters<T>> extends Binary
             LOGGER.finest(getName() + ": " + file.getName());
         }
 
-        return getICCProfileBytes(ByteSource.file(file), params);
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getICCProfileBytes(byteSource, params);
+        }
     }
 
     /**
@@ -678,7 +701,9 @@ public abstract class ImageParser<T extends ImagingParameters<T>> extends Binary
             return null;
         }
 
-        return getImageInfo(ByteSource.file(file), params);
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getImageInfo(byteSource, params);
+        }
     }
 
     /**
@@ -761,7 +786,9 @@ public abstract class ImageParser<T extends ImagingParameters<T>> extends Binary
             return null;
         }
 
-        return getImageSize(ByteSource.file(file), params);
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getImageSize(byteSource, params);
+        }
     }
 
 
@@ -914,7 +941,9 @@ public abstract class ImageParser<T extends ImagingParameters<T>> extends Binary
             return null;
         }
 
-        return getMetadata(ByteSource.file(file), params);
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getMetadata(byteSource, params);
+        }
     }
 
     /**
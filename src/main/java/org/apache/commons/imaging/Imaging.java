@@ -132,7 +132,9 @@ public final class Imaging {
      * @throws IOException In the event of unsuccessful read or access operation.
      */
     public static String dumpImageFile(final File file) throws ImagingException, IOException {
-        return dumpImageFile(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return dumpImageFile(byteSource);
+        }
     }
 
     /**
@@ -161,7 +163,9 @@ public final class Imaging {
      * @throws IOException In the event of unsuccessful read or access operation.
      */
     public static List<BufferedImage> getAllBufferedImages(final File file) throws ImagingException, IOException {
-        return getAllBufferedImages(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getAllBufferedImages(byteSource);
+        }
     }
 
     /**
@@ -217,7 +221,9 @@ public final class Imaging {
      * @throws IOException  in the event of an unrecoverable I/O exception.
      */
     public static BufferedImage getBufferedImage(final File file) throws ImagingException, IOException {
-        return getBufferedImage(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getBufferedImage(byteSource);
+        }
     }
 
     /**
@@ -290,7 +296,9 @@ public final class Imaging {
      * @throws IOException in the event of an unrecoverable I/O condition.
      */
     public static FormatCompliance getFormatCompliance(final File file) throws ImagingException, IOException {
-        return getFormatCompliance(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getFormatCompliance(byteSource);
+        }
     }
 
     /**
@@ -332,7 +340,9 @@ public final class Imaging {
      * @throws IOException if it fails to read the image data
      */
     public static ICC_Profile getICCProfile(final File file) throws ImagingException, IOException {
-        return getICCProfile(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getICCProfile(byteSource);
+        }
     }
 
     /**
@@ -388,7 +398,9 @@ public final class Imaging {
      * @throws IOException if it fails to read the image data
      */
     public static byte[] getICCProfileBytes(final File file) throws ImagingException, IOException {
-        return getICCProfileBytes(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getICCProfileBytes(byteSource);
+        }
     }
 
     /**
@@ -428,7 +440,9 @@ public final class Imaging {
      * @throws IOException if it fails to read the image data
      */
     public static ImageInfo getImageInfo(final File file) throws ImagingException, IOException {
-        return getImageInfo(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getImageInfo(byteSource);
+        }
     }
 
     /**
@@ -503,7 +517,9 @@ public final class Imaging {
      * @throws IOException if it fails to read the image data
      */
     public static Dimension getImageSize(final File file) throws ImagingException, IOException {
-        return getImageSize(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getImageSize(byteSource);
+        }
     }
 
     /**
@@ -563,7 +579,9 @@ public final class Imaging {
      * @throws IOException if it fails to read the image data
      */
     public static ImageMetadata getMetadata(final File file) throws ImagingException, IOException {
-        return getMetadata(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getMetadata(byteSource);
+        }
     }
 
     /**
@@ -624,7 +642,9 @@ public final class Imaging {
      * @throws IOException if it fails to read the image data
      */
     public static String getXmpXml(final File file) throws ImagingException, IOException {
-        return getXmpXml(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getXmpXml(byteSource);
+        }
     }
 
     /**
@@ -789,7 +809,9 @@ public final class Imaging {
      * @throws IOException in the event of an unrecoverable I/O condition.
      */
     public static ImageFormat guessFormat(final File file) throws IOException {
-        return guessFormat(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return guessFormat(byteSource);
+        }
     }
 
     /**
@@ -822,7 +844,7 @@ public final class Imaging {
 
         final String normalizedFilename = fileName.toLowerCase(Locale.ENGLISH);
 
-        for (final ImageParser<?> imageParser : ImageParser.getAllImageParsers()) {
+        for (final ImageParser<?> imageParser : ImageParserFactory.getImageParsers()) {
             for (final String extension : imageParser.getAcceptedExtensions()) {
                 if (normalizedFilename.endsWith(extension.toLowerCase(Locale.ENGLISH))) {
                     return true;
@@ -16,6 +16,7 @@
  */
 package org.apache.commons.imaging.bytesource;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,9 +25,8 @@ import java.util.Arrays;
 import org.apache.commons.imaging.common.BinaryFunctions;
 import org.apache.commons.io.build.AbstractOrigin;
 import org.apache.commons.io.build.AbstractOrigin.ByteArrayOrigin;
-import org.apache.commons.io.build.AbstractOrigin.FileOrigin;
 
-public class ByteSource {
+public class ByteSource implements Closeable {
 
     public static ByteSource array(final byte[] array) {
         return new ByteSource(new ByteArrayOrigin(array), null);
@@ -37,7 +37,21 @@ public class ByteSource {
     }
 
     public static ByteSource file(final File file) {
-        return new ByteSource(new FileOrigin(file), file.getName());
+        return new FileByteSource(file, false);
+    }
+
+    /**
+     * Creates a byte source that reads from a file using positional reads, so that random access costs are proportional to the bytes read.
+     * <p>
+     * The file stays open, and mapped in memory-mapped mode, between reads until the byte source is {@link #close() closed}.
+     * </p>
+     *
+     * @param file         the file to read.
+     * @param memoryMapped whether to map the file into memory on first access instead of reading through a file channel.
+     * @return a new byte source.
+     */
+    public static ByteSource file(final File file, final boolean memoryMapped) {
+        return new FileByteSource(file, memoryMapped);
     }
 
     public static ByteSource inputStream(final InputStream is, final String name) {
@@ -52,6 +66,18 @@ public class ByteSource {
         this.origin = origin;
     }
 
+    /**
+     * Releases resources held between reads, such as an open file. The byte source stays usable: a later read acquires them again. Does nothing by
+     * default.
+     *
+     * @throws IOException if the resources cannot be released.
+     * @since 1.0-alpha4
+     */
+    @Override
+    public void close() throws IOException {
+        // nothing is held between reads
+    }
+
     public byte[] getByteArray(final long position, final int length) throws IOException {
         final byte[] bytes = origin.getByteArray();
         // Checks for int overflow.
@@ -70,7 +96,7 @@ public class ByteSource {
         return origin.getInputStream();
     }
 
-    public final InputStream getInputStream(final long start) throws IOException {
+    public InputStream getInputStream(final long start) throws IOException {
         InputStream is = null;
         boolean succeeded = false;
         try {
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.bytesource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.Allocator;
+import org.apache.commons.io.build.AbstractOrigin.FileOrigin;
+
+/**
+ * A byte source backed by a file, using positional reads so that the cost of {@link #getByteArray(long, int)} is proportional to the number of bytes
+ * requested rather than to the size of the file.
+ * <p>
+ * The file is opened on first access, and the same channel serves every later read. In memory-mapped mode the file is also mapped once, on first access,
+ * and reads are served from the mapping. {@link #close()} closes the channel and drops the mappings, which the JVM unmaps once they are garbage
+ * collected; a read after that opens the file for itself and closes it before returning, so nothing is left open. Streams returned by
+ * {@link #getInputStream(long)} have channels of their own, closed with them.
+ * </p>
+ * <p>
+ * Instances are safe for use by multiple threads.
+ * </p>
+ */
+final class FileByteSource extends ByteSource {
+
+    /**
+     * Maximum size of a single mapped region; files larger than this are mapped as several consecutive regions.
+     */
+    private static final long MAX_MAPPED_REGION = 1L << 30;
+
+    private final File file;
+    private final boolean memoryMapped;
+    private FileChannel channel;
+    private boolean closed;
+    private volatile MappedByteBuffer[] regions;
+
+    FileByteSource(final File file, final boolean memoryMapped) {
+        super(new FileOrigin(file), file.getName());
+        this.file = file;
+        this.memoryMapped = memoryMapped;
+    }
+
+    private void checkBounds(final long position, final int length, final long size) {
+        // We include a separate check for int overflow.
+        if (position < 0 || length < 0 || position + length < 0 || position + length > size) {
+            throw new IllegalArgumentException("Couldn't read array (start: " + position + ", length: " + length + ", data length: " + size + ").");
+        }
+    }
+
+    /**
+     * Closes the file channel shared by reads, and drops the mapped regions. Reads must not be in progress; later ones open and close the file themselves.
+     *
+     * @throws IOException if the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        final FileChannel toClose;
+        synchronized (this) {
+            toClose = channel;
+            channel = null;
+            closed = true;
+            regions = null;
+        }
+        if (toClose != null) {
+            toClose.close();
+        }
+    }
+
+    @Override
+    public byte[] getByteArray(final long position, final int length) throws IOException {
+        if (memoryMapped) {
+            final MappedByteBuffer[] mapped = getRegions();
+            if (mapped != null) {
+                return getMappedByteArray(mapped, position, length);
+            }
+        }
+        final FileChannel shared = getChannel();
+        if (shared != null) {
+            return getByteArray(shared, position, length);
+        }
+        // closed; like a stream, this read has a channel of its own
+        try (FileChannel own = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return getByteArray(own, position, length);
+        }
+    }
+
+    private byte[] getByteArray(final FileChannel fileChannel, final long position, final int length) throws IOException {
+        // positional reads do not move the channel's position, so concurrent readers can share it
+        checkBounds(position, length, fileChannel.size());
+        final byte[] bytes = Allocator.byteArray(length);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long filePosition = position;
+        while (buffer.hasRemaining()) {
+            final int read = fileChannel.read(buffer, filePosition);
+            if (read < 0) {
+                throw new ImagingException("Could not read block.");
+            }
+            filePosition += read;
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the channel shared by reads, opening it on first use.
+     *
+     * @return the shared channel, or null once the byte source has been closed.
+     * @throws IOException if the file cannot be opened.
+     */
+    private synchronized FileChannel getChannel() throws IOException {
+        if (channel == null && !closed) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+        return channel;
+    }
+
+    @Override
+    public InputStream getInputStream(final long start) throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        boolean succeeded = false;
+        try {
+            channel.position(start);
+            final InputStream is = Channels.newInputStream(channel);
+            succeeded = true;
+            return is;
+        } finally {
+            if (!succeeded) {
+                channel.close();
+            }
+        }
+    }
+
+    private byte[] getMappedByteArray(final MappedByteBuffer[] mapped, final long position, final int length) {
+        checkBounds(position, length, file.length());
+        final byte[] bytes = Allocator.byteArray(length);
+        int offset = 0;
+        long filePosition = position;
+        while (offset < length) {
+            // duplicate so concurrent readers do not share a buffer position
+            final ByteBuffer region = mapped[(int) (filePosition / MAX_MAPPED_REGION)].duplicate();
+            region.position((int) (filePosition % MAX_MAPPED_REGION));
+            final int count = Math.min(length - offset, region.remaining());
+            region.get(bytes, offset, count);
+            offset += count;
+            filePosition += count;
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the mapped regions of the file, mapping them on first use.
+     *
+     * @return the regions, or null once the byte source has been closed.
+     * @throws IOException if the file cannot be mapped.
+     */
+    private MappedByteBuffer[] getRegions() throws IOException {
+        MappedByteBuffer[] result = regions;
+        if (result == null) {
+            synchronized (this) {
+                result = regions;
+                if (result == null) {
+                    final FileChannel fileChannel = getChannel();
+                    if (fileChannel == null) {
+                        return null;
+                    }
+                    final long size = fileChannel.size();
+                    result = new MappedByteBuffer[(int) ((size + MAX_MAPPED_REGION - 1) / MAX_MAPPED_REGION)];
+                    for (int i = 0; i < result.length; i++) {
+                        final long regionStart = i * MAX_MAPPED_REGION;
+                        result[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, regionStart, Math.min(MAX_MAPPED_REGION, size - regionStart));
+                    }
+                    regions = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the length of the file, without reading its contents.
+     *
+     * @return the file length
+     */
+    @Override
+    public long size() {
+        return file.length();
+    }
+
+}
@@ -131,6 +131,34 @@ public final class ByteConversions {
         return result;
     }
 
+    public static byte[] toBytes(final long value, final ByteOrder byteOrder) {
+        final byte[] result = new byte[8];
+        toBytes(value, byteOrder, result, 0);
+        return result;
+    }
+
+    private static void toBytes(final long value, final ByteOrder byteOrder, final byte[] result, final int offset) {
+        if (byteOrder == ByteOrder.BIG_ENDIAN) {
+            toBytes((int) (value >> 32), byteOrder, result, offset);
+            toBytes((int) value, byteOrder, result, offset + 4);
+        } else {
+            toBytes((int) value, byteOrder, result, offset);
+            toBytes((int) (value >> 32), byteOrder, result, offset + 4);
+        }
+    }
+
+    public static byte[] toBytes(final long[] values, final ByteOrder byteOrder) {
+        return toBytes(values, 0, values.length, byteOrder);
+    }
+
+    private static byte[] toBytes(final long[] values, final int offset, final int length, final ByteOrder byteOrder) {
+        final byte[] result = Allocator.byteArray(length * 8L);
+        for (int i = 0; i < length; i++) {
+            toBytes(values[offset + i], byteOrder, result, i * 8);
+        }
+        return result;
+    }
+
     public static byte[] toBytes(final RationalNumber value, final ByteOrder byteOrder) {
         final byte[] result = new byte[8];
         toBytes(value, byteOrder, result, 0);
@@ -295,6 +323,34 @@ public final class ByteConversions {
         return result;
     }
 
+    public static long toLong(final byte[] bytes, final ByteOrder byteOrder) {
+        return toLong(bytes, 0, byteOrder);
+    }
+
+    public static long toLong(final byte[] bytes, final int offset, final ByteOrder byteOrder) {
+        final long low;
+        final long high;
+        if (byteOrder == ByteOrder.BIG_ENDIAN) {
+            high = toInt(bytes, offset, byteOrder);
+            low = 0xFFFFffffL & toInt(bytes, offset + 4, byteOrder);
+        } else {
+            low = 0xFFFFffffL & toInt(bytes, offset, byteOrder);
+            high = toInt(bytes, offset + 4, byteOrder);
+        }
+        return (high << 32) | low;
+    }
+
+    public static long[] toLongs(final byte[] bytes, final ByteOrder byteOrder) {
+        return toLongs(bytes, 0, bytes.length, byteOrder);
+    }
+
+    private static long[] toLongs(final byte[] bytes, final int offset, final int length,
+            final ByteOrder byteOrder) {
+        final long[] result = Allocator.longArray(length / 8);
+        Arrays.setAll(result, i -> toLong(bytes, offset + 8 * i, byteOrder));
+        return result;
+    }
+
     /**
      * Interprets the content of a specified bytes array to create
      * an instance of the RationalNumber class.
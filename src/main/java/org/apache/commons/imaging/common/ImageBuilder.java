@@ -22,6 +22,7 @@ import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
 import java.awt.image.DataBufferInt;
 import java.awt.image.DirectColorModel;
 import java.awt.image.Raster;
@@ -56,12 +57,83 @@ import java.util.Properties;
  * image files.
  */
 public class ImageBuilder {
+    private static BufferedImage copyImage(final BufferedImage image) {
+        final WritableRaster raster = image.getColorModel().createCompatibleWritableRaster(image.getWidth(), image.getHeight());
+        image.copyData(raster);
+        return new BufferedImage(image.getColorModel(), raster, image.isAlphaPremultiplied(), new Properties());
+    }
+
+    /**
+     * Gets the samples of an image of the {@link SrgbGrayColorSpace} that holds exactly one byte per pixel, which
+     * pixels can be stored in directly.
+     */
+    static byte[] getGrayData(final BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_BYTE_GRAY
+                || !(image.getColorModel().getColorSpace() instanceof SrgbGrayColorSpace)) {
+            return null;
+        }
+        final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        if (dataBuffer.getNumBanks() != 1 || dataBuffer.getSize() != image.getWidth() * image.getHeight()) {
+            return null;
+        }
+        return ((DataBufferByte) dataBuffer).getData();
+    }
+
+    /**
+     * Gets the pixels of a non-premultiplied sRGB image that packs each pixel into one int, as an image
+     * built from a pixel array does, so that they can be stored directly.
+     */
+    private static int[] getPackedData(final BufferedImage image) {
+        final ColorModel colorModel = image.getColorModel();
+        if (!(colorModel instanceof DirectColorModel) || colorModel.isAlphaPremultiplied() || !colorModel.getColorSpace().isCS_sRGB()) {
+            return null;
+        }
+        final DirectColorModel directColorModel = (DirectColorModel) colorModel;
+        if (directColorModel.getRedMask() != 0x00ff0000 || directColorModel.getGreenMask() != 0x0000ff00
+                || directColorModel.getBlueMask() != 0x000000ff || directColorModel.getAlphaMask() != (colorModel.hasAlpha() ? 0xff000000 : 0)) {
+            return null;
+        }
+        final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        if (!(dataBuffer instanceof DataBufferInt) || dataBuffer.getNumBanks() != 1 || dataBuffer.getOffset() != 0
+                || dataBuffer.getSize() != image.getWidth() * image.getHeight() || image.getRaster().getParent() != null) {
+            return null;
+        }
+        return ((DataBufferInt) dataBuffer).getData();
+    }
+
+    /** The ARGB pixels, in an array of their own or in the data buffer of {@link #image}, or null when set through {@link #image}. */
     private final int[] data;
+    private final BufferedImage image;
+    private final byte[] grayData;
     private final int width;
     private final int height;
     private final boolean hasAlpha;
     private final boolean isAlphaPremultiplied;
 
+    /**
+     * Constructs an ImageBuilder instance that stores pixels in an existing
+     * image, such as one made by a {@link BufferedImageFactory}, rather than
+     * in a packed ARGB array of its own.
+     *
+     * <p>Pixels of a {@code TYPE_INT_RGB} or {@code TYPE_INT_ARGB} image are
+     * stored directly in its data buffer, and those of a {@code TYPE_BYTE_GRAY}
+     * image of the {@link SrgbGrayColorSpace} take one byte each, the blue
+     * channel of the RGB values set; those of other images are set through the
+     * image's color model.</p>
+     *
+     * @param image the image to store pixels in
+     * @since 1.0-alpha4
+     */
+    public ImageBuilder(final BufferedImage image) {
+        this.data = getPackedData(image);
+        this.image = image;
+        this.grayData = data == null ? getGrayData(image) : null;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.hasAlpha = image.getColorModel().hasAlpha();
+        this.isAlphaPremultiplied = image.isAlphaPremultiplied();
+    }
+
     /**
      * Constructs an ImageBuilder instance.
      *
@@ -76,6 +148,8 @@ public class ImageBuilder {
         checkDimensions(width, height);
 
         data = Allocator.intArray(width * height);
+        image = null;
+        grayData = null;
         this.width = width;
         this.height = height;
         this.hasAlpha = hasAlpha;
@@ -99,6 +173,8 @@ public class ImageBuilder {
         final boolean hasAlpha, final boolean isAlphaPremultiplied) {
         checkDimensions(width, height);
         data = Allocator.intArray(width * height);
+        image = null;
+        grayData = null;
         this.width = width;
         this.height = height;
         this.hasAlpha = hasAlpha;
@@ -161,6 +237,9 @@ public class ImageBuilder {
      * @return a valid BufferedImage.
      */
     public BufferedImage getBufferedImage() {
+        if (image != null) {
+            return image;
+        }
         return makeBufferedImage(data, width, height, hasAlpha);
     }
 
@@ -182,7 +261,13 @@ public class ImageBuilder {
      */
     public int getRGB(final int x, final int y) {
         final int rowOffset = y * width;
-        return data[rowOffset + x];
+        if (data != null) {
+            return data[rowOffset + x];
+        }
+        if (grayData != null) {
+            return 0xff000000 | 0x010101 * (0xff & grayData[rowOffset + x]);
+        }
+        return image.getRGB(x, y);
     }
 
     /**
@@ -205,6 +290,9 @@ public class ImageBuilder {
      */
     public BufferedImage getSubimage(final int x, final int y, final int w, final int h) {
         checkBounds(x, y, w, h);
+        if (image != null) {
+            return copyImage(image.getSubimage(x, y, w, h));
+        }
 
         // Transcribe the data to an output image array
         final int[] argb = Allocator.intArray(w * h);
@@ -239,6 +327,9 @@ public class ImageBuilder {
      */
      public ImageBuilder getSubset(final int x, final int y, final int w, final int h) {
          checkBounds(x, y, w, h);
+         if (image != null) {
+             return new ImageBuilder(copyImage(image.getSubimage(x, y, w, h)));
+         }
          final ImageBuilder b = new ImageBuilder(w, h, hasAlpha, isAlphaPremultiplied);
          for (int i = 0; i < h; i++) {
              final int srcDex = (i + y) * width + x;
@@ -307,9 +398,15 @@ public class ImageBuilder {
         final int rowOffset = Math.multiplyExact(y, width);
         // Throw ArithmeticException if the result overflows an int.
         final int index = Math.addExact(rowOffset, x);
-        if (index > data.length) {
-            throw new IllegalArgumentException("setRGB: Illegal array index.");
+        if (data != null) {
+            if (index > data.length) {
+                throw new IllegalArgumentException("setRGB: Illegal array index.");
+            }
+            data[index] = argb;
+        } else if (grayData != null) {
+            grayData[index] = (byte) argb;
+        } else {
+            image.setRGB(x, y, argb);
         }
-        data[index] = argb;
     }
 }
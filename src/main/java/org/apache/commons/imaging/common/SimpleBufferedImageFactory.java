@@ -17,8 +17,16 @@
 
 package org.apache.commons.imaging.common;
 
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
 
+/**
+ * Creates packed {@code int} RGB images for color, and {@code TYPE_BYTE_GRAY} images of the {@link SrgbGrayColorSpace}
+ * for grayscale without alpha, which hold one byte per pixel and keep gray samples unchanged.
+ */
 public class SimpleBufferedImageFactory implements BufferedImageFactory {
     @Override
     public BufferedImage getColorBufferedImage(final int width, final int height,
@@ -36,6 +44,8 @@ public class SimpleBufferedImageFactory implements BufferedImageFactory {
             return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
         }
 
-        return new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        final ColorModel colorModel = new ComponentColorModel(SrgbGrayColorSpace.getInstance(), false, false,
+                Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        return new BufferedImage(colorModel, colorModel.createCompatibleWritableRaster(width, height), false, null);
     }
 }
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.common;
+
+import java.awt.color.ColorSpace;
+
+/**
+ * A grayscale color space whose samples are encoded like those of sRGB, so that a gray level converts to the sRGB color
+ * with that level in each channel.
+ * <p>
+ * Java's own {@link ColorSpace#CS_GRAY} is linear, so 8-bit gray samples read from JPEG, PNG, TIFF or PNM files, which
+ * are gamma encoded, would look too bright in a {@code TYPE_BYTE_GRAY} image that uses it. An 8-bit
+ * {@link java.awt.image.ComponentColorModel} of this color space still makes a {@code TYPE_BYTE_GRAY} image, but one
+ * that keeps those samples unchanged.
+ * </p>
+ *
+ * @since 1.0-alpha4
+ */
+public final class SrgbGrayColorSpace extends ColorSpace {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final SrgbGrayColorSpace INSTANCE = new SrgbGrayColorSpace();
+
+    /**
+     * Gets the shared instance.
+     *
+     * @return the color space.
+     */
+    public static SrgbGrayColorSpace getInstance() {
+        return INSTANCE;
+    }
+
+    private SrgbGrayColorSpace() {
+        super(TYPE_GRAY, 1);
+    }
+
+    @Override
+    public float[] fromCIEXYZ(final float[] colorvalue) {
+        return fromRGB(getInstance(CS_sRGB).fromCIEXYZ(colorvalue));
+    }
+
+    @Override
+    public float[] fromRGB(final float[] rgbvalue) {
+        // the luma of the JPEG File Interchange Format, which keeps gray colors unchanged
+        return new float[] { 0.299f * rgbvalue[0] + 0.587f * rgbvalue[1] + 0.114f * rgbvalue[2] };
+    }
+
+    private Object readResolve() {
+        return INSTANCE;
+    }
+
+    @Override
+    public float[] toCIEXYZ(final float[] colorvalue) {
+        return getInstance(CS_sRGB).toCIEXYZ(toRGB(colorvalue));
+    }
+
+    @Override
+    public float[] toRGB(final float[] colorvalue) {
+        return new float[] { colorvalue[0], colorvalue[0], colorvalue[0] };
+    }
+}
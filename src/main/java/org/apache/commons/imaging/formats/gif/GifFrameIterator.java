@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.imaging.formats.gif;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.Allocator;
+
+/**
+ * Reads the frames of an animated GIF one at a time, as they are to be displayed.
+ * <p>
+ * Each frame is decoded only when it is requested and drawn onto a single canvas the
+ * size of the logical screen, after the previous frame has been disposed of as its
+ * {@link DisposalMethod} requires. Memory use is therefore about one canvas no matter
+ * how many frames the animation has. Areas restored to the background are made
+ * transparent, as web browsers do.
+ * </p>
+ * <p>
+ * Instances are obtained from {@link GifImageParser#getFrameIterator(org.apache.commons.imaging.bytesource.ByteSource)}
+ * and hold the underlying stream open until closed. They are not safe for use by
+ * multiple threads.
+ * </p>
+ *
+ * @since 1.0-alpha4
+ */
+public final class GifFrameIterator implements Closeable {
+
+    private final GifImageParser parser;
+    private final GifHeaderInfo headerInfo;
+    private final byte[] globalColorTable;
+    private final InputStream is;
+    private final BufferedImage canvas;
+    private final int[] canvasPixels;
+    private final int width;
+    private final int height;
+    private GifImageData next;
+    private boolean finished;
+    private GifImageData current;
+    private DisposalMethod currentDisposal;
+    private int[] previousPixels;
+
+    GifFrameIterator(final GifImageParser parser, final GifHeaderInfo headerInfo, final byte[] globalColorTable,
+            final InputStream is) {
+        this.parser = parser;
+        this.headerInfo = headerInfo;
+        this.globalColorTable = globalColorTable;
+        this.is = is;
+        this.width = Math.max(1, headerInfo.logicalScreenWidth);
+        this.height = Math.max(1, headerInfo.logicalScreenHeight);
+        Allocator.check((long) width * height, Integer.BYTES);
+        this.canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        this.canvasPixels = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+
+    /**
+     * Disposes of the current frame before the next one is drawn.
+     */
+    private void dispose() {
+        if (current == null) {
+            return;
+        }
+        final ImageDescriptor id = current.descriptor;
+        if (currentDisposal == DisposalMethod.RESTORE_TO_BACKGROUND) {
+            forEachRow(id, (offset, length, rowIndex) -> Arrays.fill(canvasPixels, offset, offset + length, 0));
+        } else if (currentDisposal == DisposalMethod.RESTORE_TO_PREVIOUS) {
+            forEachRow(id, (offset, length, rowIndex) -> System.arraycopy(previousPixels, rowIndex, canvasPixels, offset, length));
+        }
+    }
+
+    /**
+     * Calls the given action for each row of the canvas covered by a frame, clipped to the canvas.
+     */
+    private void forEachRow(final ImageDescriptor id, final RowAction action) {
+        final int x0 = Math.max(0, id.imageLeftPosition);
+        final int x1 = Math.min(width, id.imageLeftPosition + id.imageWidth);
+        final int y0 = Math.max(0, id.imageTopPosition);
+        final int y1 = Math.min(height, id.imageTopPosition + id.imageHeight);
+        if (x1 <= x0) {
+            return;
+        }
+        int rowIndex = 0;
+        for (int y = y0; y < y1; y++) {
+            action.apply(y * width + x0, x1 - x0, rowIndex);
+            rowIndex += x1 - x0;
+        }
+    }
+
+    /**
+     * Gets the height of the logical screen, and so of every frame returned.
+     *
+     * @return the height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the delay, position and disposal method of the frame most recently returned.
+     *
+     * @return the metadata of the current frame.
+     * @throws IllegalStateException if no frame has been returned yet.
+     */
+    public GifImageMetadataItem getMetadataItem() {
+        if (current == null) {
+            throw new IllegalStateException("No GIF frame has been read");
+        }
+        final ImageDescriptor id = current.descriptor;
+        final int delay = current.gce == null ? 0 : current.gce.delay;
+        return new GifImageMetadataItem(delay, id.imageLeftPosition, id.imageTopPosition, currentDisposal);
+    }
+
+    /**
+     * Gets the width of the logical screen, and so of every frame returned.
+     *
+     * @return the width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Tests whether the GIF has another frame, reading ahead to it if needed.
+     *
+     * @return true if {@link #next()} will return a frame.
+     * @throws ImagingException if the GIF data is invalid.
+     * @throws IOException if an I/O error occurs.
+     */
+    public boolean hasNext() throws ImagingException, IOException {
+        GraphicControlExtension gce = null;
+        while (next == null && !finished) {
+            final GifBlock block = parser.readBlock(headerInfo, is, false, null);
+            if (block == null) {
+                finished = true;
+            } else if (block instanceof GraphicControlExtension) {
+                gce = (GraphicControlExtension) block;
+            } else if (block instanceof ImageDescriptor) {
+                next = new GifImageData((ImageDescriptor) block, gce);
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * Decodes the next frame and composites it onto the canvas.
+     * <p>
+     * The same image is returned on every call and is overwritten by the next one, so
+     * callers that keep frames must copy them.
+     * </p>
+     *
+     * @return the canvas showing the frame.
+     * @throws NoSuchElementException if there are no more frames.
+     * @throws ImagingException if the GIF data is invalid.
+     * @throws IOException if an I/O error occurs.
+     */
+    public BufferedImage next() throws ImagingException, IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more GIF frames");
+        }
+        dispose();
+        current = next;
+        next = null;
+        currentDisposal = current.gce == null ? DisposalMethod.UNSPECIFIED
+                : GifImageParser.createDisposalMethodFromIntValue(current.gce.dispose);
+        final ImageDescriptor id = current.descriptor;
+        if (currentDisposal == DisposalMethod.RESTORE_TO_PREVIOUS) {
+            final long size = (long) id.imageWidth * id.imageHeight;
+            if (previousPixels == null || previousPixels.length < size) {
+                previousPixels = Allocator.intArray((int) Math.min(size, (long) width * height));
+            }
+            forEachRow(id, (offset, length, rowIndex) -> System.arraycopy(canvasPixels, offset, previousPixels, rowIndex, length));
+        }
+        parser.drawFrame(current, globalColorTable, canvasPixels, width, height);
+        return canvas;
+    }
+
+    /**
+     * Decodes the next frame, composites it onto the canvas and copies the result, as
+     * ARGB values in row-major order, into the given array.
+     *
+     * @param argb the array to fill, of at least {@code getWidth() * getHeight()} elements.
+     * @throws NoSuchElementException if there are no more frames.
+     * @throws ImagingException if the GIF data is invalid.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void next(final int[] argb) throws ImagingException, IOException {
+        if (argb.length < canvasPixels.length) {
+            throw new IllegalArgumentException("Frame buffer too small: " + argb.length + " < " + canvasPixels.length);
+        }
+        next();
+        System.arraycopy(canvasPixels, 0, argb, 0, canvasPixels.length);
+    }
+
+    @FunctionalInterface
+    private interface RowAction {
+        void apply(int offset, int length, int rowIndex);
+    }
+}
@@ -22,6 +22,7 @@ import static org.apache.commons.imaging.common.BinaryFunctions.logCharQuad;
 import static org.apache.commons.imaging.common.BinaryFunctions.read2Bytes;
 import static org.apache.commons.imaging.common.BinaryFunctions.readByte;
 import static org.apache.commons.imaging.common.BinaryFunctions.readBytes;
+import static org.apache.commons.imaging.common.BinaryFunctions.skipBytes;
 
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
@@ -120,6 +121,55 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
         return 3 * simplePow(2, tableSize + 1);
     }
 
+    private byte[] decompressImageData(final ImageDescriptor id) throws IOException {
+        if (id.compressedImageData == null) {
+            throw new ImagingException("GIF: Image data was not read");
+        }
+        final MyLzwDecompressor myLzwDecompressor = new MyLzwDecompressor(
+                id.lzwMinimumCodeSize, ByteOrder.LITTLE_ENDIAN, false);
+        return myLzwDecompressor.decompress(new ByteArrayInputStream(id.compressedImageData),
+                id.imageWidth * id.imageHeight);
+    }
+
+    /**
+     * Draws a frame onto a canvas at the frame's position, leaving the canvas
+     * unchanged under the frame's transparent pixels and outside its bounds.
+     */
+    void drawFrame(final GifImageData imageData, final byte[] globalColorTable, final int[] canvas,
+            final int canvasWidth, final int canvasHeight) throws ImagingException, IOException {
+        final ImageDescriptor id = imageData.descriptor;
+        final GraphicControlExtension gce = imageData.gce;
+        final int[] colorTable = getFrameColorTable(id, globalColorTable);
+        final int transparentIndex = gce != null && gce.transparency ? gce.transparentColorIndex : -1;
+
+        final byte[] pixels = decompressImageData(id);
+        final int width = id.imageWidth;
+        final int height = id.imageHeight;
+        if (pixels.length < width * height) {
+            throw new ImagingException(String.format("Invalid GIF image data length [%d], less than the image size [%d]", pixels.length, width * height));
+        }
+        final int x0 = Math.max(0, -id.imageLeftPosition);
+        final int x1 = Math.min(width, canvasWidth - id.imageLeftPosition);
+        for (int row = 0; row < height; row++) {
+            final int y = id.imageTopPosition + getFrameRow(id, row);
+            if (y < 0 || y >= canvasHeight) {
+                continue;
+            }
+            final int canvasOffset = y * canvasWidth + id.imageLeftPosition;
+            final int pixelOffset = row * width;
+            for (int x = x0; x < x1; x++) {
+                final int index = 0xff & pixels[pixelOffset + x];
+                if (index == transparentIndex) {
+                    continue;
+                }
+                if (index >= colorTable.length) {
+                    throw new ImagingException(String.format("Invalid GIF color table index [%d], greater than the color table length [%d]", index, colorTable.length));
+                }
+                canvas[canvasOffset + x] = colorTable[index];
+            }
+        }
+    }
+
     @Override
     public boolean dumpImageFile(final PrintWriter pw, final ByteSource byteSource)
             throws ImagingException, IOException {
@@ -245,7 +295,7 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
     @Override
     public BufferedImage getBufferedImage(final ByteSource byteSource, final GifImagingParameters params)
             throws ImagingException, IOException {
-        final GifImageContents imageContents = readFile(byteSource, false);
+        final GifImageContents imageContents = readFirstImage(byteSource);
 
         final GifHeaderInfo ghi = imageContents.gifHeaderInfo;
         if (ghi == null) {
@@ -258,7 +308,7 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
     }
 
     private BufferedImage getBufferedImage(final GifHeaderInfo headerInfo, final GifImageData imageData, final byte[] globalColorTable)
-            throws ImagingException {
+            throws ImagingException, IOException {
         final ImageDescriptor id = imageData.descriptor;
         final GraphicControlExtension gce = imageData.gce;
 
@@ -272,59 +322,24 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
 
         final ImageBuilder imageBuilder = new ImageBuilder(width, height, hasAlpha);
 
-        int[] colorTable;
-        if (id.localColorTable != null) {
-            colorTable = getColorTable(id.localColorTable);
-        } else if (globalColorTable != null) {
-            colorTable = getColorTable(globalColorTable);
-        } else {
-            throw new ImagingException("Gif: No Color Table");
-        }
+        final int[] colorTable = getFrameColorTable(id, globalColorTable);
 
         int transparentIndex = -1;
         if (gce != null && hasAlpha) {
             transparentIndex = gce.transparentColorIndex;
         }
 
+        final byte[] pixels = decompressImageData(id);
         int counter = 0;
 
-        final int rowsInPass1 = (height + 7) / 8;
-        final int rowsInPass2 = (height + 3) / 8;
-        final int rowsInPass3 = (height + 1) / 4;
-        final int rowsInPass4 = (height) / 2;
-
         for (int row = 0; row < height; row++) {
-            int y;
-            if (id.interlaceFlag) {
-                int theRow = row;
-                if (theRow < rowsInPass1) {
-                    y = theRow * 8;
-                } else {
-                    theRow -= rowsInPass1;
-                    if (theRow < (rowsInPass2)) {
-                        y = 4 + (theRow * 8);
-                    } else {
-                        theRow -= rowsInPass2;
-                        if (theRow < (rowsInPass3)) {
-                            y = 2 + (theRow * 4);
-                        } else {
-                            theRow -= rowsInPass3;
-                            if (theRow >= (rowsInPass4)) {
-                                throw new ImagingException("Gif: Strange Row");
-                            }
-                            y = 1 + (theRow * 2);
-                        }
-                    }
-                }
-            } else {
-                y = row;
-            }
+            final int y = getFrameRow(id, row);
 
             for (int x = 0; x < width; x++) {
-                if (counter >= id.imageData.length) {
-                    throw new ImagingException(String.format("Invalid GIF image data length [%d], greater than the image data length [%d]", id.imageData.length, width));
+                if (counter >= pixels.length) {
+                    throw new ImagingException(String.format("Invalid GIF image data length [%d], greater than the image data length [%d]", pixels.length, width));
                 }
-                final int index = 0xff & id.imageData[counter++];
+                final int index = 0xff & pixels[counter++];
                 if (index >= colorTable.length) {
                     throw new ImagingException(String.format("Invalid GIF color table index [%d], greater than the color table length [%d]", index, colorTable.length));
                 }
@@ -398,6 +413,78 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
         return result;
     }
 
+    private int[] getFrameColorTable(final ImageDescriptor id, final byte[] globalColorTable) throws ImagingException {
+        if (id.localColorTable != null) {
+            return getColorTable(id.localColorTable);
+        }
+        if (globalColorTable != null) {
+            return getColorTable(globalColorTable);
+        }
+        throw new ImagingException("Gif: No Color Table");
+    }
+
+    /**
+     * Opens an animated GIF for reading its frames one at a time, composited
+     * onto a single canvas the size of the logical screen.
+     *
+     * @param byteSource the GIF data.
+     * @return an iterator over the frames, which must be closed after use.
+     * @throws ImagingException if the GIF header is invalid.
+     * @throws IOException if an I/O error occurs.
+     * @since 1.0-alpha4
+     */
+    public GifFrameIterator getFrameIterator(final ByteSource byteSource) throws ImagingException, IOException {
+        final InputStream is = byteSource.getInputStream();
+        boolean succeeded = false;
+        try {
+            final GifHeaderInfo ghi = readHeader(is, null);
+            byte[] globalColorTable = null;
+            if (ghi.globalColorTableFlag) {
+                globalColorTable = readColorTable(is, ghi.sizeOfGlobalColorTable);
+            }
+            final GifFrameIterator frames = new GifFrameIterator(this, ghi, globalColorTable, is);
+            succeeded = true;
+            return frames;
+        } finally {
+            if (!succeeded) {
+                is.close();
+            }
+        }
+    }
+
+    /**
+     * Gets the row of a frame that holds the given row of its image data,
+     * which differ when the frame is interlaced.
+     */
+    private int getFrameRow(final ImageDescriptor id, final int row) throws ImagingException {
+        if (!id.interlaceFlag) {
+            return row;
+        }
+        final int height = id.imageHeight;
+        final int rowsInPass1 = (height + 7) / 8;
+        final int rowsInPass2 = (height + 3) / 8;
+        final int rowsInPass3 = (height + 1) / 4;
+        final int rowsInPass4 = (height) / 2;
+
+        int theRow = row;
+        if (theRow < rowsInPass1) {
+            return theRow * 8;
+        }
+        theRow -= rowsInPass1;
+        if (theRow < (rowsInPass2)) {
+            return 4 + (theRow * 8);
+        }
+        theRow -= rowsInPass2;
+        if (theRow < (rowsInPass3)) {
+            return 2 + (theRow * 4);
+        }
+        theRow -= rowsInPass3;
+        if (theRow >= (rowsInPass4)) {
+            throw new ImagingException("Gif: Strange Row");
+        }
+        return 1 + (theRow * 2);
+    }
+
     @Override
     public byte[] getICCProfileBytes(final ByteSource byteSource, final GifImagingParameters params)
             throws ImagingException, IOException {
@@ -407,7 +494,7 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
     @Override
     public ImageInfo getImageInfo(final ByteSource byteSource, final GifImagingParameters params)
             throws ImagingException, IOException {
-        final GifImageContents blocks = readFile(byteSource, false);
+        final GifImageContents blocks = readFile(byteSource, true);
 
         final GifHeaderInfo bhi = blocks.gifHeaderInfo;
         if (bhi == null) {
@@ -464,7 +551,7 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
     @Override
     public Dimension getImageSize(final ByteSource byteSource, final GifImagingParameters params)
             throws ImagingException, IOException {
-        final GifImageContents blocks = readFile(byteSource, false);
+        final GifImageContents blocks = readFile(byteSource, true);
 
         final GifHeaderInfo bhi = blocks.gifHeaderInfo;
         if (bhi == null) {
@@ -482,7 +569,7 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
     @Override
     public ImageMetadata getMetadata(final ByteSource byteSource, final GifImagingParameters params)
             throws ImagingException, IOException {
-        final GifImageContents imageContents = readFile(byteSource, false);
+        final GifImageContents imageContents = readFile(byteSource, true);
 
         final GifHeaderInfo bhi = imageContents.gifHeaderInfo;
         if (bhi == null) {
@@ -580,11 +667,15 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
         }
     }
 
-    private List<GifBlock> readBlocks(final GifHeaderInfo ghi, final InputStream is,
+    /**
+     * Reads the next block, skipping stray zero bytes and empty application
+     * extensions.
+     *
+     * @return the block, or {@code null} at the end of the GIF.
+     */
+    GifBlock readBlock(final GifHeaderInfo ghi, final InputStream is,
             final boolean stopBeforeImageData, final FormatCompliance formatCompliance)
             throws ImagingException, IOException {
-        final List<GifBlock> result = new ArrayList<>();
-
         while (true) {
             final int code = is.read();
 
@@ -593,13 +684,7 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
                 throw new ImagingException("GIF: unexpected end of data");
 
             case IMAGE_SEPARATOR:
-                final ImageDescriptor id = readImageDescriptor(ghi, code, is,
-                        stopBeforeImageData, formatCompliance);
-                result.add(id);
-                // if (stopBeforeImageData)
-                // return result;
-
-                break;
+                return readImageDescriptor(ghi, code, is, stopBeforeImageData, formatCompliance);
 
             case EXTENSION_CODE: {
                 final int extensionCode = is.read();
@@ -608,18 +693,11 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
 
                 switch (extensionCode) {
                 case 0xf9:
-                    final GraphicControlExtension gce = readGraphicControlExtension(
-                            completeCode, is);
-                    result.add(gce);
-                    break;
+                    return readGraphicControlExtension(completeCode, is);
 
                 case COMMENT_EXTENSION:
-                case PLAIN_TEXT_EXTENSION: {
-                    final GenericGifBlock block = readGenericGIFBlock(is,
-                            completeCode);
-                    result.add(block);
-                    break;
-                }
+                case PLAIN_TEXT_EXTENSION:
+                    return readGenericGIFBlock(is, completeCode);
 
                 case APPLICATION_EXTENSION_LABEL: {
                     // 255 (hex 0xFF) Application
@@ -634,9 +712,7 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
                     }
 
                     if (label.length > 0) {
-                        final GenericGifBlock block = readGenericGIFBlock(is,
-                                completeCode, label);
-                        result.add(block);
+                        return readGenericGIFBlock(is, completeCode, label);
                     }
                     break;
                 }
@@ -648,17 +724,14 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
                                 completeCode);
                     }
 
-                    final GenericGifBlock block = readGenericGIFBlock(is,
-                            completeCode);
-                    result.add(block);
-                    break;
+                    return readGenericGIFBlock(is, completeCode);
                 }
                 }
             }
                 break;
 
             case TERMINATOR_BYTE:
-                return result;
+                return null;
 
             case 0x00: // bad byte, but keep going and see what happens
                 break;
@@ -669,6 +742,17 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
         }
     }
 
+    private List<GifBlock> readBlocks(final GifHeaderInfo ghi, final InputStream is,
+            final boolean stopBeforeImageData, final FormatCompliance formatCompliance)
+            throws ImagingException, IOException {
+        final List<GifBlock> result = new ArrayList<>();
+        GifBlock block;
+        while ((block = readBlock(ghi, is, stopBeforeImageData, formatCompliance)) != null) {
+            result.add(block);
+        }
+        return result;
+    }
+
     private byte[] readColorTable(final InputStream is, final int tableSize) throws IOException {
         final int actualSize = convertColorTableSize(tableSize);
 
@@ -701,6 +785,34 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
         }
     }
 
+    /**
+     * Reads the blocks up to and including the first image descriptor and its
+     * image data, leaving the frames after it unread.
+     */
+    private GifImageContents readFirstImage(final ByteSource byteSource) throws ImagingException, IOException {
+        try (InputStream is = byteSource.getInputStream()) {
+            final GifHeaderInfo ghi = readHeader(is, FormatCompliance.getDefault());
+
+            byte[] globalColorTable = null;
+            if (ghi.globalColorTableFlag) {
+                globalColorTable = readColorTable(is,
+                        ghi.sizeOfGlobalColorTable);
+            }
+
+            final List<GifBlock> blocks = new ArrayList<>();
+            GifBlock block;
+            while ((block = readBlock(ghi, is, false, FormatCompliance.getDefault())) != null) {
+                blocks.add(block);
+                if (block.blockCode == IMAGE_SEPARATOR) {
+                    break;
+                }
+            }
+
+            return new GifImageContents(ghi, globalColorTable,
+                    blocks);
+        }
+    }
+
     private GenericGifBlock readGenericGIFBlock(final InputStream is, final int code)
             throws IOException {
         return readGenericGIFBlock(is, code, null);
@@ -867,31 +979,24 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
             localColorTable = readColorTable(is, sizeOfLocalColorTable);
         }
 
-        byte[] imageData = null;
-        if (!stopBeforeImageData) {
-            final int lzwMinimumCodeSize = is.read();
-
-            final GenericGifBlock block = readGenericGIFBlock(is, -1);
-            final byte[] bytes = block.appendSubBlocks();
-            final InputStream bais = new ByteArrayInputStream(bytes);
+        final int lzwMinimumCodeSize = is.read();
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            LOGGER.finest("LZWMinimumCodeSize: " + lzwMinimumCodeSize);
+        }
 
-            final int size = imageWidth * imageHeight;
-            final MyLzwDecompressor myLzwDecompressor = new MyLzwDecompressor(
-                    lzwMinimumCodeSize, ByteOrder.LITTLE_ENDIAN, false);
-            imageData = myLzwDecompressor.decompress(bais, size);
+        // the frame is decompressed only when it is decoded
+        byte[] compressedImageData = null;
+        if (!stopBeforeImageData) {
+            compressedImageData = readGenericGIFBlock(is, -1).appendSubBlocks();
         } else {
-            final int LZWMinimumCodeSize = is.read();
-            if (LOGGER.isLoggable(Level.FINEST)) {
-                LOGGER.finest("LZWMinimumCodeSize: " + LZWMinimumCodeSize);
-            }
-
-            readGenericGIFBlock(is, -1);
+            skipSubBlocks(is);
         }
 
         return new ImageDescriptor(blockCode,
                 imageLeftPosition, imageTopPosition, imageWidth, imageHeight,
                 packedFields, localColorTableFlag, interlaceFlag, sortFlag,
-                sizeOfLocalColorTable, localColorTable, imageData);
+                sizeOfLocalColorTable, localColorTable, lzwMinimumCodeSize,
+                compressedImageData);
     }
 
     private byte[] readSubBlock(final InputStream is) throws IOException {
@@ -910,6 +1015,13 @@ public class GifImageParser extends ImageParser<GifImagingParameters> implements
         return result;
     }
 
+    private void skipSubBlocks(final InputStream is) throws IOException {
+        int blockSize;
+        while ((blockSize = 0xff & readByte("block_size", is, "GIF: corrupt block")) > 0) {
+            skipBytes(is, blockSize, "GIF: corrupt block");
+        }
+    }
+
     private void writeAsSubBlocks(final OutputStream os, final byte[] bytes) throws IOException {
         int index = 0;
 
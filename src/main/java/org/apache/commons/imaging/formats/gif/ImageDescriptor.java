@@ -29,14 +29,21 @@ class ImageDescriptor extends GifBlock {
     final byte sizeOfLocalColorTable;
 
     final byte[] localColorTable;
-    final byte[] imageData;
+    final int lzwMinimumCodeSize;
+
+    /**
+     * The LZW-compressed image data with the sub-block lengths removed, or
+     * {@code null} if the image data was skipped. It is decompressed only
+     * when the frame is decoded.
+     */
+    final byte[] compressedImageData;
 
     ImageDescriptor(final int blockCode, final int imageLeftPosition,
             final int imageTopPosition, final int imageWidth, final int imageHeight,
             final byte packedFields, final boolean localColorTableFlag,
             final boolean interlaceFlag, final boolean sortFlag,
             final byte sizeofLocalColorTable, final byte[] localColorTable,
-            final byte[] imageData) {
+            final int lzwMinimumCodeSize, final byte[] compressedImageData) {
         super(blockCode);
 
         this.imageLeftPosition = imageLeftPosition;
@@ -50,6 +57,7 @@ class ImageDescriptor extends GifBlock {
         this.sizeOfLocalColorTable = sizeofLocalColorTable;
 
         this.localColorTable = localColorTable;
-        this.imageData = imageData;
+        this.lzwMinimumCodeSize = lzwMinimumCodeSize;
+        this.compressedImageData = compressedImageData;
     }
 }
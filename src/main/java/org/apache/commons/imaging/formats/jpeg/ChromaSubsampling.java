@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.imaging.formats.jpeg;
+
+/**
+ * Chroma subsampling used when writing JPEG images, given by how many luminance samples share each chrominance
+ * sample horizontally and vertically.
+ *
+ * @since 1.0-alpha4
+ */
+public enum ChromaSubsampling {
+
+    /** Full resolution chrominance. */
+    YCBCR_444(1, 1),
+
+    /** Chrominance at half the horizontal resolution. */
+    YCBCR_422(2, 1),
+
+    /** Chrominance at half the horizontal and half the vertical resolution. */
+    YCBCR_420(2, 2);
+
+    private final int horizontalSamplingFactor;
+    private final int verticalSamplingFactor;
+
+    ChromaSubsampling(final int horizontalSamplingFactor, final int verticalSamplingFactor) {
+        this.horizontalSamplingFactor = horizontalSamplingFactor;
+        this.verticalSamplingFactor = verticalSamplingFactor;
+    }
+
+    /**
+     * Gets the horizontal sampling factor of the luminance component.
+     *
+     * @return 1 or 2.
+     */
+    public int getHorizontalSamplingFactor() {
+        return horizontalSamplingFactor;
+    }
+
+    /**
+     * Gets the vertical sampling factor of the luminance component.
+     *
+     * @return 1 or 2.
+     */
+    public int getVerticalSamplingFactor() {
+        return verticalSamplingFactor;
+    }
+}
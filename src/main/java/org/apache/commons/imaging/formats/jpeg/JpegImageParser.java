@@ -22,11 +22,11 @@ import static org.apache.commons.imaging.common.BinaryFunctions.startsWith;
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -42,18 +42,17 @@ import org.apache.commons.imaging.common.ImageMetadata;
 import org.apache.commons.imaging.common.XmpEmbeddable;
 import org.apache.commons.imaging.common.XmpImagingParameters;
 import org.apache.commons.imaging.formats.jpeg.decoder.JpegDecoder;
+import org.apache.commons.imaging.formats.jpeg.encoder.JpegEncoder;
 import org.apache.commons.imaging.formats.jpeg.iptc.IptcParser;
 import org.apache.commons.imaging.formats.jpeg.iptc.PhotoshopApp13Data;
 import org.apache.commons.imaging.formats.jpeg.segments.App13Segment;
 import org.apache.commons.imaging.formats.jpeg.segments.App14Segment;
 import org.apache.commons.imaging.formats.jpeg.segments.App2Segment;
 import org.apache.commons.imaging.formats.jpeg.segments.ComSegment;
-import org.apache.commons.imaging.formats.jpeg.segments.DqtSegment;
 import org.apache.commons.imaging.formats.jpeg.segments.GenericSegment;
 import org.apache.commons.imaging.formats.jpeg.segments.JfifSegment;
 import org.apache.commons.imaging.formats.jpeg.segments.Segment;
 import org.apache.commons.imaging.formats.jpeg.segments.SofnSegment;
-import org.apache.commons.imaging.formats.jpeg.segments.UnknownSegment;
 import org.apache.commons.imaging.formats.jpeg.xmp.JpegXmpParser;
 import org.apache.commons.imaging.formats.tiff.TiffField;
 import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
@@ -216,7 +215,7 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
     @Override
     public final BufferedImage getBufferedImage(final ByteSource byteSource,
             final JpegImagingParameters params) throws ImagingException, IOException {
-        final JpegDecoder jpegDecoder = new JpegDecoder();
+        final JpegDecoder jpegDecoder = new JpegDecoder(params);
         return jpegDecoder.decode(byteSource);
     }
 
@@ -230,9 +229,24 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
         return new JpegImagingParameters();
     }
 
-    public TiffImageMetadata getExifMetadata(final ByteSource byteSource, TiffImagingParameters params)
+    public TiffImageMetadata getExifMetadata(final ByteSource byteSource, final TiffImagingParameters params)
             throws ImagingException, IOException {
-        final byte[] bytes = getExifRawData(byteSource);
+        return getExifMetadata(getSegmentIndex(byteSource), params);
+    }
+
+    /**
+     * Gets the EXIF metadata of a JPEG file whose segments have already been indexed.
+     *
+     * @param segmentIndex the segment index of the file.
+     * @param params optional parameters for reading the EXIF TIFF structure, may be null.
+     * @return the EXIF metadata, or null if the file has none.
+     * @throws ImagingException if the metadata is malformed.
+     * @throws IOException if the file cannot be read.
+     * @since 1.0-alpha4
+     */
+    public TiffImageMetadata getExifMetadata(final JpegSegmentIndex segmentIndex, TiffImagingParameters params)
+            throws ImagingException, IOException {
+        final byte[] bytes = getExifRawData(segmentIndex);
         if (null == bytes) {
             return null;
         }
@@ -247,7 +261,21 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
 
     public byte[] getExifRawData(final ByteSource byteSource)
             throws ImagingException, IOException {
-        final List<Segment> segments = readSegments(byteSource,
+        return getExifRawData(getSegmentIndex(byteSource));
+    }
+
+    /**
+     * Gets the raw EXIF TIFF structure of a JPEG file whose segments have already been indexed.
+     *
+     * @param segmentIndex the segment index of the file.
+     * @return the bytes following the EXIF identifier, or null if the file has no EXIF segment.
+     * @throws ImagingException if the EXIF data is split across several segments.
+     * @throws IOException if the file cannot be read.
+     * @since 1.0-alpha4
+     */
+    public byte[] getExifRawData(final JpegSegmentIndex segmentIndex)
+            throws ImagingException, IOException {
+        final List<Segment> segments = segmentIndex.getSegments(
                 new int[] { JpegConstants.JPEG_APP1_MARKER, }, false);
 
         if ((segments == null) || (segments.isEmpty())) {
@@ -285,7 +313,21 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
     @Override
     public byte[] getICCProfileBytes(final ByteSource byteSource, final JpegImagingParameters params)
             throws ImagingException, IOException {
-        final List<Segment> segments = readSegments(byteSource,
+        return getICCProfileBytes(getSegmentIndex(byteSource));
+    }
+
+    /**
+     * Gets the ICC profile of a JPEG file whose segments have already been indexed.
+     *
+     * @param segmentIndex the segment index of the file.
+     * @return the ICC profile assembled from the APP2 segments, or null if the file has none.
+     * @throws ImagingException if the APP2 segments are inconsistent.
+     * @throws IOException if the file cannot be read.
+     * @since 1.0-alpha4
+     */
+    public byte[] getICCProfileBytes(final JpegSegmentIndex segmentIndex)
+            throws ImagingException, IOException {
+        final List<Segment> segments = segmentIndex.getSegments(
                 new int[] { JpegConstants.JPEG_APP2_MARKER, }, false);
 
         final List<App2Segment> filtered = new ArrayList<>();
@@ -315,9 +357,22 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
     @Override
     public ImageInfo getImageInfo(final ByteSource byteSource, final JpegImagingParameters params)
             throws ImagingException, IOException {
-        // List allSegments = readSegments(byteSource, null, false);
+        return getImageInfo(getSegmentIndex(byteSource), params);
+    }
 
-        final List<Segment> SOF_segments = readSegments(byteSource, new int[] {
+    /**
+     * Gets the image information of a JPEG file whose segments have already been indexed.
+     *
+     * @param segmentIndex the segment index of the file.
+     * @param params optional parameters, may be null.
+     * @return the image information.
+     * @throws ImagingException if the file has no frame header or its metadata is malformed.
+     * @throws IOException if the file cannot be read.
+     * @since 1.0-alpha4
+     */
+    public ImageInfo getImageInfo(final JpegSegmentIndex segmentIndex, final JpegImagingParameters params)
+            throws ImagingException, IOException {
+        final List<Segment> SOF_segments = segmentIndex.getSegments(new int[] {
                 // kJFIFMarker,
 
                 JpegConstants.SOF0_MARKER,
@@ -344,7 +399,7 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
         // System.out.println("Incoherent SOFN Data Found: "
         // + SOF_segments.size());
 
-        final List<Segment> jfifSegments = readSegments(byteSource,
+        final List<Segment> jfifSegments = segmentIndex.getSegments(
                 new int[] { JpegConstants.JFIF_MARKER, }, true);
 
         final SofnSegment fSOFNSegment = (SofnSegment) SOF_segments.get(0);
@@ -364,7 +419,7 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
             jfifSegment = (JfifSegment) jfifSegments.get(0);
         }
 
-        final List<Segment> app14Segments = readSegments(byteSource, new int[] { JpegConstants.JPEG_APP14_MARKER}, true);
+        final List<Segment> app14Segments = segmentIndex.getSegments(new int[] { JpegConstants.JPEG_APP14_MARKER}, true);
         App14Segment app14Segment = null;
         if (app14Segments != null && !app14Segments.isEmpty()) {
             app14Segment = (App14Segment) app14Segments.get(0);
@@ -404,7 +459,7 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
             }
         } else {
             final JpegImageMetadata metadata = (JpegImageMetadata) getMetadata(
-                    byteSource, params);
+                    segmentIndex, params);
 
             if (metadata != null) {
                 {
@@ -457,7 +512,7 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
             physicalHeightInch = (float) (height / (yDensity * unitsPerInch));
         }
 
-        final List<Segment> commentSegments = readSegments(byteSource,
+        final List<Segment> commentSegments = segmentIndex.getSegments(
                 new int[] { JpegConstants.COM_MARKER}, false);
         final List<String> comments = Allocator.arrayList(commentSegments.size());
         for (final Segment commentSegment : commentSegments) {
@@ -682,14 +737,29 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
     }
 
     @Override
-    public ImageMetadata getMetadata(final ByteSource byteSource, JpegImagingParameters params)
+    public ImageMetadata getMetadata(final ByteSource byteSource, final JpegImagingParameters params)
+            throws ImagingException, IOException {
+        return getMetadata(getSegmentIndex(byteSource), params);
+    }
+
+    /**
+     * Gets the EXIF and Photoshop metadata of a JPEG file whose segments have already been indexed.
+     *
+     * @param segmentIndex the segment index of the file.
+     * @param params optional parameters, may be null.
+     * @return the metadata, or null if the file has neither EXIF nor Photoshop metadata.
+     * @throws ImagingException if the metadata is malformed.
+     * @throws IOException if the file cannot be read.
+     * @since 1.0-alpha4
+     */
+    public ImageMetadata getMetadata(final JpegSegmentIndex segmentIndex, JpegImagingParameters params)
             throws ImagingException, IOException {
         if (params == null) {
             params = new JpegImagingParameters();
         }
-        final TiffImageMetadata exif = getExifMetadata(byteSource, new TiffImagingParameters());
+        final TiffImageMetadata exif = getExifMetadata(segmentIndex, new TiffImagingParameters());
 
-        final JpegPhotoshopMetadata photoshop = getPhotoshopMetadata(byteSource, params);
+        final JpegPhotoshopMetadata photoshop = getPhotoshopMetadata(segmentIndex, params);
 
         if (null == exif && null == photoshop) {
             return null;
@@ -705,7 +775,22 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
 
     public JpegPhotoshopMetadata getPhotoshopMetadata(final ByteSource byteSource,
             final JpegImagingParameters params) throws ImagingException, IOException {
-        final List<Segment> segments = readSegments(byteSource,
+        return getPhotoshopMetadata(getSegmentIndex(byteSource), params);
+    }
+
+    /**
+     * Gets the Photoshop APP13 metadata of a JPEG file whose segments have already been indexed.
+     *
+     * @param segmentIndex the segment index of the file.
+     * @param params optional parameters, may be null.
+     * @return the Photoshop metadata, or null if the file has none.
+     * @throws ImagingException if the metadata is malformed or present more than once.
+     * @throws IOException if the file cannot be read.
+     * @since 1.0-alpha4
+     */
+    public JpegPhotoshopMetadata getPhotoshopMetadata(final JpegSegmentIndex segmentIndex,
+            final JpegImagingParameters params) throws ImagingException, IOException {
+        final List<Segment> segments = segmentIndex.getSegments(
                 new int[] { JpegConstants.JPEG_APP13_MARKER, }, false);
 
         if ((segments == null) || (segments.isEmpty())) {
@@ -732,6 +817,21 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
         return new JpegPhotoshopMetadata(photoshopApp13Data);
     }
 
+    /**
+     * Indexes the segments of a JPEG file in a single pass, stopping at the
+     * image data. The index can be passed to the metadata methods of this
+     * parser so that several queries on the same file read it only once.
+     *
+     * @param byteSource the file to index.
+     * @return the segment index.
+     * @throws ImagingException if the file is not a valid JPEG file.
+     * @throws IOException if the file cannot be read.
+     * @since 1.0-alpha4
+     */
+    public JpegSegmentIndex getSegmentIndex(final ByteSource byteSource) throws ImagingException, IOException {
+        return JpegSegmentIndex.read(byteSource);
+    }
+
     /**
      * Extracts embedded XML metadata as XML string.
      * <p>
@@ -745,277 +845,78 @@ public class JpegImageParser extends ImageParser<JpegImagingParameters> implemen
     @Override
     public String getXmpXml(final ByteSource byteSource, final XmpImagingParameters<JpegImagingParameters> params)
             throws ImagingException, IOException {
+        return getXmpXml(getSegmentIndex(byteSource));
+    }
 
-        final List<String> result = new ArrayList<>();
-
-        final JpegUtils.Visitor visitor = new JpegUtils.Visitor() {
-            // return false to exit before reading image data.
-            @Override
-            public boolean beginSOS() {
-                return false;
-            }
-
-            // return false to exit traversal.
-            @Override
-            public boolean visitSegment(final int marker, final byte[] markerBytes,
-                    final int markerLength, final byte[] markerLengthBytes,
-                    final byte[] segmentData) throws ImagingException {
-                if (marker == 0xffd9) {
-                    return false;
-                }
-
-                if (marker == JpegConstants.JPEG_APP1_MARKER) {
-                    if (new JpegXmpParser().isXmpJpegSegment(segmentData)) {
-                        result.add(new JpegXmpParser().parseXmpJpegSegment(segmentData));
-                        return false;
-                    }
+    /**
+     * Extracts embedded XML metadata as XML string from a JPEG file whose
+     * segments have already been indexed.
+     *
+     * @param segmentIndex
+     *            the segment index of the file.
+     * @return Xmp Xml as String, if present. Otherwise, returns null.
+     * @throws ImagingException if the XMP segment is malformed.
+     * @throws IOException if the file cannot be read.
+     * @since 1.0-alpha4
+     */
+    public String getXmpXml(final JpegSegmentIndex segmentIndex) throws ImagingException, IOException {
+        final JpegXmpParser xmpParser = new JpegXmpParser();
+        for (int i = 0; i < segmentIndex.size(); i++) {
+            if (segmentIndex.getMarker(i) == JpegConstants.JPEG_APP1_MARKER) {
+                final byte[] segmentData = segmentIndex.getSegmentData(i);
+                if (xmpParser.isXmpJpegSegment(segmentData)) {
+                    return xmpParser.parseXmpJpegSegment(segmentData);
                 }
-
-                return true;
-            }
-
-            @Override
-            public void visitSOS(final int marker, final byte[] markerBytes,
-                    final byte[] imageData) {
-                // don't need image data
             }
-        };
-        new JpegUtils().traverseJFIF(byteSource, visitor);
-
-        if (result.isEmpty()) {
-            return null;
         }
-        if (result.size() > 1) {
-            throw new ImagingException(
-                    "JPEG file contains more than one XMP segment.");
-        }
-        return result.get(0);
+        return null;
     }
 
     public boolean hasExifSegment(final ByteSource byteSource)
             throws ImagingException, IOException {
-        final boolean[] result = { false, };
-
-        final JpegUtils.Visitor visitor = new JpegUtils.Visitor() {
-            // return false to exit before reading image data.
-            @Override
-            public boolean beginSOS() {
-                return false;
-            }
-
-            // return false to exit traversal.
-            @Override
-            public boolean visitSegment(final int marker, final byte[] markerBytes,
-                    final int markerLength, final byte[] markerLengthBytes,
-                    final byte[] segmentData) {
-                if (marker == 0xffd9) {
-                    return false;
-                }
-
-                if (marker == JpegConstants.JPEG_APP1_MARKER) {
-                    if (startsWith(segmentData, JpegConstants.EXIF_IDENTIFIER_CODE)) {
-                        result[0] = true;
-                        return false;
-                    }
-                }
-
+        final JpegSegmentIndex segmentIndex = getSegmentIndex(byteSource);
+        for (int i = 0; i < segmentIndex.size(); i++) {
+            if (segmentIndex.getMarker(i) == JpegConstants.JPEG_APP1_MARKER
+                    && startsWith(segmentIndex.getSegmentData(i), JpegConstants.EXIF_IDENTIFIER_CODE)) {
                 return true;
             }
-
-            @Override
-            public void visitSOS(final int marker, final byte[] markerBytes,
-                    final byte[] imageData) {
-                // don't need image data
-            }
-        };
-
-        new JpegUtils().traverseJFIF(byteSource, visitor);
-
-        return result[0];
+        }
+        return false;
     }
 
     public boolean hasIptcSegment(final ByteSource byteSource)
             throws ImagingException, IOException {
-        final boolean[] result = { false, };
-
-        final JpegUtils.Visitor visitor = new JpegUtils.Visitor() {
-            // return false to exit before reading image data.
-            @Override
-            public boolean beginSOS() {
-                return false;
-            }
-
-            // return false to exit traversal.
-            @Override
-            public boolean visitSegment(final int marker, final byte[] markerBytes,
-                    final int markerLength, final byte[] markerLengthBytes,
-                    final byte[] segmentData) {
-                if (marker == 0xffd9) {
-                    return false;
-                }
-
-                if (marker == JpegConstants.JPEG_APP13_MARKER) {
-                    if (new IptcParser().isPhotoshopJpegSegment(segmentData)) {
-                        result[0] = true;
-                        return false;
-                    }
-                }
-
+        final JpegSegmentIndex segmentIndex = getSegmentIndex(byteSource);
+        final IptcParser iptcParser = new IptcParser();
+        for (int i = 0; i < segmentIndex.size(); i++) {
+            if (segmentIndex.getMarker(i) == JpegConstants.JPEG_APP13_MARKER
+                    && iptcParser.isPhotoshopJpegSegment(segmentIndex.getSegmentData(i))) {
                 return true;
             }
-
-            @Override
-            public void visitSOS(final int marker, final byte[] markerBytes,
-                    final byte[] imageData) {
-                // don't need image data
-            }
-        };
-
-        new JpegUtils().traverseJFIF(byteSource, visitor);
-
-        return result[0];
+        }
+        return false;
     }
 
     public boolean hasXmpSegment(final ByteSource byteSource)
             throws ImagingException, IOException {
-        final boolean[] result = { false, };
-
-        final JpegUtils.Visitor visitor = new JpegUtils.Visitor() {
-            // return false to exit before reading image data.
-            @Override
-            public boolean beginSOS() {
-                return false;
-            }
-
-            // return false to exit traversal.
-            @Override
-            public boolean visitSegment(final int marker, final byte[] markerBytes,
-                    final int markerLength, final byte[] markerLengthBytes,
-                    final byte[] segmentData) {
-                if (marker == 0xffd9) {
-                    return false;
-                }
-
-                if (marker == JpegConstants.JPEG_APP1_MARKER) {
-                    if (new JpegXmpParser().isXmpJpegSegment(segmentData)) {
-                        result[0] = true;
-                        return false;
-                    }
-                }
-
+        final JpegSegmentIndex segmentIndex = getSegmentIndex(byteSource);
+        final JpegXmpParser xmpParser = new JpegXmpParser();
+        for (int i = 0; i < segmentIndex.size(); i++) {
+            if (segmentIndex.getMarker(i) == JpegConstants.JPEG_APP1_MARKER
+                    && xmpParser.isXmpJpegSegment(segmentIndex.getSegmentData(i))) {
                 return true;
             }
-
-            @Override
-            public void visitSOS(final int marker, final byte[] markerBytes,
-                    final byte[] imageData) {
-                // don't need image data
-            }
-        };
-        new JpegUtils().traverseJFIF(byteSource, visitor);
-
-        return result[0];
-    }
-
-    private boolean keepMarker(final int marker, final int[] markers) {
-        if (markers == null) {
-            return true;
         }
-
-        for (final int marker2 : markers) {
-            if (marker2 == marker) {
-                return true;
-            }
-        }
-
         return false;
     }
 
     public List<Segment> readSegments(final ByteSource byteSource, final int[] markers, final boolean returnAfterFirst) throws ImagingException, IOException {
-        final List<Segment> result = new ArrayList<>();
-        final int[] sofnSegments = {
-                // kJFIFMarker,
-                JpegConstants.SOF0_MARKER,
-                JpegConstants.SOF1_MARKER,
-                JpegConstants.SOF2_MARKER,
-                JpegConstants.SOF3_MARKER,
-                JpegConstants.SOF5_MARKER,
-                JpegConstants.SOF6_MARKER,
-                JpegConstants.SOF7_MARKER,
-                JpegConstants.SOF9_MARKER,
-                JpegConstants.SOF10_MARKER,
-                JpegConstants.SOF11_MARKER,
-                JpegConstants.SOF13_MARKER,
-                JpegConstants.SOF14_MARKER,
-                JpegConstants.SOF15_MARKER,
-        };
-
-        final JpegUtils.Visitor visitor = new JpegUtils.Visitor() {
-            // return false to exit before reading image data.
-            @Override
-            public boolean beginSOS() {
-                return false;
-            }
-
-            // return false to exit traversal.
-            @Override
-            public boolean visitSegment(final int marker, final byte[] markerBytes,
-                    final int markerLength, final byte[] markerLengthBytes,
-                    final byte[] segmentData) throws ImagingException, IOException {
-                if (marker == JpegConstants.EOI_MARKER) {
-                    return false;
-                }
-
-                // Debug.debug("visitSegment marker", marker);
-                // // Debug.debug("visitSegment keepMarker(marker, markers)",
-                // keepMarker(marker, markers));
-                // Debug.debug("visitSegment keepMarker(marker, markers)",
-                // keepMarker(marker, markers));
-
-                if (!keepMarker(marker, markers)) {
-                    return true;
-                }
-
-                switch (marker) {
-                case JpegConstants.JPEG_APP13_MARKER:
-                    // Debug.debug("app 13 segment data", segmentData.length);
-                    result.add(new App13Segment(marker, segmentData));
-                    break;
-                case JpegConstants.JPEG_APP14_MARKER:
-                    result.add(new App14Segment(marker, segmentData));
-                    break;
-                case JpegConstants.JPEG_APP2_MARKER:
-                    result.add(new App2Segment(marker, segmentData));
-                    break;
-                case JpegConstants.JFIF_MARKER:
-                    result.add(new JfifSegment(marker, segmentData));
-                    break;
-                default:
-                    if (Arrays.binarySearch(sofnSegments, marker) >= 0) {
-                        result.add(new SofnSegment(marker, segmentData));
-                    } else if (marker == JpegConstants.DQT_MARKER) {
-                        result.add(new DqtSegment(marker, segmentData));
-                    } else if ((marker >= JpegConstants.JPEG_APP1_MARKER)
-                            && (marker <= JpegConstants.JPEG_APP15_MARKER)) {
-                        result.add(new UnknownSegment(marker, segmentData));
-                    } else if (marker == JpegConstants.COM_MARKER) {
-                        result.add(new ComSegment(marker, segmentData));
-                    }
-                    break;
-                }
-
-                return !returnAfterFirst;
-            }
-
-            @Override
-            public void visitSOS(final int marker, final byte[] markerBytes,
-                    final byte[] imageData) {
-                // don't need image data
-            }
-        };
-
-        new JpegUtils().traverseJFIF(byteSource, visitor);
+        return getSegmentIndex(byteSource).getSegments(markers, returnAfterFirst);
+    }
 
-        return result;
+    @Override
+    public void writeImage(final BufferedImage src, final OutputStream os, final JpegImagingParameters params)
+            throws ImagingException, IOException {
+        new JpegEncoder(params).encode(src, os);
     }
 }
@@ -15,6 +15,9 @@
 
 package org.apache.commons.imaging.formats.jpeg;
 
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
 import org.apache.commons.imaging.common.XmpImagingParameters;
 
 /**
@@ -23,5 +26,222 @@ import org.apache.commons.imaging.common.XmpImagingParameters;
  * @since 1.0-alpha3
  */
 public class JpegImagingParameters extends XmpImagingParameters<JpegImagingParameters> {
-    // empty
+
+    /**
+     * Chroma subsampling used when writing color images. Default is {@link ChromaSubsampling#YCBCR_420}.
+     */
+    private ChromaSubsampling chromaSubsampling = ChromaSubsampling.YCBCR_420;
+
+    /**
+     * Executor used to decode restart intervals concurrently, or to transform and encode rows of blocks concurrently
+     * when writing, or {@code null} to work serially.
+     *
+     * <p>Only the entropy-coded data of images with restart intervals (a DRI marker) can be split across threads;
+     * for others, only upsampling and color conversion are. The decoded pixels, and the written bytes, are identical
+     * in both modes. Default is {@code null}.</p>
+     */
+    private Executor executor;
+
+    /**
+     * Whether subsampled components are upsampled with a triangle filter when decoding, which weighs the nearest
+     * sample 3/4 and the next nearest 1/4 in each direction, like the "fancy upsampling" of the IJG library, instead
+     * of replicating the nearest sample. It gives smoother color edges at a small cost. Default is {@code false}.
+     */
+    private boolean fancyUpsampling;
+
+    /**
+     * Whether to write Huffman tables computed for the image instead of the standard tables, which makes the file
+     * smaller at the cost of a second pass over the image. Default is {@code false}.
+     */
+    private boolean optimizeHuffmanTables;
+
+    /**
+     * Quality used when writing, from 1 to 100, which scales the example quantization tables of the JPEG
+     * specification the same way as the IJG library does. Default is 75.
+     */
+    private int quality = 75;
+
+    /**
+     * Number of rows of MCUs in each restart interval written, or 0 to write no restart intervals. Restart
+     * intervals let readers and writers split entropy coding across threads. Default is 0.
+     */
+    private int restartIntervalRows;
+
+    /**
+     * Denominator of the scale at which images are decoded: 1, 2, 4 or 8.
+     *
+     * <p>A scaled image is produced directly from the low-frequency DCT coefficients, which costs a fraction of a
+     * full decode followed by a resize. Default is 1, full size.</p>
+     */
+    private int scaleDenominator = 1;
+
+    /**
+     * Gets the chroma subsampling used when writing color images.
+     *
+     * @return the chroma subsampling.
+     * @since 1.0-alpha4
+     */
+    public ChromaSubsampling getChromaSubsampling() {
+        return chromaSubsampling;
+    }
+
+    /**
+     * Gets the executor used to decode restart intervals, or to transform and encode rows of blocks, concurrently.
+     *
+     * @return the executor, or {@code null} if decoding and encoding are serial.
+     * @since 1.0-alpha4
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Gets the quality used when writing.
+     *
+     * @return the quality, from 1 to 100.
+     * @since 1.0-alpha4
+     */
+    public int getQuality() {
+        return quality;
+    }
+
+    /**
+     * Gets the number of rows of MCUs in each restart interval written.
+     *
+     * @return the number of rows, or 0 if no restart intervals are written.
+     * @since 1.0-alpha4
+     */
+    public int getRestartIntervalRows() {
+        return restartIntervalRows;
+    }
+
+    /**
+     * Gets the denominator of the scale at which images are decoded.
+     *
+     * @return 1, 2, 4 or 8.
+     * @since 1.0-alpha4
+     */
+    public int getScaleDenominator() {
+        return scaleDenominator;
+    }
+
+    /**
+     * Tests whether subsampled components are upsampled with a triangle filter when decoding.
+     *
+     * @return whether fancy upsampling is used.
+     * @since 1.0-alpha4
+     */
+    public boolean isFancyUpsampling() {
+        return fancyUpsampling;
+    }
+
+    /**
+     * Tests whether Huffman tables computed for the image are written instead of the standard tables.
+     *
+     * @return whether Huffman tables are optimized.
+     * @since 1.0-alpha4
+     */
+    public boolean isOptimizeHuffmanTables() {
+        return optimizeHuffmanTables;
+    }
+
+    /**
+     * Sets the chroma subsampling used when writing color images. Grayscale images have no chrominance and ignore
+     * this setting.
+     *
+     * @param chromaSubsampling the chroma subsampling.
+     * @return this instance.
+     * @since 1.0-alpha4
+     */
+    public JpegImagingParameters setChromaSubsampling(final ChromaSubsampling chromaSubsampling) {
+        this.chromaSubsampling = Objects.requireNonNull(chromaSubsampling, "chromaSubsampling");
+        return asThis();
+    }
+
+    /**
+     * Sets the executor used to decode restart intervals, or to transform and encode rows of blocks, concurrently,
+     * for example {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+     *
+     * @param executor the executor, or {@code null} to decode and encode serially.
+     * @return this instance.
+     * @since 1.0-alpha4
+     */
+    public JpegImagingParameters setExecutor(final Executor executor) {
+        this.executor = executor;
+        return asThis();
+    }
+
+    /**
+     * Sets whether subsampled components are upsampled with a triangle filter when decoding, rather than by
+     * replicating the nearest sample. Components subsampled by other than 1 or 2 are always replicated.
+     *
+     * @param fancyUpsampling whether to use fancy upsampling.
+     * @return this instance.
+     * @since 1.0-alpha4
+     */
+    public JpegImagingParameters setFancyUpsampling(final boolean fancyUpsampling) {
+        this.fancyUpsampling = fancyUpsampling;
+        return asThis();
+    }
+
+    /**
+     * Sets whether to write Huffman tables computed for the image instead of the standard tables.
+     *
+     * @param optimizeHuffmanTables whether to optimize Huffman tables.
+     * @return this instance.
+     * @since 1.0-alpha4
+     */
+    public JpegImagingParameters setOptimizeHuffmanTables(final boolean optimizeHuffmanTables) {
+        this.optimizeHuffmanTables = optimizeHuffmanTables;
+        return asThis();
+    }
+
+    /**
+     * Sets the quality used when writing. 50 writes the example quantization tables of the JPEG specification,
+     * higher values divide them down towards 1 and lower values multiply them up.
+     *
+     * @param quality the quality, from 1 to 100.
+     * @return this instance.
+     * @since 1.0-alpha4
+     */
+    public JpegImagingParameters setQuality(final int quality) {
+        if (quality < 1 || quality > 100) {
+            throw new IllegalArgumentException("Invalid quality " + quality + ", must be between 1 and 100");
+        }
+        this.quality = quality;
+        return asThis();
+    }
+
+    /**
+     * Sets the number of rows of MCUs in each restart interval written. Without restart intervals only the
+     * transform of blocks can use the {@link #setExecutor(Executor) executor}; with them the entropy coding can too,
+     * for a few bytes per interval.
+     *
+     * @param restartIntervalRows the number of rows, or 0 to write no restart intervals.
+     * @return this instance.
+     * @since 1.0-alpha4
+     */
+    public JpegImagingParameters setRestartIntervalRows(final int restartIntervalRows) {
+        if (restartIntervalRows < 0) {
+            throw new IllegalArgumentException("Invalid restart interval rows " + restartIntervalRows + ", must not be negative");
+        }
+        this.restartIntervalRows = restartIntervalRows;
+        return asThis();
+    }
+
+    /**
+     * Sets the denominator of the scale at which images are decoded. An image of width {@code w} is decoded to a
+     * width of {@code ceil(w / scaleDenominator)}, and likewise for the height.
+     *
+     * @param scaleDenominator 1 for full size, or 2, 4 or 8 for a half, quarter or eighth size image.
+     * @return this instance.
+     * @since 1.0-alpha4
+     */
+    public JpegImagingParameters setScaleDenominator(final int scaleDenominator) {
+        if (scaleDenominator != 1 && scaleDenominator != 2 && scaleDenominator != 4 && scaleDenominator != 8) {
+            throw new IllegalArgumentException("Invalid scale denominator " + scaleDenominator + ", must be 1, 2, 4 or 8");
+        }
+        this.scaleDenominator = scaleDenominator;
+        return asThis();
+    }
 }
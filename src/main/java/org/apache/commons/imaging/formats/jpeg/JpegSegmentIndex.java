@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.jpeg;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.BinaryFunctions;
+import org.apache.commons.imaging.formats.jpeg.segments.App13Segment;
+import org.apache.commons.imaging.formats.jpeg.segments.App14Segment;
+import org.apache.commons.imaging.formats.jpeg.segments.App2Segment;
+import org.apache.commons.imaging.formats.jpeg.segments.ComSegment;
+import org.apache.commons.imaging.formats.jpeg.segments.DqtSegment;
+import org.apache.commons.imaging.formats.jpeg.segments.JfifSegment;
+import org.apache.commons.imaging.formats.jpeg.segments.Segment;
+import org.apache.commons.imaging.formats.jpeg.segments.SofnSegment;
+import org.apache.commons.imaging.formats.jpeg.segments.UnknownSegment;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Index of the segments that precede the image data of a JPEG file.
+ * <p>
+ * The index is built in a single pass over the marker stream that skips
+ * segment payloads and stops at the first SOS or EOI marker. Each entry
+ * records the segment's marker and the offset and length of its payload;
+ * payloads are read from the byte source only when first requested and
+ * are then kept, so one index can serve any number of metadata queries on
+ * the same source without reading it again.
+ * </p>
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ *
+ * @see JpegImageParser#getSegmentIndex(ByteSource)
+ * @since 1.0-alpha4
+ */
+public final class JpegSegmentIndex {
+
+    private static final int[] SOFN_MARKERS = {
+            JpegConstants.SOF0_MARKER,
+            JpegConstants.SOF1_MARKER,
+            JpegConstants.SOF2_MARKER,
+            JpegConstants.SOF3_MARKER,
+            JpegConstants.SOF5_MARKER,
+            JpegConstants.SOF6_MARKER,
+            JpegConstants.SOF7_MARKER,
+            JpegConstants.SOF9_MARKER,
+            JpegConstants.SOF10_MARKER,
+            JpegConstants.SOF11_MARKER,
+            JpegConstants.SOF13_MARKER,
+            JpegConstants.SOF14_MARKER,
+            JpegConstants.SOF15_MARKER,
+    };
+
+    private static boolean keepMarker(final int marker, final int[] markers) {
+        if (markers == null) {
+            return true;
+        }
+
+        for (final int marker2 : markers) {
+            if (marker2 == marker) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Indexes the segments of a JPEG file.
+     *
+     * @param byteSource the file to index.
+     * @return the segment index.
+     * @throws ImagingException if the file does not start with SOI or a segment is truncated.
+     * @throws IOException if the file cannot be read.
+     */
+    public static JpegSegmentIndex read(final ByteSource byteSource) throws ImagingException, IOException {
+        long imageDataOffset = -1;
+        int count = 0;
+        int[] markers = new int[16];
+        long[] dataOffsets = new long[16];
+        int[] dataLengths = new int[16];
+
+        try (InputStream is = byteSource.getInputStream()) {
+            BinaryFunctions.readAndVerifyBytes(is, JpegConstants.SOI, "Not a Valid JPEG File: doesn't begin with 0xffd8");
+            long position = JpegConstants.SOI.size();
+
+            // a file that ends before the image data is indexed up to its last segment; callers report what is missing
+            int previous = 0;
+            int current;
+            while ((current = is.read()) >= 0) {
+                position++;
+                if (previous != 0xff || current == 0xff) {
+                    // skip fill bytes and anything else before the next marker
+                    previous = current;
+                    continue;
+                }
+                previous = 0;
+                final int marker = 0xff00 | current;
+
+                if (marker == JpegConstants.SOS_MARKER) {
+                    imageDataOffset = position;
+                    break;
+                }
+                if (marker == JpegConstants.EOI_MARKER) {
+                    break;
+                }
+
+                final int segmentLength = (0xff & BinaryFunctions.readByte("segmentLength", is, "segmentLengthBytes")) << 8
+                        | (0xff & BinaryFunctions.readByte("segmentLength", is, "segmentLengthBytes"));
+                position += 2;
+                if (segmentLength < 2) {
+                    throw new ImagingException("Invalid segment size");
+                }
+
+                final int dataLength = segmentLength - 2;
+                if (IOUtils.skip(is, dataLength) != dataLength) {
+                    throw new ImagingException("Invalid Segment: insufficient data");
+                }
+                if (count == markers.length) {
+                    markers = Arrays.copyOf(markers, 2 * count);
+                    dataOffsets = Arrays.copyOf(dataOffsets, 2 * count);
+                    dataLengths = Arrays.copyOf(dataLengths, 2 * count);
+                }
+                markers[count] = marker;
+                dataOffsets[count] = position;
+                dataLengths[count] = dataLength;
+                count++;
+                position += dataLength;
+            }
+        }
+
+        return new JpegSegmentIndex(byteSource, Arrays.copyOf(markers, count),
+                Arrays.copyOf(dataOffsets, count), Arrays.copyOf(dataLengths, count), imageDataOffset);
+    }
+
+    private final ByteSource byteSource;
+    private final int[] markers;
+    private final long[] dataOffsets;
+    private final int[] dataLengths;
+    private final byte[][] data;
+    private final Segment[] segments;
+    private final long imageDataOffset;
+
+    private JpegSegmentIndex(final ByteSource byteSource, final int[] markers, final long[] dataOffsets, final int[] dataLengths,
+            final long imageDataOffset) {
+        this.byteSource = byteSource;
+        this.markers = markers;
+        this.dataOffsets = dataOffsets;
+        this.dataLengths = dataLengths;
+        this.data = new byte[markers.length][];
+        this.segments = new Segment[markers.length];
+        this.imageDataOffset = imageDataOffset;
+    }
+
+    /**
+     * Gets the byte source this index was built from.
+     *
+     * @return the byte source.
+     */
+    public ByteSource getByteSource() {
+        return byteSource;
+    }
+
+    /**
+     * Gets the length of a segment's payload, which excludes the marker and
+     * the two length bytes.
+     *
+     * @param index the position of the segment in the file, from zero.
+     * @return the payload length in bytes.
+     */
+    public int getDataLength(final int index) {
+        return dataLengths[index];
+    }
+
+    /**
+     * Gets the offset of a segment's payload from the start of the file.
+     *
+     * @param index the position of the segment in the file, from zero.
+     * @return the payload offset in bytes.
+     */
+    public long getDataOffset(final int index) {
+        return dataOffsets[index];
+    }
+
+    /**
+     * Gets the offset of the image data, which starts with the length of the
+     * first SOS segment and continues with its entropy-coded data.
+     *
+     * @return the offset of the byte following the first SOS marker, or -1 if
+     *         the file ends without one.
+     */
+    public long getImageDataOffset() {
+        return imageDataOffset;
+    }
+
+    /**
+     * Gets the marker of a segment, for example {@link JpegConstants#JPEG_APP1_MARKER}.
+     *
+     * @param index the position of the segment in the file, from zero.
+     * @return the marker.
+     */
+    public int getMarker(final int index) {
+        return markers[index];
+    }
+
+    /**
+     * Gets a segment's payload, reading it from the byte source on first use.
+     *
+     * @param index the position of the segment in the file, from zero.
+     * @return the payload, shared with later callers, so it must not be modified.
+     * @throws IOException if the payload cannot be read.
+     */
+    public byte[] getSegmentData(final int index) throws IOException {
+        if (data[index] == null) {
+            data[index] = byteSource.getByteArray(dataOffsets[index], dataLengths[index]);
+        }
+        return data[index];
+    }
+
+    private Segment getSegment(final int index) throws ImagingException, IOException {
+        if (segments[index] != null) {
+            return segments[index];
+        }
+
+        final int marker = markers[index];
+        final byte[] segmentData = getSegmentData(index);
+        final Segment segment;
+        switch (marker) {
+        case JpegConstants.JPEG_APP13_MARKER:
+            segment = new App13Segment(marker, segmentData);
+            break;
+        case JpegConstants.JPEG_APP14_MARKER:
+            segment = new App14Segment(marker, segmentData);
+            break;
+        case JpegConstants.JPEG_APP2_MARKER:
+            segment = new App2Segment(marker, segmentData);
+            break;
+        case JpegConstants.JFIF_MARKER:
+            segment = new JfifSegment(marker, segmentData);
+            break;
+        default:
+            if (Arrays.binarySearch(SOFN_MARKERS, marker) >= 0) {
+                segment = new SofnSegment(marker, segmentData);
+            } else if (marker == JpegConstants.DQT_MARKER) {
+                segment = new DqtSegment(marker, segmentData);
+            } else if ((marker >= JpegConstants.JPEG_APP1_MARKER)
+                    && (marker <= JpegConstants.JPEG_APP15_MARKER)) {
+                segment = new UnknownSegment(marker, segmentData);
+            } else if (marker == JpegConstants.COM_MARKER) {
+                segment = new ComSegment(marker, segmentData);
+            } else {
+                segment = null;
+            }
+            break;
+        }
+        segments[index] = segment;
+        return segment;
+    }
+
+    /**
+     * Gets the parsed segments with the given markers, in file order. Only
+     * the payloads of matching segments are read. Segments of kinds the
+     * parser does not model, such as DHT and DRI, are omitted.
+     *
+     * @param markers the markers to keep, or {@code null} to keep all.
+     * @param returnAfterFirst whether to stop at the first matching segment.
+     * @return the segments, never {@code null}.
+     * @throws ImagingException if a segment is malformed.
+     * @throws IOException if a payload cannot be read.
+     */
+    public List<Segment> getSegments(final int[] markers, final boolean returnAfterFirst) throws ImagingException, IOException {
+        final List<Segment> result = new ArrayList<>();
+        for (int i = 0; i < this.markers.length; i++) {
+            if (!keepMarker(this.markers[i], markers)) {
+                continue;
+            }
+            final Segment segment = getSegment(i);
+            if (segment != null) {
+                result.add(segment);
+            }
+            if (returnAfterFirst) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of segments before the image data.
+     *
+     * @return the segment count.
+     */
+    public int size() {
+        return markers.length;
+    }
+}
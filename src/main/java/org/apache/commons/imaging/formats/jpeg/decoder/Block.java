@@ -1,32 +0,0 @@
-/*
- *  Licensed under the Apache License, Version 2.0 (the "License");
- *  you may not use this file except in compliance with the License.
- *  You may obtain a copy of the License at
- *
- *       http://www.apache.org/licenses/LICENSE-2.0
- *
- *  Unless required by applicable law or agreed to in writing, software
- *  distributed under the License is distributed on an "AS IS" BASIS,
- *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- *  See the License for the specific language governing permissions and
- *  limitations under the License.
- *  under the License.
- */
-
-package org.apache.commons.imaging.formats.jpeg.decoder;
-
-import org.apache.commons.imaging.common.Allocator;
-
-final class Block {
-
-    static final int SHALLOW_SIZE = 24;
-    final int[] samples;
-    final int width;
-    final int height;
-
-    Block(final int width, final int height) {
-        this.samples = Allocator.intArray(width * height);
-        this.width = width;
-        this.height = height;
-    }
-}
@@ -15,7 +15,12 @@
 
 package org.apache.commons.imaging.formats.jpeg.decoder;
 
-final class Dct {
+/**
+ * The forward and inverse discrete cosine transforms of JPEG blocks, shared by the decoder and the encoder.
+ *
+ * @since 1.0-alpha4
+ */
+public final class Dct {
     /*
      * The book "JPEG still image data compression standard", by Pennebaker and
      * Mitchell, Chapter 4, discusses a number of approaches to the fast DCT.
@@ -96,6 +101,11 @@ final class Dct {
     private static final float Q = C2 - C6;
     private static final float R = C2 + C6;
 
+    // half the cosines of the reduced size inverse transforms, which keep the 8 point normalisation
+    private static final float H1 = (float) (0.5 * Math.cos(Math.PI / 8.0));
+    private static final float H2 = (float) (0.5 * Math.cos(2.0 * Math.PI / 8.0));
+    private static final float H3 = (float) (0.5 * Math.cos(3.0 * Math.PI / 8.0));
+
     /**
      * Fast forward Dct using AA&N. Taken from the book
      * "JPEG still image data compression standard", by Pennebaker and Mitchell,
@@ -347,6 +357,65 @@ final class Dct {
         }
     }
 
+    /**
+     * Inverse Dct producing an eighth size, 1x1 output, which is the mean of
+     * the 8x8 block. Only the DC coefficient of the matrix is used.
+     * Coefficients must be dequantized but not scaled for AA&N.
+     */
+    public static void inverseDCT1x1(final float[] matrix) {
+        matrix[0] *= 0.125f;
+    }
+
+    /**
+     * Inverse Dct producing a quarter size, 2x2 output from the low frequency
+     * 2x2 coefficients in the top left of the 8x8 matrix. The output is left
+     * in the top left 2x2 of the matrix, which keeps its row stride of 8.
+     * Coefficients must be dequantized but not scaled for AA&N.
+     */
+    public static void inverseDCT2x2(final float[] matrix) {
+        final float e0 = H2 * (matrix[0] + matrix[1]);
+        final float e1 = H2 * (matrix[0] - matrix[1]);
+        final float o0 = H2 * (matrix[8] + matrix[9]);
+        final float o1 = H2 * (matrix[8] - matrix[9]);
+        matrix[0] = H2 * (e0 + o0);
+        matrix[1] = H2 * (e1 + o1);
+        matrix[8] = H2 * (e0 - o0);
+        matrix[9] = H2 * (e1 - o1);
+    }
+
+    /**
+     * Inverse Dct producing a half size, 4x4 output from the low frequency
+     * 4x4 coefficients in the top left of the 8x8 matrix, evaluating the
+     * 4 point inverse transform on their cosines. The output is left in the
+     * top left 4x4 of the matrix, which keeps its row stride of 8.
+     * Coefficients must be dequantized but not scaled for AA&N.
+     */
+    public static void inverseDCT4x4(final float[] matrix) {
+        float e0, e1, o0, o1;
+
+        for (int i = 0; i < 4; i++) {
+            e0 = H2 * (matrix[8 * i] + matrix[8 * i + 2]);
+            e1 = H2 * (matrix[8 * i] - matrix[8 * i + 2]);
+            o0 = H1 * matrix[8 * i + 1] + H3 * matrix[8 * i + 3];
+            o1 = H3 * matrix[8 * i + 1] - H1 * matrix[8 * i + 3];
+            matrix[8 * i] = e0 + o0;
+            matrix[8 * i + 1] = e1 + o1;
+            matrix[8 * i + 2] = e1 - o1;
+            matrix[8 * i + 3] = e0 - o0;
+        }
+
+        for (int i = 0; i < 4; i++) {
+            e0 = H2 * (matrix[i] + matrix[16 + i]);
+            e1 = H2 * (matrix[i] - matrix[16 + i]);
+            o0 = H1 * matrix[8 + i] + H3 * matrix[24 + i];
+            o1 = H3 * matrix[8 + i] - H1 * matrix[24 + i];
+            matrix[i] = e0 + o0;
+            matrix[8 + i] = e1 + o1;
+            matrix[16 + i] = e1 - o1;
+            matrix[24 + i] = e0 - o0;
+        }
+    }
+
     public static void scaleDequantizationMatrix(final float[] matrix) {
         for (int y = 0; y < 8; y++) {
             for (int x = 0; x < 8; x++) {
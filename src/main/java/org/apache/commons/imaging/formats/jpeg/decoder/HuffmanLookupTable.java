@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.jpeg.decoder;
+
+import org.apache.commons.imaging.formats.jpeg.segments.DhtSegment;
+
+/**
+ * Lookahead tables for decoding the Huffman codes of one {@link DhtSegment.HuffmanTable}.
+ * <p>
+ * Both tables are indexed by the next {@link #LOOKAHEAD} bits of entropy-coded data. {@link #lookup} resolves every code of up to
+ * {@code LOOKAHEAD} bits in one step. {@link #fastValues} additionally covers the magnitude bits that follow the code (the "RECEIVE" and
+ * "EXTEND" procedures of T.81) when code and magnitude fit into the lookahead together. A zero entry means the bits must be decoded one at
+ * a time with the procedure of figure F.16.
+ * </p>
+ */
+final class HuffmanLookupTable {
+
+    static final int LOOKAHEAD = 9;
+
+    static int extend(int v, final int t) {
+        // "EXTEND", section F.2.2.1, figure F.12, page 105 of T.81
+        int vt = (1 << (t - 1));
+        if (v < vt) {
+            vt = (-1 << t) + 1;
+            v += vt;
+        }
+        return v;
+    }
+
+    final DhtSegment.HuffmanTable table;
+
+    /**
+     * Code length in bits 8 and up, decoded value in bits 0-7.
+     */
+    final int[] lookup = new int[1 << LOOKAHEAD];
+
+    /**
+     * Extended coefficient value in bits 16 and up (signed), run length in bits 4-7 and the total number of bits taken by code and
+     * magnitude in bits 0-3.
+     */
+    final int[] fastValues = new int[1 << LOOKAHEAD];
+
+    HuffmanLookupTable(final DhtSegment.HuffmanTable table) {
+        this.table = table;
+        for (int bits = 0; bits < lookup.length; bits++) {
+            // "DECODE", section F.2.2.3, figure F.16, page 109 of T.81, limited to the lookahead
+            int i = 1;
+            int code = bits >> (LOOKAHEAD - 1);
+            while (i < LOOKAHEAD && code > table.getMaxCode(i)) {
+                i++;
+                code = bits >> (LOOKAHEAD - i);
+            }
+            if (code > table.getMaxCode(i) || code < table.getMinCode(i)) {
+                continue;
+            }
+            final int value = table.getHuffVal(table.getValPtr(i) + code - table.getMinCode(i));
+            lookup[bits] = (i << 8) | value;
+
+            final int ssss;
+            final int rrrr;
+            if (table.tableClass == 0) {
+                // a DC difference category has no run length
+                if (value > 15) {
+                    continue;
+                }
+                ssss = value;
+                rrrr = 0;
+            } else {
+                ssss = value & 0xf;
+                rrrr = value >> 4;
+            }
+            if (ssss != 0 && i + ssss <= LOOKAHEAD) {
+                final int magnitude = (bits >> (LOOKAHEAD - i - ssss)) & ((1 << ssss) - 1);
+                fastValues[bits] = (extend(magnitude, ssss) << 16) | (rrrr << 4) | (i + ssss);
+            }
+        }
+    }
+}
@@ -24,19 +24,27 @@ import java.awt.image.DataBuffer;
 import java.awt.image.DirectColorModel;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.bytesource.ByteSource;
 import org.apache.commons.imaging.color.ColorConversions;
 import org.apache.commons.imaging.common.Allocator;
 import org.apache.commons.imaging.common.BinaryFileParser;
+import org.apache.commons.imaging.common.BufferedImageFactory;
+import org.apache.commons.imaging.common.ByteConversions;
+import org.apache.commons.imaging.common.SrgbGrayColorSpace;
 import org.apache.commons.imaging.formats.jpeg.JpegConstants;
+import org.apache.commons.imaging.formats.jpeg.JpegImagingParameters;
+import org.apache.commons.imaging.formats.jpeg.JpegSegmentIndex;
 import org.apache.commons.imaging.formats.jpeg.JpegUtils;
 import org.apache.commons.imaging.formats.jpeg.segments.DhtSegment;
 import org.apache.commons.imaging.formats.jpeg.segments.DhtSegment.HuffmanTable;
@@ -46,6 +54,111 @@ import org.apache.commons.imaging.formats.jpeg.segments.SofnSegment;
 import org.apache.commons.imaging.formats.jpeg.segments.SosSegment;
 
 public class JpegDecoder extends BinaryFileParser implements JpegUtils.Visitor {
+
+    /**
+     * Working memory for decoding a run of MCUs. Each thread decoding restart intervals owns one.
+     */
+    private static final class McuScratch {
+        final int[] zz = new int[64];
+        final int[] blockInt = new int[64];
+        final float[] block = new float[64];
+        final int[] preds;
+
+        McuScratch(final int numberOfComponents) throws ImagingException {
+            this.preds = Allocator.intArray(numberOfComponents);
+        }
+    }
+
+    /**
+     * How decoded pixels are stored in the output image.
+     */
+    enum OutputLayout {
+        /** One {@code int} per pixel, RGB in the low 24 bits. */
+        PACKED_RGB,
+        /** One byte per pixel of the {@link SrgbGrayColorSpace}, holding the gray sample unchanged. */
+        GRAY,
+        /** Three bytes per pixel, in blue, green, red order. */
+        BGR,
+        /** Any other image, whose pixels are set through its color model. */
+        OTHER
+    }
+
+    /**
+     * Working memory for converting rows of pixels. Each thread converting rows owns one.
+     */
+    private static final class RowScratch {
+        /** The samples of each component for the current row, either a row of its plane or an upsampled row. */
+        final byte[][] rows;
+        final int[] rowOffsets;
+        /** An upsampled row of each subsampled component, or null for those at full resolution. */
+        final byte[][] upsampledRows;
+        /** The source row each upsampled row was replicated from, so that it can be reused for the next rows. */
+        final int[] upsampledSourceRows;
+
+        RowScratch(final int numberOfComponents) {
+            this.rows = new byte[numberOfComponents][];
+            this.rowOffsets = new int[numberOfComponents];
+            this.upsampledRows = new byte[numberOfComponents][];
+            this.upsampledSourceRows = new int[numberOfComponents];
+            Arrays.fill(upsampledSourceRows, -1);
+        }
+    }
+
+    /**
+     * The samples of each component of the current scan, at the component's own resolution, as output by the inverse
+     * DCT. The planes hold either the whole image, or a ring of the few MCU rows that are needed at a time.
+     */
+    private static final class SamplePlanes {
+        final byte[][] samples;
+        /** Number of samples in a row of each plane, including those in MCUs past the right edge of the image. */
+        final int[] strides;
+        /** Number of rows each plane holds, a multiple of the rows of the component in an MCU row. */
+        final int[] heights;
+
+        SamplePlanes(final ScanComponent[] scanComponents, final int blockSize, final int xMCUs, final int mcuRows) throws ImagingException {
+            this.samples = new byte[scanComponents.length][];
+            this.strides = new int[scanComponents.length];
+            this.heights = new int[scanComponents.length];
+            for (int i = 0; i < scanComponents.length; i++) {
+                strides[i] = xMCUs * blockSize * scanComponents[i].horizontalSamplingFactor;
+                heights[i] = mcuRows * blockSize * scanComponents[i].verticalSamplingFactor;
+                samples[i] = Allocator.byteArray((long) strides[i] * heights[i]);
+            }
+        }
+
+        /**
+         * Gets the offset of a row of a component, counted in rows of the component from the top of the image.
+         */
+        int rowOffset(final int component, final int row) {
+            return row % heights[component] * strides[component];
+        }
+    }
+
+    /**
+     * A component of the current scan, with the frame parameters and tables it refers to resolved once per scan.
+     */
+    private static final class ScanComponent {
+        final int horizontalSamplingFactor;
+        final int verticalSamplingFactor;
+        final HuffmanLookupTable dcTable;
+        final HuffmanLookupTable acTable;
+        final float[] dequantizationTable;
+
+        ScanComponent(final int horizontalSamplingFactor, final int verticalSamplingFactor, final HuffmanLookupTable dcTable,
+                final HuffmanLookupTable acTable, final float[] dequantizationTable) {
+            this.horizontalSamplingFactor = horizontalSamplingFactor;
+            this.verticalSamplingFactor = verticalSamplingFactor;
+            this.dcTable = dcTable;
+            this.acTable = acTable;
+            this.dequantizationTable = dequantizationTable;
+        }
+    }
+
+    /**
+     * Minimum number of MCUs decoded by one task in parallel mode, so that small restart intervals do not drown in scheduling overhead.
+     */
+    private static final int MIN_MCUS_PER_TASK = 1024;
+
     /*
      * JPEG is an advanced image format that takes significant computation to
      * decode. Keep decoding fast: - Don't allocate memory inside loops,
@@ -58,120 +171,350 @@ public class JpegDecoder extends BinaryFileParser implements JpegUtils.Visitor {
     private static int fastRound(final float x) {
         return (int) (x + 0.5f);
     }
+
+    private final DqtSegment.QuantizationTable[] quantizationTables = new DqtSegment.QuantizationTable[4];
+    private final HuffmanLookupTable[] huffmanDCTables = new HuffmanLookupTable[4];
+    private final HuffmanLookupTable[] huffmanACTables = new HuffmanLookupTable[4];
+    private SofnSegment sofnSegment;
+    private SosSegment sosSegment;
+    private ScanComponent[] scanComponents;
+    private final float[][] scaledQuantizationTables = new float[4][];
+    private final float[][] quantizationMatrices = new float[4][];
+    private BufferedImage image;
+    private OutputLayout outputLayout;
+
     /**
-     * Returns the positions of where each interval in the provided array starts. The number
-     * of start positions is also the count of intervals while the number of restart markers
-     * found is equal to the number of start positions minus one (because restart markers
-     * are between intervals).
+     * Alpha ORed into pixels stored as packed {@code int}s, so that they are opaque in images with alpha.
+     */
+    private int packedAlpha;
+    private ImagingException imageReadException;
+    private IOException ioException;
+
+    private final JpegImagingParameters params;
+
+    /**
+     * Width and height of a decoded data unit: 8 at full size, or 4, 2 or 1 when decoding at a reduced scale.
+     */
+    private final int blockSize;
+    private final boolean fancyUpsampling;
+    private int maxHorizontalSamplingFactor;
+    private int maxVerticalSamplingFactor;
+    private int outputWidth;
+    private int outputHeight;
+
+    /**
+     * Number of MCUs per restart interval, 0 if the image has no restart intervals.
+     */
+    private int restartInterval;
+
+    /**
+     * Creates a decoder that decodes serially.
+     */
+    public JpegDecoder() {
+        this(null);
+    }
+
+    /**
+     * Creates a decoder.
      *
-     * @param scanPayload array to examine
-     * @return the start positions
+     * @param params the parameters that control decoding; may be {@code null}.
+     * @since 1.0-alpha4
+     */
+    public JpegDecoder(final JpegImagingParameters params) {
+        this.params = params;
+        this.blockSize = 8 / (params == null ? 1 : params.getScaleDenominator());
+        this.fancyUpsampling = params != null && params.isFancyUpsampling();
+    }
+
+    /**
+     * Waits for tasks in order and reports the failure of the earliest, as doing their work serially would.
      */
-    static List<Integer> getIntervalStartPositions(final int[] scanPayload) {
-        final List<Integer> intervalStarts = new ArrayList<>();
-        intervalStarts.add(0);
-        boolean foundFF = false;
-        boolean foundD0toD7 = false;
-        int pos = 0;
-        while (pos < scanPayload.length) {
-            if (foundFF) {
-                // found 0xFF D0 .. 0xFF D7 => RST marker
-                if (scanPayload[pos] >= (0xff & JpegConstants.RST0_MARKER) &&
-                    scanPayload[pos] <= (0xff & JpegConstants.RST7_MARKER)) {
-                    foundD0toD7 = true;
-                } else { // found 0xFF followed by something else => no RST marker
-                    foundFF = false;
+    private static void joinAll(final List<CompletableFuture<Void>> tasks) throws IOException {
+        for (final CompletableFuture<Void> task : tasks) {
+            try {
+                task.join();
+            } catch (final CompletionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
                 }
+                throw e;
             }
+        }
+    }
 
-            if (scanPayload[pos] == 0xFF) {
-                foundFF = true;
-            }
+    @Override
+    public boolean beginSOS() {
+        return true;
+    }
 
-            // true if one of the RST markers was found
-            if (foundFF && foundD0toD7) {
-                // we need to add the position after the current position because
-                // we had already read 0xFF and are now at 0xDn
-                intervalStarts.add(pos + 1);
-                foundFF = foundD0toD7 = false;
-            }
-            pos++;
+    /**
+     * Converts the pixels of a run of MCU rows, whose samples are in the planes, and stores them.
+     */
+    private void convertMcuRows(final SamplePlanes planes, final int firstMcuRow, final int endMcuRow, final RowScratch scratch,
+            final DataBuffer dataBuffer) {
+        final int vSize = blockSize * maxVerticalSamplingFactor;
+        final int endY = Math.min(outputHeight, endMcuRow * vSize);
+        for (int y = firstMcuRow * vSize; y < endY; y++) {
+            convertRow(planes, y, scratch, dataBuffer);
+        }
+    }
+
+    private void convertMcuRowsInParallel(final Executor executor, final SamplePlanes planes, final int xMCUs, final int yMCUs,
+            final DataBuffer dataBuffer) throws IOException {
+        final int mcuRowsPerTask = Math.max(1, MIN_MCUS_PER_TASK / xMCUs);
+        final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int mcuRow = 0; mcuRow < yMCUs; mcuRow += mcuRowsPerTask) {
+            final int firstMcuRow = mcuRow;
+            final int endMcuRow = Math.min(yMCUs, mcuRow + mcuRowsPerTask);
+            tasks.add(CompletableFuture.runAsync(
+                    () -> convertMcuRows(planes, firstMcuRow, endMcuRow, new RowScratch(scanComponents.length), dataBuffer), executor));
         }
-        return intervalStarts;
+        joinAll(tasks);
     }
+
     /**
-     * Returns an array of JpegInputStream where each field contains the JpegInputStream
-     * for one interval.
-     * @param scanPayload array to read intervals from
-     * @return JpegInputStreams for all intervals, at least one stream is always provided
+     * Converts one row of pixels in a single pass: the samples of each component are read from its plane, or from a row
+     * upsampled from it, converted to RGB and stored straight into the output image.
      */
-    static JpegInputStream[] splitByRstMarkers(final int[] scanPayload) {
-        final List<Integer> intervalStarts = getIntervalStartPositions(scanPayload);
-        // get number of intervals in payload to init an array of appropriate length
-        final int intervalCount = intervalStarts.size();
-        final JpegInputStream[] streams = Allocator.array(intervalCount, JpegInputStream[]::new, JpegInputStream.SHALLOW_SIZE);
-        for (int i = 0; i < intervalCount; i++) {
-            final int from = intervalStarts.get(i);
-            int to;
-            if (i < intervalCount - 1) {
-                // because each restart marker needs two bytes the end of
-                // this interval is two bytes before the next interval starts
-                to = intervalStarts.get(i + 1) - 2;
-            } else { // the last interval ends with the array
-                to = scanPayload.length;
+    private void convertRow(final SamplePlanes planes, final int y, final RowScratch scratch, final DataBuffer dataBuffer) {
+        final byte[][] rows = scratch.rows;
+        final int[] rowOffsets = scratch.rowOffsets;
+        for (int i = 0; i < scanComponents.length; i++) {
+            final ScanComponent scanComponent = scanComponents[i];
+            if (scanComponent.horizontalSamplingFactor == maxHorizontalSamplingFactor
+                    && scanComponent.verticalSamplingFactor == maxVerticalSamplingFactor) {
+                rows[i] = planes.samples[i];
+                rowOffsets[i] = planes.rowOffset(i, y);
+            } else {
+                rows[i] = upsampleRow(planes, i, y, scratch);
+                rowOffsets[i] = 0;
+            }
+        }
+        final int index = y * outputWidth;
+        if (rows.length == 3) {
+            final byte[] ys = rows[0];
+            final byte[] cbs = rows[1];
+            final byte[] crs = rows[2];
+            final int yOffset = rowOffsets[0];
+            final int cbOffset = rowOffsets[1];
+            final int crOffset = rowOffsets[2];
+            for (int x = 0; x < outputWidth; x++) {
+                final int rgb = YCbCrConverter.convertYCbCrToRGB(0xff & ys[yOffset + x], 0xff & cbs[cbOffset + x], 0xff & crs[crOffset + x]);
+                storeRGB(dataBuffer, index + x, rgb);
+            }
+        } else if (rows.length == 4) {
+            for (int x = 0; x < outputWidth; x++) {
+                final int rgb = ColorConversions.convertCMYKtoRGB(0xff & rows[0][rowOffsets[0] + x], 0xff & rows[1][rowOffsets[1] + x],
+                        0xff & rows[2][rowOffsets[2] + x], 0xff & rows[3][rowOffsets[3] + x]);
+                storeRGB(dataBuffer, index + x, rgb);
+            }
+        } else if (outputLayout == OutputLayout.GRAY) {
+            final byte[] ys = rows[0];
+            final int yOffset = rowOffsets[0];
+            for (int x = 0; x < outputWidth; x++) {
+                dataBuffer.setElem(index + x, 0xff & ys[yOffset + x]);
+            }
+        } else {
+            final byte[] ys = rows[0];
+            final int yOffset = rowOffsets[0];
+            for (int x = 0; x < outputWidth; x++) {
+                final int sample = 0xff & ys[yOffset + x];
+                storeRGB(dataBuffer, index + x, (sample << 16) | (sample << 8) | sample);
             }
-            final int[] interval = Arrays.copyOfRange(scanPayload, from, to);
-            streams[i] = new JpegInputStream(interval);
         }
-        return streams;
     }
-    private final DqtSegment.QuantizationTable[] quantizationTables = new DqtSegment.QuantizationTable[4];
-    private final DhtSegment.HuffmanTable[] huffmanDCTables = new DhtSegment.HuffmanTable[4];
-    private final DhtSegment.HuffmanTable[] huffmanACTables = new DhtSegment.HuffmanTable[4];
-    private SofnSegment sofnSegment;
-    private SosSegment sosSegment;
-    private final float[][] scaledQuantizationTables = new float[4][];
-    private BufferedImage image;
-    private ImagingException imageReadException;
-    private IOException ioException;
 
-    private final int[] zz = new int[64];
+    /**
+     * Creates the image to decode into: one made by the parameters' {@link BufferedImageFactory} if there is one, so that
+     * for example a grayscale JPEG decodes to one byte per pixel, or packed {@code int} RGB otherwise.
+     */
+    private BufferedImage createImage(final int numberOfComponents) {
+        final BufferedImageFactory factory = params == null ? null : params.getBufferedImageFactory();
+        if (factory != null) {
+            return numberOfComponents == 1 ? factory.getGrayscaleBufferedImage(outputWidth, outputHeight, false)
+                    : factory.getColorBufferedImage(outputWidth, outputHeight, false);
+        }
+        final ColorModel colorModel = new DirectColorModel(24, 0x00ff0000, 0x0000ff00, 0x000000ff);
+        final WritableRaster raster = Raster.createPackedRaster(DataBuffer.TYPE_INT, outputWidth, outputHeight,
+                new int[] { 0x00ff0000, 0x0000ff00, 0x000000ff }, null);
+        return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), new Properties());
+    }
 
-    private final int[] blockInt = new int[64];
+    /**
+     * Decodes a run of restart intervals from a stream positioned at the start of the first one.
+     */
+    private void decodeIntervals(final JpegInputStream is, final int firstInterval, final int endInterval, final int intervalCount,
+            final int mcusPerInterval, final int mcuCount, final int xMCUs, final McuScratch scratch, final SamplePlanes planes,
+            final RowScratch rowScratch, final DataBuffer dataBuffer) throws ImagingException {
+        for (int interval = firstInterval; interval < endInterval; interval++) {
+            if (interval > firstInterval && !is.restart()) {
+                throw new ImagingException("Expected " + intervalCount + " restart intervals, found " + interval);
+            }
+            decodeMCUs(is, interval * mcusPerInterval, Math.min(mcuCount, (interval + 1) * mcusPerInterval), xMCUs, scratch, planes,
+                    rowScratch, dataBuffer);
+        }
+    }
 
-    private final float[] block = new float[64];
+    /**
+     * Decodes restart intervals concurrently into planes that hold the whole image, without converting them.
+     */
+    private void decodeIntervalsInParallel(final Executor executor, final ByteSource byteSource, final long payloadOffset,
+            final JpegInputStream scanner, final int intervalCount, final int mcusPerInterval, final int mcuCount, final int xMCUs,
+            final SamplePlanes planes) throws ImagingException, IOException {
+        final int intervalsPerTask = Math.max(1, MIN_MCUS_PER_TASK / mcusPerInterval);
+        // find where the first interval of each task starts, so that each task can read its own part of the source
+        final long[] taskOffsets = new long[(intervalCount + intervalsPerTask - 1) / intervalsPerTask];
+        taskOffsets[0] = payloadOffset;
+        for (int interval = 1; interval < intervalCount; interval++) {
+            if (!scanner.restart()) {
+                throw new ImagingException("Expected " + intervalCount + " restart intervals, found " + interval);
+            }
+            if (interval % intervalsPerTask == 0) {
+                taskOffsets[interval / intervalsPerTask] = payloadOffset + scanner.position();
+            }
+        }
+        // read to the end, so that a source buffering a stream has all of it before the tasks read concurrently
+        while (scanner.hasNext()) {
+            scanner.restart();
+        }
 
-    private Block[] allocateMCUMemory() throws ImagingException {
-        final Block[] mcu = Allocator.array(sosSegment.numberOfComponents, Block[]::new, Block.SHALLOW_SIZE);
-        for (int i = 0; i < sosSegment.numberOfComponents; i++) {
-            final SosSegment.Component scanComponent = sosSegment.getComponents(i);
-            SofnSegment.Component frameComponent = null;
-            for (int j = 0; j < sofnSegment.numberOfComponents; j++) {
-                if (sofnSegment.getComponents(j).componentIdentifier == scanComponent.scanComponentSelector) {
-                    frameComponent = sofnSegment.getComponents(j);
-                    break;
+        final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int task = 0; task < taskOffsets.length; task++) {
+            final long taskOffset = taskOffsets[task];
+            final int firstInterval = task * intervalsPerTask;
+            final int endInterval = Math.min(intervalCount, firstInterval + intervalsPerTask);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try (InputStream is = byteSource.getInputStream(taskOffset)) {
+                    decodeIntervals(new JpegInputStream(is), firstInterval, endInterval, intervalCount, mcusPerInterval, mcuCount, xMCUs,
+                            new McuScratch(scanComponents.length), planes, null, null);
+                } catch (final IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        joinAll(tasks);
+    }
+
+    /**
+     * Decodes a run of MCUs from one restart interval into the sample planes. Given a row scratch, it also converts each
+     * MCU row once the rows it needs are decoded: with fancy upsampling, that includes the first row of the next MCU row.
+     */
+    private void decodeMCUs(final JpegInputStream is, final int firstMcu, final int endMcu, final int xMCUs, final McuScratch scratch,
+            final SamplePlanes planes, final RowScratch rowScratch, final DataBuffer dataBuffer) throws ImagingException {
+        Arrays.fill(scratch.preds, 0);
+        for (int mcuIndex = firstMcu; mcuIndex < endMcu; mcuIndex++) {
+            final int mcuX = mcuIndex % xMCUs;
+            final int mcuY = mcuIndex / xMCUs;
+            readMCU(is, scratch, planes, mcuX, mcuY);
+            if (rowScratch != null && mcuX == xMCUs - 1) {
+                final int mcuRow = fancyUpsampling ? mcuY - 1 : mcuY;
+                if (mcuRow >= 0) {
+                    convertMcuRows(planes, mcuRow, mcuRow + 1, rowScratch, dataBuffer);
                 }
             }
-            if (frameComponent == null) {
-                throw new ImagingException("Invalid component");
-            }
-            final Block fullBlock = new Block(
-                    8 * frameComponent.horizontalSamplingFactor,
-                    8 * frameComponent.verticalSamplingFactor);
-            mcu[i] = fullBlock;
         }
-        return mcu;
     }
 
-    @Override
-    public boolean beginSOS() {
-        return true;
+    /**
+     * Decodes the scan whose header starts at the given offset of the source. Its payload contains the entropy-coded segments (or ECS) divided
+     * by RST markers, or only one ECS if it is not divided by RST markers; it is read through a small buffer as the MCUs are decoded.
+     */
+    private void decodeScan(final ByteSource byteSource, final long imageDataOffset) {
+        try (InputStream is = byteSource.getInputStream(imageDataOffset)) {
+            // read the scan header
+            final int segmentLength = read2Bytes("segmentLength", is,"Not a Valid JPEG File", getByteOrder());
+            final byte[] sosSegmentBytes = readBytes("SosSegment", is, segmentLength - 2, "Not a Valid JPEG File");
+            sosSegment = new SosSegment(JpegConstants.SOS_MARKER, sosSegmentBytes);
+            final JpegInputStream payload = new JpegInputStream(is);
+
+            scanComponents = resolveScanComponents();
+            if (scanComponents.length != 1 && scanComponents.length != 3 && scanComponents.length != 4) {
+                throw new ImagingException("Unsupported JPEG with " + scanComponents.length + " components");
+            }
+            if (sofnSegment.precision != 8) {
+                throw new ImagingException("Unsupported JPEG with " + sofnSegment.precision + " bit samples");
+            }
+            int hMax = 0;
+            int vMax = 0;
+            for (final ScanComponent scanComponent : scanComponents) {
+                hMax = Math.max(hMax, scanComponent.horizontalSamplingFactor);
+                vMax = Math.max(vMax, scanComponent.verticalSamplingFactor);
+            }
+            maxHorizontalSamplingFactor = hMax;
+            maxVerticalSamplingFactor = vMax;
+
+            final int xMCUs = (sofnSegment.width + 8 * hMax - 1) / (8 * hMax);
+            final int yMCUs = (sofnSegment.height + 8 * vMax - 1) / (8 * vMax);
+            final int scaleDenominator = 8 / blockSize;
+            outputWidth = (sofnSegment.width + scaleDenominator - 1) / scaleDenominator;
+            outputHeight = (sofnSegment.height + scaleDenominator - 1) / scaleDenominator;
+            final int numberOfComponents = sofnSegment.numberOfComponents;
+            if (numberOfComponents != 1 && numberOfComponents != 3 && numberOfComponents != 4) {
+                throw new ImagingException(numberOfComponents + " components are invalid or unsupported");
+            }
+            Allocator.check(Integer.BYTES * outputWidth * outputHeight);
+            image = createImage(numberOfComponents);
+            outputLayout = getOutputLayout(image, numberOfComponents);
+            packedAlpha = image.getColorModel().hasAlpha() ? 0xff000000 : 0;
+            final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+
+            // each restart interval starts with fresh DC predictions, so the intervals can be decoded independently
+            final int mcuCount = xMCUs * yMCUs;
+            final int mcusPerInterval = restartInterval > 0 ? restartInterval : mcuCount;
+            final int intervalCount = (mcuCount + mcusPerInterval - 1) / mcusPerInterval;
+            final Executor executor = params == null ? null : params.getExecutor();
+            // an image of another layout may pack several pixels into one element, which concurrent tasks cannot set safely
+            if (executor == null || outputLayout == OutputLayout.OTHER) {
+                // convert each MCU row as soon as it is decoded, keeping only the MCU rows that fancy upsampling needs around it
+                final SamplePlanes planes = new SamplePlanes(scanComponents, blockSize, xMCUs, Math.min(yMCUs, fancyUpsampling ? 3 : 1));
+                final RowScratch rowScratch = new RowScratch(scanComponents.length);
+                decodeIntervals(payload, 0, intervalCount, intervalCount, mcusPerInterval, mcuCount, xMCUs, new McuScratch(scanComponents.length),
+                        planes, rowScratch, dataBuffer);
+                if (fancyUpsampling) {
+                    convertMcuRows(planes, yMCUs - 1, yMCUs, rowScratch, dataBuffer);
+                }
+            } else {
+                // decode the whole image first, so that any rows can be converted concurrently
+                final SamplePlanes planes = new SamplePlanes(scanComponents, blockSize, xMCUs, yMCUs);
+                if (intervalCount < 2) {
+                    decodeIntervals(payload, 0, intervalCount, intervalCount, mcusPerInterval, mcuCount, xMCUs,
+                            new McuScratch(scanComponents.length), planes, null, null);
+                } else {
+                    decodeIntervalsInParallel(executor, byteSource, imageDataOffset + segmentLength, payload, intervalCount, mcusPerInterval,
+                            mcuCount, xMCUs, planes);
+                }
+                convertMcuRowsInParallel(executor, planes, xMCUs, yMCUs, dataBuffer);
+            }
+            // byte[] remainder = super.getStreamBytes(is);
+            // for (int i = 0; i < remainder.length; i++)
+            // {
+            // System.out.println("" + i + " = " +
+            // Integer.toHexString(remainder[i]));
+            // }
+        } catch (final ImagingException imageReadEx) {
+            imageReadException = imageReadEx;
+        } catch (final IOException ioEx) {
+            ioException = ioEx;
+        } catch (final RuntimeException ex) {
+            // Corrupt images can throw NPE and IOOBE
+            imageReadException = new ImagingException("Error parsing JPEG", ex);
+        }
     }
 
     public BufferedImage decode(final ByteSource byteSource) throws IOException,
             ImagingException {
-        final JpegUtils jpegUtils = new JpegUtils();
-        jpegUtils.traverseJFIF(byteSource, this);
+        final JpegSegmentIndex segmentIndex = JpegSegmentIndex.read(byteSource);
+        for (int i = 0; i < segmentIndex.size(); i++) {
+            readSegment(segmentIndex.getMarker(i), segmentIndex.getSegmentData(i));
+        }
+        if (segmentIndex.getImageDataOffset() < 0) {
+            throw new ImagingException("No image data found");
+        }
+        // the entropy-coded data is streamed from the source rather than read into memory first
+        decodeScan(byteSource, segmentIndex.getImageDataOffset());
         if (imageReadException != null) {
             throw imageReadException;
         }
@@ -181,9 +524,15 @@ public class JpegDecoder extends BinaryFileParser implements JpegUtils.Visitor {
         return image;
     }
 
-    private int decode(final JpegInputStream is, final DhtSegment.HuffmanTable huffmanTable)
+    private int decode(final JpegInputStream is, final HuffmanLookupTable lookupTable)
             throws ImagingException {
+        final int entry = lookupTable.lookup[is.peekBits(HuffmanLookupTable.LOOKAHEAD)];
+        if (entry != 0) {
+            is.skipBits(entry >> 8);
+            return entry & 0xff;
+        }
         // "DECODE", section F.2.2.3, figure F.16, page 109 of T.81
+        final DhtSegment.HuffmanTable huffmanTable = lookupTable.table;
         int i = 1;
         int code = is.nextBit();
         while (code > huffmanTable.getMaxCode(i)) {
@@ -195,49 +544,81 @@ public class JpegDecoder extends BinaryFileParser implements JpegUtils.Visitor {
         return huffmanTable.getHuffVal(j);
     }
 
-    private int extend(int v, final int t) {
-        // "EXTEND", section F.2.2.1, figure F.12, page 105 of T.81
-        int vt = (1 << (t - 1));
-        if (v < vt) {
-            vt = (-1 << t) + 1;
-            v += vt;
+    static OutputLayout getOutputLayout(final BufferedImage image, final int numberOfComponents) {
+        final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        final int pixelCount = image.getWidth() * image.getHeight();
+        if (dataBuffer.getNumBanks() != 1 || image.getRaster().getParent() != null) {
+            return OutputLayout.OTHER;
+        }
+        final ColorModel colorModel = image.getColorModel();
+        if (colorModel instanceof DirectColorModel && dataBuffer.getDataType() == DataBuffer.TYPE_INT && dataBuffer.getSize() == pixelCount) {
+            final DirectColorModel directColorModel = (DirectColorModel) colorModel;
+            if (directColorModel.getRedMask() == 0x00ff0000 && directColorModel.getGreenMask() == 0x0000ff00
+                    && directColorModel.getBlueMask() == 0x000000ff && directColorModel.getAlphaMask() == (colorModel.hasAlpha() ? 0xff000000 : 0)
+                    && !colorModel.isAlphaPremultiplied() && colorModel.getColorSpace().isCS_sRGB()) {
+                return OutputLayout.PACKED_RGB;
+            }
+        }
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY && colorModel.getColorSpace() instanceof SrgbGrayColorSpace && numberOfComponents == 1
+                && dataBuffer.getSize() == pixelCount) {
+            return OutputLayout.GRAY;
         }
-        return v;
+        if (image.getType() == BufferedImage.TYPE_3BYTE_BGR && dataBuffer.getSize() == 3 * pixelCount) {
+            return OutputLayout.BGR;
+        }
+        return OutputLayout.OTHER;
     }
 
-    private void readMCU(final JpegInputStream is, final int[] preds, final Block[] mcu)
+    /**
+     * Reads an MCU and stores the samples output by the inverse DCT at its place in the sample planes.
+     */
+    private void readMCU(final JpegInputStream is, final McuScratch scratch, final SamplePlanes planes, final int mcuX, final int mcuY)
             throws ImagingException {
-        for (int i = 0; i < sosSegment.numberOfComponents; i++) {
-            final SosSegment.Component scanComponent = sosSegment.getComponents(i);
-            SofnSegment.Component frameComponent = null;
-            for (int j = 0; j < sofnSegment.numberOfComponents; j++) {
-                if (sofnSegment.getComponents(j).componentIdentifier == scanComponent.scanComponentSelector) {
-                    frameComponent = sofnSegment.getComponents(j);
-                    break;
-                }
-            }
-            if (frameComponent == null) {
-                throw new ImagingException("Invalid component");
-            }
-            final Block fullBlock = mcu[i];
-            for (int y = 0; y < frameComponent.verticalSamplingFactor; y++) {
-                for (int x = 0; x < frameComponent.horizontalSamplingFactor; x++) {
+        final int[] preds = scratch.preds;
+        final int[] zz = scratch.zz;
+        final int[] blockInt = scratch.blockInt;
+        final float[] block = scratch.block;
+        for (int i = 0; i < scanComponents.length; i++) {
+            final ScanComponent scanComponent = scanComponents[i];
+            final byte[] samples = planes.samples[i];
+            final int stride = planes.strides[i];
+            final int mcuOffset = planes.rowOffset(i, mcuY * blockSize * scanComponent.verticalSamplingFactor)
+                    + mcuX * blockSize * scanComponent.horizontalSamplingFactor;
+            for (int y = 0; y < scanComponent.verticalSamplingFactor; y++) {
+                for (int x = 0; x < scanComponent.horizontalSamplingFactor; x++) {
                     Arrays.fill(zz, 0);
                     // page 104 of T.81
-                    final int t = decode(
-                            is,
-                            huffmanDCTables[scanComponent.dcCodingTableSelector]);
-                    int diff = receive(t, is);
-                    diff = extend(diff, t);
+                    final HuffmanLookupTable dcTable = scanComponent.dcTable;
+                    final int dcFast = dcTable.fastValues[is.peekBits(HuffmanLookupTable.LOOKAHEAD)];
+                    int diff;
+                    if (dcFast != 0) {
+                        is.skipBits(dcFast & 0xf);
+                        diff = dcFast >> 16;
+                    } else {
+                        final int t = decode(is, dcTable);
+                        diff = is.nextBits(t);
+                        diff = HuffmanLookupTable.extend(diff, t);
+                    }
                     zz[0] = preds[i] + diff;
                     preds[i] = zz[0];
 
                     // "Decode_AC_coefficients", figure F.13, page 106 of T.81
+                    final HuffmanLookupTable acTable = scanComponent.acTable;
                     int k = 1;
                     while (true) {
-                        final int rs = decode(
-                                is,
-                                huffmanACTables[scanComponent.acCodingTableSelector]);
+                        final int acFast = acTable.fastValues[is.peekBits(HuffmanLookupTable.LOOKAHEAD)];
+                        if (acFast != 0) {
+                            // code, run length and magnitude resolved by a single lookup
+                            is.skipBits(acFast & 0xf);
+                            k += (acFast >> 4) & 0xf;
+                            zz[k] = acFast >> 16;
+                            if (k == 63) {
+                                break;
+                            }
+                            k++;
+                            continue;
+                        }
+                        final int rs = decode(is, acTable);
                         final int ssss = rs & 0xf;
                         final int rrrr = rs >> 4;
                         final int r = rrrr;
@@ -251,8 +632,8 @@ public class JpegDecoder extends BinaryFileParser implements JpegUtils.Visitor {
                             k += r;
 
                             // "Decode_ZZ(k)", figure F.14, page 107 of T.81
-                            zz[k] = receive(ssss, is);
-                            zz[k] = extend(zz[k], ssss);
+                            zz[k] = is.nextBits(ssss);
+                            zz[k] = HuffmanLookupTable.extend(zz[k], ssss);
 
                             if (k == 63) {
                                 break;
@@ -261,22 +642,36 @@ public class JpegDecoder extends BinaryFileParser implements JpegUtils.Visitor {
                         }
                     }
 
-                    final int shift = (1 << (sofnSegment.precision - 1));
-                    final int max = (1 << sofnSegment.precision) - 1;
+                    final int shift = 128;
+                    final int max = 255;
 
-                    final float[] scaledQuantizationTable = scaledQuantizationTables[frameComponent.quantTabDestSelector];
+                    final float[] dequantizationTable = scanComponent.dequantizationTable;
                     ZigZag.zigZagToBlock(zz, blockInt);
-                    for (int j = 0; j < 64; j++) {
-                        block[j] = blockInt[j] * scaledQuantizationTable[j];
+                    if (blockSize == 8) {
+                        for (int j = 0; j < 64; j++) {
+                            block[j] = blockInt[j] * dequantizationTable[j];
+                        }
+                        Dct.inverseDCT8x8(block);
+                    } else {
+                        // a reduced transform only reads the low frequency coefficients
+                        for (int yy = 0; yy < blockSize; yy++) {
+                            for (int xx = 0; xx < blockSize; xx++) {
+                                block[8 * yy + xx] = blockInt[8 * yy + xx] * dequantizationTable[8 * yy + xx];
+                            }
+                        }
+                        if (blockSize == 4) {
+                            Dct.inverseDCT4x4(block);
+                        } else if (blockSize == 2) {
+                            Dct.inverseDCT2x2(block);
+                        } else {
+                            Dct.inverseDCT1x1(block);
+                        }
                     }
-                    Dct.inverseDCT8x8(block);
-
-                    int dstRowOffset = 8 * y * 8
-                            * frameComponent.horizontalSamplingFactor + 8 * x;
-                    int srcNext = 0;
-                    for (int yy = 0; yy < 8; yy++) {
-                        for (int xx = 0; xx < 8; xx++) {
-                            float sample = block[srcNext++];
+
+                    int dstRowOffset = mcuOffset + blockSize * y * stride + blockSize * x;
+                    for (int yy = 0; yy < blockSize; yy++) {
+                        for (int xx = 0; xx < blockSize; xx++) {
+                            float sample = block[8 * yy + xx];
                             sample += shift;
                             int result;
                             if (sample < 0) {
@@ -286,66 +681,16 @@ public class JpegDecoder extends BinaryFileParser implements JpegUtils.Visitor {
                             } else {
                                 result = fastRound(sample);
                             }
-                            fullBlock.samples[dstRowOffset + xx] = result;
+                            samples[dstRowOffset + xx] = (byte) result;
                         }
-                        dstRowOffset += 8 * frameComponent.horizontalSamplingFactor;
+                        dstRowOffset += stride;
                     }
                 }
             }
         }
     }
 
-    private int receive(final int ssss, final JpegInputStream is) throws ImagingException {
-        // "RECEIVE", section F.2.2.4, figure F.17, page 110 of T.81
-        int i = 0;
-        int v = 0;
-        while (i != ssss) {
-            i++;
-            v = (v << 1) + is.nextBit();
-        }
-        return v;
-    }
-
-    private void rescaleMCU(final Block[] dataUnits, final int hSize, final int vSize, final Block[] ret) {
-        for (int i = 0; i < dataUnits.length; i++) {
-            final Block dataUnit = dataUnits[i];
-            if (dataUnit.width == hSize && dataUnit.height == vSize) {
-                System.arraycopy(dataUnit.samples, 0, ret[i].samples, 0, hSize
-                        * vSize);
-            } else {
-                final int hScale = hSize / dataUnit.width;
-                final int vScale = vSize / dataUnit.height;
-                if (hScale == 2 && vScale == 2) {
-                    int srcRowOffset = 0;
-                    int dstRowOffset = 0;
-                    for (int y = 0; y < dataUnit.height; y++) {
-                        for (int x = 0; x < hSize; x++) {
-                            final int sample = dataUnit.samples[srcRowOffset + (x >> 1)];
-                            ret[i].samples[dstRowOffset + x] = sample;
-                            ret[i].samples[dstRowOffset + hSize + x] = sample;
-                        }
-                        srcRowOffset += dataUnit.width;
-                        dstRowOffset += 2 * hSize;
-                    }
-                } else {
-                    // FIXME: optimize
-                    int dstRowOffset = 0;
-                    for (int y = 0; y < vSize; y++) {
-                        for (int x = 0; x < hSize; x++) {
-                            ret[i].samples[dstRowOffset + x] = dataUnit.samples[(y / vScale)
-                                    * dataUnit.width + (x / hScale)];
-                        }
-                        dstRowOffset += hSize;
-                    }
-                }
-            }
-        }
-    }
-
-    @Override
-    public boolean visitSegment(final int marker, final byte[] markerBytes,
-            final int segmentLength, final byte[] segmentLengthBytes, final byte[] segmentData)
-            throws ImagingException, IOException {
+    private void readSegment(final int marker, final byte[] segmentData) throws ImagingException, IOException {
         final int[] sofnSegments = {
                 JpegConstants.SOF0_MARKER,
                 JpegConstants.SOF1_MARKER,
@@ -385,13 +730,19 @@ public class JpegDecoder extends BinaryFileParser implements JpegUtils.Visitor {
                 for (int j = 0; j < mSize; j++) {
                     quantizationMatrixFloat[j] = quantizationMatrixInt[j];
                 }
+                quantizationMatrices[table.destinationIdentifier] = quantizationMatrixFloat.clone();
                 Dct.scaleDequantizationMatrix(quantizationMatrixFloat);
                 scaledQuantizationTables[table.destinationIdentifier] = quantizationMatrixFloat;
             }
+        } else if (marker == JpegConstants.DRI_MARKER) {
+            if (segmentData.length < 2) {
+                throw new ImagingException("Invalid DRI segment");
+            }
+            restartInterval = ByteConversions.toUInt16(segmentData, getByteOrder());
         } else if (marker == JpegConstants.DHT_MARKER) {
             final DhtSegment dhtSegment = new DhtSegment(marker, segmentData);
             for (final HuffmanTable table : dhtSegment.huffmanTables) {
-                DhtSegment.HuffmanTable[] tables;
+                HuffmanLookupTable[] tables;
                 if (table.tableClass == 0) {
                     tables = huffmanDCTables;
                 } else if (table.tableClass == 1) {
@@ -406,143 +757,137 @@ public class JpegDecoder extends BinaryFileParser implements JpegUtils.Visitor {
                             "Invalid huffman table identifier "
                                     + table.destinationIdentifier);
                 }
-                tables[table.destinationIdentifier] = table;
+                tables[table.destinationIdentifier] = new HuffmanLookupTable(table);
             }
         }
-        return true;
     }
 
-    @Override
-    public void visitSOS(final int marker, final byte[] markerBytes, final byte[] imageData) {
-        try (ByteArrayInputStream is = new ByteArrayInputStream(imageData)) {
-            // read the scan header
-            final int segmentLength = read2Bytes("segmentLength", is,"Not a Valid JPEG File", getByteOrder());
-            final byte[] sosSegmentBytes = readBytes("SosSegment", is, segmentLength - 2, "Not a Valid JPEG File");
-            sosSegment = new SosSegment(marker, sosSegmentBytes);
-            // read the payload of the scan, this is the remainder of image data after the header
-            // the payload contains the entropy-encoded segments (or ECS) divided by RST markers
-            // or only one ECS if the entropy-encoded data is not divided by RST markers
-            // length of payload = length of image data - length of data already read
-            final int[] scanPayload = Allocator.intArray(imageData.length - segmentLength);
-            int payloadReadCount = 0;
-            while (payloadReadCount < scanPayload.length) {
-                scanPayload[payloadReadCount] = is.read();
-                payloadReadCount++;
-            }
-
-            int hMax = 0;
-            int vMax = 0;
-            for (int i = 0; i < sofnSegment.numberOfComponents; i++) {
-                hMax = Math.max(hMax,
-                        sofnSegment.getComponents(i).horizontalSamplingFactor);
-                vMax = Math.max(vMax,
-                        sofnSegment.getComponents(i).verticalSamplingFactor);
+    private ScanComponent[] resolveScanComponents() throws ImagingException {
+        final ScanComponent[] result = Allocator.array(sosSegment.numberOfComponents, ScanComponent[]::new, 32);
+        for (int i = 0; i < result.length; i++) {
+            final SosSegment.Component scanComponent = sosSegment.getComponents(i);
+            SofnSegment.Component frameComponent = null;
+            for (int j = 0; j < sofnSegment.numberOfComponents; j++) {
+                if (sofnSegment.getComponents(j).componentIdentifier == scanComponent.scanComponentSelector) {
+                    frameComponent = sofnSegment.getComponents(j);
+                    break;
+                }
             }
-            final int hSize = 8 * hMax;
-            final int vSize = 8 * vMax;
-
-            final int xMCUs = (sofnSegment.width + hSize - 1) / hSize;
-            final int yMCUs = (sofnSegment.height + vSize - 1) / vSize;
-            final Block[] mcu = allocateMCUMemory();
-            final Block[] scaledMCU = Allocator.array(mcu.length, Block[]::new, Block.SHALLOW_SIZE);
-            Arrays.setAll(scaledMCU, i -> new Block(hSize, vSize));
-            final int[] preds = Allocator.intArray(sofnSegment.numberOfComponents);
-            ColorModel colorModel;
-            WritableRaster raster;
-            Allocator.check(Integer.BYTES * sofnSegment.width * sofnSegment.height);
-            switch (sofnSegment.numberOfComponents) {
-            case 4:
-                colorModel = new DirectColorModel(24, 0x00ff0000, 0x0000ff00, 0x000000ff);
-                final int[] bandMasks = { 0x00ff0000, 0x0000ff00, 0x000000ff };
-                raster = Raster.createPackedRaster(DataBuffer.TYPE_INT, sofnSegment.width, sofnSegment.height, bandMasks, null);
-                break;
-            case 3:
-                colorModel = new DirectColorModel(24, 0x00ff0000, 0x0000ff00, 0x000000ff);
-                raster = Raster.createPackedRaster(DataBuffer.TYPE_INT, sofnSegment.width, sofnSegment.height, new int[] { 0x00ff0000, 0x0000ff00, 0x000000ff },
-                        null);
-                break;
-            case 1:
-                colorModel = new DirectColorModel(24, 0x00ff0000, 0x0000ff00, 0x000000ff);
-                raster = Raster.createPackedRaster(DataBuffer.TYPE_INT, sofnSegment.width, sofnSegment.height, new int[] { 0x00ff0000, 0x0000ff00, 0x000000ff },
-                        null);
-                // FIXME: why do images come out too bright with CS_GRAY?
-                // colorModel = new ComponentColorModel(
-                // ColorSpace.getInstance(ColorSpace.CS_GRAY), false, true,
-                // Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
-                // raster = colorModel.createCompatibleWritableRaster(
-                // sofnSegment.width, sofnSegment.height);
-                break;
-            default:
-                throw new ImagingException(sofnSegment.numberOfComponents + " components are invalid or unsupported");
+            if (frameComponent == null) {
+                throw new ImagingException("Invalid component");
             }
-            final DataBuffer dataBuffer = raster.getDataBuffer();
-
-            final JpegInputStream[] bitInputStreams = splitByRstMarkers(scanPayload);
-            int bitInputStreamCount = 0;
-            JpegInputStream bitInputStream = bitInputStreams[0];
-
-            for (int y1 = 0; y1 < vSize * yMCUs; y1 += vSize) {
-                for (int x1 = 0; x1 < hSize * xMCUs; x1 += hSize) {
-                    // Provide the next interval if an interval is read until it's end
-                    // as long there are unread intervals available
-                    if (!bitInputStream.hasNext()) {
-                        bitInputStreamCount++;
-                        if (bitInputStreamCount < bitInputStreams.length) {
-                            bitInputStream = bitInputStreams[bitInputStreamCount];
-                        }
-                    }
+            // a non-interleaved scan codes one data unit per MCU whatever the sampling factors (A.2.2 of T.81)
+            final boolean interleaved = result.length > 1;
+            result[i] = new ScanComponent(
+                    interleaved ? frameComponent.horizontalSamplingFactor : 1,
+                    interleaved ? frameComponent.verticalSamplingFactor : 1,
+                    huffmanDCTables[scanComponent.dcCodingTableSelector],
+                    huffmanACTables[scanComponent.acCodingTableSelector],
+                    blockSize == 8 ? scaledQuantizationTables[frameComponent.quantTabDestSelector]
+                            : quantizationMatrices[frameComponent.quantTabDestSelector]);
+        }
+        return result;
+    }
 
-                    readMCU(bitInputStream, preds, mcu);
-                    rescaleMCU(mcu, hSize, vSize, scaledMCU);
-                    int srcRowOffset = 0;
-                    int dstRowOffset = y1 * sofnSegment.width + x1;
-                    for (int y2 = 0; y2 < vSize && y1 + y2 < sofnSegment.height; y2++) {
-                        for (int x2 = 0; x2 < hSize
-                                && x1 + x2 < sofnSegment.width; x2++) {
-                            if (scaledMCU.length == 4) {
-                                final int C = scaledMCU[0].samples[srcRowOffset + x2];
-                                final int M = scaledMCU[1].samples[srcRowOffset + x2];
-                                final int Y = scaledMCU[2].samples[srcRowOffset + x2];
-                                final int K = scaledMCU[3].samples[srcRowOffset + x2];
-                                final int rgb = ColorConversions.convertCMYKtoRGB(C, M, Y, K);
-                                dataBuffer.setElem(dstRowOffset + x2, rgb);
-                            } else if (scaledMCU.length == 3) {
-                                final int Y = scaledMCU[0].samples[srcRowOffset + x2];
-                                final int Cb = scaledMCU[1].samples[srcRowOffset + x2];
-                                final int Cr = scaledMCU[2].samples[srcRowOffset + x2];
-                                final int rgb = YCbCrConverter.convertYCbCrToRGB(Y,
-                                        Cb, Cr);
-                                dataBuffer.setElem(dstRowOffset + x2, rgb);
-                            } else if (mcu.length == 1) {
-                                final int Y = scaledMCU[0].samples[srcRowOffset + x2];
-                                dataBuffer.setElem(dstRowOffset + x2, (Y << 16)
-                                        | (Y << 8) | Y);
-                            } else {
-                                throw new ImagingException(
-                                        "Unsupported JPEG with " + mcu.length
-                                                + " components");
-                            }
-                        }
-                        srcRowOffset += hSize;
-                        dstRowOffset += sofnSegment.width;
+    /**
+     * Stores an RGB pixel at the given index, counted in pixels from the top left of the image.
+     */
+    private void storeRGB(final DataBuffer dataBuffer, final int index, final int rgb) {
+        switch (outputLayout) {
+        case PACKED_RGB:
+            dataBuffer.setElem(index, packedAlpha | rgb);
+            break;
+        case BGR:
+            dataBuffer.setElem(3 * index, rgb & 0xff);
+            dataBuffer.setElem(3 * index + 1, (rgb >> 8) & 0xff);
+            dataBuffer.setElem(3 * index + 2, (rgb >> 16) & 0xff);
+            break;
+        default:
+            image.setRGB(index % outputWidth, index / outputWidth, 0xff000000 | rgb);
+            break;
+        }
+    }
+
+    /**
+     * Upsamples a row of a subsampled component to the width of the image, and returns it.
+     *
+     * <p>By default each sample is replicated. With fancy upsampling, components subsampled by 2 are interpolated with
+     * a triangle filter instead: each output sample weighs the nearest source sample 3/4 and the next nearest 1/4, in
+     * each direction the component is subsampled in, with the same rounding as the IJG library. Samples past the edge
+     * of the image are replaced by the last sample inside it.</p>
+     */
+    private byte[] upsampleRow(final SamplePlanes planes, final int component, final int y, final RowScratch scratch) {
+        final ScanComponent scanComponent = scanComponents[component];
+        final int hFactor = scanComponent.horizontalSamplingFactor;
+        final int vFactor = scanComponent.verticalSamplingFactor;
+        byte[] row = scratch.upsampledRows[component];
+        if (row == null) {
+            row = new byte[outputWidth];
+            scratch.upsampledRows[component] = row;
+        }
+        final byte[] samples = planes.samples[component];
+        final int sourceRow = y * vFactor / maxVerticalSamplingFactor;
+        final boolean hDouble = maxHorizontalSamplingFactor == 2 * hFactor;
+        final boolean vDouble = maxVerticalSamplingFactor == 2 * vFactor;
+        if (!fancyUpsampling || !hDouble && maxHorizontalSamplingFactor != hFactor || !vDouble && maxVerticalSamplingFactor != vFactor) {
+            // consecutive rows replicate the same source row
+            if (scratch.upsampledSourceRows[component] != sourceRow) {
+                scratch.upsampledSourceRows[component] = sourceRow;
+                final int offset = planes.rowOffset(component, sourceRow);
+                if (hDouble) {
+                    for (int x = 0; x < outputWidth; x++) {
+                        row[x] = samples[offset + (x >> 1)];
+                    }
+                } else {
+                    for (int x = 0; x < outputWidth; x++) {
+                        row[x] = samples[offset + x * hFactor / maxHorizontalSamplingFactor];
                     }
                 }
             }
-            image = new BufferedImage(colorModel, raster,
-                    colorModel.isAlphaPremultiplied(), new Properties());
-            // byte[] remainder = super.getStreamBytes(is);
-            // for (int i = 0; i < remainder.length; i++)
-            // {
-            // System.out.println("" + i + " = " +
-            // Integer.toHexString(remainder[i]));
-            // }
-        } catch (final ImagingException imageReadEx) {
-            imageReadException = imageReadEx;
-        } catch (final IOException ioEx) {
-            ioException = ioEx;
-        } catch (final RuntimeException ex) {
-            // Corrupt images can throw NPE and IOOBE
-            imageReadException = new ImagingException("Error parsing JPEG", ex);
+            return row;
         }
+
+        // the source rows and columns inside the image
+        final int height = (outputHeight * vFactor + maxVerticalSamplingFactor - 1) / maxVerticalSamplingFactor;
+        final int lastColumn = (outputWidth * hFactor + maxHorizontalSamplingFactor - 1) / maxHorizontalSamplingFactor - 1;
+        // an even output row lies between its source row and the one above, an odd one between its source row and the one below
+        final int farRow = vDouble ? Math.max(0, Math.min(height - 1, (y & 1) == 0 ? sourceRow - 1 : sourceRow + 1)) : sourceRow;
+        final int nearOffset = planes.rowOffset(component, sourceRow);
+        final int farOffset = planes.rowOffset(component, farRow);
+        if (hDouble && !vDouble) {
+            // a single row, rounded down for the left sample of each pair and up for the right one
+            for (int x = 0; x < outputWidth; x++) {
+                final int column = x >> 1;
+                final int farColumn = (x & 1) == 0 ? Math.max(0, column - 1) : Math.min(lastColumn, column + 1);
+                row[x] = (byte) ((3 * (0xff & samples[nearOffset + column]) + (0xff & samples[nearOffset + farColumn]) + 1 + (x & 1)) >> 2);
+            }
+        } else if (hDouble) {
+            // weigh the rows into column sums scaled by 4, then the columns to a result scaled by 16
+            for (int x = 0; x < outputWidth; x++) {
+                final int column = x >> 1;
+                final int farColumn = (x & 1) == 0 ? Math.max(0, column - 1) : Math.min(lastColumn, column + 1);
+                final int nearSum = 3 * (0xff & samples[nearOffset + column]) + (0xff & samples[farOffset + column]);
+                final int farSum = 3 * (0xff & samples[nearOffset + farColumn]) + (0xff & samples[farOffset + farColumn]);
+                row[x] = (byte) ((3 * nearSum + farSum + 8 - (x & 1)) >> 4);
+            }
+        } else {
+            for (int x = 0; x < outputWidth; x++) {
+                row[x] = (byte) ((3 * (0xff & samples[nearOffset + x]) + (0xff & samples[farOffset + x]) + 1 + (y & 1)) >> 2);
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public boolean visitSegment(final int marker, final byte[] markerBytes,
+            final int segmentLength, final byte[] segmentLengthBytes, final byte[] segmentData)
+            throws ImagingException, IOException {
+        readSegment(marker, segmentData);
+        return true;
+    }
+
+    @Override
+    public void visitSOS(final int marker, final byte[] markerBytes, final byte[] imageData) {
+        decodeScan(ByteSource.array(imageData), 0);
     }
 }
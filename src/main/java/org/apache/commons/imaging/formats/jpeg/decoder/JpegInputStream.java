@@ -15,23 +15,79 @@
 
 package org.apache.commons.imaging.formats.jpeg.decoder;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.formats.jpeg.JpegConstants;
 
+/**
+ * Reads the bits of entropy-coded data from a stream, removing stuffed zero bytes. Bytes pass through a small buffer, so the compressed data is
+ * never held in memory as a whole; {@link #restart()} moves on to the next restart interval without the data having to be split first.
+ */
 class JpegInputStream {
-    static final int SHALLOW_SIZE = 32;
+    private static final int BUFFER_SIZE = 8192;
     // Figure F.18, F.2.2.5, page 111 of ITU-T T.81
-    private final int[] interval;
-    // next position in the array to read
+    private final InputStream source;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    // next position in the buffer to read, and end of the valid bytes in it
     private int nextPos;
-    private int cnt;
-    private int b;
+    private int limit;
+    // stream offset of buffer[0]
+    private long bufferOffset;
+    private boolean endOfSource;
+    private IOException readFailure;
+    // bits read ahead of the decoder, right-aligned; only the low bitCount bits are valid
+    private long bitBuffer;
+    private int bitCount;
+
+    JpegInputStream(final InputStream source) {
+        this.source = source;
+    }
 
-    JpegInputStream(final int[] interval) {
-        this.interval = Arrays.copyOf(interval, interval.length);
-        this.nextPos = 0;
+    private void failBitsUnavailable() throws ImagingException {
+        // the reasons why fill() stopped short, in the order the byte-wise reader used to detect them
+        if (nextPos >= limit) {
+            if (readFailure != null) {
+                throw new ImagingException("Error reading entropy-coded data", readFailure);
+            }
+            throw new IllegalStateException("This stream hasn't any other value, all values were already read.");
+        }
+        if (nextPos + 1 >= limit) {
+            throw new IllegalStateException("This stream hasn't any other value, all values were already read.");
+        }
+        final int b2 = 0xff & buffer[nextPos + 1];
+        if (b2 == (0xff & JpegConstants.DNL_MARKER)) {
+            throw new ImagingException("DNL not yet supported");
+        }
+        throw new ImagingException("Invalid marker found "
+            + "in entropy data: 0xFF " + Integer.toHexString(b2));
+    }
+
+    /**
+     * Reads ahead as many whole bytes as fit into the bit buffer, removing stuffed zero bytes. Stops early at the end of the data, at a
+     * marker or at an invalid byte; the problem is reported by {@link #skipBits(int)} only if the decoder actually needs those bits.
+     */
+    private void fill() {
+        while (bitCount <= 56) {
+            if (nextPos + 1 >= limit) {
+                refill();
+                if (nextPos >= limit) {
+                    return;
+                }
+            }
+            final int b = 0xff & buffer[nextPos];
+            if (b == 0xff) {
+                if (nextPos + 1 >= limit || buffer[nextPos + 1] != 0) {
+                    return;
+                }
+                nextPos += 2;
+            } else {
+                nextPos++;
+            }
+            bitBuffer = (bitBuffer << 8) | b;
+            bitCount += 8;
+        }
     }
 
     /**
@@ -39,48 +95,134 @@ class JpegInputStream {
      * @return {@code true} as long there are unread fields available, else {@code false}
      */
     public boolean hasNext() {
-        return nextPos < this.interval.length;
+        if (bitCount >= 8) {
+            return true;
+        }
+        if (nextPos >= limit) {
+            refill();
+        }
+        return nextPos < limit;
     }
 
     public int nextBit() throws ImagingException {
-        if (cnt == 0) {
-            b = this.read();
-            if (b < 0) {
-                throw new ImagingException("Premature End of File");
+        final int bit = peekBits(1);
+        skipBits(1);
+        return bit;
+    }
+
+    /**
+     * Reads and consumes the next {@code n} bits, as the "RECEIVE" procedure of T.81 does.
+     *
+     * @param n the number of bits to read, at most 16.
+     * @return the bits, most significant first.
+     * @throws ImagingException if {@code n} is not a valid magnitude category or the entropy-coded data ends before {@code n} bits could be
+     *         read.
+     */
+    int nextBits(final int n) throws ImagingException {
+        if (n == 0) {
+            return 0;
+        }
+        if (n > 16) {
+            throw new ImagingException("Invalid magnitude category " + n);
+        }
+        final int bits = peekBits(n);
+        skipBits(n);
+        return bits;
+    }
+
+    /**
+     * Returns the next {@code n} bits without consuming them. Bits past the end of the available entropy-coded data read as zero.
+     *
+     * @param n the number of bits to look ahead, at most 32.
+     * @return the bits, most significant first.
+     */
+    int peekBits(final int n) {
+        if (bitCount < n) {
+            fill();
+            if (bitCount < n) {
+                return (int) (bitBuffer << (n - bitCount)) & (int) ((1L << n) - 1);
             }
-            cnt = 8;
-            if (b == 0xff) {
-                final int b2 = this.read();
-                if (b2 < 0) {
-                    throw new ImagingException("Premature End of File");
+        }
+        return (int) (bitBuffer >>> (bitCount - n)) & (int) ((1L << n) - 1);
+    }
+
+    /**
+     * Gets the offset in the stream of the next byte that has not been read into the bit buffer.
+     *
+     * @return the number of bytes consumed from the stream so far.
+     */
+    long position() {
+        return bufferOffset + nextPos;
+    }
+
+    /**
+     * Keeps the unread bytes and appends as many from the source as fit, so that at least two bytes are buffered unless the source ends.
+     * A read failure ends the data like the end of the source does, and is reported once the decoder needs the missing bits.
+     */
+    private void refill() {
+        if (endOfSource) {
+            return;
+        }
+        final int remaining = limit - nextPos;
+        System.arraycopy(buffer, nextPos, buffer, 0, remaining);
+        bufferOffset += nextPos;
+        nextPos = 0;
+        limit = remaining;
+        try {
+            while (limit < 2) {
+                final int count = source.read(buffer, limit, buffer.length - limit);
+                if (count < 0) {
+                    endOfSource = true;
+                    return;
                 }
-                if (b2 != 0) {
-                    if (b2 == (0xff & JpegConstants.DNL_MARKER)) {
-                        throw new ImagingException("DNL not yet supported");
-                    }
-                    throw new ImagingException("Invalid marker found "
-                        + "in entropy data: 0xFF " + Integer.toHexString(b2));
+                limit += count;
+            }
+        } catch (final IOException e) {
+            readFailure = e;
+            endOfSource = true;
+        }
+    }
+
+    /**
+     * Discards the bits left in the current restart interval and moves past the next RST marker, skipping any bytes before it.
+     *
+     * @return {@code true} if an RST marker was found, or {@code false} if the data ended first.
+     */
+    boolean restart() {
+        bitBuffer = 0;
+        bitCount = 0;
+        while (true) {
+            if (nextPos + 1 >= limit) {
+                refill();
+                if (nextPos + 1 >= limit) {
+                    nextPos = limit;
+                    return false;
+                }
+            }
+            if ((0xff & buffer[nextPos]) == 0xff) {
+                final int b2 = 0xff & buffer[nextPos + 1];
+                if (b2 >= (0xff & JpegConstants.RST0_MARKER) && b2 <= (0xff & JpegConstants.RST7_MARKER)) {
+                    nextPos += 2;
+                    return true;
                 }
             }
+            nextPos++;
         }
-        final int bit = (b >> 7) & 0x1;
-        cnt--;
-        b <<= 1;
-        return bit;
     }
 
     /**
-     * Returns the value from current field (as {@code InputStream.read()} would do)
-     * and set the position of the pointer to the next field to read.
-     * @return the value from current field (as {@code InputStream.read()} would do).
-     * @throws IllegalStateException if the stream hasn't any other value.
+     * Consumes {@code n} bits that were previously returned by {@link #peekBits(int)}.
+     *
+     * @param n the number of bits to consume.
+     * @throws ImagingException if fewer than {@code n} bits of entropy-coded data remain before the end of the data or a marker.
      */
-    int read() {
-        if (!this.hasNext()) {
-            throw new IllegalStateException("This stream hasn't any other value, all values were already read.");
+    void skipBits(final int n) throws ImagingException {
+        if (bitCount < n) {
+            fill();
+            if (bitCount < n) {
+                failBitsUnavailable();
+            }
         }
-        final int value = this.interval[nextPos];
-        this.nextPos++;
-        return value;
+        bitCount -= n;
     }
 }
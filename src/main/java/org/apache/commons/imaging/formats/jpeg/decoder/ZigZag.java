@@ -15,7 +15,12 @@
 
 package org.apache.commons.imaging.formats.jpeg.decoder;
 
-final class ZigZag {
+/**
+ * Converts JPEG blocks between row order and zig-zag order, shared by the decoder and the encoder.
+ *
+ * @since 1.0-alpha4
+ */
+public final class ZigZag {
     private static final int[] ZIG_ZAG = {
          0,  1,  5,  6, 14, 15, 27, 28,
          2,  4,  7, 13, 16, 26, 29, 42,
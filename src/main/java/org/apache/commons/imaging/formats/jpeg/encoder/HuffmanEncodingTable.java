@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.imaging.formats.jpeg.encoder;
+
+import java.util.Arrays;
+
+/**
+ * The code and size of each symbol of a Huffman table used for encoding, generated from the BITS and HUFFVAL lists
+ * that a DHT segment stores.
+ */
+final class HuffmanEncodingTable {
+
+    private static final int[] DC_LUMINANCE_BITS = { 0, 1, 5, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0, 0, 0 };
+    private static final int[] DC_CHROMINANCE_BITS = { 0, 3, 1, 1, 1, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0 };
+    private static final int[] DC_VALUES = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 };
+    private static final int[] AC_LUMINANCE_BITS = { 0, 2, 1, 3, 3, 2, 4, 3, 5, 5, 4, 4, 0, 0, 1, 0x7d };
+    private static final int[] AC_LUMINANCE_VALUES = {
+            0x01, 0x02, 0x03, 0x00, 0x04, 0x11, 0x05, 0x12, 0x21, 0x31, 0x41, 0x06, 0x13, 0x51, 0x61, 0x07,
+            0x22, 0x71, 0x14, 0x32, 0x81, 0x91, 0xa1, 0x08, 0x23, 0x42, 0xb1, 0xc1, 0x15, 0x52, 0xd1, 0xf0,
+            0x24, 0x33, 0x62, 0x72, 0x82, 0x09, 0x0a, 0x16, 0x17, 0x18, 0x19, 0x1a, 0x25, 0x26, 0x27, 0x28,
+            0x29, 0x2a, 0x34, 0x35, 0x36, 0x37, 0x38, 0x39, 0x3a, 0x43, 0x44, 0x45, 0x46, 0x47, 0x48, 0x49,
+            0x4a, 0x53, 0x54, 0x55, 0x56, 0x57, 0x58, 0x59, 0x5a, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69,
+            0x6a, 0x73, 0x74, 0x75, 0x76, 0x77, 0x78, 0x79, 0x7a, 0x83, 0x84, 0x85, 0x86, 0x87, 0x88, 0x89,
+            0x8a, 0x92, 0x93, 0x94, 0x95, 0x96, 0x97, 0x98, 0x99, 0x9a, 0xa2, 0xa3, 0xa4, 0xa5, 0xa6, 0xa7,
+            0xa8, 0xa9, 0xaa, 0xb2, 0xb3, 0xb4, 0xb5, 0xb6, 0xb7, 0xb8, 0xb9, 0xba, 0xc2, 0xc3, 0xc4, 0xc5,
+            0xc6, 0xc7, 0xc8, 0xc9, 0xca, 0xd2, 0xd3, 0xd4, 0xd5, 0xd6, 0xd7, 0xd8, 0xd9, 0xda, 0xe1, 0xe2,
+            0xe3, 0xe4, 0xe5, 0xe6, 0xe7, 0xe8, 0xe9, 0xea, 0xf1, 0xf2, 0xf3, 0xf4, 0xf5, 0xf6, 0xf7, 0xf8,
+            0xf9, 0xfa };
+    private static final int[] AC_CHROMINANCE_BITS = { 0, 2, 1, 2, 4, 4, 3, 4, 7, 5, 4, 4, 0, 1, 2, 0x77 };
+    private static final int[] AC_CHROMINANCE_VALUES = {
+            0x00, 0x01, 0x02, 0x03, 0x11, 0x04, 0x05, 0x21, 0x31, 0x06, 0x12, 0x41, 0x51, 0x07, 0x61, 0x71,
+            0x13, 0x22, 0x32, 0x81, 0x08, 0x14, 0x42, 0x91, 0xa1, 0xb1, 0xc1, 0x09, 0x23, 0x33, 0x52, 0xf0,
+            0x15, 0x62, 0x72, 0xd1, 0x0a, 0x16, 0x24, 0x34, 0xe1, 0x25, 0xf1, 0x17, 0x18, 0x19, 0x1a, 0x26,
+            0x27, 0x28, 0x29, 0x2a, 0x35, 0x36, 0x37, 0x38, 0x39, 0x3a, 0x43, 0x44, 0x45, 0x46, 0x47, 0x48,
+            0x49, 0x4a, 0x53, 0x54, 0x55, 0x56, 0x57, 0x58, 0x59, 0x5a, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68,
+            0x69, 0x6a, 0x73, 0x74, 0x75, 0x76, 0x77, 0x78, 0x79, 0x7a, 0x82, 0x83, 0x84, 0x85, 0x86, 0x87,
+            0x88, 0x89, 0x8a, 0x92, 0x93, 0x94, 0x95, 0x96, 0x97, 0x98, 0x99, 0x9a, 0xa2, 0xa3, 0xa4, 0xa5,
+            0xa6, 0xa7, 0xa8, 0xa9, 0xaa, 0xb2, 0xb3, 0xb4, 0xb5, 0xb6, 0xb7, 0xb8, 0xb9, 0xba, 0xc2, 0xc3,
+            0xc4, 0xc5, 0xc6, 0xc7, 0xc8, 0xc9, 0xca, 0xd2, 0xd3, 0xd4, 0xd5, 0xd6, 0xd7, 0xd8, 0xd9, 0xda,
+            0xe2, 0xe3, 0xe4, 0xe5, 0xe6, 0xe7, 0xe8, 0xe9, 0xea, 0xf2, 0xf3, 0xf4, 0xf5, 0xf6, 0xf7, 0xf8,
+            0xf9, 0xfa };
+
+    // Typical tables, section K.3, tables K.3 to K.6, pages 149 to 157 of T.81
+    static final HuffmanEncodingTable DC_LUMINANCE = new HuffmanEncodingTable(DC_LUMINANCE_BITS, DC_VALUES);
+    static final HuffmanEncodingTable DC_CHROMINANCE = new HuffmanEncodingTable(DC_CHROMINANCE_BITS, DC_VALUES);
+    static final HuffmanEncodingTable AC_LUMINANCE = new HuffmanEncodingTable(AC_LUMINANCE_BITS, AC_LUMINANCE_VALUES);
+    static final HuffmanEncodingTable AC_CHROMINANCE = new HuffmanEncodingTable(AC_CHROMINANCE_BITS, AC_CHROMINANCE_VALUES);
+
+    private static final int MAX_CODE_LENGTH = 16;
+
+    /**
+     * Builds the table of code lengths limited to 16 bits that best encodes symbols with the given frequencies.
+     *
+     * @param frequencies how often each of the 256 symbols occurs.
+     * @return the table.
+     */
+    static HuffmanEncodingTable optimal(final long[] frequencies) {
+        // "Code_size", section K.2, figure K.1, page 146 of T.81; symbol 256 is reserved
+        // so that no code consists only of 1 bits
+        final long[] freq = Arrays.copyOf(frequencies, 257);
+        freq[256] = 1;
+        final int[] codeSize = new int[257];
+        final int[] others = new int[257];
+        Arrays.fill(others, -1);
+        while (true) {
+            int v1 = -1;
+            long least = Long.MAX_VALUE;
+            for (int i = 0; i <= 256; i++) {
+                if (freq[i] != 0 && freq[i] <= least) {
+                    least = freq[i];
+                    v1 = i;
+                }
+            }
+            int v2 = -1;
+            least = Long.MAX_VALUE;
+            for (int i = 0; i <= 256; i++) {
+                if (freq[i] != 0 && freq[i] <= least && i != v1) {
+                    least = freq[i];
+                    v2 = i;
+                }
+            }
+            if (v2 < 0) {
+                break;
+            }
+            freq[v1] += freq[v2];
+            freq[v2] = 0;
+            codeSize[v1]++;
+            while (others[v1] >= 0) {
+                v1 = others[v1];
+                codeSize[v1]++;
+            }
+            others[v1] = v2;
+            codeSize[v2]++;
+            while (others[v2] >= 0) {
+                v2 = others[v2];
+                codeSize[v2]++;
+            }
+        }
+
+        // "Count_BITS", figure K.2
+        final int[] bits = new int[258];
+        for (int i = 0; i <= 256; i++) {
+            if (codeSize[i] > 0) {
+                bits[codeSize[i]]++;
+            }
+        }
+
+        // "Adjust_BITS", figure K.3
+        for (int i = bits.length - 1; i > MAX_CODE_LENGTH; i--) {
+            while (bits[i] > 0) {
+                int j = i - 2;
+                while (bits[j] == 0) {
+                    j--;
+                }
+                bits[i] -= 2;
+                bits[i - 1]++;
+                bits[j + 1] += 2;
+                bits[j]--;
+            }
+        }
+        int longest = MAX_CODE_LENGTH;
+        while (bits[longest] == 0) {
+            longest--;
+        }
+        bits[longest]--;
+
+        // "Sort_input", figure K.4
+        final int[] values = new int[256];
+        int count = 0;
+        for (int size = 1; size < bits.length; size++) {
+            for (int i = 0; i < 256; i++) {
+                if (codeSize[i] == size) {
+                    values[count++] = i;
+                }
+            }
+        }
+        return new HuffmanEncodingTable(Arrays.copyOfRange(bits, 1, MAX_CODE_LENGTH + 1), Arrays.copyOf(values, count));
+    }
+
+    /** Number of codes of each length from 1 to 16. */
+    final int[] bits;
+
+    /** Symbols in order of increasing code length. */
+    final int[] values;
+
+    /** Code of each symbol. */
+    final int[] codes = new int[256];
+
+    /** Length of the code of each symbol, zero if the symbol has no code. */
+    final int[] sizes = new int[256];
+
+    HuffmanEncodingTable(final int[] bits, final int[] values) {
+        this.bits = bits;
+        this.values = values;
+        // "Generate_size_table" and "Generate_code_table", section C.2, figures C.1 and C.2, pages 51 and 52 of T.81,
+        // combined with the ordering of the codes by symbol of figure C.3
+        int code = 0;
+        int k = 0;
+        for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+            for (int i = 0; i < bits[length - 1]; i++) {
+                codes[values[k]] = code;
+                sizes[values[k]] = length;
+                code++;
+                k++;
+            }
+            code <<= 1;
+        }
+    }
+}
@@ -0,0 +1,752 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+
+package org.apache.commons.imaging.formats.jpeg.encoder;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.PixelDensity;
+import org.apache.commons.imaging.common.BinaryOutputStream;
+import org.apache.commons.imaging.formats.jpeg.ChromaSubsampling;
+import org.apache.commons.imaging.formats.jpeg.JpegConstants;
+import org.apache.commons.imaging.formats.jpeg.JpegImagingParameters;
+import org.apache.commons.imaging.formats.jpeg.decoder.Dct;
+import org.apache.commons.imaging.formats.jpeg.decoder.ZigZag;
+
+/**
+ * Writes baseline sequential JFIF images, with one Y component for grayscale images and Y, Cb and Cr components
+ * for all others. Alpha is discarded. XMP XML, if set, is written in an APP1 segment after the JFIF one.
+ * <p>
+ * The image is transformed and quantized one row of MCUs at a time. With an executor, runs of rows are transformed
+ * concurrently; if the image also has restart intervals, whole intervals are entropy coded concurrently too, since
+ * each starts from a byte boundary with its DC predictions reset. Rows are written in order, so the output does not
+ * depend on the executor.
+ * </p>
+ *
+ * @since 1.0-alpha4
+ */
+public class JpegEncoder {
+
+    /**
+     * Accumulates the symbols of entropy-coded blocks. Section F.1.2 of T.81.
+     */
+    private abstract static class EntropyCoder {
+
+        abstract void emit(int table, int symbol, int bits, int size);
+
+        final void encodeBlock(final short[] coefficients, final int offset, final int dcTable, final int acTable,
+                final int previousDc) {
+            emitValue(dcTable, 0, coefficients[offset] - previousDc);
+            int run = 0;
+            for (int k = 1; k < 64; k++) {
+                final int value = coefficients[offset + k];
+                if (value == 0) {
+                    run++;
+                } else {
+                    while (run > 15) {
+                        // ZRL
+                        emit(acTable, 0xf0, 0, 0);
+                        run -= 16;
+                    }
+                    emitValue(acTable, run, value);
+                    run = 0;
+                }
+            }
+            if (run > 0) {
+                // EOB
+                emit(acTable, 0x00, 0, 0);
+            }
+        }
+
+        private void emitValue(final int table, final int run, final int value) {
+            final int size = category(value);
+            // negative values are sent as the low bits of value - 1
+            final int bits = (value < 0 ? value - 1 : value) & ((1 << size) - 1);
+            emit(table, (run << 4) | size, bits, size);
+        }
+    }
+
+    /**
+     * Writes the entropy-coded bytes of blocks, with 0xFF bytes stuffed.
+     */
+    private static final class EntropyWriter extends EntropyCoder {
+        private final int[][] codes;
+        private final int[][] sizes;
+        private byte[] bytes = new byte[4096];
+        private int length;
+        private long bitBuffer;
+        private int bitCount;
+
+        EntropyWriter(final HuffmanEncodingTable[] tables) {
+            codes = new int[tables.length][];
+            sizes = new int[tables.length][];
+            for (int i = 0; i < tables.length; i++) {
+                codes[i] = tables[i].codes;
+                sizes[i] = tables[i].sizes;
+            }
+        }
+
+        @Override
+        void emit(final int table, final int symbol, final int bits, final int size) {
+            writeBits((codes[table][symbol] << size) | bits, sizes[table][symbol] + size);
+        }
+
+        /**
+         * Pads the last byte with 1 bits, as section F.1.2.3 of T.81 requires before a marker.
+         */
+        void flush() {
+            if (bitCount > 0) {
+                final int padding = 8 - bitCount;
+                writeBits((1 << padding) - 1, padding);
+            }
+        }
+
+        private void put(final int b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * length);
+            }
+            bytes[length++] = (byte) b;
+        }
+
+        void writeBits(final int value, final int size) {
+            bitBuffer = (bitBuffer << size) | value;
+            bitCount += size;
+            while (bitCount >= 8) {
+                bitCount -= 8;
+                final int b = (int) (bitBuffer >>> bitCount) & 0xff;
+                put(b);
+                if (b == 0xff) {
+                    put(0);
+                }
+            }
+        }
+
+        void writeRestart(final int index) {
+            put(0xff);
+            put(0xd0 + index);
+        }
+
+        void writeTo(final OutputStream os) throws IOException {
+            os.write(bytes, 0, length);
+            length = 0;
+        }
+    }
+
+    /**
+     * The component layout of the frame, and the transform from pixels to quantized coefficients.
+     */
+    private static final class Frame {
+        final BufferedImage src;
+        final boolean gray;
+        final int width;
+        final int height;
+        final int componentCount;
+        final int[] horizontalSamplingFactors;
+        final int[] verticalSamplingFactors;
+        final int[] tableIndexes;
+        final int[] blockOffsets;
+        final int blocksPerMcu;
+        final int mcuWidth;
+        final int mcuHeight;
+        final int xMCUs;
+        final int yMCUs;
+        final float[][] reciprocalQuantizers;
+
+        Frame(final BufferedImage src, final ChromaSubsampling chromaSubsampling, final int[][] quantizationTables) {
+            this.src = src;
+            final ColorModel colorModel = src.getColorModel();
+            gray = colorModel.getColorSpace().getType() == ColorSpace.TYPE_GRAY && colorModel.getNumComponents() == 1
+                    && src.getRaster().getNumBands() == 1;
+            width = src.getWidth();
+            height = src.getHeight();
+            if (gray) {
+                horizontalSamplingFactors = new int[] { 1 };
+                verticalSamplingFactors = new int[] { 1 };
+                tableIndexes = new int[] { 0 };
+            } else {
+                horizontalSamplingFactors = new int[] { chromaSubsampling.getHorizontalSamplingFactor(), 1, 1 };
+                verticalSamplingFactors = new int[] { chromaSubsampling.getVerticalSamplingFactor(), 1, 1 };
+                tableIndexes = new int[] { 0, 1, 1 };
+            }
+            componentCount = tableIndexes.length;
+            blockOffsets = new int[componentCount];
+            int blocks = 0;
+            for (int i = 0; i < componentCount; i++) {
+                blockOffsets[i] = 64 * blocks;
+                blocks += horizontalSamplingFactors[i] * verticalSamplingFactors[i];
+            }
+            blocksPerMcu = blocks;
+            mcuWidth = 8 * horizontalSamplingFactors[0];
+            mcuHeight = 8 * verticalSamplingFactors[0];
+            xMCUs = (width + mcuWidth - 1) / mcuWidth;
+            yMCUs = (height + mcuHeight - 1) / mcuHeight;
+            reciprocalQuantizers = new float[quantizationTables.length][64];
+            for (int i = 0; i < quantizationTables.length; i++) {
+                for (int j = 0; j < 64; j++) {
+                    reciprocalQuantizers[i][j] = 1f / quantizationTables[i][j];
+                }
+                // folds the scaling of the AAN transform into the quantizer
+                Dct.scaleQuantizationMatrix(reciprocalQuantizers[i]);
+            }
+        }
+
+        int getRowLength() {
+            return 64 * blocksPerMcu * xMCUs;
+        }
+
+        private void readPixels(final int y0, final TransformScratch scratch) {
+            final int paddedWidth = xMCUs * mcuWidth;
+            final int rows = Math.min(mcuHeight, height - y0);
+            final int[] pixels = scratch.pixels;
+            if (gray) {
+                final int bits = src.getColorModel().getComponentSize(0);
+                final int max = (1 << bits) - 1;
+                final int[] samples = src.getRaster().getSamples(0, y0, width, rows, 0, scratch.samples);
+                for (int y = rows - 1; y >= 0; y--) {
+                    for (int x = 0; x < width; x++) {
+                        final int sample = samples[y * width + x];
+                        pixels[y * paddedWidth + x] = bits == 8 ? sample : (sample * 255 + max / 2) / max;
+                    }
+                }
+            } else {
+                src.getRGB(0, y0, width, rows, pixels, 0, paddedWidth);
+            }
+            // the edges are replicated to fill partial blocks, which keeps them cheap to encode
+            for (int y = 0; y < rows; y++) {
+                Arrays.fill(pixels, y * paddedWidth + width, (y + 1) * paddedWidth, pixels[y * paddedWidth + width - 1]);
+            }
+            for (int y = rows; y < mcuHeight; y++) {
+                System.arraycopy(pixels, (rows - 1) * paddedWidth, pixels, y * paddedWidth, paddedWidth);
+            }
+        }
+
+        /**
+         * Transforms the row of MCUs at {@code mcuRow} into quantized coefficients in zigzag order, stored block by
+         * block in the order they are encoded.
+         */
+        void transformRow(final int mcuRow, final TransformScratch scratch, final short[] coefficients, final int offset) {
+            readPixels(mcuRow * mcuHeight, scratch);
+            final int paddedWidth = xMCUs * mcuWidth;
+            final int[] pixels = scratch.pixels;
+            final float[][] planes = scratch.planes;
+            if (gray) {
+                final float[] luma = planes[0];
+                for (int i = 0; i < paddedWidth * mcuHeight; i++) {
+                    luma[i] = pixels[i] - 128;
+                }
+            } else {
+                final int hShift = horizontalSamplingFactors[0] - 1;
+                final int vShift = verticalSamplingFactors[0] - 1;
+                final int chromaWidth = paddedWidth >> hShift;
+                final float chromaScale = 1f / (horizontalSamplingFactors[0] * verticalSamplingFactors[0]);
+                final float[] luma = planes[0];
+                final float[] cb = planes[1];
+                final float[] cr = planes[2];
+                Arrays.fill(cb, 0, chromaWidth * 8, 0);
+                Arrays.fill(cr, 0, chromaWidth * 8, 0);
+                for (int y = 0; y < mcuHeight; y++) {
+                    final int chromaRow = (y >> vShift) * chromaWidth;
+                    for (int x = 0; x < paddedWidth; x++) {
+                        final int rgb = pixels[y * paddedWidth + x];
+                        final int r = (rgb >> 16) & 0xff;
+                        final int g = (rgb >> 8) & 0xff;
+                        final int b = rgb & 0xff;
+                        // JFIF conversion, averaging the chrominance of the pixels that share a sample
+                        luma[y * paddedWidth + x] = 0.299f * r + 0.587f * g + 0.114f * b - 128;
+                        final int chromaIndex = chromaRow + (x >> hShift);
+                        cb[chromaIndex] += chromaScale * (-0.168736f * r - 0.331264f * g + 0.5f * b);
+                        cr[chromaIndex] += chromaScale * (0.5f * r - 0.418688f * g - 0.081312f * b);
+                    }
+                }
+            }
+
+            int out = offset;
+            for (int mcuX = 0; mcuX < xMCUs; mcuX++) {
+                for (int i = 0; i < componentCount; i++) {
+                    final int hSize = horizontalSamplingFactors[i];
+                    final int vSize = verticalSamplingFactors[i];
+                    final int planeWidth = 8 * hSize * xMCUs;
+                    for (int by = 0; by < vSize; by++) {
+                        for (int bx = 0; bx < hSize; bx++) {
+                            transformBlock(planes[i], planeWidth, 8 * (mcuX * hSize + bx), 8 * by,
+                                    reciprocalQuantizers[tableIndexes[i]], scratch, coefficients, out);
+                            out += 64;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void transformBlock(final float[] plane, final int planeWidth, final int x0, final int y0,
+                final float[] reciprocalQuantizer, final TransformScratch scratch, final short[] coefficients,
+                final int offset) {
+            final float[] block = scratch.block;
+            for (int y = 0; y < 8; y++) {
+                System.arraycopy(plane, (y0 + y) * planeWidth + x0, block, 8 * y, 8);
+            }
+            Dct.forwardDCT8x8(block);
+            final int[] blockInt = scratch.blockInt;
+            for (int i = 0; i < 64; i++) {
+                final float value = block[i] * reciprocalQuantizer[i];
+                blockInt[i] = (int) (value < 0 ? value - 0.5f : value + 0.5f);
+            }
+            ZigZag.blockToZigZag(blockInt, scratch.zz);
+            for (int i = 0; i < 64; i++) {
+                coefficients[offset + i] = (short) scratch.zz[i];
+            }
+        }
+    }
+
+    /**
+     * Counts the symbols of entropy-coded blocks, to build optimal Huffman tables.
+     */
+    private static final class SymbolCounter extends EntropyCoder {
+        final long[][] frequencies = new long[4][256];
+        int[] firstDc;
+        int[] lastDc;
+
+        @Override
+        void emit(final int table, final int symbol, final int bits, final int size) {
+            frequencies[table][symbol]++;
+        }
+    }
+
+    /**
+     * Receives the result of a task.
+     */
+    @FunctionalInterface
+    private interface TaskConsumer<T> {
+        void accept(int task, T result) throws IOException;
+    }
+
+    /**
+     * Working memory for transforming a row of MCUs. Each task owns one.
+     */
+    private static final class TransformScratch {
+        final int[] pixels;
+        final int[] samples;
+        final float[][] planes;
+        final float[] block = new float[64];
+        final int[] blockInt = new int[64];
+        final int[] zz = new int[64];
+
+        TransformScratch(final Frame frame) {
+            final int paddedWidth = frame.xMCUs * frame.mcuWidth;
+            pixels = new int[paddedWidth * frame.mcuHeight];
+            samples = frame.gray ? new int[frame.width * frame.mcuHeight] : null;
+            planes = new float[frame.componentCount][];
+            for (int i = 0; i < frame.componentCount; i++) {
+                planes[i] = new float[8 * frame.horizontalSamplingFactors[i] * frame.xMCUs * 8 * frame.verticalSamplingFactors[i]];
+            }
+        }
+    }
+
+    // Section K.1, tables K.1 and K.2, page 143 of T.81, in natural order
+    private static final int[] LUMINANCE_QUANTIZATION = {
+            16, 11, 10, 16, 24, 40, 51, 61,
+            12, 12, 14, 19, 26, 58, 60, 55,
+            14, 13, 16, 24, 40, 57, 69, 56,
+            14, 17, 22, 29, 51, 87, 80, 62,
+            18, 22, 37, 56, 68, 109, 103, 77,
+            24, 35, 55, 64, 81, 104, 113, 92,
+            49, 64, 78, 87, 103, 121, 120, 101,
+            72, 92, 95, 98, 112, 100, 103, 99 };
+    private static final int[] CHROMINANCE_QUANTIZATION = {
+            17, 18, 24, 47, 99, 99, 99, 99,
+            18, 21, 26, 66, 99, 99, 99, 99,
+            24, 26, 56, 99, 99, 99, 99, 99,
+            47, 66, 99, 99, 99, 99, 99, 99,
+            99, 99, 99, 99, 99, 99, 99, 99,
+            99, 99, 99, 99, 99, 99, 99, 99,
+            99, 99, 99, 99, 99, 99, 99, 99,
+            99, 99, 99, 99, 99, 99, 99, 99 };
+
+    /**
+     * Fewest MCUs each task transforms or encodes, so that scheduling stays cheap next to the work.
+     */
+    private static final int MIN_MCUS_PER_TASK = 1024;
+
+    private static int category(final int value) {
+        return 32 - Integer.numberOfLeadingZeros(value < 0 ? -value : value);
+    }
+
+    private static <T> T join(final CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Scales an example quantization table to a quality from 1 to 100, as the IJG library does.
+     */
+    static int[] scaleQuantizationTable(final int[] table, final int quality) {
+        final int scale = quality < 50 ? 5000 / quality : 200 - 2 * quality;
+        final int[] scaled = new int[64];
+        for (int i = 0; i < 64; i++) {
+            // baseline tables hold 8-bit values
+            scaled[i] = Math.max(1, Math.min(255, (table[i] * scale + 50) / 100));
+        }
+        return scaled;
+    }
+
+    private static int toDensity(final double density) {
+        return (int) Math.max(1, Math.min(0xffff, Math.round(density)));
+    }
+
+    private final ChromaSubsampling chromaSubsampling;
+    private final Executor executor;
+    private final boolean optimizeHuffmanTables;
+    private final PixelDensity pixelDensity;
+    private final int quality;
+    private final int restartIntervalRows;
+    private final String xmpXml;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param params the quality, subsampling, restart intervals, Huffman table optimization, executor, pixel
+     *               density and XMP XML to write with, or {@code null} for the defaults of
+     *               {@link JpegImagingParameters}.
+     */
+    public JpegEncoder(final JpegImagingParameters params) {
+        final JpegImagingParameters p = params == null ? new JpegImagingParameters() : params;
+        chromaSubsampling = p.getChromaSubsampling();
+        executor = p.getExecutor();
+        optimizeHuffmanTables = p.isOptimizeHuffmanTables();
+        pixelDensity = p.getPixelDensity();
+        quality = p.getQuality();
+        restartIntervalRows = p.getRestartIntervalRows();
+        xmpXml = p.getXmpXml();
+    }
+
+    /**
+     * Counts the symbols the image encodes to, and builds the optimal Huffman tables for them.
+     */
+    private HuffmanEncodingTable[] buildOptimalTables(final Frame frame, final int rowsPerTask) throws IOException {
+        final long[][] frequencies = new long[4][256];
+        final int[] lastDc = new int[frame.componentCount];
+        final int taskCount = (frame.yMCUs + rowsPerTask - 1) / rowsPerTask;
+        runInOrder(taskCount, task -> countSymbols(frame, task * rowsPerTask, Math.min(frame.yMCUs, (task + 1) * rowsPerTask)),
+                (task, counter) -> {
+                    if (task > 0 && restartIntervalRows == 0) {
+                        // the task predicted its first DC values from 0, rather than from the previous row
+                        for (int i = 0; i < frame.componentCount; i++) {
+                            final long[] dc = counter.frequencies[2 * frame.tableIndexes[i]];
+                            dc[category(counter.firstDc[i])]--;
+                            dc[category(counter.firstDc[i] - lastDc[i])]++;
+                        }
+                    }
+                    for (int table = 0; table < frequencies.length; table++) {
+                        for (int symbol = 0; symbol < 256; symbol++) {
+                            frequencies[table][symbol] += counter.frequencies[table][symbol];
+                        }
+                    }
+                    System.arraycopy(counter.lastDc, 0, lastDc, 0, lastDc.length);
+                });
+        final HuffmanEncodingTable[] tables = new HuffmanEncodingTable[frame.gray ? 2 : 4];
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = HuffmanEncodingTable.optimal(frequencies[i]);
+        }
+        return tables;
+    }
+
+    private SymbolCounter countSymbols(final Frame frame, final int firstRow, final int endRow) {
+        final SymbolCounter counter = new SymbolCounter();
+        final TransformScratch scratch = new TransformScratch(frame);
+        final short[] coefficients = new short[frame.getRowLength()];
+        final int[] predictions = new int[frame.componentCount];
+        for (int row = firstRow; row < endRow; row++) {
+            if (restartIntervalRows > 0 && row % restartIntervalRows == 0) {
+                Arrays.fill(predictions, 0);
+            }
+            frame.transformRow(row, scratch, coefficients, 0);
+            if (row == firstRow) {
+                counter.firstDc = new int[frame.componentCount];
+                for (int i = 0; i < frame.componentCount; i++) {
+                    counter.firstDc[i] = coefficients[frame.blockOffsets[i]];
+                }
+            }
+            encodeRow(frame, coefficients, 0, predictions, counter);
+        }
+        counter.lastDc = predictions;
+        return counter;
+    }
+
+    /**
+     * Writes the image as a JPEG file.
+     *
+     * @param src the image.
+     * @param os  the stream to write to.
+     * @throws ImagingException if the image or the XMP XML is too large for a JPEG file.
+     * @throws IOException      if an I/O error occurs.
+     */
+    public void encode(final BufferedImage src, final OutputStream os) throws ImagingException, IOException {
+        if (src.getWidth() > 0xffff || src.getHeight() > 0xffff) {
+            throw new ImagingException("Image of " + src.getWidth() + "x" + src.getHeight()
+                    + " pixels is too large for a JPEG file, at most 65535x65535 are allowed");
+        }
+        final int[][] quantizationTables = { scaleQuantizationTable(LUMINANCE_QUANTIZATION, quality),
+                scaleQuantizationTable(CHROMINANCE_QUANTIZATION, quality) };
+        final Frame frame = new Frame(src, chromaSubsampling, quantizationTables);
+        final long restartInterval = (long) restartIntervalRows * frame.xMCUs;
+        if (restartInterval > 0xffff) {
+            throw new ImagingException("Restart interval of " + restartInterval + " MCUs is too long, at most 65535 are allowed");
+        }
+        final byte[] xmpXmlBytes = xmpXml == null ? null : xmpXml.getBytes(StandardCharsets.UTF_8);
+        // the segment length counts its own two bytes
+        if (xmpXmlBytes != null && 2 + JpegConstants.XMP_IDENTIFIER.size() + xmpXmlBytes.length > JpegConstants.MAX_SEGMENT_SIZE) {
+            throw new ImagingException("XMP XML of " + xmpXmlBytes.length + " bytes is too long for a JPEG APP1 segment, at most "
+                    + (JpegConstants.MAX_SEGMENT_SIZE - 2 - JpegConstants.XMP_IDENTIFIER.size()) + " are allowed");
+        }
+
+        // tasks cover whole restart intervals, so that they can be entropy coded independently
+        final int rowsPerUnit = restartIntervalRows > 0 ? restartIntervalRows : 1;
+        final int mcusPerUnit = rowsPerUnit * frame.xMCUs;
+        final int rowsPerTask = rowsPerUnit * ((MIN_MCUS_PER_TASK + mcusPerUnit - 1) / mcusPerUnit);
+
+        final HuffmanEncodingTable[] huffmanTables;
+        if (optimizeHuffmanTables) {
+            huffmanTables = buildOptimalTables(frame, rowsPerTask);
+        } else if (frame.gray) {
+            huffmanTables = new HuffmanEncodingTable[] { HuffmanEncodingTable.DC_LUMINANCE, HuffmanEncodingTable.AC_LUMINANCE };
+        } else {
+            huffmanTables = new HuffmanEncodingTable[] { HuffmanEncodingTable.DC_LUMINANCE, HuffmanEncodingTable.AC_LUMINANCE,
+                    HuffmanEncodingTable.DC_CHROMINANCE, HuffmanEncodingTable.AC_CHROMINANCE };
+        }
+
+        writeHeaders(os, frame, frame.gray ? new int[][] { quantizationTables[0] } : quantizationTables, huffmanTables,
+                (int) restartInterval, xmpXmlBytes);
+        final int taskCount = (frame.yMCUs + rowsPerTask - 1) / rowsPerTask;
+        if (restartIntervalRows > 0) {
+            runInOrder(taskCount, task -> encodeIntervals(frame, huffmanTables, task * rowsPerTask,
+                    Math.min(frame.yMCUs, (task + 1) * rowsPerTask)), (task, writer) -> writer.writeTo(os));
+        } else {
+            final EntropyWriter writer = new EntropyWriter(huffmanTables);
+            final int[] predictions = new int[frame.componentCount];
+            runInOrder(taskCount, task -> transformRows(frame, task * rowsPerTask, Math.min(frame.yMCUs, (task + 1) * rowsPerTask)),
+                    (task, coefficients) -> {
+                        for (int offset = 0; offset < coefficients.length; offset += frame.getRowLength()) {
+                            encodeRow(frame, coefficients, offset, predictions, writer);
+                        }
+                        writer.writeTo(os);
+                    });
+            writer.flush();
+            writer.writeTo(os);
+        }
+        JpegConstants.EOI.writeTo(os);
+    }
+
+    /**
+     * Transforms and entropy codes the rows from {@code firstRow} to {@code endRow}, which start a restart interval
+     * and end one or the image, preceding each interval but the first of the image by its RST marker.
+     */
+    private EntropyWriter encodeIntervals(final Frame frame, final HuffmanEncodingTable[] huffmanTables, final int firstRow,
+            final int endRow) {
+        final EntropyWriter writer = new EntropyWriter(huffmanTables);
+        final TransformScratch scratch = new TransformScratch(frame);
+        final short[] coefficients = new short[frame.getRowLength()];
+        final int[] predictions = new int[frame.componentCount];
+        for (int row = firstRow; row < endRow; row++) {
+            if (row % restartIntervalRows == 0) {
+                writer.flush();
+                if (row > 0) {
+                    writer.writeRestart((row / restartIntervalRows - 1) & 7);
+                }
+                Arrays.fill(predictions, 0);
+            }
+            frame.transformRow(row, scratch, coefficients, 0);
+            encodeRow(frame, coefficients, 0, predictions, writer);
+        }
+        writer.flush();
+        return writer;
+    }
+
+    private void encodeRow(final Frame frame, final short[] coefficients, final int offset, final int[] predictions,
+            final EntropyCoder coder) {
+        int block = offset;
+        for (int mcuX = 0; mcuX < frame.xMCUs; mcuX++) {
+            for (int i = 0; i < frame.componentCount; i++) {
+                final int dcTable = 2 * frame.tableIndexes[i];
+                final int blocks = frame.horizontalSamplingFactors[i] * frame.verticalSamplingFactors[i];
+                for (int j = 0; j < blocks; j++) {
+                    coder.encodeBlock(coefficients, block, dcTable, dcTable + 1, predictions[i]);
+                    predictions[i] = coefficients[block];
+                    block += 64;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs {@code count} tasks, on the executor if there is one, and passes their results to {@code consumer} in
+     * order. At most a few tasks per processor run ahead of the consumer, which bounds the memory their results use.
+     */
+    private <T> void runInOrder(final int count, final IntFunction<T> task, final TaskConsumer<T> consumer) throws IOException {
+        if (executor == null) {
+            for (int i = 0; i < count; i++) {
+                consumer.accept(i, task.apply(i));
+            }
+            return;
+        }
+        final int window = Math.max(2, 2 * Runtime.getRuntime().availableProcessors());
+        final ArrayDeque<CompletableFuture<T>> pending = new ArrayDeque<>(window);
+        int submitted = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                while (submitted < count && submitted < i + window) {
+                    final int next = submitted++;
+                    pending.add(CompletableFuture.supplyAsync(() -> task.apply(next), executor));
+                }
+                consumer.accept(i, join(pending.remove()));
+            }
+        } finally {
+            // after a failure, tasks not yet started are not needed
+            pending.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private short[] transformRows(final Frame frame, final int firstRow, final int endRow) {
+        final TransformScratch scratch = new TransformScratch(frame);
+        final int rowLength = frame.getRowLength();
+        final short[] coefficients = new short[(endRow - firstRow) * rowLength];
+        for (int row = firstRow; row < endRow; row++) {
+            frame.transformRow(row, scratch, coefficients, (row - firstRow) * rowLength);
+        }
+        return coefficients;
+    }
+
+    private void writeHeaders(final OutputStream os, final Frame frame, final int[][] quantizationTables,
+            final HuffmanEncodingTable[] huffmanTables, final int restartInterval, final byte[] xmpXmlBytes) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BinaryOutputStream bos = BinaryOutputStream.bigEndian(baos)) {
+            JpegConstants.SOI.writeTo(bos);
+
+            // JFIF APP0, without a thumbnail
+            bos.write2Bytes(JpegConstants.JFIF_MARKER);
+            bos.write2Bytes(16);
+            bos.write("JFIF\0".getBytes(StandardCharsets.US_ASCII));
+            bos.write(1);
+            bos.write(1);
+            if (pixelDensity == null) {
+                bos.write(0);
+                bos.write2Bytes(1);
+                bos.write2Bytes(1);
+            } else if (pixelDensity.isUnitless()) {
+                bos.write(0);
+                bos.write2Bytes(toDensity(pixelDensity.getRawHorizontalDensity()));
+                bos.write2Bytes(toDensity(pixelDensity.getRawVerticalDensity()));
+            } else if (pixelDensity.isInInches()) {
+                bos.write(1);
+                bos.write2Bytes(toDensity(pixelDensity.horizontalDensityInches()));
+                bos.write2Bytes(toDensity(pixelDensity.verticalDensityInches()));
+            } else {
+                bos.write(2);
+                bos.write2Bytes(toDensity(pixelDensity.horizontalDensityCentimetres()));
+                bos.write2Bytes(toDensity(pixelDensity.verticalDensityCentimetres()));
+            }
+            bos.write(0);
+            bos.write(0);
+
+            if (xmpXmlBytes != null) {
+                bos.write2Bytes(JpegConstants.JPEG_APP1_MARKER);
+                bos.write2Bytes(2 + JpegConstants.XMP_IDENTIFIER.size() + xmpXmlBytes.length);
+                JpegConstants.XMP_IDENTIFIER.writeTo(bos);
+                bos.write(xmpXmlBytes);
+            }
+
+            bos.write2Bytes(JpegConstants.DQT_MARKER);
+            bos.write2Bytes(2 + 65 * quantizationTables.length);
+            final int[] zz = new int[64];
+            for (int i = 0; i < quantizationTables.length; i++) {
+                // 8-bit precision
+                bos.write(i);
+                ZigZag.blockToZigZag(quantizationTables[i], zz);
+                for (final int value : zz) {
+                    bos.write(value);
+                }
+            }
+
+            bos.write2Bytes(JpegConstants.SOF0_MARKER);
+            bos.write2Bytes(8 + 3 * frame.componentCount);
+            bos.write(8);
+            bos.write2Bytes(frame.height);
+            bos.write2Bytes(frame.width);
+            bos.write(frame.componentCount);
+            for (int i = 0; i < frame.componentCount; i++) {
+                bos.write(i + 1);
+                bos.write((frame.horizontalSamplingFactors[i] << 4) | frame.verticalSamplingFactors[i]);
+                bos.write(frame.tableIndexes[i]);
+            }
+
+            bos.write2Bytes(JpegConstants.DHT_MARKER);
+            int dhtLength = 2;
+            for (final HuffmanEncodingTable table : huffmanTables) {
+                dhtLength += 17 + table.values.length;
+            }
+            bos.write2Bytes(dhtLength);
+            for (int i = 0; i < huffmanTables.length; i++) {
+                // table class (0 for DC, 1 for AC) and destination
+                bos.write(((i & 1) << 4) | (i >> 1));
+                for (final int count : huffmanTables[i].bits) {
+                    bos.write(count);
+                }
+                for (final int value : huffmanTables[i].values) {
+                    bos.write(value);
+                }
+            }
+
+            if (restartInterval > 0) {
+                bos.write2Bytes(JpegConstants.DRI_MARKER);
+                bos.write2Bytes(4);
+                bos.write2Bytes(restartInterval);
+            }
+
+            bos.write2Bytes(JpegConstants.SOS_MARKER);
+            bos.write2Bytes(6 + 2 * frame.componentCount);
+            bos.write(frame.componentCount);
+            for (int i = 0; i < frame.componentCount; i++) {
+                bos.write(i + 1);
+                bos.write((frame.tableIndexes[i] << 4) | frame.tableIndexes[i]);
+            }
+            // spectral selection 0 to 63 and no successive approximation, as baseline requires
+            bos.write(0);
+            bos.write(63);
+            bos.write(0);
+        }
+        baos.writeTo(os);
+    }
+}
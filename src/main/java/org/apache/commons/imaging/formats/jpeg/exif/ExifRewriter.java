@@ -252,8 +252,9 @@ public class ExifRewriter extends BinaryFileParser {
      */
     public void removeExifMetadata(final File src, final OutputStream os)
             throws ImagingException, IOException, ImagingException {
-        final ByteSource byteSource = ByteSource.file(src);
-        removeExifMetadata(byteSource, os);
+        try (ByteSource byteSource = ByteSource.file(src)) {
+            removeExifMetadata(byteSource, os);
+        }
     }
 
     /**
@@ -375,8 +376,9 @@ public class ExifRewriter extends BinaryFileParser {
     public void updateExifMetadataLossless(final File src, final OutputStream os,
             final TiffOutputSet outputSet) throws ImagingException, IOException,
             ImagingException {
-        final ByteSource byteSource = ByteSource.file(src);
-        updateExifMetadataLossless(byteSource, os, outputSet);
+        try (ByteSource byteSource = ByteSource.file(src)) {
+            updateExifMetadataLossless(byteSource, os, outputSet);
+        }
     }
 
     /**
@@ -486,8 +488,9 @@ public class ExifRewriter extends BinaryFileParser {
     public void updateExifMetadataLossy(final File src, final OutputStream os,
             final TiffOutputSet outputSet) throws ImagingException, IOException,
             ImagingException {
-        final ByteSource byteSource = ByteSource.file(src);
-        updateExifMetadataLossy(byteSource, os, outputSet);
+        try (ByteSource byteSource = ByteSource.file(src)) {
+            updateExifMetadataLossy(byteSource, os, outputSet);
+        }
     }
 
     /**
@@ -194,8 +194,9 @@ public class JpegIptcRewriter extends JpegRewriter {
      */
     public void removeIPTC(final File src, final OutputStream os, final boolean removeSegment)
             throws ImagingException, IOException, ImagingException {
-        final ByteSource byteSource = ByteSource.file(src);
-        removeIPTC(byteSource, os, removeSegment);
+        try (ByteSource byteSource = ByteSource.file(src)) {
+            removeIPTC(byteSource, os, removeSegment);
+        }
     }
 
     /**
@@ -337,8 +338,9 @@ public class JpegIptcRewriter extends JpegRewriter {
      */
     public void writeIPTC(final File src, final OutputStream os, final PhotoshopApp13Data newData)
             throws ImagingException, IOException, ImagingException {
-        final ByteSource byteSource = ByteSource.file(src);
-        writeIPTC(byteSource, os, newData);
+        try (ByteSource byteSource = ByteSource.file(src)) {
+            writeIPTC(byteSource, os, newData);
+        }
     }
 
     /**
@@ -89,8 +89,9 @@ public class JpegXmpRewriter extends JpegRewriter {
      */
     public void removeXmpXml(final File src, final OutputStream os)
             throws ImagingException, IOException {
-        final ByteSource byteSource = ByteSource.file(src);
-        removeXmpXml(byteSource, os);
+        try (ByteSource byteSource = ByteSource.file(src)) {
+            removeXmpXml(byteSource, os);
+        }
     }
 
     /**
@@ -184,8 +185,9 @@ public class JpegXmpRewriter extends JpegRewriter {
      */
     public void updateXmpXml(final File src, final OutputStream os, final String xmpXml)
             throws ImagingException, IOException, ImagingException {
-        final ByteSource byteSource = ByteSource.file(src);
-        updateXmpXml(byteSource, os, xmpXml);
+        try (ByteSource byteSource = ByteSource.file(src)) {
+            updateXmpXml(byteSource, os, xmpXml);
+        }
     }
 
     /**
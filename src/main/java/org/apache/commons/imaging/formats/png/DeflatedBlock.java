@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * A piece of a zlib stream compressed independently of the others, so that
+ * the pieces of a large image can be compressed concurrently, as pigz does.
+ * <p>
+ * Each block is raw Deflate data ending on a byte boundary with a sync
+ * flush, or with the final block marker for the last one, so the blocks can
+ * simply be concatenated between a zlib header and trailer. Priming each
+ * block with the 32 KiB of data before it keeps the compression ratio close
+ * to that of a single stream.
+ * </p>
+ */
+final class DeflatedBlock {
+
+    /**
+     * Size of the Deflate window, and so of the useful preset dictionary.
+     */
+    static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int ADLER_BASE = 65521;
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive pieces of data, as
+     * zlib's {@code adler32_combine} does.
+     *
+     * @param adler1 the checksum of the first piece.
+     * @param adler2 the checksum of the second piece.
+     * @param length2 the length of the second piece.
+     * @return the checksum of both pieces.
+     */
+    static int combineAdler32(final int adler1, final int adler2, final long length2) {
+        final long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += (adler1 >>> 16 & 0xffff) + (adler2 >>> 16 & 0xffff) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= (long) ADLER_BASE << 1) {
+            sum2 -= (long) ADLER_BASE << 1;
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return (int) (sum1 | sum2 << 16);
+    }
+
+    /**
+     * Compresses a block.
+     *
+     * @param data the data to compress.
+     * @param dictionary data preceding the block, of which the last
+     *        {@link #DICTIONARY_SIZE} bytes at most are used, or {@code null}.
+     * @param last whether this is the last block of the stream.
+     * @param level the Deflate compression level.
+     * @param strategy the Deflate compression strategy.
+     * @return the compressed block.
+     */
+    static DeflatedBlock deflate(final byte[] data, final byte[] dictionary, final boolean last, final int level, final int strategy) {
+        final Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setStrategy(strategy);
+            if (dictionary != null && dictionary.length > 0) {
+                final int length = Math.min(dictionary.length, DICTIONARY_SIZE);
+                deflater.setDictionary(dictionary, dictionary.length - length, length);
+            }
+            deflater.setInput(data);
+            if (last) {
+                deflater.finish();
+            }
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+            final byte[] buffer = new byte[16 * 1024];
+            while (true) {
+                final int count = deflater.deflate(buffer, 0, buffer.length, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                compressed.write(buffer, 0, count);
+                // a full buffer means more output may be pending, and a change of
+                // strategy takes a call of its own before any input is consumed
+                if (last ? deflater.finished() : count < buffer.length && deflater.needsInput()) {
+                    break;
+                }
+            }
+            final Adler32 adler32 = new Adler32();
+            adler32.update(data, 0, data.length);
+            return new DeflatedBlock(compressed.toByteArray(), (int) adler32.getValue(), data.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Gets the two byte zlib header matching what {@link Deflater} writes
+     * for a level and strategy.
+     *
+     * @param level the Deflate compression level.
+     * @param strategy the Deflate compression strategy.
+     * @return the header.
+     */
+    static byte[] zlibHeader(final int level, final int strategy) {
+        final int effectiveLevel = level == Deflater.DEFAULT_COMPRESSION ? 6 : level;
+        final int levelFlags;
+        if (strategy == Deflater.HUFFMAN_ONLY || effectiveLevel < 2) {
+            levelFlags = 0;
+        } else if (effectiveLevel < 6) {
+            levelFlags = 1;
+        } else if (effectiveLevel == 6) {
+            levelFlags = 2;
+        } else {
+            levelFlags = 3;
+        }
+        // deflate with a 32 KiB window, and a check value making the header a multiple of 31
+        int header = 0x7800 | levelFlags << 6;
+        header += 31 - header % 31;
+        return new byte[] { (byte) (header >> 8), (byte) header };
+    }
+
+    /**
+     * Gets the four byte zlib trailer.
+     *
+     * @param adler32 the Adler-32 checksum of all the uncompressed data.
+     * @return the trailer.
+     */
+    static byte[] zlibTrailer(final int adler32) {
+        return new byte[] { (byte) (adler32 >> 24), (byte) (adler32 >> 16), (byte) (adler32 >> 8), (byte) adler32 };
+    }
+
+    private final byte[] compressed;
+    private final int adler32;
+    private final int length;
+
+    private DeflatedBlock(final byte[] compressed, final int adler32, final int length) {
+        this.compressed = compressed;
+        this.adler32 = adler32;
+        this.length = length;
+    }
+
+    /**
+     * Gets the Adler-32 checksum of the uncompressed block.
+     *
+     * @return the checksum.
+     */
+    int getAdler32() {
+        return adler32;
+    }
+
+    /**
+     * Gets the compressed block.
+     *
+     * @return the raw Deflate data.
+     */
+    byte[] getCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Gets the length of the uncompressed block.
+     *
+     * @return the length in bytes.
+     */
+    int getLength() {
+        return length;
+    }
+}
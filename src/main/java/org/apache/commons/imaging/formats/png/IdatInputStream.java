@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.BinaryFunctions;
+
+/**
+ * Presents the data of consecutive IDAT chunks as one stream, reading each
+ * chunk from the underlying stream only when the previous one is used up.
+ * <p>
+ * The underlying stream must be positioned at the start of the first IDAT
+ * chunk. The stream ends at the first chunk that is not an IDAT, whose
+ * length and type have then been consumed.
+ * </p>
+ */
+final class IdatInputStream extends FilterInputStream {
+
+    /** Bytes left in the current chunk's data. */
+    private int remaining;
+    /** Whether a chunk has been started, so that its CRC follows its data. */
+    private boolean started;
+    private boolean finished;
+
+    IdatInputStream(final InputStream is) {
+        super(is);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return finished ? 0 : Math.min(remaining, in.available());
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Moves to the data of the next IDAT chunk if the current one is used up.
+     *
+     * @return false if there is no more image data.
+     */
+    private boolean nextChunk() throws IOException {
+        while (remaining == 0 && !finished) {
+            if (started) {
+                // the CRC of the previous chunk
+                BinaryFunctions.skipBytes(in, 4, "Not a Valid PNG File");
+            }
+            started = true;
+            final int length = BinaryFunctions.read4Bytes("Length", in, "Not a Valid PNG File", ByteOrder.BIG_ENDIAN);
+            if (length < 0) {
+                throw new ImagingException("Invalid PNG chunk length: " + length);
+            }
+            final int chunkType = BinaryFunctions.read4Bytes("ChunkType", in, "Not a Valid PNG File", ByteOrder.BIG_ENDIAN);
+            if (chunkType != ChunkType.IDAT.value) {
+                finished = true;
+            } else {
+                remaining = length;
+            }
+        }
+        return !finished;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        final int b = in.read();
+        if (b < 0) {
+            throw new ImagingException("Not a Valid PNG File: Couldn't read Chunk Data.");
+        }
+        remaining--;
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        final int read = in.read(b, off, Math.min(len, remaining));
+        if (read < 0) {
+            throw new ImagingException("Not a Valid PNG File: Couldn't read Chunk Data.");
+        }
+        remaining -= read;
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final byte[] buffer = new byte[(int) Math.min(n, 4096)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+}
@@ -22,8 +22,7 @@ import java.awt.color.ICC_ColorSpace;
 import java.awt.color.ICC_Profile;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -148,16 +147,25 @@ public class PngImageParser extends ImageParser<PngImagingParameters>  implement
     @Override
     public BufferedImage getBufferedImage(final ByteSource byteSource, final PngImagingParameters params)
             throws ImagingException, IOException {
+        // the image data is inflated as it is read, so that no more than a
+        // chunk's worth of it is held and decoding starts with the first chunk
+        try (InputStream is = new BufferedInputStream(byteSource.getInputStream())) {
+            readSignature(is);
+            // the chunks needed to decode the image all precede the image data
+            final List<PngChunk> chunks = readChunks(is, new ChunkType[] {
+                    ChunkType.IHDR,
+                    ChunkType.PLTE,
+                    ChunkType.tRNS,
+                    ChunkType.iCCP,
+                    ChunkType.gAMA,
+                    ChunkType.sRGB,
+                }, false, true);
+            return getBufferedImage(chunks, new IdatInputStream(is), params);
+        }
+    }
 
-        final List<PngChunk> chunks = readChunks(byteSource, new ChunkType[] {
-                ChunkType.IHDR,
-                ChunkType.PLTE,
-                ChunkType.IDAT,
-                ChunkType.tRNS,
-                ChunkType.iCCP,
-                ChunkType.gAMA,
-                ChunkType.sRGB,
-            }, false);
+    private BufferedImage getBufferedImage(final List<PngChunk> chunks, final InputStream imageData,
+            final PngImagingParameters params) throws ImagingException, IOException {
 
         if (chunks.isEmpty()) {
             throw new ImagingException("PNG: no chunks");
@@ -180,23 +188,6 @@ public class PngImageParser extends ImageParser<PngImagingParameters>  implement
             pngChunkPLTE = (PngChunkPlte) PLTEs.get(0);
         }
 
-        final List<PngChunk> IDATs = filterChunks(chunks, ChunkType.IDAT);
-        if (IDATs.isEmpty()) {
-            throw new ImagingException("PNG missing image data");
-        }
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        for (final PngChunk IDAT : IDATs) {
-            final PngChunkIdat pngChunkIDAT = (PngChunkIdat) IDAT;
-            final byte[] bytes = pngChunkIDAT.getBytes();
-            // System.out.println(i + ": bytes: " + bytes.length);
-            baos.write(bytes);
-        }
-
-        final byte[] compressed = baos.toByteArray();
-
-        baos = null;
-
         TransparencyFilter transparencyFilter = null;
 
         final List<PngChunk> tRNSs = filterChunks(chunks, ChunkType.tRNS);
@@ -281,8 +272,7 @@ public class PngImageParser extends ImageParser<PngImagingParameters>  implement
                 result = getBufferedImageFactory(params).getColorBufferedImage(width, height, hasAlpha);
             }
 
-            final ByteArrayInputStream bais = new ByteArrayInputStream(compressed);
-            final InflaterInputStream iis = new InflaterInputStream(bais);
+            final InflaterInputStream iis = new InflaterInputStream(imageData);
 
             ScanExpediter scanExpediter;
 
@@ -648,14 +638,31 @@ public class PngImageParser extends ImageParser<PngImagingParameters>  implement
 
     private List<PngChunk> readChunks(final InputStream is, final ChunkType[] chunkTypes,
             final boolean returnAfterFirst) throws ImagingException, IOException {
+        return readChunks(is, chunkTypes, returnAfterFirst, false);
+    }
+
+    /**
+     * Reads chunks up to IEND or, if {@code stopAtImageData} is set, up to the
+     * first IDAT chunk, leaving the stream positioned at its start; the stream
+     * must then support {@link InputStream#mark(int)}.
+     */
+    private List<PngChunk> readChunks(final InputStream is, final ChunkType[] chunkTypes,
+            final boolean returnAfterFirst, final boolean stopAtImageData) throws ImagingException, IOException {
         final List<PngChunk> result = new ArrayList<>();
 
         while (true) {
+            if (stopAtImageData) {
+                is.mark(8);
+            }
             final int length = BinaryFunctions.read4Bytes("Length", is, "Not a Valid PNG File", getByteOrder());
             if (length < 0) {
                 throw new ImagingException("Invalid PNG chunk length: " + length);
             }
             final int chunkType = BinaryFunctions.read4Bytes("ChunkType", is, "Not a Valid PNG File", getByteOrder());
+            if (stopAtImageData && chunkType == ChunkType.IDAT.value) {
+                is.reset();
+                break;
+            }
 
             if (LOGGER.isLoggable(Level.FINEST)) {
                 BinaryFunctions.logCharQuad("ChunkType", chunkType);
@@ -710,6 +717,9 @@ public class PngImageParser extends ImageParser<PngImagingParameters>  implement
             }
 
             if (chunkType == ChunkType.IEND.value) {
+                if (stopAtImageData) {
+                    throw new ImagingException("PNG missing image data");
+                }
                 break;
             }
 
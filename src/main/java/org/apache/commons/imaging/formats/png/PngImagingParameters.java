@@ -17,6 +17,8 @@ package org.apache.commons.imaging.formats.png;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
 
 import org.apache.commons.imaging.common.XmpImagingParameters;
 
@@ -33,6 +35,25 @@ public class PngImagingParameters extends XmpImagingParameters<PngImagingParamet
      */
     private byte bitDepth = DEFAULT_BIT_DEPTH;
 
+    /**
+     * Deflate compression level, from {@link Deflater#BEST_SPEED} to
+     * {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Deflate compression strategy. Default value is {@link Deflater#DEFAULT_STRATEGY}.
+     */
+    private int compressionStrategy = Deflater.DEFAULT_STRATEGY;
+
+    private boolean adaptiveFilterEnabled;
+
+    /**
+     * Executor used to filter and compress image data concurrently when
+     * writing, or {@code null} to do so on the calling thread.
+     */
+    private Executor executor;
+
     private boolean forceIndexedColor;
 
     private boolean forceTrueColor;
@@ -59,6 +80,38 @@ public class PngImagingParameters extends XmpImagingParameters<PngImagingParamet
         return bitDepth;
     }
 
+    /**
+     * Gets the Deflate compression level used when writing images.
+     *
+     * @return the compression level, or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @since 1.0-alpha4
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Gets the Deflate compression strategy used when writing images.
+     *
+     * @return one of {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED}
+     * or {@link Deflater#HUFFMAN_ONLY}.
+     * @since 1.0-alpha4
+     */
+    public int getCompressionStrategy() {
+        return compressionStrategy;
+    }
+
+    /**
+     * Gets the executor used to filter and compress image data concurrently
+     * when writing.
+     *
+     * @return the executor, or {@code null} if image data is compressed on the calling thread.
+     * @since 1.0-alpha4
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
     public PhysicalScale getPhysicalScale() {
         return physicalScale;
     }
@@ -67,6 +120,17 @@ public class PngImagingParameters extends XmpImagingParameters<PngImagingParamet
         return textChunks != null ? Collections.unmodifiableList(textChunks) : null;
     }
 
+    /**
+     * Indicates that the PNG write operation should choose a filter for
+     * each row.
+     *
+     * @return true if adaptive filtering is enabled; otherwise, false.
+     * @since 1.0-alpha4
+     */
+    public boolean isAdaptiveFilterEnabled() {
+        return adaptiveFilterEnabled;
+    }
+
     public boolean isForceIndexedColor() {
         return forceIndexedColor;
     }
@@ -84,11 +148,90 @@ public class PngImagingParameters extends XmpImagingParameters<PngImagingParamet
         return predictorEnabled;
     }
 
+    /**
+     * Sets the enabled status of adaptive filtering. When enabled, each
+     * row of the image is filtered with every PNG filter type (None, Sub,
+     * Up, Average and Paeth) and the one leaving the smallest sum of absolute
+     * differences is kept. This usually gives smaller files than a single
+     * filter, for greyscale and palette images as well as true color ones,
+     * at the cost of extra time when writing. It takes precedence over
+     * {@link #setPredictorEnabled(boolean)}.
+     *
+     * @param adaptiveFilterEnabled true if adaptive filtering is enabled; otherwise, false.
+     * @return this
+     * @since 1.0-alpha4
+     */
+    public PngImagingParameters setAdaptiveFilterEnabled(final boolean adaptiveFilterEnabled) {
+        this.adaptiveFilterEnabled = adaptiveFilterEnabled;
+        return asThis();
+    }
+
     public PngImagingParameters setBitDepth(final byte bitDepth) {
         this.bitDepth = bitDepth;
         return asThis();
     }
 
+    /**
+     * Sets the Deflate compression level used when writing images. Lower
+     * levels write faster, higher levels write smaller files.
+     *
+     * @param compressionLevel a level from {@link Deflater#BEST_SPEED} (1)
+     * to {@link Deflater#BEST_COMPRESSION} (9), {@link Deflater#NO_COMPRESSION} (0),
+     * or {@link Deflater#DEFAULT_COMPRESSION} (-1).
+     * @return this
+     * @throws IllegalArgumentException if the level is out of range.
+     * @since 1.0-alpha4
+     */
+    public PngImagingParameters setCompressionLevel(final int compressionLevel) {
+        if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid PNG compression level: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        return asThis();
+    }
+
+    /**
+     * Sets the Deflate compression strategy used when writing images.
+     * {@link Deflater#HUFFMAN_ONLY} skips string matching altogether and is
+     * the fastest, at the cost of larger files; combined with
+     * {@link Deflater#BEST_SPEED} it is the closest to zlib's run-length
+     * strategy that {@link Deflater} offers. {@link Deflater#FILTERED} suits
+     * filtered image data with many small residuals.
+     *
+     * @param compressionStrategy one of {@link Deflater#DEFAULT_STRATEGY},
+     * {@link Deflater#FILTERED} or {@link Deflater#HUFFMAN_ONLY}.
+     * @return this
+     * @throws IllegalArgumentException if the strategy is unknown.
+     * @since 1.0-alpha4
+     */
+    public PngImagingParameters setCompressionStrategy(final int compressionStrategy) {
+        if (compressionStrategy != Deflater.DEFAULT_STRATEGY && compressionStrategy != Deflater.FILTERED
+                && compressionStrategy != Deflater.HUFFMAN_ONLY) {
+            throw new IllegalArgumentException("Invalid PNG compression strategy: " + compressionStrategy);
+        }
+        this.compressionStrategy = compressionStrategy;
+        return asThis();
+    }
+
+    /**
+     * Sets the executor used to filter and compress image data concurrently
+     * when writing, for example {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+     * <p>
+     * Blocks of rows are then compressed independently, each primed with the
+     * 32 KiB of data before it, and joined into one zlib stream. Files are a
+     * little larger than when compressed serially and their bytes differ,
+     * but they decode to the same image with any PNG reader.
+     * </p>
+     *
+     * @param executor the executor, or {@code null} to compress on the calling thread.
+     * @return this
+     * @since 1.0-alpha4
+     */
+    public PngImagingParameters setExecutor(final Executor executor) {
+        this.executor = executor;
+        return asThis();
+    }
+
     public PngImagingParameters setForceIndexedColor(final boolean forceIndexedColor) {
         this.forceIndexedColor = forceIndexedColor;
         return asThis();
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import java.io.IOException;
+
+/**
+ * Supplies the rows of an image to {@link PngWriter}, for callers that
+ * produce an image a row at a time rather than holding it in a
+ * {@link java.awt.image.BufferedImage}.
+ * <p>
+ * Rows are requested in order when writing serially. When an executor is
+ * set in the {@link PngImagingParameters}, rows may be requested
+ * concurrently, out of order and more than once.
+ * </p>
+ *
+ * @since 1.0-alpha4
+ */
+@FunctionalInterface
+public interface PngRowSupplier {
+
+    /**
+     * Gets a row of the image.
+     *
+     * @param y the row, from zero to the height of the image minus one.
+     * @param argb receives the ARGB value of each pixel in the row.
+     * @throws IOException if the row cannot be produced.
+     */
+    void getRow(int y, int[] argb) throws IOException;
+}
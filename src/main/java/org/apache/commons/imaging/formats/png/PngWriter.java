@@ -21,7 +21,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 
@@ -34,6 +38,12 @@ import org.apache.commons.imaging.palette.PaletteFactory;
 
 public class PngWriter {
 
+    /**
+     * Approximate amount of filtered image data compressed by each task
+     * when writing in parallel.
+     */
+    private static final int PARALLEL_BLOCK_SIZE = 128 * 1024;
+
     /*
      1. IHDR: image header, which is the first chunk in a PNG datastream.
      2. PLTE: palette table associated with indexed PNG images.
@@ -49,6 +59,83 @@ public class PngWriter {
      5. Time information: tIME (see 11.3.6: Time stamp information).
     */
 
+    /**
+     * Compresses the image data written to it and writes it out as IDAT
+     * chunks, one for each slice of uncompressed data, so that neither the
+     * whole uncompressed nor the whole compressed image is held in memory.
+     */
+    private final class IdatOutputStream extends OutputStream {
+        private static final int SLICE_SIZE = 256 * 1024;
+
+        private final OutputStream os;
+        private final byte[] slice = new byte[SLICE_SIZE];
+        private int sliceLength;
+        private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        private final Deflater deflater;
+        private final DeflaterOutputStream dos;
+
+        IdatOutputStream(final OutputStream os, final PngImagingParameters params) {
+            this.os = os;
+            deflater = new Deflater(params.getCompressionLevel());
+            deflater.setStrategy(params.getCompressionStrategy());
+            dos = new DeflaterOutputStream(compressed, deflater, SLICE_SIZE);
+        }
+
+        /**
+         * Releases the compressor.
+         */
+        void end() {
+            deflater.end();
+        }
+
+        /**
+         * Compresses any remaining data and writes the last IDAT chunk.
+         *
+         * @throws IOException if writing fails.
+         */
+        void finish() throws IOException {
+            if (sliceLength > 0) {
+                writeSlice();
+            }
+            dos.finish();
+            writeCompressed();
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            int offset = off;
+            final int end = off + len;
+            while (offset < end) {
+                final int count = Math.min(end - offset, SLICE_SIZE - sliceLength);
+                System.arraycopy(b, offset, slice, sliceLength, count);
+                sliceLength += count;
+                offset += count;
+                if (sliceLength == SLICE_SIZE) {
+                    writeSlice();
+                }
+            }
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        private void writeCompressed() throws IOException {
+            if (compressed.size() > 0) {
+                // Debug.debug("compressed", compressed.size());
+                writeChunkIDAT(os, compressed.toByteArray());
+                compressed.reset();
+            }
+        }
+
+        private void writeSlice() throws IOException {
+            dos.write(slice, 0, sliceLength);
+            sliceLength = 0;
+            writeCompressed();
+        }
+    }
+
     private static class ImageHeader {
         public final int width;
         public final int height;
@@ -93,6 +180,21 @@ public class PngWriter {
         return s.equals(roundtrip);
     }
 
+    private static <T> T join(final CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
     private void writeChunk(final OutputStream os, final ChunkType chunkType,
             final byte[] data) throws IOException {
         final int dataLength = data == null ? 0 : data.length;
@@ -339,8 +441,6 @@ public class PngWriter {
         if (paletteFactory == null) {
             paletteFactory = new PaletteFactory();
         }
-        final int compressionLevel = Deflater.DEFAULT_COMPRESSION;
-
         final int width = src.getWidth();
         final int height = src.getHeight();
 
@@ -382,6 +482,72 @@ public class PngWriter {
         }
         Debug.debug("sampleDepth: " + sampleDepth);
 
+        Palette palette = null;
+        if (pngColorType == PngColorType.INDEXED_COLOR) {
+            final int maxColors = 256;
+
+            if (hasAlpha) {
+                palette = paletteFactory.makeQuantizedRgbaPalette(src, hasAlpha, maxColors);
+            } else {
+                palette = paletteFactory.makeQuantizedRgbPalette(src, maxColors);
+            }
+        }
+
+        // 28 March 2022.  At this time, we only apply the predictor
+        // for non-grayscale, true-color images.  This choice is made
+        // out of caution and is not necessarily required by the PNG
+        // spec.  We may broaden the use of predictors in future versions.
+        final boolean usePredictor = params.isPredictorEnabled() &&
+            !isGrayscale && palette==null;
+        final boolean useAlpha = pngColorType == PngColorType.GREYSCALE_WITH_ALPHA
+                || pngColorType == PngColorType.TRUE_COLOR_WITH_ALPHA;
+        final ScanlineEncoder encoder = new ScanlineEncoder((y, row) -> src.getRGB(0, y, width, 1, row, 0, width), width,
+                palette, isGrayscale, useAlpha, params.isAdaptiveFilterEnabled(), usePredictor ? FilterType.SUB : FilterType.NONE);
+
+        writeImage(os, width, height, bitDepth, pngColorType, palette, hasAlpha, encoder, params);
+    }
+
+    /**
+     * Writes an image supplied a row at a time to an output stream, as a
+     * true color image. Rows are compressed as they are supplied, so the
+     * memory needed does not depend on the size of the image.
+     * <p>
+     * Indexed color is not available, since choosing a palette needs the
+     * whole image.
+     * </p>
+     *
+     * @param width the width of the image.
+     * @param height the height of the image.
+     * @param hasAlpha whether to write the alpha of each pixel.
+     * @param rows supplies the rows of the image.
+     * @param os The output stream to write to.
+     * @param params The parameters to use (can be {@code NULL} to use the default {@link PngImagingParameters}).
+     * @throws ImagingException When errors are detected.
+     * @throws IOException When IO problems occur.
+     * @since 1.0-alpha4
+     */
+    public void writeImage(final int width, final int height, final boolean hasAlpha, final PngRowSupplier rows, final OutputStream os,
+            PngImagingParameters params) throws ImagingException, IOException {
+        if (params == null) {
+            params = new PngImagingParameters();
+        }
+        if (width <= 0 || height <= 0) {
+            throw new ImagingException("Invalid PNG image size: " + width + "x" + height);
+        }
+        if (params.isForceIndexedColor()) {
+            throw new ImagingException("Params: Indexed color needs the whole image in a BufferedImage");
+        }
+        final PngColorType pngColorType = hasAlpha ? PngColorType.TRUE_COLOR_WITH_ALPHA : PngColorType.TRUE_COLOR;
+        final byte bitDepth = getBitDepth(pngColorType, params);
+        final ScanlineEncoder encoder = new ScanlineEncoder(rows, width, null, false, hasAlpha, params.isAdaptiveFilterEnabled(),
+                params.isPredictorEnabled() ? FilterType.SUB : FilterType.NONE);
+
+        writeImage(os, width, height, bitDepth, pngColorType, null, hasAlpha, encoder, params);
+    }
+
+    private void writeImage(final OutputStream os, final int width, final int height, final byte bitDepth, final PngColorType pngColorType,
+            final Palette palette, final boolean hasAlpha, final ScanlineEncoder encoder, final PngImagingParameters params)
+            throws ImagingException, IOException {
         {
             PngConstants.PNG_SIGNATURE.writeTo(os);
         }
@@ -405,19 +571,12 @@ public class PngWriter {
             // charles
         //}
 
-        Palette palette = null;
-        if (pngColorType == PngColorType.INDEXED_COLOR) {
+        if (palette != null) {
             // PLTE No Before first IDAT
 
-            final int maxColors = 256;
-
+            writeChunkPLTE(os, palette);
             if (hasAlpha) {
-                palette = paletteFactory.makeQuantizedRgbaPalette(src, hasAlpha, maxColors);
-                writeChunkPLTE(os, palette);
                 writeChunkTRNS(os, palette);
-            } else {
-                palette = paletteFactory.makeQuantizedRgbPalette(src, maxColors);
-                writeChunkPLTE(os, palette);
             }
         }
 
@@ -469,135 +628,12 @@ public class PngWriter {
 
             // IDAT Yes Multiple IDAT chunks shall be consecutive
 
-            // 28 March 2022.  At this time, we only apply the predictor
-            // for non-grayscale, true-color images.  This choice is made
-            // out of caution and is not necessarily required by the PNG
-            // spec.  We may broaden the use of predictors in future versions.
-            final boolean usePredictor = params.isPredictorEnabled() &&
-                !isGrayscale && palette==null;
-
-            byte[] uncompressed;
-            if(!usePredictor) {
-                final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-                final boolean useAlpha = pngColorType == PngColorType.GREYSCALE_WITH_ALPHA
-                        || pngColorType == PngColorType.TRUE_COLOR_WITH_ALPHA;
-
-                final int[] row = Allocator.intArray(width);
-                for (int y = 0; y < height; y++) {
-                    // Debug.debug("y", y + "/" + height);
-                    src.getRGB(0, y, width, 1, row, 0, width);
-
-                    baos.write(FilterType.NONE.ordinal());
-                    for (int x = 0; x < width; x++) {
-                        final int argb = row[x];
-
-                        if (palette != null) {
-                            final int index = palette.getPaletteIndex(argb);
-                            baos.write(0xff & index);
-                        } else {
-                            final int alpha = 0xff & (argb >> 24);
-                            final int red = 0xff & (argb >> 16);
-                            final int green = 0xff & (argb >> 8);
-                            final int blue = 0xff & (argb);
-
-                            if (isGrayscale) {
-                                final int gray = (red + green + blue) / 3;
-                                // if (y == 0)
-                                // {
-                                // Debug.debug("gray: " + x + ", " + y +
-                                // " argb: 0x"
-                                // + Integer.toHexString(argb) + " gray: 0x"
-                                // + Integer.toHexString(gray));
-                                // // Debug.debug(x + ", " + y + " gray", gray);
-                                // // Debug.debug(x + ", " + y + " gray", gray);
-                                // Debug.debug(x + ", " + y + " gray", gray +
-                                // " " + Integer.toHexString(gray));
-                                // Debug.debug();
-                                // }
-                                baos.write(gray);
-                            } else {
-                                baos.write(red);
-                                baos.write(green);
-                                baos.write(blue);
-                            }
-                            if (useAlpha) {
-                                baos.write(alpha);
-                            }
-                        }
-                    }
-                }
-                uncompressed = baos.toByteArray();
+            final Executor executor = params.getExecutor();
+            final int rowsPerBlock = Math.max(1, PARALLEL_BLOCK_SIZE / encoder.getFilteredLength());
+            if (executor != null && height > rowsPerBlock) {
+                writeImageDataInParallel(os, encoder, height, rowsPerBlock, params, executor);
             } else {
-                final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-                final boolean useAlpha = pngColorType == PngColorType.GREYSCALE_WITH_ALPHA
-                        || pngColorType == PngColorType.TRUE_COLOR_WITH_ALPHA;
-
-                final int[] row = Allocator.intArray(width);
-                for (int y = 0; y < height; y++) {
-                    // Debug.debug("y", y + "/" + height);
-                    src.getRGB(0, y, width, 1, row, 0, width);
-
-                    int priorA = 0;
-                    int priorR = 0;
-                    int priorG = 0;
-                    int priorB = 0;
-                    baos.write(FilterType.SUB.ordinal());
-                    for (int x = 0; x < width; x++) {
-                      final int argb  = row[x];
-                      final int alpha = 0xff & (argb >> 24);
-                      final int red   = 0xff & (argb >> 16);
-                      final int green = 0xff & (argb >> 8);
-                      final int blue  = 0xff & argb;
-
-                      baos.write(red   - priorR);
-                      baos.write(green - priorG);
-                      baos.write(blue  - priorB);
-                      priorR = red;
-                      priorG = green;
-                      priorB = blue;
-
-                      if (useAlpha) {
-                          baos.write(alpha - priorA);
-                          priorA = alpha;
-                      }
-                    }
-                }
-                uncompressed = baos.toByteArray();
-            }
-
-
-            // Debug.debug("uncompressed", uncompressed.length);
-
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            final int chunkSize = 256 * 1024;
-            final Deflater deflater = new Deflater(compressionLevel);
-            final DeflaterOutputStream dos = new DeflaterOutputStream(baos,deflater,chunkSize);
-
-            for (int index = 0; index < uncompressed.length; index += chunkSize) {
-                final int end = Math.min(uncompressed.length, index + chunkSize);
-                final int length = end - index;
-
-                dos.write(uncompressed, index, length);
-                dos.flush();
-                baos.flush();
-
-                final byte[] compressed = baos.toByteArray();
-                baos.reset();
-                if (compressed.length > 0) {
-                    // Debug.debug("compressed", compressed.length);
-                    writeChunkIDAT(os, compressed);
-                }
-
-            }
-            {
-                dos.finish();
-                final byte[] compressed = baos.toByteArray();
-                if (compressed.length > 0) {
-                    // Debug.debug("compressed final", compressed.length);
-                    writeChunkIDAT(os, compressed);
-                }
+                writeImageData(os, encoder, height, params);
             }
         }
 
@@ -633,6 +669,72 @@ public class PngWriter {
       // proper colour types
       // srgb, etc.
 
+    /**
+     * Filters and compresses the rows of the image as a single zlib stream,
+     * writing IDAT chunks as it goes.
+     */
+    private void writeImageData(final OutputStream os, final ScanlineEncoder encoder, final int height, final PngImagingParameters params)
+            throws ImagingException, IOException {
+        final IdatOutputStream idat = new IdatOutputStream(os, params);
+        try {
+            encoder.encode(0, height, idat);
+            idat.finish();
+        } finally {
+            idat.end();
+        }
+    }
+
+    /**
+     * Filters and compresses blocks of rows concurrently, each as a piece of
+     * one zlib stream primed with the filtered rows before it, and writes
+     * each piece as an IDAT chunk.
+     */
+    private void writeImageDataInParallel(final OutputStream os, final ScanlineEncoder encoder, final int height, final int rowsPerBlock,
+            final PngImagingParameters params, final Executor executor) throws ImagingException, IOException {
+        final int level = params.getCompressionLevel();
+        final int strategy = params.getCompressionStrategy();
+        final int blockCount = (height + rowsPerBlock - 1) / rowsPerBlock;
+        final int dictionaryRows = (DeflatedBlock.DICTIONARY_SIZE + encoder.getFilteredLength() - 1) / encoder.getFilteredLength();
+        // at most a few blocks per processor run ahead of the writer, which bounds the memory their output uses
+        final int window = Math.max(2, 2 * Runtime.getRuntime().availableProcessors());
+        final ArrayDeque<CompletableFuture<DeflatedBlock>> pending = new ArrayDeque<>(window);
+        int submitted = 0;
+        try {
+            int adler32 = 1;
+            for (int block = 0; block < blockCount; block++) {
+                while (submitted < blockCount && submitted < block + window) {
+                    final int y0 = submitted * rowsPerBlock;
+                    final int y1 = Math.min(height, y0 + rowsPerBlock);
+                    final boolean last = submitted == blockCount - 1;
+                    submitted++;
+                    pending.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            // filtering only looks one row up, so the rows before the block can be filtered again here
+                            final byte[] dictionary = y0 == 0 ? null : encoder.encode(Math.max(0, y0 - dictionaryRows), y0);
+                            return DeflatedBlock.deflate(encoder.encode(y0, y1), dictionary, last, level, strategy);
+                        } catch (final IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, executor));
+                }
+                final DeflatedBlock deflated = join(pending.remove());
+                adler32 = DeflatedBlock.combineAdler32(adler32, deflated.getAdler32(), deflated.getLength());
+                final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                if (block == 0) {
+                    baos.write(DeflatedBlock.zlibHeader(level, strategy));
+                }
+                baos.write(deflated.getCompressed());
+                if (block == blockCount - 1) {
+                    baos.write(DeflatedBlock.zlibTrailer(adler32));
+                }
+                writeChunkIDAT(os, baos.toByteArray());
+            }
+        } finally {
+            // after a failure, blocks not yet started are not needed
+            pending.forEach(future -> future.cancel(false));
+        }
+    }
+
     private void writeInt(final OutputStream os, final int value) throws IOException {
         os.write(0xff & (value >> 24));
         os.write(0xff & (value >> 16));
@@ -16,14 +16,14 @@
  */
 package org.apache.commons.imaging.formats.png;
 
-import static org.apache.commons.imaging.common.BinaryFunctions.readBytes;
-
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.io.IOException;
 import java.io.InputStream;
 
 import org.apache.commons.imaging.ImagingException;
-import org.apache.commons.imaging.common.Allocator;
 import org.apache.commons.imaging.formats.png.chunks.PngChunkPlte;
 import org.apache.commons.imaging.formats.png.scanlinefilters.ScanlineFilter;
 import org.apache.commons.imaging.formats.png.scanlinefilters.ScanlineFilterAverage;
@@ -32,9 +32,12 @@ import org.apache.commons.imaging.formats.png.scanlinefilters.ScanlineFilterPaet
 import org.apache.commons.imaging.formats.png.scanlinefilters.ScanlineFilterSub;
 import org.apache.commons.imaging.formats.png.scanlinefilters.ScanlineFilterUp;
 import org.apache.commons.imaging.formats.png.transparencyfilters.TransparencyFilter;
+import org.apache.commons.io.IOUtils;
 
 abstract class ScanExpediter {
 
+    private static final FilterType[] FILTER_TYPES = FilterType.values();
+
     final int width;
     final int height;
     final InputStream is;
@@ -47,6 +50,32 @@ abstract class ScanExpediter {
     final GammaCorrection gammaCorrection;
     final TransparencyFilter transparencyFilter;
 
+    private final ScanlineFilter[] scanlineFilters;
+
+    /**
+     * ARGB value of each palette index, or of each 8-bit grey level, with
+     * gamma correction and transparency already applied.
+     */
+    private int[] colorTable;
+
+    /**
+     * Gamma corrected value of each 8-bit sample.
+     */
+    private int[] sampleTable;
+
+    /**
+     * Pixels of {@link #bi} if it is a packed ARGB or RGB image.
+     */
+    private final int[] intPixels;
+    private final int intPixelMask;
+
+    /**
+     * Pixels of {@link #bi} if it is a grey image, with the byte stored for
+     * each grey level.
+     */
+    final byte[] grayPixels;
+    private final byte[] grayLevels;
+
     ScanExpediter(final int width, final int height, final InputStream is,
             final BufferedImage bi, final PngColorType pngColorType, final int bitDepth, final int bitsPerPixel,
             final PngChunkPlte pngChunkPLTE, final GammaCorrection gammaCorrection,
@@ -62,6 +91,109 @@ abstract class ScanExpediter {
         this.pngChunkPLTE = pngChunkPLTE;
         this.gammaCorrection = gammaCorrection;
         this.transparencyFilter = transparencyFilter;
+
+        scanlineFilters = new ScanlineFilter[FILTER_TYPES.length];
+        for (final FilterType filterType : FILTER_TYPES) {
+            scanlineFilters[filterType.ordinal()] = getScanlineFilter(filterType, bytesPerPixel);
+        }
+
+        // write straight into the image's pixels when their layout is known,
+        // rather than through the colour model one pixel at a time
+        final DataBuffer dataBuffer = bi.getRaster().getDataBuffer();
+        final boolean wholeImage = bi.getWidth() == width && bi.getHeight() == height
+                && dataBuffer.getNumBanks() == 1 && dataBuffer.getSize() == width * height;
+        if (wholeImage && (bi.getType() == BufferedImage.TYPE_INT_ARGB || bi.getType() == BufferedImage.TYPE_INT_RGB)) {
+            intPixels = ((DataBufferInt) dataBuffer).getData();
+            intPixelMask = bi.getType() == BufferedImage.TYPE_INT_ARGB ? 0xffffffff : 0x00ffffff;
+        } else {
+            intPixels = null;
+            intPixelMask = 0;
+        }
+        if (wholeImage && bi.getType() == BufferedImage.TYPE_BYTE_GRAY && pngColorType == PngColorType.GREYSCALE && transparencyFilter == null) {
+            grayPixels = ((DataBufferByte) dataBuffer).getData();
+            grayLevels = new byte[256];
+            for (int i = 0; i < 256; i++) {
+                grayLevels[i] = ((byte[]) bi.getColorModel().getDataElements(getPixelRGB(i, i, i), null))[0];
+            }
+        } else {
+            grayPixels = null;
+            grayLevels = null;
+        }
+    }
+
+    /**
+     * Converts the pixels of an unfiltered scanline to ARGB values.
+     *
+     * @param scanline the unfiltered scanline.
+     * @param count the number of pixels in the scanline.
+     * @param argb receives the ARGB value of each pixel.
+     * @throws ImagingException if the scanline refers to a missing palette entry.
+     * @throws IOException if a transparency filter fails.
+     */
+    void convertScanline(final byte[] scanline, final int count, final int[] argb) throws ImagingException, IOException {
+        if (pngColorType == PngColorType.INDEXED_COLOR) {
+            if (pngChunkPLTE == null) {
+                throw new ImagingException("A PLTE chunk is required for an indexed color type.");
+            }
+            final int[] palette = getColorTable();
+            if (bitDepth == 8) {
+                for (int x = 0; x < count; x++) {
+                    argb[x] = getPaletteColor(palette, 0xff & scanline[x]);
+                }
+            } else {
+                final int mask = (1 << bitDepth) - 1;
+                for (int x = 0; x < count; x++) {
+                    final int bit = x * bitDepth;
+                    argb[x] = getPaletteColor(palette, ((0xff & scanline[bit >> 3]) >> (8 - (bit & 7) - bitDepth)) & mask);
+                }
+            }
+        } else if (pngColorType == PngColorType.GREYSCALE) {
+            final int[] levels = getColorTable();
+            if (bitDepth >= 8) {
+                final int step = bitDepth >> 3;
+                for (int x = 0, i = 0; x < count; x++, i += step) {
+                    argb[x] = levels[0xff & scanline[i]];
+                }
+            } else {
+                final int mask = (1 << bitDepth) - 1;
+                for (int x = 0; x < count; x++) {
+                    final int bit = x * bitDepth;
+                    final int sample = ((0xff & scanline[bit >> 3]) >> (8 - (bit & 7) - bitDepth)) & mask;
+                    argb[x] = levels[sample * 255 / mask];
+                }
+            }
+        } else if (bitDepth >= 8 && (transparencyFilter == null || pngColorType.hasAlpha())) {
+            // 8 or 16-bit samples: only the most significant byte of each is kept
+            final int[] samples = getSampleTable();
+            final int step = bitDepth >> 3;
+            int i = 0;
+            switch (pngColorType) {
+            case TRUE_COLOR:
+                for (int x = 0; x < count; x++, i += 3 * step) {
+                    argb[x] = 0xff000000 | samples[0xff & scanline[i]] << 16 | samples[0xff & scanline[i + step]] << 8
+                            | samples[0xff & scanline[i + 2 * step]];
+                }
+                break;
+            case TRUE_COLOR_WITH_ALPHA:
+                for (int x = 0; x < count; x++, i += 4 * step) {
+                    argb[x] = (0xff & scanline[i + 3 * step]) << 24 | samples[0xff & scanline[i]] << 16
+                            | samples[0xff & scanline[i + step]] << 8 | samples[0xff & scanline[i + 2 * step]];
+                }
+                break;
+            case GREYSCALE_WITH_ALPHA:
+                for (int x = 0; x < count; x++, i += 2 * step) {
+                    argb[x] = (0xff & scanline[i + step]) << 24 | samples[0xff & scanline[i]] * 0x010101;
+                }
+                break;
+            default:
+                throw new ImagingException("PNG: unknown color type: " + pngColorType);
+            }
+        } else {
+            final BitParser bitParser = new BitParser(scanline, bitsPerPixel, bitDepth);
+            for (int x = 0; x < count; x++) {
+                argb[x] = getRGB(bitParser, x);
+            }
+        }
     }
 
     public abstract void drive() throws ImagingException, IOException;
@@ -70,19 +202,37 @@ abstract class ScanExpediter {
         return (bits + 7) / 8;
     }
 
-    byte[] getNextScanline(final InputStream is, final int length, final byte[] prev,
-            final int bytesPerPixel) throws ImagingException, IOException {
-        final int filterType = is.read();
-        if (filterType < 0) {
-            throw new ImagingException("PNG: missing filter type");
-        }
-        if (filterType >= FilterType.values().length) {
-            throw new ImagingException("PNG: unknown filterType: " + filterType);
+    private int[] getColorTable() throws ImagingException, IOException {
+        if (colorTable == null) {
+            final int[] table;
+            if (pngColorType == PngColorType.INDEXED_COLOR) {
+                table = pngChunkPLTE.getRgb();
+                if (transparencyFilter != null) {
+                    for (int i = 0; i < table.length; i++) {
+                        table[i] = transparencyFilter.filter(table[i], i);
+                    }
+                }
+            } else {
+                final int[] samples = getSampleTable();
+                table = new int[256];
+                for (int i = 0; i < table.length; i++) {
+                    final int sample = samples[i];
+                    table[i] = getPixelRGB(sample, sample, sample);
+                    if (transparencyFilter != null) {
+                        table[i] = transparencyFilter.filter(table[i], sample);
+                    }
+                }
+            }
+            colorTable = table;
         }
+        return colorTable;
+    }
 
-        final byte[] scanline = readBytes("scanline", is, length, "PNG: missing image data");
-
-        return unfilterScanline(FilterType.values()[filterType], scanline, prev, bytesPerPixel);
+    private int getPaletteColor(final int[] palette, final int index) throws ImagingException {
+        if (index < palette.length) {
+            return palette[index];
+        }
+        return pngChunkPLTE.getRGB(index);
     }
 
     final int getPixelARGB(final int alpha, final int red, final int green, final int blue) {
@@ -189,6 +339,17 @@ abstract class ScanExpediter {
         }
     }
 
+    private int[] getSampleTable() {
+        if (sampleTable == null) {
+            final int[] table = new int[256];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = gammaCorrection == null ? i : gammaCorrection.correctSample(i);
+            }
+            sampleTable = table;
+        }
+        return sampleTable;
+    }
+
     ScanlineFilter getScanlineFilter(final FilterType filterType, final int bytesPerPixel) {
         switch (filterType) {
             case NONE:
@@ -206,13 +367,55 @@ abstract class ScanExpediter {
         return null;
     }
 
-    byte[] unfilterScanline(final FilterType filterType, final byte[] src, final byte[] prev,
-            final int bytesPerPixel) throws ImagingException, IOException {
-        final ScanlineFilter filter = getScanlineFilter(filterType, bytesPerPixel);
+    /**
+     * Reads the next scanline and unfilters it into a caller supplied buffer.
+     *
+     * @param filtered buffer of the scanline's length that receives the filtered bytes.
+     * @param unfiltered buffer of the same length that receives the unfiltered bytes.
+     * @param prev the previous unfiltered scanline, or {@code null} for the first one.
+     * @throws ImagingException if the filter type is invalid.
+     * @throws IOException if the image data ends early.
+     */
+    void readScanline(final byte[] filtered, final byte[] unfiltered, final byte[] prev) throws ImagingException, IOException {
+        final int filterType = is.read();
+        if (filterType < 0) {
+            throw new ImagingException("PNG: missing filter type");
+        }
+        if (filterType >= FILTER_TYPES.length) {
+            throw new ImagingException("PNG: unknown filterType: " + filterType);
+        }
+        if (IOUtils.read(is, filtered) < filtered.length) {
+            throw new IOException("PNG: missing image data length: " + filtered.length);
+        }
+        scanlineFilters[filterType].unfilter(filtered, unfiltered, prev);
+    }
 
-        final byte[] dst = Allocator.byteArray(src.length);
-        filter.unfilter(src, dst, prev);
-        return dst;
+    /**
+     * Stores converted pixels in a row of the image.
+     *
+     * @param y the row.
+     * @param x the column of the first pixel.
+     * @param xStep the distance between consecutive pixels.
+     * @param argb the ARGB value of each pixel.
+     * @param count the number of pixels.
+     */
+    void storeScanline(final int y, final int x, final int xStep, final int[] argb, final int count) {
+        final int offset = y * width + x;
+        if (intPixels != null) {
+            for (int i = 0, j = offset; i < count; i++, j += xStep) {
+                intPixels[j] = argb[i] & intPixelMask;
+            }
+        } else if (grayPixels != null) {
+            for (int i = 0, j = offset; i < count; i++, j += xStep) {
+                grayPixels[j] = grayLevels[0xff & argb[i]];
+            }
+        } else if (xStep == 1) {
+            bi.setRGB(x, y, count, 1, argb, 0, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                bi.setRGB(x + i * xStep, y, argb[i]);
+            }
+        }
     }
 
 }
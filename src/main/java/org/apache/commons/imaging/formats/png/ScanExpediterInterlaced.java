@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.Allocator;
 import org.apache.commons.imaging.formats.png.chunks.PngChunkPlte;
 import org.apache.commons.imaging.formats.png.transparencyfilters.TransparencyFilter;
 
@@ -47,44 +48,31 @@ class ScanExpediterInterlaced extends ScanExpediter {
 
         int pass = 1;
         while (pass <= 7) {
-            byte[] prev = null;
+            final int x = STARTING_COL[pass - 1];
+            if (x < width) {
+                // only get data if there are pixels in this scanline/pass
+                final int columnsInRow = 1 + ((width - STARTING_COL[pass - 1] - 1) / COL_INCREMENT[pass - 1]);
+                final int bitsPerScanLine = bitsPerPixel * columnsInRow;
+                final int pixelBytesPerScanLine = getBitsToBytesRoundingUp(bitsPerScanLine);
+                final byte[] filtered = Allocator.byteArray(pixelBytesPerScanLine);
+                byte[] unfiltered = Allocator.byteArray(pixelBytesPerScanLine);
+                byte[] prev = null;
+                final int[] argb = Allocator.intArray(columnsInRow);
 
-            int y = STARTING_ROW[pass - 1];
-            // int y_stride = ROW_INCREMENT[pass - 1];
-            //final boolean rows_in_pass = (y < height);
-            while (y < height) {
-                int x = STARTING_COL[pass - 1];
-                int pixelIndexInScanline = 0;
-
-                if (x < width) {
-                    // only get data if there are pixels in this scanline/pass
-                    final int columnsInRow = 1 + ((width - STARTING_COL[pass - 1] - 1) / COL_INCREMENT[pass - 1]);
-                    final int bitsPerScanLine = bitsPerPixel * columnsInRow;
-                    final int pixelBytesPerScanLine = getBitsToBytesRoundingUp(bitsPerScanLine);
-
-                    final byte[] unfiltered = getNextScanline(is, pixelBytesPerScanLine, prev, bytesPerPixel);
+                int y = STARTING_ROW[pass - 1];
+                while (y < height) {
+                    readScanline(filtered, unfiltered, prev);
+                    convertScanline(unfiltered, columnsInRow, argb);
+                    storeScanline(y, x, COL_INCREMENT[pass - 1], argb, columnsInRow);
 
+                    final byte[] next = prev == null ? Allocator.byteArray(pixelBytesPerScanLine) : prev;
                     prev = unfiltered;
+                    unfiltered = next;
 
-                    final BitParser fBitParser = new BitParser(unfiltered, bitsPerPixel, bitDepth);
-
-                    while (x < width) {
-                        visit(x, y, bi, fBitParser, pixelIndexInScanline);
-
-                        x = x + COL_INCREMENT[pass - 1];
-                        pixelIndexInScanline++;
-                    }
+                    y = y + ROW_INCREMENT[pass - 1];
                 }
-                y = y + ROW_INCREMENT[pass - 1];
             }
             pass = pass + 1;
         }
     }
-
-    private void visit(final int x, final int y, final BufferedImage bi, final BitParser fBitParser,
-            final int pixelIndexInScanline)
-            throws ImagingException, IOException {
-        final int rgb = getRGB(fBitParser, pixelIndexInScanline);
-        bi.setRGB(x, y, rgb);
-    }
 }
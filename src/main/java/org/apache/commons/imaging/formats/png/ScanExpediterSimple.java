@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.Allocator;
 import org.apache.commons.imaging.formats.png.chunks.PngChunkPlte;
 import org.apache.commons.imaging.formats.png.transparencyfilters.TransparencyFilter;
 
@@ -37,21 +38,20 @@ class ScanExpediterSimple extends ScanExpediter {
     public void drive() throws ImagingException, IOException {
         final int bitsPerScanLine = bitsPerPixel * width;
         final int pixelBytesPerScanLine = getBitsToBytesRoundingUp(bitsPerScanLine);
+        final byte[] filtered = Allocator.byteArray(pixelBytesPerScanLine);
+        byte[] unfiltered = Allocator.byteArray(pixelBytesPerScanLine);
         byte[] prev = null;
+        final int[] argb = Allocator.intArray(width);
 
         for (int y = 0; y < height; y++) {
-            final byte[] unfiltered = getNextScanline(is, pixelBytesPerScanLine, prev, bytesPerPixel);
+            readScanline(filtered, unfiltered, prev);
+            convertScanline(unfiltered, width, argb);
+            storeScanline(y, 0, 1, argb, width);
 
+            // the previous row's buffer is reused for the next one
+            final byte[] next = prev == null ? Allocator.byteArray(pixelBytesPerScanLine) : prev;
             prev = unfiltered;
-
-            final BitParser bitParser = new BitParser(unfiltered, bitsPerPixel,
-                    bitDepth);
-
-            for (int x = 0; x < width; x++) {
-                final int rgb = getRGB(bitParser, x);
-
-                bi.setRGB(x, y, rgb);
-            }
+            unfiltered = next;
         }
 
     }
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.Allocator;
+import org.apache.commons.imaging.palette.Palette;
+
+/**
+ * Converts rows of an image to PNG samples and filters them, the writing
+ * counterpart of {@link ScanExpediter}.
+ * <p>
+ * Each call to {@link #encode(int, int, OutputStream)} works on its own
+ * buffers, so several ranges of rows may be encoded concurrently if the row
+ * supplier allows it.
+ * </p>
+ */
+final class ScanlineEncoder {
+
+    private final PngRowSupplier rows;
+    private final int width;
+    private final Palette palette;
+    private final boolean isGrayscale;
+    private final boolean useAlpha;
+    private final int bytesPerPixel;
+    private final int scanlineLength;
+    private final boolean adaptiveFilter;
+    private final FilterType filterType;
+
+    /**
+     * @param rows supplies the rows of the image to encode.
+     * @param width the width of the image.
+     * @param palette the palette of an indexed color image, or {@code null}.
+     * @param isGrayscale whether to write a single grey sample per pixel.
+     * @param useAlpha whether to write an alpha sample per pixel.
+     * @param adaptiveFilter whether to choose a filter for each row.
+     * @param filterType the filter to apply to every row if not adaptive.
+     */
+    ScanlineEncoder(final PngRowSupplier rows, final int width, final Palette palette, final boolean isGrayscale, final boolean useAlpha,
+            final boolean adaptiveFilter, final FilterType filterType) {
+        this.rows = rows;
+        this.width = width;
+        this.palette = palette;
+        this.isGrayscale = isGrayscale;
+        this.useAlpha = useAlpha;
+        this.bytesPerPixel = palette != null ? 1 : (isGrayscale ? 1 : 3) + (useAlpha ? 1 : 0);
+        this.scanlineLength = width * bytesPerPixel;
+        this.adaptiveFilter = adaptiveFilter;
+        this.filterType = filterType;
+    }
+
+    /**
+     * Encodes a range of rows.
+     *
+     * @param y0 the first row.
+     * @param y1 the row after the last one.
+     * @return for each row, its filter type followed by its filtered bytes.
+     * @throws ImagingException if a color is missing from the palette.
+     * @throws IOException if a row cannot be supplied.
+     */
+    byte[] encode(final int y0, final int y1) throws ImagingException, IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(Allocator.check((long) (y1 - y0) * getFilteredLength(), Byte.BYTES));
+        encode(y0, y1, result);
+        return result.toByteArray();
+    }
+
+    /**
+     * Encodes a range of rows one at a time, reusing the same buffers for
+     * each row.
+     *
+     * @param y0 the first row.
+     * @param y1 the row after the last one.
+     * @param out receives, for each row, its filter type followed by its filtered bytes.
+     * @throws ImagingException if a color is missing from the palette.
+     * @throws IOException if a row cannot be supplied or written.
+     */
+    void encode(final int y0, final int y1, final OutputStream out) throws ImagingException, IOException {
+        final int[] row = Allocator.intArray(width);
+        byte[] scanline = Allocator.byteArray(scanlineLength);
+        // the row before the first is taken to be all zeros
+        byte[] prior = Allocator.byteArray(scanlineLength);
+        if (y0 > 0) {
+            rows.getRow(y0 - 1, row);
+            toSamples(row, prior);
+        }
+        final byte[][] filtered = new byte[adaptiveFilter ? FilterType.values().length : 1][getFilteredLength()];
+        for (int y = y0; y < y1; y++) {
+            rows.getRow(y, row);
+            toSamples(row, scanline);
+
+            if (adaptiveFilter) {
+                out.write(filterAdaptive(scanline, prior, filtered));
+            } else {
+                filter(filterType, scanline, prior, filtered[0]);
+                out.write(filtered[0]);
+            }
+
+            final byte[] next = prior;
+            prior = scanline;
+            scanline = next;
+        }
+    }
+
+    /**
+     * Applies a filter to a scanline.
+     *
+     * @param type the filter to apply.
+     * @param scanline the unfiltered scanline.
+     * @param prior the unfiltered scanline above it, all zeros for the first row.
+     * @param filtered receives the filter type followed by the filtered bytes.
+     */
+    private void filter(final FilterType type, final byte[] scanline, final byte[] prior, final byte[] filtered) {
+        filtered[0] = (byte) type.ordinal();
+        for (int i = 0; i < scanline.length; i++) {
+            final int raw = 0xff & scanline[i];
+            final int left = i >= bytesPerPixel ? 0xff & scanline[i - bytesPerPixel] : 0;
+            final int above = 0xff & prior[i];
+            final int predictor;
+            switch (type) {
+            case SUB:
+                predictor = left;
+                break;
+            case UP:
+                predictor = above;
+                break;
+            case AVERAGE:
+                predictor = (left + above) >> 1;
+                break;
+            case PAETH:
+                predictor = paethPredictor(left, above, i >= bytesPerPixel ? 0xff & prior[i - bytesPerPixel] : 0);
+                break;
+            default:
+                predictor = 0;
+                break;
+            }
+            filtered[i + 1] = (byte) (raw - predictor);
+        }
+    }
+
+    /**
+     * Filters a scanline with each filter type and picks the one whose output
+     * has the minimum sum of absolute differences, taking the bytes as signed
+     * values. This heuristic, from the PNG specification, tends to favour the
+     * filter that leaves the smallest residuals for Deflate to encode.
+     *
+     * @param scanline the unfiltered scanline.
+     * @param prior the unfiltered scanline above it, all zeros for the first row.
+     * @param candidates one buffer per filter type to filter into.
+     * @return the chosen candidate, starting with its filter type.
+     */
+    private byte[] filterAdaptive(final byte[] scanline, final byte[] prior, final byte[][] candidates) {
+        byte[] best = null;
+        long bestSum = Long.MAX_VALUE;
+        for (final FilterType type : FilterType.values()) {
+            final byte[] candidate = candidates[type.ordinal()];
+            filter(type, scanline, prior, candidate);
+            long sum = 0;
+            for (int i = 1; i < candidate.length && sum < bestSum; i++) {
+                sum += Math.abs(candidate[i]);
+            }
+            if (sum < bestSum) {
+                best = candidate;
+                bestSum = sum;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the length of a row once filtered, including its filter type byte.
+     *
+     * @return the length in bytes.
+     */
+    int getFilteredLength() {
+        return 1 + scanlineLength;
+    }
+
+    private int paethPredictor(final int left, final int above, final int upperLeft) {
+        final int p = left + above - upperLeft;
+        final int pa = Math.abs(p - left);
+        final int pb = Math.abs(p - above);
+        final int pc = Math.abs(p - upperLeft);
+        if (pa <= pb && pa <= pc) {
+            return left;
+        }
+        if (pb <= pc) {
+            return above;
+        }
+        return upperLeft;
+    }
+
+    private void toSamples(final int[] row, final byte[] scanline) throws ImagingException {
+        int i = 0;
+        for (final int argb : row) {
+            if (palette != null) {
+                final int index = palette.getPaletteIndex(argb);
+                scanline[i++] = (byte) index;
+            } else {
+                final int alpha = 0xff & (argb >> 24);
+                final int red = 0xff & (argb >> 16);
+                final int green = 0xff & (argb >> 8);
+                final int blue = 0xff & (argb);
+
+                if (isGrayscale) {
+                    final int gray = (red + green + blue) / 3;
+                    scanline[i++] = (byte) gray;
+                } else {
+                    scanline[i++] = (byte) red;
+                    scanline[i++] = (byte) green;
+                    scanline[i++] = (byte) blue;
+                }
+                if (useAlpha) {
+                    scanline[i++] = (byte) alpha;
+                }
+            }
+        }
+    }
+}
@@ -35,6 +35,7 @@ import org.apache.commons.imaging.ImageInfo;
 import org.apache.commons.imaging.ImageParser;
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.BufferedImageFactory;
 import org.apache.commons.imaging.common.ImageBuilder;
 import org.apache.commons.imaging.common.ImageMetadata;
 import org.apache.commons.imaging.palette.PaletteFactory;
@@ -97,8 +98,16 @@ public class PnmImageParser extends ImageParser<PnmImagingParameters> {
             final int height = info.height;
 
             final boolean hasAlpha = info.hasAlpha();
-            final ImageBuilder imageBuilder = new ImageBuilder(width, height,
-                    hasAlpha);
+            final ImageBuilder imageBuilder;
+            final BufferedImageFactory factory = params == null ? null : params.getBufferedImageFactory();
+            if (factory == null) {
+                imageBuilder = new ImageBuilder(width, height, hasAlpha);
+            } else {
+                final ImageInfo.ColorType colorType = info.getColorType();
+                final boolean gray = colorType == ImageInfo.ColorType.BW || colorType == ImageInfo.ColorType.GRAYSCALE;
+                imageBuilder = new ImageBuilder(gray ? factory.getGrayscaleBufferedImage(width, height, hasAlpha)
+                        : factory.getColorBufferedImage(width, height, hasAlpha));
+            }
             info.readImage(imageBuilder, is);
 
             return imageBuilder.getBufferedImage();
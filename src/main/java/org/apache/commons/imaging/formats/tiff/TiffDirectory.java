@@ -668,7 +668,7 @@ public class TiffDirectory extends TiffElement implements Iterable<TiffField> {
         final TiffField jpegInterchangeFormatLength = findField(TiffTagConstants.TIFF_TAG_JPEG_INTERCHANGE_FORMAT_LENGTH);
 
         if (jpegInterchangeFormat != null && jpegInterchangeFormatLength != null) {
-            final int offSet = jpegInterchangeFormat.getIntArrayValue()[0];
+            final long offSet = jpegInterchangeFormat.getLongArrayValue()[0];
             final int byteCount = jpegInterchangeFormatLength.getIntArrayValue()[0];
 
             return new ImageDataElement(offSet, byteCount);
@@ -725,8 +725,8 @@ public class TiffDirectory extends TiffElement implements Iterable<TiffField> {
     private List<ImageDataElement> getRawImageDataElements(
             final TiffField offsetsField, final TiffField byteCountsField)
             throws ImagingException {
-        final int[] offsets = offsetsField.getIntArrayValue();
-        final int[] byteCounts = byteCountsField.getIntArrayValue();
+        final long[] offsets = offsetsField.getLongArrayValue();
+        final long[] byteCounts = byteCountsField.getLongArrayValue();
 
         if (offsets.length != byteCounts.length) {
             throw new ImagingException("offsets.length(" + offsets.length
@@ -735,7 +735,10 @@ public class TiffDirectory extends TiffElement implements Iterable<TiffField> {
 
         final List<ImageDataElement> result = Allocator.arrayList(offsets.length);
         for (int i = 0; i < offsets.length; i++) {
-            result.add(new ImageDataElement(offsets[i], byteCounts[i]));
+            if (byteCounts[i] < 0 || byteCounts[i] > Integer.MAX_VALUE) {
+                throw new ImagingException("Invalid byte count " + byteCounts[i] + " for strip or tile " + i);
+            }
+            result.add(new ImageDataElement(offsets[i], (int) byteCounts[i]));
         }
         return result;
     }
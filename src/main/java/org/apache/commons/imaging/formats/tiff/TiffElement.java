@@ -28,6 +28,20 @@ public abstract class TiffElement {
             this.data = data;
         }
 
+        /**
+         * Constructs an element whose data is not held in memory; subclasses
+         * provide it by overriding {@link #getData()} and {@link #getDataLength()}.
+         *
+         * @param offset the offset of the data in the file.
+         * @param length the length of the data in bytes.
+         * @since 1.0-alpha4
+         */
+        protected DataElement(final long offset, final int length) {
+            super(offset, length);
+
+            this.data = null;
+        }
+
         public byte[] getData() {
             return data.clone();
         }
@@ -64,10 +64,21 @@ public class TiffField {
     private final ByteOrder byteOrder;
 
     private final int sortHint;
+    private final int entryMaxValueLength;
 
     public TiffField(final int tag, final int directoryType, final FieldType fieldType,
             final long count, final long offset, final byte[] value,
             final ByteOrder byteOrder, final int sortHint) {
+        this(tag, directoryType, fieldType, count, offset, value, byteOrder, sortHint, TiffConstants.TIFF_ENTRY_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * Creates a field read from a file whose directory entries inline values of
+     * up to {@code entryMaxValueLength} bytes, 4 for TIFF and 8 for BigTIFF.
+     */
+    TiffField(final int tag, final int directoryType, final FieldType fieldType,
+            final long count, final long offset, final byte[] value,
+            final ByteOrder byteOrder, final int sortHint, final int entryMaxValueLength) {
 
         this.tag = tag;
         this.directoryType = directoryType;
@@ -77,6 +88,7 @@ public class TiffField {
         this.value = value;
         this.byteOrder = byteOrder;
         this.sortHint = sortHint;
+        this.entryMaxValueLength = entryMaxValueLength;
 
         tagInfo = TiffTags.getTag(directoryType, tag);
     }
@@ -172,6 +184,12 @@ public class TiffField {
             Arrays.setAll(result, i -> numbers[i]);
             return result;
         }
+        if (o instanceof long[]) {
+            final long[] numbers = (long[]) o;
+            final double[] result = Allocator.doubleArray(numbers.length);
+            Arrays.setAll(result, i -> numbers[i]);
+            return result;
+        }
         if (o instanceof float[]) {
             final float[] numbers = (float[]) o;
             final double[] result = Allocator.doubleArray(numbers.length);
@@ -215,6 +233,9 @@ public class TiffField {
         // if (o == null)
         // return null;
 
+        if (o instanceof Long) {
+            return new int[] { toIntValue((Long) o) };
+        }
         if (o instanceof Number) {
             return new int[] { ((Number) o).intValue() };
         }
@@ -234,6 +255,14 @@ public class TiffField {
             final int[] numbers = (int[]) o;
             return Arrays.copyOf(numbers, numbers.length);
         }
+        if (o instanceof long[]) {
+            final long[] numbers = (long[]) o;
+            final int[] result = Allocator.intArray(numbers.length);
+            for (int i = 0; i < numbers.length; i++) {
+                result[i] = toIntValue(numbers[i]);
+            }
+            return result;
+        }
 
         throw new ImagingException("Unknown value: " + o + " for: "
                 + getTagInfo().getDescription());
@@ -246,6 +275,9 @@ public class TiffField {
             throw new ImagingException("Missing value: "
                     + getTagInfo().getDescription());
         }
+        if (o instanceof Long) {
+            return toIntValue((Long) o);
+        }
 
         return ((Number) o).intValue();
     }
@@ -282,12 +314,64 @@ public class TiffField {
             }
             return sum;
         }
+        if (o instanceof long[]) {
+            final long[] numbers = (long[]) o;
+            int sum = 0;
+            for (final long number : numbers) {
+                sum += toIntValue(number);
+            }
+            return sum;
+        }
 
         throw new ImagingException("Unknown value: " + o + " for: "
                 + getTagInfo().getDescription());
         // return -1;
     }
 
+    /**
+     * Gets the field's value as an array of longs. Values of the unsigned
+     * LONG and IFD types are zero-extended, so offsets and byte counts past
+     * 2 GB, and the 8-byte values of BigTIFF files, are preserved.
+     *
+     * @return a valid array.
+     * @throws ImagingException if the field does not hold integer values.
+     * @since 1.0-alpha4
+     */
+    public long[] getLongArrayValue() throws ImagingException {
+        final Object o = getValue();
+        final boolean unsigned = fieldType == FieldType.LONG || fieldType == FieldType.IFD;
+
+        if (o instanceof Integer && unsigned) {
+            return new long[] { 0xFFFFffffL & (Integer) o };
+        }
+        if (o instanceof Number) {
+            return new long[] { ((Number) o).longValue() };
+        }
+        if (o instanceof short[]) {
+            final short[] numbers = (short[]) o;
+            final long[] result = Allocator.longArray(numbers.length);
+            Arrays.setAll(result, i -> 0xffff & numbers[i]);
+            return result;
+        }
+        if (o instanceof int[]) {
+            final int[] numbers = (int[]) o;
+            final long[] result = Allocator.longArray(numbers.length);
+            if (unsigned) {
+                Arrays.setAll(result, i -> 0xFFFFffffL & numbers[i]);
+            } else {
+                Arrays.setAll(result, i -> numbers[i]);
+            }
+            return result;
+        }
+        if (o instanceof long[]) {
+            final long[] numbers = (long[]) o;
+            return Arrays.copyOf(numbers, numbers.length);
+        }
+
+        throw new ImagingException("Unknown value: " + o + " for: "
+                + getTagInfo().getDescription());
+    }
+
     /**
      * Returns the TIFF field's offset/value field, derived from bytes 8-11.
      * @return the field's offset in a {@code long} of 4 packed bytes,
@@ -551,7 +635,21 @@ public class TiffField {
      * @return true if the value is inlined
      */
     public boolean isLocalValue() {
-        return (count * fieldType.getSize()) <= TiffConstants.TIFF_ENTRY_MAX_VALUE_LENGTH;
+        return (count * fieldType.getSize()) <= entryMaxValueLength;
+    }
+
+    /**
+     * Narrows one of the 8-byte values of a BigTIFF field to an int.
+     *
+     * @param value the value.
+     * @return the value as an int.
+     * @throws ImagingException if the value does not fit in an int.
+     */
+    private int toIntValue(final long value) throws ImagingException {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new ImagingException("Value " + value + " out of int range for: " + getTagInfo().getDescription());
+        }
+        return (int) value;
     }
 
     @Override
@@ -26,13 +26,24 @@ public class TiffHeader extends TiffElement {
     public final long offsetToFirstIFD;
 
     public TiffHeader(final ByteOrder byteOrder, final int tiffVersion, final long offsetToFirstIFD) {
-        super(0, TiffConstants.TIFF_HEADER_SIZE);
+        super(0, tiffVersion == TiffConstants.BIG_TIFF_VERSION ? TiffConstants.BIG_TIFF_HEADER_SIZE : TiffConstants.TIFF_HEADER_SIZE);
 
         this.byteOrder = byteOrder;
         this.tiffVersion = tiffVersion;
         this.offsetToFirstIFD = offsetToFirstIFD;
     }
 
+    /**
+     * Indicates whether the file is a BigTIFF, whose offsets, value counts
+     * and directory entry counts are 8 bytes long.
+     *
+     * @return true for a BigTIFF file.
+     * @since 1.0-alpha4
+     */
+    public boolean isBigTiff() {
+        return tiffVersion == TiffConstants.BIG_TIFF_VERSION;
+    }
+
     @Override
     public String getElementDescription() {
         return "TIFF Header";
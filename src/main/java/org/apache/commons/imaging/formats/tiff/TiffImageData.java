@@ -17,9 +17,11 @@
 package org.apache.commons.imaging.formats.tiff;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteOrder;
 
 import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
 import org.apache.commons.imaging.formats.tiff.constants.TiffPlanarConfiguration;
 import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
 import org.apache.commons.imaging.formats.tiff.datareaders.DataReaderStrips;
@@ -29,6 +31,59 @@ import org.apache.commons.imaging.formats.tiff.photometricinterpreters.Photometr
 
 public abstract class TiffImageData {
 
+    /**
+     * Image data of a strip or tile that stays in the byte source until it is
+     * needed, so that reading part of an image only loads the strips or tiles
+     * which cover it. The byte source must stay open while the data is in use.
+     *
+     * @since 1.0-alpha4
+     */
+    public static class ByteSourceData extends TiffElement.DataElement {
+
+        private final ByteSource byteSource;
+
+        public ByteSourceData(final long offset, final int length, final ByteSource byteSource) {
+            super(offset, length);
+            this.byteSource = byteSource;
+        }
+
+        /**
+         * Gets a copy of the data, reading it from the byte source.
+         *
+         * @throws UncheckedIOException if the data cannot be read; use
+         *         {@link #readData()} to receive the {@link IOException} instead.
+         */
+        @Override
+        public byte[] getData() {
+            try {
+                return readData();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public int getDataLength() {
+            return length;
+        }
+
+        @Override
+        public String getElementDescription() {
+            return "TIFF image data: " + getDataLength() + " bytes";
+        }
+
+        /**
+         * Reads the data from the byte source.
+         *
+         * @return the data, a new array on each call.
+         * @throws IOException if the data cannot be read.
+         */
+        public byte[] readData() throws IOException {
+            return byteSource.getByteArray(offset, length);
+        }
+
+    }
+
     public static class Data extends TiffElement.DataElement {
 
         public Data(final long offset, final int length, final byte[] data) {
@@ -171,5 +226,22 @@ public abstract class TiffImageData {
 
     public abstract TiffElement.DataElement[] getImageData();
 
+    /**
+     * Gets the bytes of a strip or tile, reading them from the byte source if
+     * they are not held in memory.
+     *
+     * @param index the index of the strip or tile.
+     * @return the bytes, which the caller may modify.
+     * @throws IOException if the data cannot be read.
+     * @since 1.0-alpha4
+     */
+    public byte[] getData(final int index) throws IOException {
+        final TiffElement.DataElement element = getImageData()[index];
+        if (element instanceof ByteSourceData) {
+            return ((ByteSourceData) element).readData();
+        }
+        return element.getData();
+    }
+
     public abstract boolean stripsNotTiles();
 }
@@ -173,7 +173,8 @@ public class TiffImageParser extends ImageParser<TiffImagingParameters> implemen
     public List<BufferedImage> getAllBufferedImages(final ByteSource byteSource)
             throws ImagingException, IOException {
         final FormatCompliance formatCompliance = FormatCompliance.getDefault();
-        final TiffReader tiffReader = new TiffReader(true);
+        // the images are decoded before the byte source can be closed
+        final TiffReader tiffReader = new TiffReader(true, true);
         final TiffContents contents = tiffReader.readDirectories(byteSource, true,
                 formatCompliance);
         final List<BufferedImage> results = new ArrayList<>();
@@ -234,7 +235,8 @@ public class TiffImageParser extends ImageParser<TiffImagingParameters> implemen
             params = new TiffImagingParameters();
         }
         final FormatCompliance formatCompliance = FormatCompliance.getDefault();
-        final TiffReader reader = new TiffReader(params.isStrict());
+        // the image is decoded before the byte source can be closed
+        final TiffReader reader = new TiffReader(params.isStrict(), true);
         final TiffContents contents = reader.readFirstDirectory(byteSource, true, formatCompliance);
         final ByteOrder byteOrder = reader.getByteOrder();
         final TiffDirectory directory = contents.directories.get(0);
@@ -391,6 +393,8 @@ public class TiffImageParser extends ImageParser<TiffImagingParameters> implemen
                 photometricInterpreter, bitsPerPixel, bitsPerSample, predictor,
           samplesPerPixel, width, height, compression,
           planarConfiguration, byteOrder);
+        dataReader.setExecutor(params.getExecutor());
+        dataReader.setBufferedImageFactory(params.getBufferedImageFactory());
 
         final ImageBuilder iBuilder = dataReader.readImageData(
             subImage, hasAlpha, isAlphaPremultiplied);
@@ -892,6 +896,7 @@ public class TiffImageParser extends ImageParser<TiffImagingParameters> implemen
                 photometricInterpreter, bitsPerPixel, bitsPerSample, predictor,
                 samplesPerPixel, width, height, compression,
                 planarConfiguration, byteOrder);
+        dataReader.setExecutor(params.getExecutor());
 
         return dataReader.readRasterData(subImage);
     }
@@ -15,6 +15,8 @@
 
 package org.apache.commons.imaging.formats.tiff;
 
+import java.util.concurrent.Executor;
+
 import org.apache.commons.imaging.common.XmpImagingParameters;
 import org.apache.commons.imaging.formats.tiff.photometricinterpreters.PhotometricInterpreter;
 import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
@@ -100,6 +102,29 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
      */
     private Integer t6Options;
 
+    /**
+     * Used in write operations to store the image as tiles of this width
+     * and {@link #tileLength} rather than as strips. Zero, the default,
+     * writes strips.
+     */
+    private int tileWidth;
+
+    /**
+     * Used in write operations to store the image as tiles of
+     * {@link #tileWidth} and this length rather than as strips.
+     */
+    private int tileLength;
+
+    /**
+     * Executor used to read and decompress strips or tiles concurrently,
+     * or to compress them concurrently when writing, or {@code null} to
+     * process them serially.
+     *
+     * <p>Strips and tiles are still stored in order, so the result does
+     * not depend on the executor. Default is {@code null}.</p>
+     */
+    private Executor executor;
+
     /**
      * Clears settings for sub-image. Subsequent read operations will retrieve
      * the entire image.
@@ -117,6 +142,17 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
         return customPhotometricInterpreter;
     }
 
+    /**
+     * Gets the executor used to read and decompress, or to compress and write,
+     * strips or tiles concurrently.
+     *
+     * @return the executor, or {@code null} if strips and tiles are processed serially.
+     * @since 1.0-alpha4
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
     public Integer getLzwCompressionBlockSize() {
         return lzwCompressionBlockSize;
     }
@@ -171,6 +207,26 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
         return subImageY;
     }
 
+    /**
+     * Gets the length of the tiles written for an image.
+     *
+     * @return the tile length, or zero if the image is written as strips.
+     * @since 1.0-alpha4
+     */
+    public int getTileLength() {
+        return tileLength;
+    }
+
+    /**
+     * Gets the width of the tiles written for an image.
+     *
+     * @return the tile width, or zero if the image is written as strips.
+     * @since 1.0-alpha4
+     */
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
     public Integer getT4Options() {
         return t4Options;
     }
@@ -202,6 +258,20 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
         return asThis();
     }
 
+    /**
+     * Sets the executor used to read and decompress, or to compress and write,
+     * strips or tiles concurrently, for example
+     * {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+     *
+     * @param executor the executor, or {@code null} to process strips and tiles serially.
+     * @return this instance.
+     * @since 1.0-alpha4
+     */
+    public TiffImagingParameters setExecutor(final Executor executor) {
+        this.executor = executor;
+        return asThis();
+    }
+
     public TiffImagingParameters setLzwCompressionBlockSize(final Integer lzwCompressionBlockSize) {
         this.lzwCompressionBlockSize = lzwCompressionBlockSize;
         return asThis();
@@ -259,6 +329,31 @@ public class TiffImagingParameters extends XmpImagingParameters<TiffImagingParam
         return asThis();
     }
 
+    /**
+     * Sets the size of the tiles to write the image as, instead of strips.
+     * Tiles let readers fetch and decompress only the part of a large image
+     * they need; those on the right and bottom edges are padded to full size.
+     * <p>
+     * The TIFF specification requires both dimensions to be multiples of 16.
+     * Passing zero for both restores the default of writing strips.
+     *
+     * @param width the tile width in pixels.
+     * @param length the tile length (height) in pixels.
+     * @return this
+     * @since 1.0-alpha4
+     */
+    public TiffImagingParameters setTileSize(final int width, final int length) {
+        if (width != 0 || length != 0) {
+            if (width <= 0 || length <= 0 || width % 16 != 0 || length % 16 != 0) {
+                throw new IllegalArgumentException(
+                        "Invalid tile size " + width + "x" + length + ": width and length must be positive multiples of 16");
+            }
+        }
+        tileWidth = width;
+        tileLength = length;
+        return asThis();
+    }
+
     public TiffImagingParameters setT4Options(final Integer t4Options) {
         this.t4Options = t4Options;
         return asThis();
@@ -21,7 +21,11 @@ import static org.apache.commons.imaging.common.BinaryFunctions.read4Bytes;
 import static org.apache.commons.imaging.common.BinaryFunctions.readByte;
 import static org.apache.commons.imaging.common.BinaryFunctions.readBytes;
 import static org.apache.commons.imaging.common.BinaryFunctions.skipBytes;
+import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.BIG_TIFF_ENTRY_MAX_VALUE_LENGTH;
+import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.BIG_TIFF_OFFSET_SIZE;
+import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.BIG_TIFF_VERSION;
 import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.TIFF_ENTRY_MAX_VALUE_LENGTH;
+import static org.apache.commons.imaging.formats.tiff.constants.TiffConstants.TIFF_HEADER_SIZE;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -124,8 +128,31 @@ public class TiffReader extends BinaryFileParser {
 
     private final boolean strict;
 
+    /**
+     * Whether strips and tiles are left in the byte source rather than read with their directory.
+     */
+    private final boolean lazyImageData;
+
+    /**
+     * Whether the file being read is a BigTIFF, set when its header is read.
+     */
+    private boolean bigTiff;
+
     public TiffReader(final boolean strict) {
+        this(strict, false);
+    }
+
+    /**
+     * Constructs a reader that can leave strips and tiles in the byte source until they are decoded, as
+     * {@link TiffImageData.ByteSourceData}. The byte source must then stay open for as long as the directories read
+     * are in use, so this is only for callers that decode the image before they return.
+     *
+     * @param strict whether to read strictly.
+     * @param lazyImageData whether to leave strips and tiles in the byte source.
+     */
+    TiffReader(final boolean strict, final boolean lazyImageData) {
         this.strict = strict;
+        this.lazyImageData = lazyImageData;
     }
 
     private JpegImageData getJpegRawImageData(final ByteSource byteSource,
@@ -161,12 +188,17 @@ public class TiffReader extends BinaryFileParser {
             final TiffDirectory directory) throws ImagingException, IOException {
 
         final List<ImageDataElement> elements = directory.getTiffRawImageDataElements();
-        final TiffImageData.Data[] data = new TiffImageData.Data[elements.size()];
+        final TiffElement.DataElement[] data = new TiffElement.DataElement[elements.size()];
 
         for (int i = 0; i < elements.size(); i++) {
             final TiffDirectory.ImageDataElement element = elements.get(i);
-            final byte[] bytes = byteSource.getByteArray(element.offset, element.length);
-            data[i] = new TiffImageData.Data(element.offset, element.length, bytes);
+            if (lazyImageData) {
+                // only read when a data reader needs them
+                data[i] = new TiffImageData.ByteSourceData(element.offset, element.length, byteSource);
+            } else {
+                final byte[] bytes = byteSource.getByteArray(element.offset, element.length);
+                data[i] = new TiffImageData.Data(element.offset, element.length, bytes);
+            }
         }
 
         if (directory.imageDataInStrips()) {
@@ -282,18 +314,17 @@ public class TiffReader extends BinaryFileParser {
         }
         visited.add(directoryOffset);
 
-        try (InputStream is = byteSource.getInputStream()) {
-            if (directoryOffset >= byteSource.size()) {
-                return true;
-            }
-
-            skipBytes(is, directoryOffset);
+        if (directoryOffset >= byteSource.size()) {
+            return true;
+        }
 
+        try (InputStream is = byteSource.getInputStream(directoryOffset)) {
             final List<TiffField> fields = new ArrayList<>();
 
-            int entryCount;
+            final long entryCount;
             try {
-                entryCount = read2Bytes("DirectoryEntryCount", is, "Not a Valid TIFF File", getByteOrder());
+                entryCount = bigTiff ? readOffset("DirectoryEntryCount", is)
+                        : read2Bytes("DirectoryEntryCount", is, "Not a Valid TIFF File", getByteOrder());
             } catch (final IOException e) {
                 if (strict) {
                     throw e;
@@ -304,9 +335,10 @@ public class TiffReader extends BinaryFileParser {
             for (int i = 0; i < entryCount; i++) {
                 final int tag = read2Bytes("Tag", is, "Not a Valid TIFF File", getByteOrder());
                 final int type = read2Bytes("Type", is, "Not a Valid TIFF File", getByteOrder());
-                final long count = 0xFFFFffffL & read4Bytes("Count", is, "Not a Valid TIFF File", getByteOrder());
-                final byte[] offsetBytes = readBytes("Offset", is, 4, "Not a Valid TIFF File");
-                final long offset = 0xFFFFffffL & ByteConversions.toInt(offsetBytes, getByteOrder());
+                final long count = readOffset("Count", is);
+                final byte[] offsetBytes = readBytes("Offset", is, bigTiff ? BIG_TIFF_OFFSET_SIZE : 4, "Not a Valid TIFF File");
+                final long offset = bigTiff ? ByteConversions.toLong(offsetBytes, getByteOrder())
+                        : 0xFFFFffffL & ByteConversions.toInt(offsetBytes, getByteOrder());
 
                 if (tag == 0) {
                     // skip invalid fields.
@@ -326,9 +358,10 @@ public class TiffReader extends BinaryFileParser {
                     continue;
                 }
                 final long valueLength = count * fieldType.getSize();
+                final int entryMaxValueLength = bigTiff ? BIG_TIFF_ENTRY_MAX_VALUE_LENGTH : TIFF_ENTRY_MAX_VALUE_LENGTH;
                 final byte[] value;
-                if (valueLength > TIFF_ENTRY_MAX_VALUE_LENGTH) {
-                    if ((offset < 0) || (offset + valueLength) > byteSource.size()) {
+                if (count < 0 || valueLength > entryMaxValueLength) {
+                    if ((offset < 0) || count > byteSource.size() || (offset + valueLength) > byteSource.size()) {
                         if (strict) {
                             throw new IOException(
                                     "Attempt to read byte range starting from " + offset + " "
@@ -345,7 +378,7 @@ public class TiffReader extends BinaryFileParser {
                 }
 
                 final TiffField field = new TiffField(tag, dirType, fieldType, count,
-                        offset, value, getByteOrder(), i);
+                        offset, value, getByteOrder(), i, entryMaxValueLength);
 
                 fields.add(field);
 
@@ -354,8 +387,7 @@ public class TiffReader extends BinaryFileParser {
                 }
             }
 
-            final long nextDirectoryOffset = 0xFFFFffffL & read4Bytes("nextDirectoryOffset", is,
-                    "Not a Valid TIFF File", getByteOrder());
+            final long nextDirectoryOffset = readOffset("nextDirectoryOffset", is);
 
             final TiffDirectory directory = new TiffDirectory(
                 dirType,
@@ -400,7 +432,11 @@ public class TiffReader extends BinaryFileParser {
                         int subDirectoryType;
                         boolean subDirectoryRead = false;
                         try {
-                            subDirectoryOffset = directory.getFieldValue(offsetField);
+                            if (field.getFieldType() == FieldType.LONG8 || field.getFieldType() == FieldType.IFD8) {
+                                subDirectoryOffset = field.getLongArrayValue()[0];
+                            } else {
+                                subDirectoryOffset = directory.getFieldValue(offsetField);
+                            }
                             subDirectoryType = directoryTypes[i];
                             subDirectoryRead = readDirectory(byteSource,
                                     subDirectoryOffset, subDirectoryType,
@@ -448,6 +484,17 @@ public class TiffReader extends BinaryFileParser {
         return contents;
     }
 
+    /**
+     * Reads an offset or a count, which is 4 bytes long in a classic TIFF
+     * file and 8 bytes long in a BigTIFF file.
+     */
+    private long readOffset(final String name, final InputStream is) throws IOException {
+        if (bigTiff) {
+            return ByteConversions.toLong(readBytes(name, is, BIG_TIFF_OFFSET_SIZE, "Not a Valid TIFF File"), getByteOrder());
+        }
+        return 0xFFFFffffL & read4Bytes(name, is, "Not a Valid TIFF File", getByteOrder());
+    }
+
     private TiffHeader readTiffHeader(final ByteSource byteSource) throws ImagingException, IOException {
         try (InputStream is = byteSource.getInputStream()) {
             return readTiffHeader(is);
@@ -465,14 +512,26 @@ public class TiffReader extends BinaryFileParser {
         setByteOrder(byteOrder);
 
         final int tiffVersion = read2Bytes("tiffVersion", is, "Not a Valid TIFF File", getByteOrder());
-        if (tiffVersion != 42) {
+        if (tiffVersion != 42 && tiffVersion != BIG_TIFF_VERSION) {
             throw new ImagingException("Unknown TIFF Version: " + tiffVersion);
         }
 
-        final long offsetToFirstIFD =
-                0xFFFFffffL & read4Bytes("offsetToFirstIFD", is, "Not a Valid TIFF File", getByteOrder());
+        bigTiff = tiffVersion == BIG_TIFF_VERSION;
+        if (bigTiff) {
+            final int offsetSize = read2Bytes("offsetSize", is, "Not a Valid TIFF File", getByteOrder());
+            final int reserved = read2Bytes("reserved", is, "Not a Valid TIFF File", getByteOrder());
+            if (offsetSize != BIG_TIFF_OFFSET_SIZE || reserved != 0) {
+                throw new ImagingException("Unsupported BigTIFF offset size " + offsetSize + " (reserved field " + reserved + ")");
+            }
+        }
 
-        skipBytes(is, offsetToFirstIFD - 8, "Not a Valid TIFF File: couldn't find IFDs");
+        final long offsetToFirstIFD = readOffset("offsetToFirstIFD", is);
+
+        // BigTIFF directories are often at the end of very large files, too far to skip to;
+        // readDirectory() checks their offsets against the size of the byte source instead
+        if (!bigTiff) {
+            skipBytes(is, offsetToFirstIFD - TIFF_HEADER_SIZE, "Not a Valid TIFF File: couldn't find IFDs");
+        }
 
         return new TiffHeader(byteOrder, tiffVersion, offsetToFirstIFD);
     }
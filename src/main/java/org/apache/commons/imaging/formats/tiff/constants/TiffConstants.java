@@ -32,6 +32,15 @@ public final class TiffConstants {
     public static final int TIFF_ENTRY_LENGTH = 12;
     public static final int TIFF_ENTRY_MAX_VALUE_LENGTH = 4;
 
+    /** @since 1.0-alpha4 */
+    public static final int BIG_TIFF_VERSION = 43;
+    /** @since 1.0-alpha4 */
+    public static final int BIG_TIFF_HEADER_SIZE = 16;
+    /** @since 1.0-alpha4 */
+    public static final int BIG_TIFF_OFFSET_SIZE = 8;
+    /** @since 1.0-alpha4 */
+    public static final int BIG_TIFF_ENTRY_MAX_VALUE_LENGTH = 8;
+
     public static final int TIFF_COMPRESSION_UNCOMPRESSED_1 = 1;
     public static final int TIFF_COMPRESSION_UNCOMPRESSED = TIFF_COMPRESSION_UNCOMPRESSED_1;
     public static final int TIFF_COMPRESSION_CCITT_1D = 2;
@@ -276,42 +276,46 @@ public final class DataReaderStrips extends ImageDataReader {
         final int yLimit = subImage.y - y0 + subImage.height;
 
         final ImageBuilder workingBuilder
-            = new ImageBuilder(width, workingHeight,
+            = createImageBuilder(width, workingHeight,
                 hasAlpha, isAlphaPreMultiplied);
+        // interpretStrip advances through the working image, so strips
+        // are decoded by readBlocks but always interpreted in order
+        final long rowsPerStripLong = 0xFFFFffffL & rowsPerStrip;
+        final long bytesPerRow = (bitsPerPixel * width + 7) / 8;
         if (planarConfiguration != TiffPlanarConfiguration.PLANAR) {
-            for (int strip = strip0; strip <= strip1; strip++) {
-                final long rowsPerStripLong = 0xFFFFffffL & rowsPerStrip;
+            readBlocks(strip1 - strip0 + 1, block -> {
+                final int strip = strip0 + block;
                 final long rowsRemaining = height - (strip * rowsPerStripLong);
                 final long rowsInThisStrip = Math.min(rowsRemaining, rowsPerStripLong);
-                final long bytesPerRow = (bitsPerPixel * width + 7) / 8;
                 final long bytesPerStrip = rowsInThisStrip * bytesPerRow;
-                final long pixelsPerStrip = rowsInThisStrip * width;
 
-                final byte[] compressed = imageData.getImageData(strip).getData();
+                final byte[] compressed = imageData.getData(strip);
 
-                final byte[] decompressed = decompress(compressed, compression,
+                return decompress(compressed, compression,
                         (int) bytesPerStrip, width, (int) rowsInThisStrip);
+            }, (block, decompressed) -> {
+                final long rowsRemaining = height - ((strip0 + block) * rowsPerStripLong);
+                final long rowsInThisStrip = Math.min(rowsRemaining, rowsPerStripLong);
+                final long pixelsPerStrip = rowsInThisStrip * width;
 
                 interpretStrip(
                     workingBuilder,
                     decompressed,
                     (int) pixelsPerStrip,
                     yLimit);
-            }
+            });
         } else {
             final int nStripsInPlane = imageData.getImageDataLength() / 3;
-            for (int strip = strip0; strip <= strip1; strip++) {
-                final long rowsPerStripLong = 0xFFFFffffL & rowsPerStrip;
+            readBlocks(strip1 - strip0 + 1, block -> {
+                final int strip = strip0 + block;
                 final long rowsRemaining = height - (strip * rowsPerStripLong);
                 final long rowsInThisStrip = Math.min(rowsRemaining, rowsPerStripLong);
-                final long bytesPerRow = (bitsPerPixel * width + 7) / 8;
                 final long bytesPerStrip = rowsInThisStrip * bytesPerRow;
-                final long pixelsPerStrip = rowsInThisStrip * width;
 
                 final byte[] b = Allocator.byteArray((int) bytesPerStrip);
                 for (int iPlane = 0; iPlane < 3; iPlane++) {
                     final int planeStrip = iPlane * nStripsInPlane + strip;
-                    final byte[] compressed = imageData.getImageData(planeStrip).getData();
+                    final byte[] compressed = imageData.getData(planeStrip);
                     final byte[] decompressed = decompress(compressed, compression,
                         (int) bytesPerStrip, width, (int) rowsInThisStrip);
                     int index = iPlane;
@@ -320,8 +324,14 @@ public final class DataReaderStrips extends ImageDataReader {
                         index += 3;
                     }
                 }
+                return b;
+            }, (block, b) -> {
+                final long rowsRemaining = height - ((strip0 + block) * rowsPerStripLong);
+                final long rowsInThisStrip = Math.min(rowsRemaining, rowsPerStripLong);
+                final long pixelsPerStrip = rowsInThisStrip * width;
+
                 interpretStrip(workingBuilder, b, (int) pixelsPerStrip, height);
-            }
+            });
         }
 
         if (subImage.x == 0
@@ -383,26 +393,29 @@ public final class DataReaderStrips extends ImageDataReader {
         final int strip0 = yRaster / rowsPerStrip;
         final int strip1 = (yRaster + rasterHeight - 1) / rowsPerStrip;
 
-        for (int strip = strip0; strip <= strip1; strip++) {
-            final int yStrip = strip * rowsPerStrip;
+        readBlocks(strip1 - strip0 + 1, block -> {
+            final int yStrip = (strip0 + block) * rowsPerStrip;
             final int rowsRemaining = height - yStrip;
             final int rowsInThisStrip = Math.min(rowsRemaining, rowsPerStrip);
             final int bytesPerRow = (bitsPerPixel * width + 7) / 8;
             final int bytesPerStrip = rowsInThisStrip * bytesPerRow;
 
-            final byte[] compressed = imageData.getImageData(strip).getData();
+            final byte[] compressed = imageData.getData(strip0 + block);
             final byte[] decompressed = decompress(compressed, compression,
                     bytesPerStrip, width, rowsInThisStrip);
 
-            final int[] blockData = unpackFloatingPointSamples(
+            return unpackFloatingPointSamples(
                     width,
                     rowsInThisStrip,
                     width,
                     decompressed,
                     bitsPerPixel, byteOrder);
+        }, (block, blockData) -> {
+            final int yStrip = (strip0 + block) * rowsPerStrip;
+            final int rowsInThisStrip = Math.min(height - yStrip, rowsPerStrip);
             transferBlockToRaster(0, yStrip, width, rowsInThisStrip, blockData,
                     xRaster, yRaster, rasterWidth, rasterHeight, samplesPerPixel, rasterDataFloat);
-        }
+        });
         return new TiffRasterDataFloat(rasterWidth, rasterHeight, samplesPerPixel, rasterDataFloat);
     }
 
@@ -436,25 +449,28 @@ public final class DataReaderStrips extends ImageDataReader {
         final int strip0 = yRaster / rowsPerStrip;
         final int strip1 = (yRaster + rasterHeight - 1) / rowsPerStrip;
 
-        for (int strip = strip0; strip <= strip1; strip++) {
-            final int yStrip = strip * rowsPerStrip;
+        readBlocks(strip1 - strip0 + 1, block -> {
+            final int yStrip = (strip0 + block) * rowsPerStrip;
             final int rowsRemaining = height - yStrip;
             final int rowsInThisStrip = Math.min(rowsRemaining, rowsPerStrip);
             final int bytesPerRow = (bitsPerPixel * width + 7) / 8;
             final int bytesPerStrip = rowsInThisStrip * bytesPerRow;
 
-            final byte[] compressed = imageData.getImageData(strip).getData();
+            final byte[] compressed = imageData.getData(strip0 + block);
             final byte[] decompressed = decompress(compressed, compression,
                     bytesPerStrip, width, rowsInThisStrip);
-            final int[] blockData = unpackIntSamples(
+            return unpackIntSamples(
                     width,
                     rowsInThisStrip,
                     width,
                     decompressed,
                     predictor, bitsPerPixel, byteOrder);
+        }, (block, blockData) -> {
+            final int yStrip = (strip0 + block) * rowsPerStrip;
+            final int rowsInThisStrip = Math.min(height - yStrip, rowsPerStrip);
             transferBlockToRaster(0, yStrip, width, rowsInThisStrip, blockData,
                     xRaster, yRaster, rasterWidth, rasterHeight, rasterDataInt);
-        }
+        });
         return new TiffRasterDataInt(rasterWidth, rasterHeight, rasterDataInt);
     }
 }
@@ -251,20 +251,20 @@ public final class DataReaderTiled extends ImageDataReader {
         final int y0 = row0 * tileLength;
 
         final ImageBuilder workingBuilder
-            = new ImageBuilder(workingWidth, workingHeight,
+            = createImageBuilder(workingWidth, workingHeight,
                 hasAlpha, isAlphaPreMultiplied);
 
-        for (int iRow = row0; iRow <= row1; iRow++) {
-            for (int iCol = col0; iCol <= col1; iCol++) {
-                final int tile = iRow * nColumnsOfTiles + iCol;
-                final byte[] compressed = imageData.tiles[tile].getData();
-                final byte[] decompressed = decompress(compressed, compression,
-                        bytesPerTile, tileWidth, tileLength);
-                final int x = iCol * tileWidth - x0;
-                final int y = iRow * tileLength - y0;
-                interpretTile(workingBuilder, decompressed, x, y, width, height);
-            }
-        }
+        // tiles are numbered in row-major order within the sub-image
+        readBlocks(nRow * nCol, block -> {
+            final int tile = (row0 + block / nCol) * nColumnsOfTiles + col0 + block % nCol;
+            final byte[] compressed = imageData.getData(tile);
+            return decompress(compressed, compression,
+                    bytesPerTile, tileWidth, tileLength);
+        }, (block, decompressed) -> {
+            final int x = (col0 + block % nCol) * tileWidth - x0;
+            final int y = (row0 + block / nCol) * tileLength - y0;
+            interpretTile(workingBuilder, decompressed, x, y, width, height);
+        });
 
         if (subImage.x == x0
                 && subImage.y == y0
@@ -324,24 +324,23 @@ public final class DataReaderTiled extends ImageDataReader {
         final int row1 = (yRaster + rasterHeight - 1) / tileLength;
 
         final int nColumnsOfTiles = (width + tileWidth - 1) / tileWidth;
+        final int nCol = col1 - col0 + 1;
 
-        for (int iRow = row0; iRow <= row1; iRow++) {
-            for (int iCol = col0; iCol <= col1; iCol++) {
-                final int tile = iRow * nColumnsOfTiles + iCol;
-                final byte[] compressed = imageData.tiles[tile].getData();
-                final byte[] decompressed = decompress(compressed, compression,
-                        bytesPerTile, tileWidth, tileLength);
-                final int x = iCol * tileWidth;
-                final int y = iRow * tileLength;
-
-                final int[] blockData = unpackFloatingPointSamples(
-                        tileWidth, tileLength, tileWidth,
-                        decompressed,
-                        bitsPerPixel, byteOrder);
-                transferBlockToRaster(x, y, tileWidth, tileLength, blockData,
-                        xRaster, yRaster, rasterWidth, rasterHeight, samplesPerPixel, rasterDataFloat);
-            }
-        }
+        readBlocks((row1 - row0 + 1) * nCol, block -> {
+            final int tile = (row0 + block / nCol) * nColumnsOfTiles + col0 + block % nCol;
+            final byte[] compressed = imageData.getData(tile);
+            final byte[] decompressed = decompress(compressed, compression,
+                    bytesPerTile, tileWidth, tileLength);
+            return unpackFloatingPointSamples(
+                    tileWidth, tileLength, tileWidth,
+                    decompressed,
+                    bitsPerPixel, byteOrder);
+        }, (block, blockData) -> {
+            final int x = (col0 + block % nCol) * tileWidth;
+            final int y = (row0 + block / nCol) * tileLength;
+            transferBlockToRaster(x, y, tileWidth, tileLength, blockData,
+                    xRaster, yRaster, rasterWidth, rasterHeight, samplesPerPixel, rasterDataFloat);
+        });
 
         return new TiffRasterDataFloat(rasterWidth, rasterHeight, samplesPerPixel,rasterDataFloat);
     }
@@ -376,23 +375,23 @@ public final class DataReaderTiled extends ImageDataReader {
         final int row1 = (yRaster + rasterHeight - 1) / tileLength;
 
         final int nColumnsOfTiles = (width + tileWidth - 1) / tileWidth;
+        final int nCol = col1 - col0 + 1;
 
-        for (int iRow = row0; iRow <= row1; iRow++) {
-            for (int iCol = col0; iCol <= col1; iCol++) {
-                final int tile = iRow * nColumnsOfTiles + iCol;
-                final byte[] compressed = imageData.tiles[tile].getData();
-                final byte[] decompressed = decompress(compressed, compression,
-                        bytesPerTile, tileWidth, tileLength);
-                final int x = iCol * tileWidth;
-                final int y = iRow * tileLength;
-                final int[] blockData = unpackIntSamples(
-                        tileWidth, tileLength, tileWidth,
-                        decompressed,
-                        predictor, bitsPerPixel, byteOrder);
-                transferBlockToRaster(x, y, tileWidth, tileLength, blockData,
-                        xRaster, yRaster, rasterWidth, rasterHeight, rasterDataInt);
-            }
-        }
+        readBlocks((row1 - row0 + 1) * nCol, block -> {
+            final int tile = (row0 + block / nCol) * nColumnsOfTiles + col0 + block % nCol;
+            final byte[] compressed = imageData.getData(tile);
+            final byte[] decompressed = decompress(compressed, compression,
+                    bytesPerTile, tileWidth, tileLength);
+            return unpackIntSamples(
+                    tileWidth, tileLength, tileWidth,
+                    decompressed,
+                    predictor, bitsPerPixel, byteOrder);
+        }, (block, blockData) -> {
+            final int x = (col0 + block % nCol) * tileWidth;
+            final int y = (row0 + block / nCol) * tileLength;
+            transferBlockToRaster(x, y, tileWidth, tileLength, blockData,
+                    xRaster, yRaster, rasterWidth, rasterHeight, rasterDataInt);
+        });
         return new TiffRasterDataInt(rasterWidth, rasterHeight, rasterDataInt);
     }
 }
@@ -34,10 +34,15 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.Allocator;
+import org.apache.commons.imaging.common.BufferedImageFactory;
 import org.apache.commons.imaging.common.ImageBuilder;
 import org.apache.commons.imaging.common.PackBits;
 import org.apache.commons.imaging.common.ZlibDeflate;
@@ -48,6 +53,7 @@ import org.apache.commons.imaging.formats.tiff.constants.TiffPlanarConfiguration
 import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
 import org.apache.commons.imaging.formats.tiff.itu_t4.T4AndT6Compression;
 import org.apache.commons.imaging.formats.tiff.photometricinterpreters.PhotometricInterpreter;
+import org.apache.commons.imaging.formats.tiff.photometricinterpreters.PhotometricInterpreterBiLevel;
 import org.apache.commons.imaging.mylzw.MyLzwDecompressor;
 
 /**
@@ -172,6 +178,33 @@ import org.apache.commons.imaging.mylzw.MyLzwDecompressor;
  */
 public abstract class ImageDataReader {
 
+    /**
+     * Stores a decoded strip or tile.
+     *
+     * @param <T> the type of the decoded data.
+     */
+    @FunctionalInterface
+    protected interface BlockConsumer<T> {
+        void accept(int block, T decoded) throws ImagingException, IOException;
+    }
+
+    /**
+     * Decodes a strip or tile without touching the state of the reader,
+     * so that several blocks may be decoded at the same time.
+     *
+     * @param <T> the type of the decoded data.
+     */
+    @FunctionalInterface
+    protected interface BlockDecoder<T> {
+        T decode(int block) throws ImagingException, IOException;
+    }
+
+    /**
+     * Number of blocks decoded ahead of the one being stored, per processor,
+     * which bounds the memory held by decoded blocks waiting to be stored.
+     */
+    private static final int BLOCKS_IN_FLIGHT_PER_PROCESSOR = 2;
+
     protected final TiffDirectory directory;
     protected final PhotometricInterpreter photometricInterpreter;
     private final int[] bitsPerSample;
@@ -186,6 +219,10 @@ public abstract class ImageDataReader {
 
     protected final TiffPlanarConfiguration planarConfiguration;
 
+    private Executor executor;
+
+    private BufferedImageFactory bufferedImageFactory;
+
     public ImageDataReader(final TiffDirectory directory,
         final PhotometricInterpreter photometricInterpreter, final int[] bitsPerSample,
         final int predictor, final int samplesPerPixel, final int sampleFormat,
@@ -204,6 +241,21 @@ public abstract class ImageDataReader {
 
     }
 
+    private static <T> T join(final CompletableFuture<T> future) throws ImagingException, IOException {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
     protected int[] applyPredictor(final int[] samples) {
         if (predictor == 2) {
             // Horizontal differencing.
@@ -388,10 +440,98 @@ public abstract class ImageDataReader {
     public abstract TiffRasterData readRasterData(Rectangle subImage)
         throws ImagingException, IOException;
 
+    /**
+     * Creates the image builder that strips or tiles are interpreted into.
+     * When a buffered image factory is set, the pixels are stored in an image
+     * it makes, grayscale for bi-level and grayscale TIFFs, so that they can
+     * take less memory than packed ARGB.
+     *
+     * @param builderWidth the width of the image builder.
+     * @param builderHeight the height of the image builder.
+     * @param hasAlpha indicates that the image has an alpha channel.
+     * @param isAlphaPremultiplied indicates that the alpha channel is premultiplied.
+     * @return a valid instance.
+     */
+    protected ImageBuilder createImageBuilder(final int builderWidth, final int builderHeight,
+            final boolean hasAlpha, final boolean isAlphaPremultiplied) {
+        if (bufferedImageFactory == null || isAlphaPremultiplied) {
+            return new ImageBuilder(builderWidth, builderHeight, hasAlpha, isAlphaPremultiplied);
+        }
+        if (photometricInterpreter instanceof PhotometricInterpreterBiLevel) {
+            return new ImageBuilder(bufferedImageFactory.getGrayscaleBufferedImage(builderWidth, builderHeight, hasAlpha));
+        }
+        return new ImageBuilder(bufferedImageFactory.getColorBufferedImage(builderWidth, builderHeight, hasAlpha));
+    }
+
+    /**
+     * Decodes a sequence of strips or tiles and stores them in order. When an
+     * executor is set, blocks are decoded concurrently, a bounded number ahead
+     * of the one being stored. The consumer always runs on the calling
+     * thread, so it may use the state of the reader.
+     *
+     * @param <T> the type of the decoded data.
+     * @param count the number of blocks, which are numbered from zero.
+     * @param decoder decodes a block; must be safe to call concurrently.
+     * @param consumer stores a decoded block.
+     * @throws ImagingException in the event of a data format error.
+     * @throws IOException in the event of an I/O error.
+     */
+    protected <T> void readBlocks(final int count, final BlockDecoder<T> decoder,
+            final BlockConsumer<T> consumer) throws ImagingException, IOException {
+        if (executor == null || count < 2) {
+            for (int block = 0; block < count; block++) {
+                consumer.accept(block, decoder.decode(block));
+            }
+            return;
+        }
+        final int blocksInFlight = BLOCKS_IN_FLIGHT_PER_PROCESSOR * Runtime.getRuntime().availableProcessors();
+        final ArrayDeque<CompletableFuture<T>> pending = new ArrayDeque<>();
+        int next = 0;
+        try {
+            for (int block = 0; block < count; block++) {
+                while (next < count && next - block < blocksInFlight) {
+                    final int nextBlock = next++;
+                    pending.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return decoder.decode(nextBlock);
+                        } catch (final IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, executor));
+                }
+                consumer.accept(block, join(pending.remove()));
+            }
+        } finally {
+            // after a failure, blocks not yet started are not needed
+            pending.forEach(future -> future.cancel(false));
+        }
+    }
+
     protected void resetPredictor() {
         Arrays.fill(last, 0);
     }
 
+    /**
+     * Sets the factory of the images that strips or tiles are interpreted
+     * into, rather than packed ARGB.
+     *
+     * @param bufferedImageFactory the factory, or {@code null} for packed ARGB.
+     * @since 1.0-alpha4
+     */
+    public void setBufferedImageFactory(final BufferedImageFactory bufferedImageFactory) {
+        this.bufferedImageFactory = bufferedImageFactory;
+    }
+
+    /**
+     * Sets the executor used to decode strips or tiles concurrently.
+     *
+     * @param executor the executor, or {@code null} to decode serially.
+     * @since 1.0-alpha4
+     */
+    public void setExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Transfer samples obtained from the TIFF file to a floating-point raster.
      *
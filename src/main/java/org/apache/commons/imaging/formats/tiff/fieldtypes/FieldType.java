@@ -41,6 +41,12 @@ public abstract class FieldType {
     public static final FieldTypeFloat FLOAT = new FieldTypeFloat(11, "Float");
     public static final FieldTypeDouble DOUBLE = new FieldTypeDouble(12, "Double");
     public static final FieldTypeLong IFD = new FieldTypeLong(13, "IFD");
+    /** @since 1.0-alpha4 */
+    public static final FieldTypeLong8 LONG8 = new FieldTypeLong8(16, "Long8");
+    /** @since 1.0-alpha4 */
+    public static final FieldTypeLong8 SLONG8 = new FieldTypeLong8(17, "SLong8");
+    /** @since 1.0-alpha4 */
+    public static final FieldTypeLong8 IFD8 = new FieldTypeLong8(18, "IFD8");
 
     public static final List<FieldType> ANY =
             Collections.unmodifiableList(Arrays.asList(
@@ -49,6 +55,10 @@ public abstract class FieldType {
                     UNDEFINED, SSHORT, SLONG,
                     SRATIONAL, FLOAT, DOUBLE,
                     IFD));
+    /** The 8-byte types, which only BigTIFF files may use; they are left out of {@link #ANY} so that TIFF output does not accept them. */
+    private static final List<FieldType> BIG_TIFF_ONLY =
+            Collections.unmodifiableList(Arrays.asList(
+                    LONG8, SLONG8, IFD8));
     public static final List<FieldType> SHORT_OR_LONG =
             Collections.unmodifiableList(Arrays.asList(
                     SHORT, LONG));
@@ -86,6 +96,11 @@ public abstract class FieldType {
                 return fieldType;
             }
         }
+        for (final FieldType fieldType : BIG_TIFF_ONLY) {
+            if (fieldType.getType() == type) {
+                return fieldType;
+            }
+        }
         throw new ImagingException("Field type " + type + " is unsupported");
     }
 
@@ -40,6 +40,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.PixelDensity;
@@ -59,6 +62,11 @@ import org.apache.commons.imaging.mylzw.MyLzwCompressor;
 
 public abstract class TiffImageWriterBase {
 
+    @FunctionalInterface
+    private interface BlockEncoder {
+        byte[] encode(int block) throws ImagingException, IOException;
+    }
+
     private static final int MAX_PIXELS_FOR_RGB = 1024*1024;
 
     protected static int imageDataPaddingLength(final int dataLength) {
@@ -135,81 +143,157 @@ public abstract class TiffImageWriterBase {
         }
     }
 
-    private byte[][] getStrips(final BufferedImage src, final int samplesPerPixel,
-            final int bitsPerSample, final int rowsPerStrip) {
-        final int width = src.getWidth();
-        final int height = src.getHeight();
+    /**
+     * Compresses one strip or tile, applying the predictor first where the
+     * compression uses one.
+     */
+    private byte[] compressBlock(final byte[] uncompressed, final int blockWidth, final int blockHeight,
+            final int compression, final int samplesPerPixel, final int t4Options, final int parameterK)
+            throws ImagingException, IOException {
+        switch (compression) {
+        case TIFF_COMPRESSION_CCITT_1D:
+            return T4AndT6Compression.compressModifiedHuffman(uncompressed, blockWidth, blockHeight);
+        case TIFF_COMPRESSION_CCITT_GROUP_3: {
+            final boolean hasFillBitsBeforeEOL = (t4Options & 4) != 0;
+            if ((t4Options & 1) != 0) {
+                return T4AndT6Compression.compressT4_2D(uncompressed, blockWidth, blockHeight,
+                        hasFillBitsBeforeEOL, parameterK);
+            }
+            return T4AndT6Compression.compressT4_1D(uncompressed, blockWidth, blockHeight,
+                    hasFillBitsBeforeEOL);
+        }
+        case TIFF_COMPRESSION_CCITT_GROUP_4:
+            return T4AndT6Compression.compressT6(uncompressed, blockWidth, blockHeight);
+        case TIFF_COMPRESSION_PACKBITS:
+            return new PackBits().compress(uncompressed);
+        case TIFF_COMPRESSION_LZW: {
+            this.applyPredictor(blockWidth, samplesPerPixel, uncompressed);
+
+            final int LZW_MINIMUM_CODE_SIZE = 8;
+            final MyLzwCompressor compressor = new MyLzwCompressor(
+                    LZW_MINIMUM_CODE_SIZE, ByteOrder.BIG_ENDIAN, true);
+            return compressor.compress(uncompressed);
+        }
+        case TIFF_COMPRESSION_DEFLATE_ADOBE:
+            this.applyPredictor(blockWidth, samplesPerPixel, uncompressed);
+            return ZlibDeflate.compress(uncompressed);
+        default:
+            return uncompressed;
+        }
+    }
 
-        final int stripCount = (height + rowsPerStrip - 1) / rowsPerStrip;
-
-        byte[][] result;
-        { // Write Strips
-            result = new byte[Allocator.check(stripCount)][];
-
-            int remainingRows = height;
-
-            for (int i = 0; i < stripCount; i++) {
-                final int rowsInStrip = Math.min(rowsPerStrip, remainingRows);
-                remainingRows -= rowsInStrip;
-
-                final int bitsInRow = bitsPerSample * samplesPerPixel * width;
-                final int bytesPerRow = (bitsInRow + 7) / 8;
-                final int bytesInStrip = rowsInStrip * bytesPerRow;
-
-                final byte[] uncompressed = Allocator.byteArray(bytesInStrip);
-
-                int counter = 0;
-                int y = i * rowsPerStrip;
-                final int stop = i * rowsPerStrip + rowsPerStrip;
-
-                for (; (y < height) && (y < stop); y++) {
-                    int bitCache = 0;
-                    int bitsInCache = 0;
-                    for (int x = 0; x < width; x++) {
-                        final int rgb = src.getRGB(x, y);
-                        final int red = 0xff & (rgb >> 16);
-                        final int green = 0xff & (rgb >> 8);
-                        final int blue = 0xff & (rgb);
-
-                        if (bitsPerSample == 1) {
-                            int sample = (red + green + blue) / 3;
-                            if (sample > 127) {
-                                sample = 0;
-                            } else {
-                                sample = 1;
-                            }
-                            bitCache <<= 1;
-                            bitCache |= sample;
-                            bitsInCache++;
-                            if (bitsInCache == 8) {
-                                uncompressed[counter++] = (byte) bitCache;
-                                bitCache = 0;
-                                bitsInCache = 0;
-                            }
-                        } else if(samplesPerPixel==4){
-                            uncompressed[counter++] = (byte) red;
-                            uncompressed[counter++] = (byte) green;
-                            uncompressed[counter++] = (byte) blue;
-                            uncompressed[counter++] = (byte) (rgb>>24);
-                        }else {
-                            // samples per pixel is 3
-                            uncompressed[counter++] = (byte) red;
-                            uncompressed[counter++] = (byte) green;
-                            uncompressed[counter++] = (byte) blue;
-                        }
+    /**
+     * Encodes every strip or tile, concurrently if an executor is given.
+     * Each block is converted and compressed by its own task, so only the
+     * compressed blocks are held until they are written in order.
+     */
+    private static byte[][] encodeBlocks(final int count, final BlockEncoder encoder, final Executor executor)
+            throws ImagingException, IOException {
+        final byte[][] result = new byte[Allocator.check(count)][];
+        if (executor == null || count < 2) {
+            for (int block = 0; block < count; block++) {
+                result[block] = encoder.encode(block);
+            }
+            return result;
+        }
+        final List<CompletableFuture<byte[]>> pending = new ArrayList<>(count);
+        try {
+            for (int block = 0; block < count; block++) {
+                final int nextBlock = block;
+                pending.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return encoder.encode(nextBlock);
+                    } catch (final IOException e) {
+                        throw new CompletionException(e);
                     }
-                    if (bitsInCache > 0) {
-                        bitCache <<= (8 - bitsInCache);
+                }, executor));
+            }
+            for (int block = 0; block < count; block++) {
+                result[block] = join(pending.get(block));
+            }
+        } finally {
+            // after a failure, blocks not yet started are not needed
+            pending.forEach(future -> future.cancel(false));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the uncompressed samples of a strip or tile. Rows and columns of
+     * the block that lie outside the image, as they do in the tiles on the
+     * right and bottom edges, are left zero.
+     */
+    private byte[] getBlock(final BufferedImage src, final int x0, final int y0,
+            final int blockWidth, final int blockHeight, final int samplesPerPixel,
+            final int bitsPerSample) {
+        final int bitsInRow = bitsPerSample * samplesPerPixel * blockWidth;
+        final int bytesPerRow = (bitsInRow + 7) / 8;
+        final byte[] uncompressed = Allocator.byteArray((long) blockHeight * bytesPerRow);
+
+        final int columns = Math.min(blockWidth, src.getWidth() - x0);
+        final int rows = Math.min(blockHeight, src.getHeight() - y0);
+        final int[] argb = Allocator.intArray(columns);
+
+        for (int row = 0; row < rows; row++) {
+            src.getRGB(x0, y0 + row, columns, 1, argb, 0, columns);
+            int counter = row * bytesPerRow;
+            int bitCache = 0;
+            int bitsInCache = 0;
+            for (int x = 0; x < columns; x++) {
+                final int rgb = argb[x];
+                final int red = 0xff & (rgb >> 16);
+                final int green = 0xff & (rgb >> 8);
+                final int blue = 0xff & (rgb);
+
+                if (bitsPerSample == 1) {
+                    int sample = (red + green + blue) / 3;
+                    if (sample > 127) {
+                        sample = 0;
+                    } else {
+                        sample = 1;
+                    }
+                    bitCache <<= 1;
+                    bitCache |= sample;
+                    bitsInCache++;
+                    if (bitsInCache == 8) {
                         uncompressed[counter++] = (byte) bitCache;
+                        bitCache = 0;
+                        bitsInCache = 0;
                     }
+                } else if(samplesPerPixel==4){
+                    uncompressed[counter++] = (byte) red;
+                    uncompressed[counter++] = (byte) green;
+                    uncompressed[counter++] = (byte) blue;
+                    uncompressed[counter++] = (byte) (rgb>>24);
+                }else {
+                    // samples per pixel is 3
+                    uncompressed[counter++] = (byte) red;
+                    uncompressed[counter++] = (byte) green;
+                    uncompressed[counter++] = (byte) blue;
                 }
-
-                result[i] = uncompressed;
             }
-
+            if (bitsInCache > 0) {
+                bitCache <<= (8 - bitsInCache);
+                uncompressed[counter++] = (byte) bitCache;
+            }
         }
 
-        return result;
+        return uncompressed;
+    }
+
+    private static byte[] join(final CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
     }
 
     protected TiffOutputSummary validateDirectories(final TiffOutputSet outputSet)
@@ -467,7 +551,9 @@ public abstract class TiffImageWriterBase {
         int rowsPerStrip = stripSizeInBits / (width * bitsPerSample * samplesPerPixel);
         rowsPerStrip = Math.max(1, rowsPerStrip); // must have at least one.
 
-        final byte[][] strips = getStrips(src, samplesPerPixel, bitsPerSample, rowsPerStrip);
+        final int tileWidth = params.getTileWidth();
+        final int tileLength = params.getTileLength();
+        final boolean tiled = tileWidth > 0;
 
         // System.out.println("width: " + width);
         // System.out.println("height: " + height);
@@ -479,9 +565,6 @@ public abstract class TiffImageWriterBase {
         int t6Options = 0;
         switch (compression) {
         case TIFF_COMPRESSION_CCITT_1D:
-            for (int i = 0; i < strips.length; i++) {
-                strips[i] = T4AndT6Compression.compressModifiedHuffman(strips[i], width, strips[i].length / ((width + 7) / 8));
-            }
             break;
         case TIFF_COMPRESSION_CCITT_GROUP_3: {
             final Integer t4Parameter = params.getT4Options();
@@ -489,24 +572,11 @@ public abstract class TiffImageWriterBase {
                 t4Options = t4Parameter.intValue();
             }
             t4Options &= 0x7;
-            final boolean is2D = (t4Options & 1) != 0;
             final boolean usesUncompressedMode = (t4Options & 2) != 0;
             if (usesUncompressedMode) {
                 throw new ImagingException(
                         "T.4 compression with the uncompressed mode extension is not yet supported");
             }
-            final boolean hasFillBitsBeforeEOL = (t4Options & 4) != 0;
-            for (int i = 0; i < strips.length; i++) {
-                if (is2D) {
-                    strips[i] = T4AndT6Compression.compressT4_2D(strips[i],
-                            width, strips[i].length / ((width + 7) / 8),
-                            hasFillBitsBeforeEOL, rowsPerStrip);
-                } else {
-                    strips[i] = T4AndT6Compression.compressT4_1D(strips[i],
-                            width, strips[i].length / ((width + 7) / 8),
-                            hasFillBitsBeforeEOL);
-                }
-            }
             break;
         }
         case TIFF_COMPRESSION_CCITT_GROUP_4: {
@@ -520,35 +590,13 @@ public abstract class TiffImageWriterBase {
                 throw new ImagingException(
                         "T.6 compression with the uncompressed mode extension is not yet supported");
             }
-            for (int i = 0; i < strips.length; i++) {
-                strips[i] = T4AndT6Compression.compressT6(strips[i], width, strips[i].length / ((width + 7) / 8));
-            }
             break;
         }
         case TIFF_COMPRESSION_PACKBITS:
-            for (int i = 0; i < strips.length; i++) {
-                strips[i] = new PackBits().compress(strips[i]);
-            }
             break;
         case TIFF_COMPRESSION_LZW:
-            predictor =  TiffTagConstants.PREDICTOR_VALUE_HORIZONTAL_DIFFERENCING;
-            for (int i = 0; i < strips.length; i++) {
-                final byte[] uncompressed = strips[i];
-                this.applyPredictor(width, samplesPerPixel, strips[i]);
-
-                final int LZW_MINIMUM_CODE_SIZE = 8;
-                final MyLzwCompressor compressor = new MyLzwCompressor(
-                        LZW_MINIMUM_CODE_SIZE, ByteOrder.BIG_ENDIAN, true);
-                final byte[] compressed = compressor.compress(uncompressed);
-                strips[i] = compressed;
-            }
-            break;
         case TIFF_COMPRESSION_DEFLATE_ADOBE:
             predictor = TiffTagConstants.PREDICTOR_VALUE_HORIZONTAL_DIFFERENCING;
-            for (int i = 0; i < strips.length; i++) {
-                this.applyPredictor(width, samplesPerPixel, strips[i]);
-                strips[i] = ZlibDeflate.compress(strips[i]);
-            }
             break;
         case TIFF_COMPRESSION_UNCOMPRESSED:
             break;
@@ -557,8 +605,32 @@ public abstract class TiffImageWriterBase {
                     "Invalid compression parameter (Only CCITT 1D/Group 3/Group 4, LZW, Packbits, Zlib Deflate and uncompressed supported).");
         }
 
-        final TiffElement.DataElement[] imageData = new TiffElement.DataElement[strips.length];
-        Arrays.setAll(imageData, i -> new TiffImageData.Data(0, strips[i].length, strips[i]));
+        final int finalCompression = compression;
+        final int finalT4Options = t4Options;
+        final int finalSamplesPerPixel = samplesPerPixel;
+        final int finalBitsPerSample = bitsPerSample;
+        final byte[][] blocks;
+        if (tiled) {
+            final int tilesAcross = (width + tileWidth - 1) / tileWidth;
+            final int tilesDown = (height + tileLength - 1) / tileLength;
+            blocks = encodeBlocks(tilesAcross * tilesDown, tile -> compressBlock(
+                    getBlock(src, (tile % tilesAcross) * tileWidth, (tile / tilesAcross) * tileLength,
+                            tileWidth, tileLength, finalSamplesPerPixel, finalBitsPerSample),
+                    tileWidth, tileLength, finalCompression, finalSamplesPerPixel, finalT4Options, tileLength),
+                    params.getExecutor());
+        } else {
+            final int stripRows = rowsPerStrip;
+            final int stripCount = (height + rowsPerStrip - 1) / rowsPerStrip;
+            blocks = encodeBlocks(stripCount, strip -> {
+                final int y0 = strip * stripRows;
+                final int rowsInStrip = Math.min(stripRows, height - y0);
+                return compressBlock(getBlock(src, 0, y0, width, rowsInStrip, finalSamplesPerPixel, finalBitsPerSample),
+                        width, rowsInStrip, finalCompression, finalSamplesPerPixel, finalT4Options, stripRows);
+            }, params.getExecutor());
+        }
+
+        final TiffElement.DataElement[] imageData = new TiffElement.DataElement[blocks.length];
+        Arrays.setAll(imageData, i -> new TiffImageData.Data(0, blocks[i].length, blocks[i]));
 
         final TiffOutputSet outputSet = new TiffOutputSet(byteOrder);
         final TiffOutputDirectory directory = outputSet.addRootDirectory();
@@ -609,8 +681,13 @@ public abstract class TiffImageWriterBase {
             // WRITE_BYTE_ORDER));
             // directory.add(field);
             // }
-            directory.add(TiffTagConstants.TIFF_TAG_ROWS_PER_STRIP,
-                    rowsPerStrip);
+            if (tiled) {
+                directory.add(TiffTagConstants.TIFF_TAG_TILE_WIDTH, tileWidth);
+                directory.add(TiffTagConstants.TIFF_TAG_TILE_LENGTH, tileLength);
+            } else {
+                directory.add(TiffTagConstants.TIFF_TAG_ROWS_PER_STRIP,
+                        rowsPerStrip);
+            }
             if (pixelDensity.isUnitless()) {
                 directory.add(TiffTagConstants.TIFF_TAG_RESOLUTION_UNIT,
                         (short) 0);
@@ -651,8 +728,9 @@ public abstract class TiffImageWriterBase {
 
         }
 
-        final TiffImageData tiffImageData = new TiffImageData.Strips(imageData,
-                rowsPerStrip);
+        final TiffImageData tiffImageData = tiled
+                ? new TiffImageData.Tiles(imageData, tileWidth, tileLength)
+                : new TiffImageData.Strips(imageData, rowsPerStrip);
         directory.setTiffImageData(tiffImageData);
 
         if (userExif != null) {
@@ -71,7 +71,9 @@ public class IccProfileParser extends BinaryFileParser {
             return null;
         }
 
-        return getICCProfileInfo(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return getICCProfileInfo(byteSource);
+        }
     }
 
     public IccProfileInfo getICCProfileInfo(final ICC_Profile iccProfile) throws IOException {
@@ -131,7 +133,9 @@ public class IccProfileParser extends BinaryFileParser {
     }
 
     public boolean issRGB(final File file) throws IOException {
-        return issRGB(ByteSource.file(file));
+        try (ByteSource byteSource = ByteSource.file(file)) {
+            return issRGB(byteSource);
+        }
     }
 
     public boolean issRGB(final ICC_Profile iccProfile) throws IOException {
@@ -17,8 +17,24 @@
 package org.apache.commons.imaging.internal;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.apache.commons.imaging.ImageFormat;
 import org.apache.commons.imaging.ImageFormats;
@@ -29,11 +45,104 @@ import org.apache.commons.imaging.bytesource.ByteSource;
 
 /**
  * Internal utilities.
+ * <p>
+ * Parsers are created once per process: the built-in parsers first, followed by any parsers registered as {@link ServiceLoader} providers of
+ * {@link ImageParser}. Lookups by {@link ImageFormat} and by file extension are answered from tables built at the same time, and the first
+ * registered parser that accepts a format or extension wins, so built-in parsers take precedence.
+ * </p>
+ * <p>
+ * The returned parsers are shared by all callers and are safe to use from many threads at once: parsers keep no per-call state, and all the
+ * state of a read or a write lives in the objects created for that call. Third-party parsers registered through {@link ServiceLoader} must
+ * honor the same contract.
+ * </p>
  *
  * @since 1.0-alpha3
  */
 public class ImageParserFactory {
 
+    /**
+     * Lazily initialized holder of the shared parsers and lookup tables.
+     */
+    private static final class Registry {
+
+        static final Registry INSTANCE = new Registry();
+
+        private static List<ImageParser<?>> loadParsers() {
+            final List<ImageParser<?>> parsers = new ArrayList<>(ImageParser.getAllImageParsers());
+            final Set<Class<?>> builtIn = new HashSet<>();
+            parsers.forEach(parser -> builtIn.add(parser.getClass()));
+            try {
+                // a wildcard iterator avoids naming the raw ImageParser type the service loader yields
+                final Iterator<?> iterator = ServiceLoader.load(ImageParser.class).iterator();
+                while (iterator.hasNext()) {
+                    try {
+                        final ImageParser<?> parser = (ImageParser<?>) iterator.next();
+                        if (builtIn.add(parser.getClass())) {
+                            parsers.add(parser);
+                        }
+                    } catch (final ServiceConfigurationError e) {
+                        LOGGER.log(Level.WARNING, "Skipping image parser provider", e);
+                    }
+                }
+            } catch (final ServiceConfigurationError e) {
+                LOGGER.log(Level.WARNING, "Could not load image parser providers", e);
+            }
+            return Collections.unmodifiableList(parsers);
+        }
+
+        private final List<ImageParser<?>> parsers;
+        private final ConcurrentMap<ImageFormat, ImageParser<?>> formats = new ConcurrentHashMap<>();
+        private final Map<String, ImageParser<?>> extensions = new HashMap<>();
+
+        private Registry() {
+            parsers = loadParsers();
+            for (final ImageFormats format : ImageFormats.values()) {
+                findFirst(parser -> parser.canAcceptType(format)).ifPresent(parser -> formats.put(format, parser));
+                for (final String extension : format.getExtensions()) {
+                    findFirst(parser -> parser.canAcceptExtension("." + extension)).ifPresent(parser -> extensions.putIfAbsent(extension, parser));
+                }
+            }
+        }
+
+        private Optional<ImageParser<?>> findFirst(final Predicate<ImageParser<?>> pred) {
+            return parsers.stream().filter(pred).findFirst();
+        }
+
+        ImageParser<?> getByExtension(final String fileName) {
+            final int index = fileName.lastIndexOf('.');
+            if (index >= 0) {
+                final ImageParser<?> parser = extensions.get(fileName.substring(index + 1).toLowerCase(Locale.ENGLISH));
+                if (parser != null) {
+                    return parser;
+                }
+            }
+            // extensions that no built-in format declares
+            return findFirst(parser -> parser.canAcceptExtension(fileName)).orElse(null);
+        }
+
+        ImageParser<?> getByFormat(final ImageFormat format) {
+            final ImageParser<?> parser = formats.get(format);
+            if (parser != null) {
+                return parser;
+            }
+            // formats that are not ImageFormats constants, remembered once found
+            final ImageParser<?> found = findFirst(candidate -> candidate.canAcceptType(format)).orElse(null);
+            if (found != null) {
+                formats.putIfAbsent(format, found);
+            }
+            return found;
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(ImageParserFactory.class.getName());
+
+    private static <T extends ImagingParameters<T>> ImageParser<T> checkFound(final ImageParser<?> parser, final Supplier<? extends RuntimeException> supplier) {
+        if (parser == null) {
+            throw supplier.get();
+        }
+        return uncheckedCast(parser);
+    }
+
     public static <T extends ImagingParameters<T>> ImageParser<T> getImageParser(final ByteSource byteSource) throws IOException {
         // TODO: circular dependency between Imaging and internal Util class below.
         final ImageFormat format = Imaging.guessFormat(byteSource);
@@ -50,23 +159,27 @@ public class ImageParserFactory {
     }
 
     public static <T extends ImagingParameters<T>> ImageParser<T> getImageParser(final ImageFormat format) {
-        return getImageParser(parser -> parser.canAcceptType(format), () -> new IllegalArgumentException("Unknown ImageFormat: " + format));
+        return checkFound(Registry.INSTANCE.getByFormat(format), () -> new IllegalArgumentException("Unknown ImageFormat: " + format));
     }
 
-    // This generics suppression is as good as the predicate given. If the predicate violates a generics design,
-    // then there will be an error during runtime.
-    @SuppressWarnings("unchecked")
-    private static <T extends ImagingParameters<T>> ImageParser<T> getImageParser(final Predicate<ImageParser<?>> pred, final Supplier<? extends RuntimeException> supplier) {
-        return (ImageParser<T>) ImageParser
-                .getAllImageParsers()
-                .stream()
-                .filter(pred)
-                .findFirst()
-                .orElseThrow(supplier);
+    public static <T extends ImagingParameters<T>> ImageParser<T> getImageParser(final String fileExtension) {
+        return checkFound(Registry.INSTANCE.getByExtension(fileExtension), () -> new IllegalArgumentException("Unknown extension: " + fileExtension));
     }
 
-    public static <T extends ImagingParameters<T>> ImageParser<T> getImageParser(final String fileExtension) {
-        return getImageParser(parser -> parser.canAcceptExtension(fileExtension), () -> new IllegalArgumentException("Unknown extension: " + fileExtension));
+    /**
+     * Gets the shared instances of all registered image parsers, built-in parsers first.
+     *
+     * @return an unmodifiable list of image parsers.
+     */
+    public static List<ImageParser<?>> getImageParsers() {
+        return Registry.INSTANCE.parsers;
+    }
+
+    // This generics suppression is as good as the lookup tables. If a parser violates a generics design,
+    // then there will be an error during runtime.
+    @SuppressWarnings("unchecked")
+    private static <T extends ImagingParameters<T>> ImageParser<T> uncheckedCast(final ImageParser<?> parser) {
+        return (ImageParser<T>) parser;
     }
 
     private ImageParserFactory() {}
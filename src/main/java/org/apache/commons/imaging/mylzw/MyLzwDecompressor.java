@@ -16,16 +16,24 @@
  */
 package org.apache.commons.imaging.mylzw;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.ByteOrder;
 import java.util.Arrays;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.common.Allocator;
 
+/**
+ * Decodes LZW data as used by GIF and TIFF.
+ * <p>
+ * The string table is kept as prefix/suffix chains: each code stores the code
+ * of its string without the last byte, that last byte, the string's length and
+ * its first byte. Strings are written by walking the chain backwards straight
+ * into the output array, so adding a code and emitting its string both take
+ * constant work per output byte.
+ * </p>
+ */
 public final class MyLzwDecompressor {
 
     public interface Listener {
@@ -36,7 +44,10 @@ public final class MyLzwDecompressor {
     }
 
     private static final int MAX_TABLE_SIZE = 1 << 12;
-    private final byte[][] table;
+    private final int[] prefixes = new int[MAX_TABLE_SIZE];
+    private final byte[] suffixes = new byte[MAX_TABLE_SIZE];
+    private final byte[] firstBytes = new byte[MAX_TABLE_SIZE];
+    private final int[] lengths = new int[MAX_TABLE_SIZE];
     private int codeSize;
     private final int initialCodeSize;
     private int codes = -1;
@@ -44,6 +55,7 @@ public final class MyLzwDecompressor {
     private final Listener listener;
     private final int clearCode;
     private final int eoiCode;
+    private byte[] result;
     private int written;
     private final boolean tiffLZWMode;
 
@@ -58,7 +70,6 @@ public final class MyLzwDecompressor {
         this.tiffLZWMode = tiffLZWMode;
         this.initialCodeSize = initialCodeSize;
 
-        table = new byte[MAX_TABLE_SIZE][];
         clearCode = 1 << initialCodeSize;
         eoiCode = clearCode + 1;
 
@@ -69,9 +80,15 @@ public final class MyLzwDecompressor {
         initializeTable();
     }
 
-    private void addStringToTable(final byte[] bytes) {
+    /**
+     * Adds the string of {@code prefix} followed by {@code suffix} to the table.
+     */
+    private void addStringToTable(final int prefix, final byte suffix) {
         if (codes < (1 << codeSize)) {
-            table[codes] = bytes;
+            prefixes[codes] = prefix;
+            suffixes[codes] = suffix;
+            firstBytes[codes] = firstBytes[prefix];
+            lengths[codes] = lengths[prefix] + 1;
             codes++;
         }
         // If the table already full, then we simply ignore these bytes
@@ -80,10 +97,11 @@ public final class MyLzwDecompressor {
         checkCodeSize();
     }
 
-    private byte[] appendBytes(final byte[] bytes, final byte b) {
-        final byte[] result = Arrays.copyOf(bytes, bytes.length + 1);
-        result[result.length - 1] = b;
-        return result;
+    private void checkCode(final int code) throws ImagingException {
+        if ((code >= codes) || (code < 0)) {
+            throw new ImagingException("Bad Code: " + code + " codes: " + codes
+                    + " code_size: " + codeSize + ", table: " + MAX_TABLE_SIZE);
+        }
     }
 
     private void checkCodeSize() {
@@ -106,8 +124,9 @@ public final class MyLzwDecompressor {
     public byte[] decompress(final InputStream is, final int expectedLength) throws IOException {
         int code;
         int oldCode = -1;
-        try (MyBitInputStream mbis = new MyBitInputStream(is, byteOrder, tiffLZWMode);
-                ByteArrayOutputStream baos = new ByteArrayOutputStream(Allocator.checkByteArray(expectedLength))) {
+        try (MyBitInputStream mbis = new MyBitInputStream(is, byteOrder, tiffLZWMode)) {
+            result = Allocator.byteArray(expectedLength);
+            written = 0;
 
             clearTable();
 
@@ -123,15 +142,20 @@ public final class MyLzwDecompressor {
                     if (code == eoiCode) {
                         break;
                     }
-                    writeToResult(baos, stringFromCode(code));
+                    writeString(code);
                 } else if (isInTable(code)) {
-                    writeToResult(baos, stringFromCode(code));
+                    writeString(code);
 
-                    addStringToTable(appendBytes(stringFromCode(oldCode), firstChar(stringFromCode(code))));
+                    checkCode(oldCode);
+                    addStringToTable(oldCode, firstBytes[code]);
                 } else {
-                    final byte[] outString = appendBytes(stringFromCode(oldCode), firstChar(stringFromCode(oldCode)));
-                    writeToResult(baos, outString);
-                    addStringToTable(outString);
+                    // the code being defined: the previous string plus its own first byte
+                    checkCode(oldCode);
+                    final byte firstByte = firstBytes[oldCode];
+                    writeString(oldCode);
+                    ensureCapacity(1);
+                    result[written++] = firstByte;
+                    addStringToTable(oldCode, firstByte);
                 }
                 oldCode = code;
 
@@ -140,12 +164,20 @@ public final class MyLzwDecompressor {
                 }
             }
 
-            return baos.toByteArray();
+            final byte[] decompressed = written == result.length ? result : Arrays.copyOf(result, written);
+            result = null;
+            return decompressed;
         }
     }
 
-    private byte firstChar(final byte[] bytes) {
-        return bytes[0];
+    /**
+     * Grows the output if the next {@code count} bytes do not fit, which only
+     * happens when the data decodes to more than the expected length.
+     */
+    private void ensureCapacity(final int count) {
+        if (written + count > result.length) {
+            result = Arrays.copyOf(result, Allocator.checkByteArray(Math.max(2 * result.length, written + count)));
+        }
     }
 
     private int getNextCode(final MyBitInputStream is) throws IOException {
@@ -168,12 +200,15 @@ public final class MyLzwDecompressor {
 
         final int initialEntriesCount = 1 << codeSize + 2;
 
-        if (initialEntriesCount > table.length) {
-            throw new ImagingException(String.format("Invalid Lzw table length [%d]; entries count is [%d]", table.length, initialEntriesCount));
+        if (initialEntriesCount > MAX_TABLE_SIZE) {
+            throw new ImagingException(String.format("Invalid Lzw table length [%d]; entries count is [%d]", MAX_TABLE_SIZE, initialEntriesCount));
         }
 
         for (int i = 0; i < initialEntriesCount; i++) {
-            table[i] = new byte[] { (byte) i, };
+            prefixes[i] = -1;
+            suffixes[i] = (byte) i;
+            firstBytes[i] = (byte) i;
+            lengths[i] = 1;
         }
     }
 
@@ -181,17 +216,19 @@ public final class MyLzwDecompressor {
         return code < codes;
     }
 
-    private byte[] stringFromCode(final int code) throws ImagingException {
-        if ((code >= codes) || (code < 0)) {
-            throw new ImagingException("Bad Code: " + code + " codes: " + codes
-                    + " code_size: " + codeSize + ", table: " + table.length);
+    /**
+     * Writes the string of a code by following its prefix chain from the
+     * last byte back to the first.
+     */
+    private void writeString(final int code) throws ImagingException {
+        checkCode(code);
+        final int length = lengths[code];
+        ensureCapacity(length);
+        int current = code;
+        for (int i = written + length - 1; i >= written; i--) {
+            result[i] = suffixes[current];
+            current = prefixes[current];
         }
-        return table[code];
-    }
-
-    private void writeToResult(final OutputStream os, final byte[] bytes)
-            throws IOException {
-        os.write(bytes);
-        written += bytes.length;
+        written += length;
     }
 }
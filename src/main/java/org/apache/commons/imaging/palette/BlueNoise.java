@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.palette;
+
+import java.util.Random;
+
+/**
+ * A tileable blue noise threshold map, generated once with Ulichney's void-and-cluster
+ * method: pixels are ranked by repeatedly taking the tightest cluster out of, or putting
+ * a pixel into the largest void of, a binary pattern, with clusters and voids measured
+ * by a Gaussian filter that wraps around the edges.
+ */
+final class BlueNoise {
+
+    /** Width and height of the map. */
+    static final int SIZE = 64;
+
+    /** Thresholds in (0, 1), in row-major order. */
+    static final float[] THRESHOLDS = generate();
+
+    private static final double SIGMA = 1.5;
+
+    /**
+     * Adds or removes a pixel's contribution to the energy of every pixel.
+     */
+    private static void addEnergy(final double[] energy, final double[] kernel, final int pixel, final double sign) {
+        final int px = pixel % SIZE;
+        final int py = pixel / SIZE;
+        for (int y = 0; y < SIZE; y++) {
+            final int dy = Math.floorMod(y - py, SIZE);
+            for (int x = 0; x < SIZE; x++) {
+                energy[y * SIZE + x] += sign * kernel[dy * SIZE + Math.floorMod(x - px, SIZE)];
+            }
+        }
+    }
+
+    /**
+     * Finds the tightest cluster (highest energy) among set pixels, or the largest void
+     * (lowest energy) among unset ones.
+     */
+    private static int find(final double[] energy, final boolean[] pattern, final boolean cluster) {
+        int best = -1;
+        for (int i = 0; i < energy.length; i++) {
+            if (pattern[i] == cluster
+                    && (best < 0 || (cluster ? energy[i] > energy[best] : energy[i] < energy[best]))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static float[] generate() {
+        final int n = SIZE * SIZE;
+        final double[] kernel = new double[n];
+        for (int y = 0; y < SIZE; y++) {
+            final int dy = Math.min(y, SIZE - y);
+            for (int x = 0; x < SIZE; x++) {
+                final int dx = Math.min(x, SIZE - x);
+                kernel[y * SIZE + x] = Math.exp(-(dx * dx + dy * dy) / (2 * SIGMA * SIGMA));
+            }
+        }
+
+        // an initial pattern of about a tenth of the pixels, spread out evenly
+        final boolean[] initial = new boolean[n];
+        final double[] initialEnergy = new double[n];
+        final Random random = new Random(0);
+        int ones = 0;
+        while (ones < n / 10) {
+            final int pixel = random.nextInt(n);
+            if (!initial[pixel]) {
+                initial[pixel] = true;
+                addEnergy(initialEnergy, kernel, pixel, 1);
+                ones++;
+            }
+        }
+        while (true) {
+            final int cluster = find(initialEnergy, initial, true);
+            initial[cluster] = false;
+            addEnergy(initialEnergy, kernel, cluster, -1);
+            final int gap = find(initialEnergy, initial, false);
+            initial[gap] = true;
+            addEnergy(initialEnergy, kernel, gap, 1);
+            if (gap == cluster) {
+                break;
+            }
+        }
+
+        final int[] ranks = new int[n];
+        // rank the initial pixels by taking out the tightest clusters first
+        final boolean[] pattern = initial.clone();
+        final double[] energy = initialEnergy.clone();
+        for (int rank = ones - 1; rank >= 0; rank--) {
+            final int cluster = find(energy, pattern, true);
+            pattern[cluster] = false;
+            addEnergy(energy, kernel, cluster, -1);
+            ranks[cluster] = rank;
+        }
+        // then rank the remaining pixels by filling the largest voids
+        for (int rank = ones; rank < n; rank++) {
+            final int gap = find(initialEnergy, initial, false);
+            initial[gap] = true;
+            addEnergy(initialEnergy, kernel, gap, 1);
+            ranks[gap] = rank;
+        }
+
+        final float[] thresholds = new float[n];
+        for (int i = 0; i < n; i++) {
+            thresholds[i] = (ranks[i] + 0.5f) / n;
+        }
+        return thresholds;
+    }
+
+    private BlueNoise() {
+    }
+}
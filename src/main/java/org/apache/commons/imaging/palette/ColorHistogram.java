@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.palette;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.imaging.common.Allocator;
+
+/**
+ * Histogram of the opaque colors of an image, accurate to {@link #BITS} bits per
+ * component, that also keeps the exact component totals of each bin so that the
+ * average color of any box of bins can be computed.
+ */
+final class ColorHistogram {
+
+    /** Bits kept per color component. */
+    static final int BITS = 5;
+
+    /** Number of bins along each component axis. */
+    static final int SIZE = 1 << BITS;
+
+    private static final int SHIFT = 8 - BITS;
+
+    /** Pixel count of each bin, indexed by {@link #index(int, int, int)}. */
+    final int[] counts = new int[SIZE * SIZE * SIZE];
+
+    /** Red, green and blue totals of each bin, three entries per bin. */
+    final long[] sums = new long[3 * SIZE * SIZE * SIZE];
+
+    /**
+     * Counts the colors of an image. When an executor is given, horizontal stripes of
+     * the image are counted concurrently into separate histograms that are then merged.
+     *
+     * @param image the image to count.
+     * @param executor the executor, or {@code null} to count serially.
+     * @return the histogram.
+     */
+    static ColorHistogram count(final BufferedImage image, final Executor executor) {
+        final int height = image.getHeight();
+        final int stripes = executor == null ? 1 : Math.min(height, Runtime.getRuntime().availableProcessors());
+        if (stripes <= 1) {
+            return new ColorHistogram().add(image, 0, height);
+        }
+        final List<CompletableFuture<ColorHistogram>> futures = new ArrayList<>(stripes);
+        try {
+            for (int i = 0; i < stripes; i++) {
+                final int y0 = (int) ((long) height * i / stripes);
+                final int y1 = (int) ((long) height * (i + 1) / stripes);
+                futures.add(CompletableFuture.supplyAsync(() -> new ColorHistogram().add(image, y0, y1), executor));
+            }
+            final ColorHistogram result = futures.get(0).join();
+            for (int i = 1; i < stripes; i++) {
+                result.merge(futures.get(i).join());
+            }
+            return result;
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    static int index(final int red, final int green, final int blue) {
+        return (red << BITS | green) << BITS | blue;
+    }
+
+    static int indexOf(final int argb) {
+        return index((0xff & argb >> 16) >> SHIFT, (0xff & argb >> 8) >> SHIFT, (0xff & argb) >> SHIFT);
+    }
+
+    private ColorHistogram add(final BufferedImage image, final int y0, final int y1) {
+        final int width = image.getWidth();
+        final int[] row = Allocator.intArray(width);
+        for (int y = y0; y < y1; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                final int argb = row[x];
+                final int red = 0xff & argb >> 16;
+                final int green = 0xff & argb >> 8;
+                final int blue = 0xff & argb;
+                final int index = index(red >> SHIFT, green >> SHIFT, blue >> SHIFT);
+                counts[index]++;
+                sums[3 * index] += red;
+                sums[3 * index + 1] += green;
+                sums[3 * index + 2] += blue;
+            }
+        }
+        return this;
+    }
+
+    private void merge(final ColorHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] += other.sums[i];
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.palette;
+
+/**
+ * A box of {@link ColorHistogram} bins, shrunk to the bins its colors occupy.
+ * Boxes are split in two along one axis, and the resulting tree maps any color
+ * to the box, and so the palette entry, that covers it.
+ */
+final class ColorHistogramBox {
+
+    private final ColorHistogram histogram;
+    private final int[] mins = new int[3];
+    private final int[] maxs = new int[3];
+
+    final int redDiff;
+    final int greenDiff;
+    final int blueDiff;
+    final int maxDiff;
+    final int diffTotal;
+    final int totalPoints;
+
+    ColorComponent cutComponent;
+    int limit;
+    ColorHistogramBox less;
+    ColorHistogramBox more;
+    int paletteIndex = -1;
+
+    /**
+     * Constructs the box holding every color of a histogram.
+     */
+    ColorHistogramBox(final ColorHistogram histogram) {
+        this(histogram, new int[] { 0, 0, 0 },
+                new int[] { ColorHistogram.SIZE - 1, ColorHistogram.SIZE - 1, ColorHistogram.SIZE - 1 });
+    }
+
+    private ColorHistogramBox(final ColorHistogram histogram, final int[] lower, final int[] upper) {
+        this.histogram = histogram;
+        for (int axis = 0; axis < 3; axis++) {
+            mins[axis] = Integer.MAX_VALUE;
+            maxs[axis] = Integer.MIN_VALUE;
+        }
+        int total = 0;
+        for (int red = lower[0]; red <= upper[0]; red++) {
+            for (int green = lower[1]; green <= upper[1]; green++) {
+                final int rowIndex = ColorHistogram.index(red, green, 0);
+                for (int blue = lower[2]; blue <= upper[2]; blue++) {
+                    final int count = histogram.counts[rowIndex + blue];
+                    if (count != 0) {
+                        total += count;
+                        include(0, red);
+                        include(1, green);
+                        include(2, blue);
+                    }
+                }
+            }
+        }
+        this.totalPoints = total;
+        redDiff = maxs[0] - mins[0];
+        greenDiff = maxs[1] - mins[1];
+        blueDiff = maxs[2] - mins[2];
+        maxDiff = Math.max(redDiff, Math.max(greenDiff, blueDiff));
+        diffTotal = redDiff + greenDiff + blueDiff;
+    }
+
+    private static int axis(final ColorComponent component) {
+        switch (component) {
+        case RED:
+            return 0;
+        case GREEN:
+            return 1;
+        case BLUE:
+            return 2;
+        default:
+            throw new IllegalArgumentException("Histograms have no " + component + " axis");
+        }
+    }
+
+    /**
+     * Gets the number of bins the box spans along an axis, less one.
+     */
+    int getDiff(final ColorComponent component) {
+        final int axis = axis(component);
+        return maxs[axis] - mins[axis];
+    }
+
+    /**
+     * Chooses where to cut the box along an axis so that the halves hold as close to
+     * the same number of pixels as possible, using the running totals of the slices of
+     * the box across that axis.
+     *
+     * @return the last bin coordinate of the lower half, or -1 if the box is one bin thick.
+     */
+    int getMedianLimit(final ColorComponent component) {
+        final long[] slices = getSlices(component);
+        if (slices.length < 2) {
+            return -1;
+        }
+        final long countHalf = Math.round(totalPoints / 2.0);
+        long oldCount = 0;
+        long newCount = 0;
+        int medianIndex;
+        for (medianIndex = 0; medianIndex < slices.length; medianIndex++) {
+            newCount += slices[medianIndex];
+            if (newCount >= countHalf) {
+                break;
+            }
+            oldCount = newCount;
+        }
+        if (medianIndex > 0 && Math.abs(countHalf - oldCount) < Math.abs(newCount - countHalf)) {
+            medianIndex--;
+        }
+        // the end slices are never empty, so both halves hold pixels
+        return mins[axis(component)] + Math.min(medianIndex, slices.length - 2);
+    }
+
+    /**
+     * Gets the number of pixels that a cut at the given limit puts in the lower half.
+     */
+    long getLowerPoints(final ColorComponent component, final int limit) {
+        final long[] slices = getSlices(component);
+        long total = 0;
+        for (int i = 0; i <= limit - mins[axis(component)]; i++) {
+            total += slices[i];
+        }
+        return total;
+    }
+
+    /**
+     * Gets the average color of the pixels in the box.
+     */
+    int getMeanValue() {
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        for (int r = mins[0]; r <= maxs[0]; r++) {
+            for (int g = mins[1]; g <= maxs[1]; g++) {
+                final int rowIndex = ColorHistogram.index(r, g, 0);
+                for (int b = mins[2]; b <= maxs[2]; b++) {
+                    final int index = 3 * (rowIndex + b);
+                    red += histogram.sums[index];
+                    green += histogram.sums[index + 1];
+                    blue += histogram.sums[index + 2];
+                }
+            }
+        }
+        final double count = Math.max(1, totalPoints);
+        return 0xff000000 | (int) Math.round(red / count) << 16 | (int) Math.round(green / count) << 8
+                | (int) Math.round(blue / count);
+    }
+
+    /**
+     * Gets the palette index of the leaf box that covers a histogram bin.
+     */
+    int getPaletteIndex(final int red, final int green, final int blue) {
+        ColorHistogramBox box = this;
+        while (box.cutComponent != null) {
+            final int value = box.cutComponent == ColorComponent.RED ? red
+                    : box.cutComponent == ColorComponent.GREEN ? green : blue;
+            box = value <= box.limit ? box.less : box.more;
+        }
+        return box.paletteIndex;
+    }
+
+    /**
+     * Gets the pixel counts of the slices of the box across an axis.
+     */
+    private long[] getSlices(final ColorComponent component) {
+        final int axis = axis(component);
+        final long[] slices = new long[maxs[axis] - mins[axis] + 1];
+        final int[] coordinates = new int[3];
+        for (int r = mins[0]; r <= maxs[0]; r++) {
+            coordinates[0] = r;
+            for (int g = mins[1]; g <= maxs[1]; g++) {
+                coordinates[1] = g;
+                final int rowIndex = ColorHistogram.index(r, g, 0);
+                for (int b = mins[2]; b <= maxs[2]; b++) {
+                    coordinates[2] = b;
+                    slices[coordinates[axis] - mins[axis]] += histogram.counts[rowIndex + b];
+                }
+            }
+        }
+        return slices;
+    }
+
+    private void include(final int axis, final int value) {
+        mins[axis] = Math.min(mins[axis], value);
+        maxs[axis] = Math.max(maxs[axis], value);
+    }
+
+    /**
+     * Splits the box in two along an axis, after the given bin coordinate.
+     */
+    void split(final ColorComponent component, final int limit) {
+        final int axis = axis(component);
+        final int[] upper = maxs.clone();
+        upper[axis] = limit;
+        final int[] lower = mins.clone();
+        lower[axis] = limit + 1;
+        this.less = new ColorHistogramBox(histogram, mins, upper);
+        this.more = new ColorHistogramBox(histogram, lower, maxs);
+        this.limit = limit;
+        this.cutComponent = component;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.palette;
+
+/**
+ * Palette built by median cut over a {@link ColorHistogram}, with a lookup table
+ * from every histogram bin to the palette entry of the box covering it.
+ */
+class ColorHistogramPalette implements Palette {
+    private final int[] palette;
+    private final int[] lookup = new int[ColorHistogram.SIZE * ColorHistogram.SIZE * ColorHistogram.SIZE];
+
+    ColorHistogramPalette(final ColorHistogramBox root, final int[] palette) {
+        this.palette = palette;
+        for (int red = 0; red < ColorHistogram.SIZE; red++) {
+            for (int green = 0; green < ColorHistogram.SIZE; green++) {
+                for (int blue = 0; blue < ColorHistogram.SIZE; blue++) {
+                    lookup[ColorHistogram.index(red, green, blue)] = root.getPaletteIndex(red, green, blue);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getEntry(final int index) {
+        return palette[index];
+    }
+
+    @Override
+    public int getPaletteIndex(final int rgb) {
+        return lookup[ColorHistogram.indexOf(rgb)];
+    }
+
+    @Override
+    public int length() {
+        return palette.length;
+    }
+}
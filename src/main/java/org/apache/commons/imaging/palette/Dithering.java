@@ -17,6 +17,13 @@
 package org.apache.commons.imaging.palette;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import org.apache.commons.imaging.ImagingException;
 
@@ -24,6 +31,129 @@ import org.apache.commons.imaging.ImagingException;
  * Dithering algorithms to use when quantizing an image to palette form.
  */
 public final class Dithering {
+
+    @FunctionalInterface
+    private interface DitheringTask {
+        void run(int task) throws ImagingException;
+    }
+
+    /**
+     * Floyd-Steinberg dithering of rows in parallel. Rows are claimed in order by the
+     * running tasks, and each row waits until the row above has finished the pixels
+     * that diffuse error into the pixel it is about to quantize. Rows therefore finish
+     * in order, so only as many row buffers as tasks, plus one, are needed.
+     */
+    private static final class FloydSteinbergWavefront {
+
+        /** Pixels a row publishes its progress after, to limit cross-thread traffic. */
+        private static final int PROGRESS_STEP = 16;
+
+        private final int[] argb;
+        private final int width;
+        private final int height;
+        private final Palette palette;
+        private final int[][] rows;
+        private final AtomicInteger nextRow = new AtomicInteger();
+        private final AtomicIntegerArray progress;
+        private volatile boolean failed;
+
+        FloydSteinbergWavefront(final int[] argb, final int width, final int height, final Palette palette, final int tasks) {
+            this.argb = argb;
+            this.width = width;
+            this.height = height;
+            this.palette = palette;
+            this.rows = new int[tasks + 1][width];
+            this.progress = new AtomicIntegerArray(tasks > 1 ? height : 0);
+        }
+
+        /**
+         * Waits until a row has finished the given number of pixels.
+         *
+         * @return false if another row failed, so the wait was abandoned.
+         */
+        private boolean awaitProgress(final int y, final int count) {
+            while (progress.get(y) < count) {
+                if (failed) {
+                    return false;
+                }
+                Thread.yield();
+            }
+            return true;
+        }
+
+        /**
+         * Dithers one row. The row's buffer holds its pixels with the error from the
+         * rows above already added, and the row adds its own error to its buffer and
+         * to the next row's, in the same order and with the same clamping as a serial
+         * pass over the image.
+         *
+         * @return false if the row was abandoned because another row failed.
+         */
+        private boolean ditherRow(final int y) throws ImagingException {
+            final boolean concurrent = progress.length() > 0;
+            final int[] current = rows[y % rows.length];
+            final int[] next = rows[(y + 1) % rows.length];
+            final int offset = y * width;
+            if (y == 0) {
+                System.arraycopy(argb, 0, current, 0, width);
+            }
+            if (y + 1 < height) {
+                System.arraycopy(argb, offset + width, next, 0, width);
+            }
+            for (int x = 0; x < width; x++) {
+                if (concurrent && y > 0 && (x % PROGRESS_STEP) == 0) {
+                    // the pixels above and to the right, up to x + 2, must have been done
+                    if (!awaitProgress(y - 1, Math.min(width, x + PROGRESS_STEP + 2))) {
+                        return false;
+                    }
+                }
+                final int pixel = current[x];
+                final int nextArgb = palette.getEntry(palette.getPaletteIndex(pixel));
+                argb[offset + x] = nextArgb;
+
+                final int errA = (pixel >> 24 & 0xff) - (nextArgb >> 24 & 0xff);
+                final int errR = (pixel >> 16 & 0xff) - (nextArgb >> 16 & 0xff);
+                final int errG = (pixel >> 8 & 0xff) - (nextArgb >> 8 & 0xff);
+                final int errB = (pixel & 0xff) - (nextArgb & 0xff);
+
+                if (x + 1 < width) {
+                    current[x + 1] = adjustPixel(current[x + 1], errA, errR, errG, errB, 7);
+                    if (y + 1 < height) {
+                        next[x + 1] = adjustPixel(next[x + 1], errA, errR, errG, errB, 1);
+                    }
+                }
+                if (y + 1 < height) {
+                    next[x] = adjustPixel(next[x], errA, errR, errG, errB, 5);
+                    if (x - 1 >= 0) {
+                        next[x - 1] = adjustPixel(next[x - 1], errA, errR, errG, errB, 3);
+                    }
+                }
+                if (concurrent && ((x + 1) % PROGRESS_STEP == 0 || x + 1 == width)) {
+                    progress.set(y, x + 1);
+                }
+            }
+            return true;
+        }
+
+        void run() throws ImagingException {
+            try {
+                int y;
+                while ((y = nextRow.getAndIncrement()) < height) {
+                    if (!ditherRow(y)) {
+                        return;
+                    }
+                }
+            } catch (final ImagingException | RuntimeException e) {
+                failed = true;
+                throw e;
+            }
+        }
+    }
+
+    private static final int BAYER_SIZE = 8;
+
+    private static final float[] BAYER_THRESHOLDS = bayerThresholds(BAYER_SIZE);
+
     private static int adjustPixel(final int argb, final int errA, final int errR, final int errG, final int errB, final int mul) {
         int a = (argb >> 24) & 0xff;
         int r = (argb >> 16) & 0xff;
@@ -69,6 +199,45 @@ public final class Dithering {
      * @throws ImagingException if it fails to read the palette index
      */
     public static void applyFloydSteinbergDithering(final BufferedImage image, final Palette palette) throws ImagingException {
+        if (!hasExactArgb(image)) {
+            // the error must be diffused into the pixels as the image stores them
+            applyFloydSteinbergDitheringPerPixel(image, palette);
+            return;
+        }
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+        applyFloydSteinbergDithering(argb, width, height, palette, null);
+        image.setRGB(0, 0, width, height, argb, 0, width);
+    }
+
+    /**
+     * Changes the given pixels to only use colors from the given palette,
+     * applying Floyd-Steinberg dithering in the process. Ensure that
+     * your alpha values in the image and in the palette are consistent.
+     * <p>
+     * When an executor is given, rows are dithered concurrently as a wavefront: each
+     * row follows a few pixels behind the row above it, once the error diffused from
+     * those pixels is known. The result is the same as dithering serially.
+     * </p>
+     *
+     * @param argb     the ARGB pixels in row-major order, changed in place
+     * @param width    the image width
+     * @param height   the image height
+     * @param palette  the palette to use, which must map any color to an entry
+     * @param executor the executor to run rows on, or {@code null} to dither serially
+     * @throws ImagingException if it fails to read the palette index
+     * @since 1.0-alpha4
+     */
+    public static void applyFloydSteinbergDithering(final int[] argb, final int width, final int height,
+            final Palette palette, final Executor executor) throws ImagingException {
+        checkSize(argb, width, height);
+        final int tasks = executor == null ? 1 : Math.min(height, Math.max(2, Runtime.getRuntime().availableProcessors()));
+        final FloydSteinbergWavefront wavefront = new FloydSteinbergWavefront(argb, width, height, palette, tasks);
+        run(tasks, task -> wavefront.run(), executor);
+    }
+
+    private static void applyFloydSteinbergDitheringPerPixel(final BufferedImage image, final Palette palette) throws ImagingException {
         for (int y = 0; y < image.getHeight(); y++) {
             for (int x = 0; x < image.getWidth(); x++) {
                 final int argb = image.getRGB(x, y);
@@ -112,6 +281,159 @@ public final class Dithering {
         }
     }
 
+    /**
+     * Changes the given pixels to only use colors from the given palette,
+     * applying ordered dithering with a blue noise threshold map. Unlike a Bayer
+     * matrix this leaves no regular pattern, and unlike error diffusion each pixel
+     * is independent, so stripes of the image are dithered concurrently when an
+     * executor is given.
+     *
+     * @param argb     the ARGB pixels in row-major order, changed in place
+     * @param width    the image width
+     * @param height   the image height
+     * @param palette  the palette to use, which must map any color to an entry
+     * @param executor the executor to run stripes on, or {@code null} to dither serially
+     * @throws ImagingException if it fails to read the palette index
+     * @since 1.0-alpha4
+     */
+    public static void applyBlueNoiseDithering(final int[] argb, final int width, final int height,
+            final Palette palette, final Executor executor) throws ImagingException {
+        applyThresholdDithering(argb, width, height, palette, BlueNoise.THRESHOLDS, BlueNoise.SIZE, executor);
+    }
+
+    /**
+     * Changes the given pixels to only use colors from the given palette,
+     * applying ordered dithering with an 8x8 Bayer matrix. Each pixel is
+     * independent, so stripes of the image are dithered concurrently when an
+     * executor is given.
+     *
+     * @param argb     the ARGB pixels in row-major order, changed in place
+     * @param width    the image width
+     * @param height   the image height
+     * @param palette  the palette to use, which must map any color to an entry
+     * @param executor the executor to run stripes on, or {@code null} to dither serially
+     * @throws ImagingException if it fails to read the palette index
+     * @since 1.0-alpha4
+     */
+    public static void applyOrderedDithering(final int[] argb, final int width, final int height,
+            final Palette palette, final Executor executor) throws ImagingException {
+        applyThresholdDithering(argb, width, height, palette, BAYER_THRESHOLDS, BAYER_SIZE, executor);
+    }
+
+    private static void applyThresholdDithering(final int[] argb, final int width, final int height,
+            final Palette palette, final float[] thresholds, final int size, final Executor executor) throws ImagingException {
+        checkSize(argb, width, height);
+        // spread the offsets over about one step of a palette whose colors form an even grid
+        final double spread = 255 / Math.max(1, Math.cbrt(palette.length()) - 1);
+        final int[] offsets = new int[thresholds.length];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = (int) Math.round((thresholds[i] - 0.5) * spread);
+        }
+        final int tasks = executor == null ? 1 : Math.min(height, Math.max(2, Runtime.getRuntime().availableProcessors()));
+        run(tasks, task -> {
+            final int y0 = (int) ((long) height * task / tasks);
+            final int y1 = (int) ((long) height * (task + 1) / tasks);
+            for (int y = y0; y < y1; y++) {
+                final int rowOffset = (y % size) * size;
+                for (int x = 0, i = y * width; x < width; x++, i++) {
+                    final int offset = offsets[rowOffset + x % size];
+                    final int pixel = argb[i];
+                    final int r = clamp((pixel >> 16 & 0xff) + offset);
+                    final int g = clamp((pixel >> 8 & 0xff) + offset);
+                    final int b = clamp((pixel & 0xff) + offset);
+                    argb[i] = palette.getEntry(palette.getPaletteIndex(pixel & 0xff000000 | r << 16 | g << 8 | b));
+                }
+            }
+        }, executor);
+    }
+
+    private static float[] bayerThresholds(final int size) {
+        int[] matrix = { 0 };
+        for (int n = 1; n < size; n *= 2) {
+            final int[] next = new int[4 * n * n];
+            for (int y = 0; y < n; y++) {
+                for (int x = 0; x < n; x++) {
+                    final int value = 4 * matrix[y * n + x];
+                    next[y * 2 * n + x] = value;
+                    next[y * 2 * n + x + n] = value + 2;
+                    next[(y + n) * 2 * n + x] = value + 3;
+                    next[(y + n) * 2 * n + x + n] = value + 1;
+                }
+            }
+            matrix = next;
+        }
+        final float[] thresholds = new float[matrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+            thresholds[i] = (matrix[i] + 0.5f) / matrix.length;
+        }
+        return thresholds;
+    }
+
+    private static void checkSize(final int[] argb, final int width, final int height) {
+        if (width < 0 || height < 0 || argb.length < (long) width * height) {
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height + " for " + argb.length + " pixels");
+        }
+    }
+
+    private static int clamp(final int value) {
+        return value < 0 ? 0 : value > 0xff ? 0xff : value;
+    }
+
+    /**
+     * Tests whether the image stores 8 bits per channel of sRGB without premultiplying,
+     * so pixels read back exactly as they were set and error can be diffused through
+     * an int[] copy of the image.
+     */
+    private static boolean hasExactArgb(final BufferedImage image) {
+        switch (image.getType()) {
+        case BufferedImage.TYPE_INT_RGB:
+        case BufferedImage.TYPE_INT_ARGB:
+        case BufferedImage.TYPE_INT_BGR:
+        case BufferedImage.TYPE_3BYTE_BGR:
+        case BufferedImage.TYPE_4BYTE_ABGR:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Runs a number of tasks, on the executor if there is more than one, and waits for all of them.
+     */
+    private static void run(final int tasks, final DitheringTask task, final Executor executor) throws ImagingException {
+        if (tasks <= 1) {
+            task.run(0);
+            return;
+        }
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(tasks);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                final int index = i;
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        task.run(index);
+                    } catch (final ImagingException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor));
+            }
+            for (final CompletableFuture<Void> future : futures) {
+                future.join();
+            }
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ImagingException) {
+                throw (ImagingException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        } finally {
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
     private Dithering() {
     }
 }
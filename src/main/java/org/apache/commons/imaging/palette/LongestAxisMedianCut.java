@@ -93,6 +93,38 @@ public class LongestAxisMedianCut implements MedianCut {
         colorGroup.cut = new ColorGroupCut(less, more, mode, limit);
     }
 
+    /**
+     * Splits the histogram box with the longest axis at its median.
+     *
+     * @param boxes the boxes of the histogram.
+     * @return false if no box can be split any further.
+     */
+    static boolean performNextHistogramCut(final List<ColorHistogramBox> boxes) {
+        ColorHistogramBox box = null;
+        for (final ColorHistogramBox candidate : boxes) {
+            if (box == null || candidate.maxDiff > box.maxDiff
+                    || candidate.maxDiff == box.maxDiff && candidate.diffTotal > box.diffTotal) {
+                box = candidate;
+            }
+        }
+        if (box == null || box.maxDiff == 0) {
+            return false;
+        }
+        final ColorComponent mode;
+        if (box.redDiff > box.greenDiff && box.redDiff > box.blueDiff) {
+            mode = ColorComponent.RED;
+        } else if (box.greenDiff > box.blueDiff) {
+            mode = ColorComponent.GREEN;
+        } else {
+            mode = ColorComponent.BLUE;
+        }
+        box.split(mode, box.getMedianLimit(mode));
+        boxes.remove(box);
+        boxes.add(box.less);
+        boxes.add(box.more);
+        return true;
+    }
+
     @Override
     public boolean performNextMedianCut(final List<ColorGroup> colorGroups, final boolean ignoreAlpha)
             throws ImagingException {
@@ -23,6 +23,48 @@ import org.apache.commons.imaging.ImagingException;
 
 public class MostPopulatedBoxesMedianCut implements MedianCut {
 
+    /**
+     * Splits the most populated histogram box along the axis that divides its points most evenly.
+     *
+     * @param boxes the boxes of the histogram.
+     * @return false if no box can be split any further.
+     */
+    static boolean performNextHistogramCut(final List<ColorHistogramBox> boxes) {
+        ColorHistogramBox box = null;
+        for (final ColorHistogramBox candidate : boxes) {
+            if (candidate.maxDiff > 0 && (box == null || candidate.totalPoints > box.totalPoints)) {
+                box = candidate;
+            }
+        }
+        if (box == null) {
+            return false;
+        }
+
+        double bestScore = Double.MAX_VALUE;
+        ColorComponent bestColorComponent = null;
+        int bestLimit = -1;
+        for (final ColorComponent colorComponent : ColorComponent.values()) {
+            if (colorComponent == ColorComponent.ALPHA || box.getDiff(colorComponent) == 0) {
+                continue;
+            }
+            final int limit = box.getMedianLimit(colorComponent);
+            final long lowerPoints = box.getLowerPoints(colorComponent, limit);
+            final long upperPoints = box.totalPoints - lowerPoints;
+            final double score = Math.abs(lowerPoints - upperPoints) / (double) Math.max(lowerPoints, upperPoints);
+            if (score < bestScore) {
+                bestScore = score;
+                bestColorComponent = colorComponent;
+                bestLimit = limit;
+            }
+        }
+
+        box.split(bestColorComponent, bestLimit);
+        boxes.remove(box);
+        boxes.add(box.less);
+        boxes.add(box.more);
+        return true;
+    }
+
     @Override
     public boolean performNextMedianCut(final List<ColorGroup> colorGroups,
             final boolean ignoreAlpha) throws ImagingException {
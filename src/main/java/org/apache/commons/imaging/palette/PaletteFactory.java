@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -501,6 +502,60 @@ public class PaletteFactory {
         return new QuantizedPalette(subsets, precision);
     }
 
+    /**
+     * Builds an inexact opaque palette of at most {@code max} colors in {@code src}
+     * using the Median Cut algorithm over a color histogram accurate to 5 bits per
+     * component. Boxes of the histogram are chosen and split by {@code medianCut}, which
+     * must be a {@link LongestAxisMedianCut} or a {@link MostPopulatedBoxesMedianCut}, as
+     * histogram boxes are split by their own implementations of those two strategies.
+     * Each palette entry is the exact average of the pixels in its box.
+     * <p>
+     * This needs a fixed amount of memory whatever the number of colors in the image, so
+     * it is much faster than {@link #makeQuantizedRgbaPalette(BufferedImage, boolean, int)}
+     * on large photographs.
+     * </p>
+     *
+     * @param src the image whose palette to build
+     * @param max the maximum number of colors the palette can contain
+     * @param medianCut the strategy used to split the histogram boxes
+     * @param executor the executor used to count stripes of the image concurrently,
+     *        or {@code null} to count them serially
+     * @return the palette of at most {@code max} colors
+     * @throws IllegalArgumentException if {@code medianCut} is neither of the supported strategies, including
+     *         subclasses of them, which may change how colors are split
+     * @since 1.0-alpha4
+     */
+    public Palette makeQuantizedRgbPalette(final BufferedImage src, final int max, final MedianCut medianCut,
+            final Executor executor) {
+        if (medianCut.getClass() != LongestAxisMedianCut.class && medianCut.getClass() != MostPopulatedBoxesMedianCut.class) {
+            throw new IllegalArgumentException("Unsupported median cut for a color histogram: " + medianCut.getClass().getName());
+        }
+        final ColorHistogram histogram = ColorHistogram.count(src, executor);
+        final ColorHistogramBox root = new ColorHistogramBox(histogram);
+        final List<ColorHistogramBox> boxes = new ArrayList<>();
+        boxes.add(root);
+        while (boxes.size() < max) {
+            if (!performNextHistogramCut(medianCut, boxes)) {
+                break;
+            }
+        }
+
+        final int[] palette = Allocator.intArray(boxes.size());
+        for (int i = 0; i < boxes.size(); i++) {
+            final ColorHistogramBox box = boxes.get(i);
+            palette[i] = box.getMeanValue();
+            box.paletteIndex = i;
+        }
+        return new ColorHistogramPalette(root, palette);
+    }
+
+    private static boolean performNextHistogramCut(final MedianCut medianCut, final List<ColorHistogramBox> boxes) {
+        if (medianCut.getClass() == MostPopulatedBoxesMedianCut.class) {
+            return MostPopulatedBoxesMedianCut.performNextHistogramCut(boxes);
+        }
+        return LongestAxisMedianCut.performNextHistogramCut(boxes);
+    }
+
     private int pixelToQuantizationTableIndex(int argb, final int precision) {
         int result = 0;
         final int precisionMask = (1 << precision) - 1;
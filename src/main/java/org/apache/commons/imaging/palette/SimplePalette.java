@@ -16,12 +16,26 @@
  */
 package org.apache.commons.imaging.palette;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 public class SimplePalette implements Palette {
 
+    /**
+     * Empty slot marker in {@link #indices}.
+     */
+    private static final int EMPTY = -1;
+
     private final int[] palette;
 
+    /**
+     * Open-addressing hash table from color to palette index, at most half full,
+     * so that {@link #getPaletteIndex(int)} does not scan the palette for every pixel.
+     */
+    private final int[] keys;
+    private final int[] indices;
+    private final int shift;
+
     /**
      * Constructs a new instance.
      *
@@ -29,6 +43,24 @@ public class SimplePalette implements Palette {
      */
     public SimplePalette(final int[] palette) {
         this.palette = Objects.requireNonNull(palette, "palette").clone();
+        final int bits = 33 - Integer.numberOfLeadingZeros(Math.max(1, this.palette.length));
+        this.shift = 32 - bits;
+        this.keys = new int[1 << bits];
+        this.indices = new int[1 << bits];
+        Arrays.fill(indices, EMPTY);
+        final int mask = indices.length - 1;
+        for (int i = 0; i < this.palette.length; i++) {
+            final int rgb = this.palette[i];
+            int slot = hash(rgb);
+            while (indices[slot] != EMPTY && keys[slot] != rgb) {
+                slot = slot + 1 & mask;
+            }
+            // the first of any duplicate colors wins, as with a linear search
+            if (indices[slot] == EMPTY) {
+                keys[slot] = rgb;
+                indices[slot] = i;
+            }
+        }
     }
 
     @Override
@@ -38,14 +70,23 @@ public class SimplePalette implements Palette {
 
     @Override
     public int getPaletteIndex(final int rgb) {
-        for (int i = 0; i < palette.length; i++) {
-            if (palette[i] == rgb) {
-                return i;
+        final int mask = indices.length - 1;
+        int slot = hash(rgb);
+        int index;
+        while ((index = indices[slot]) != EMPTY) {
+            if (keys[slot] == rgb) {
+                return index;
             }
+            slot = slot + 1 & mask;
         }
         return -1;
     }
 
+    private int hash(final int rgb) {
+        // Fibonacci hashing spreads neighbouring colors across the table
+        return rgb * 0x9E3779B9 >>> shift;
+    }
+
     @Override
     public int length() {
         return palette.length;
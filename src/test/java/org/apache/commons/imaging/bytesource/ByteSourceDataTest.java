@@ -19,6 +19,7 @@ package org.apache.commons.imaging.bytesource;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
@@ -29,6 +30,7 @@ import java.io.InputStream;
 import java.util.Arrays;
 import java.util.stream.Stream;
 
+import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -51,6 +53,15 @@ public class ByteSourceDataTest extends ByteSourceTest {
         }
     }
 
+    private class ByteSourceMappedFileFactory implements ByteSourceFactory {
+        @Override
+        public ByteSource getByteSource(final byte[] src) throws IOException {
+            final File file = createTempFile(src);
+
+            return ByteSource.file(file, true);
+        }
+    }
+
     private class ByteSourceInputStreamFileFactory implements ByteSourceFactory {
         @Override
         public ByteSource getByteSource(final byte[] src) throws IOException {
@@ -82,6 +93,12 @@ public class ByteSourceDataTest extends ByteSourceTest {
         writeAndReadBytes(new ByteSourceFileFactory(), testByteArray);
     }
 
+    @ParameterizedTest
+    @MethodSource("data")
+    public void testByteSourceMappedFileFactory(final byte[] testByteArray) throws Exception {
+        writeAndReadBytes(new ByteSourceMappedFileFactory(), testByteArray);
+    }
+
     @ParameterizedTest
     @MethodSource("data")
     public void testByteSourceInputStreamFileFactory(final byte[] testByteArray) throws Exception {
@@ -134,6 +151,20 @@ public class ByteSourceDataTest extends ByteSourceTest {
                     assertEquals(dst[i], src[i + start]);
                 }
             }
+
+            // test random access reads.
+            assertEquals(src.length, byteSource.size());
+            assertArrayEquals(Arrays.copyOfRange(src, start, src.length), byteSource.getByteArray(start, src.length - start));
+            assertArrayEquals(Arrays.copyOfRange(src, 1, start), byteSource.getByteArray(1, start - 1));
+            // input stream sources report truncated data, others invalid arguments
+            final Class<? extends Exception> expected = byteSource instanceof InputStreamByteSource ? ImagingException.class : IllegalArgumentException.class;
+            assertThrows(expected, () -> byteSource.getByteArray(start, src.length));
+
+            // closing releases the file; a later read opens and closes it for itself
+            byteSource.close();
+            assertArrayEquals(Arrays.copyOfRange(src, 1, start), byteSource.getByteArray(1, start - 1));
+            assertArrayEquals(Arrays.copyOfRange(src, 2, start), byteSource.getByteArray(2, start - 2));
+            byteSource.close();
         }
 
     }
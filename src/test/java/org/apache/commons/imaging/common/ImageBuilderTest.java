@@ -18,11 +18,14 @@ package org.apache.commons.imaging.common;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.awt.image.RasterFormatException;
 
 import org.junit.jupiter.api.Test;
@@ -111,6 +114,67 @@ public class ImageBuilderTest {
         assertTrue(model.isAlphaPremultiplied(), "Output image does not have alpha pre-multiplied where specified");
     }
 
+    /**
+     * Test that a builder wrapping a gray image stores gray levels unchanged, one byte per pixel
+     */
+    @Test
+    public void testGrayImageAccess() {
+        final BufferedImage grayImage = new SimpleBufferedImageFactory().getGrayscaleBufferedImage(100, 100, false);
+        final ImageBuilder imageBuilder = new ImageBuilder(grayImage);
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 100; y++) {
+                imageBuilder.setRGB(x, y, 0xff000000 | 0x010101 * ((x + y) & 0xff));
+            }
+        }
+        assertSame(grayImage, imageBuilder.getBufferedImage());
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, grayImage.getType());
+        // pixels are stored straight into the image's data buffer
+        assertSame(((DataBufferByte) grayImage.getRaster().getDataBuffer()).getData(), ImageBuilder.getGrayData(grayImage));
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 100; y++) {
+                final int rgb = 0xff000000 | 0x010101 * ((x + y) & 0xff);
+                assertEquals(rgb, imageBuilder.getRGB(x, y), "Invalid image builder pixel at " + x + ", " + y);
+                assertEquals(rgb, grayImage.getRGB(x, y), "Invalid buffered image pixel at " + x + ", " + y);
+                assertEquals((x + y) & 0xff, grayImage.getRaster().getSample(x, y, 0), "Invalid sample at " + x + ", " + y);
+            }
+        }
+
+        final ImageBuilder testBuilder = imageBuilder.getSubset(25, 25, 25, 25);
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, testBuilder.getBufferedImage().getType());
+        for (int x = 25; x < 50; x++) {
+            for (int y = 25; y < 50; y++) {
+                assertEquals(imageBuilder.getRGB(x, y), testBuilder.getRGB(x - 25, y - 25), "Invalid image builder subpixel at " + x + ", " + y);
+            }
+        }
+    }
+
+    /**
+     * Test that a builder wrapping a packed RGB or ARGB image stores pixels in its data buffer
+     */
+    @Test
+    public void testPackedImageAccess() {
+        for (final boolean hasAlpha : new boolean[] { false, true }) {
+            final BufferedImage image = new SimpleBufferedImageFactory().getColorBufferedImage(100, 100, hasAlpha);
+            final ImageBuilder imageBuilder = new ImageBuilder(image);
+            populate(imageBuilder);
+            assertSame(image, imageBuilder.getBufferedImage());
+            final int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            for (int x = 0; x < 100; x++) {
+                for (int y = 0; y < 100; y++) {
+                    assertEquals(imageBuilder.getRGB(x, y), data[y * 100 + x], "Invalid data element at " + x + ", " + y);
+                    assertEquals(imageBuilder.getRGB(x, y), image.getRGB(x, y), "Invalid buffered image pixel at " + x + ", " + y);
+                }
+            }
+
+            final ImageBuilder testBuilder = imageBuilder.getSubset(25, 25, 25, 25);
+            for (int x = 25; x < 50; x++) {
+                for (int y = 25; y < 50; y++) {
+                    assertEquals(image.getRGB(x, y), testBuilder.getBufferedImage().getRGB(x - 25, y - 25), "Invalid subpixel at " + x + ", " + y);
+                }
+            }
+        }
+    }
+
     /**
      * Test whether sub-image is consistent with source
      */
@@ -17,21 +17,29 @@
 
 package org.apache.commons.imaging.formats.gif;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.stream.Stream;
 
+import org.apache.commons.imaging.ImageFormats;
 import org.apache.commons.imaging.ImageInfo;
 import org.apache.commons.imaging.Imaging;
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.mylzw.MyLzwCompressor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -40,6 +48,18 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 public class GifReadTest extends GifBaseTest {
 
+    private static void writeFrame(final ByteArrayOutputStream os, final int disposal, final int transparentIndex, final int left,
+            final byte[] pixels) throws IOException {
+        final int transparency = transparentIndex >= 0 ? 1 : 0;
+        os.write(new byte[] { 0x21, (byte) 0xf9, 4, (byte) (disposal << 2 | transparency), 0, 0, (byte) Math.max(0, transparentIndex), 0 });
+        os.write(new byte[] { 0x2c, (byte) left, 0, 0, 0, (byte) pixels.length, 0, 1, 0, 0 });
+        final byte[] compressed = new MyLzwCompressor(2, ByteOrder.LITTLE_ENDIAN, false).compress(pixels);
+        os.write(2);
+        os.write(compressed.length);
+        os.write(compressed);
+        os.write(0);
+    }
+
     public static Stream<File> animatedImageData() throws Exception {
         return getAnimatedGifImages().stream();
     }
@@ -107,6 +127,112 @@ public class GifReadTest extends GifBaseTest {
         }
     }
 
+    /**
+     * Frames are decompressed only when they are decoded, so a damaged later
+     * frame does not prevent reading the first one.
+     */
+    @Test
+    public void testFirstFrameDecodedAlone() throws IOException {
+        final BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        final byte[] bytes = Imaging.writeImageToBytes(image, ImageFormats.GIF);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        // drop the trailer and append a second 1x1 frame without any image data
+        os.write(bytes, 0, bytes.length - 1);
+        os.write(new byte[] { 0x21, (byte) 0xf9, 4, 0, 0, 0, 0, 0 });
+        os.write(new byte[] { 0x2c, 0, 0, 0, 0, 1, 0, 1, 0, 0, 2, 0 });
+        os.write(0x3b);
+        final byte[] animated = os.toByteArray();
+
+        assertEquals(2, Imaging.getImageInfo(animated).getNumberOfImages());
+        assertEquals(4, Imaging.getBufferedImage(animated).getWidth());
+        assertThrows(ImagingException.class, () -> Imaging.getAllBufferedImages(animated));
+    }
+
+    /**
+     * Reading the first frame stops at its image data, so the frames after it
+     * are not read at all.
+     */
+    @Test
+    public void testFramesAfterFirstNotRead() throws IOException {
+        final BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        final byte[] bytes = Imaging.writeImageToBytes(image, ImageFormats.GIF);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        // drop the trailer and append a second frame cut off in its image data
+        os.write(bytes, 0, bytes.length - 1);
+        os.write(new byte[] { 0x21, (byte) 0xf9, 4, 0, 0, 0, 0, 0 });
+        os.write(new byte[] { 0x2c, 0, 0, 0, 0, 1, 0, 1, 0, 0, 2, 10, 1, 2 });
+        final byte[] truncated = os.toByteArray();
+
+        assertEquals(4, Imaging.getBufferedImage(truncated).getWidth());
+        assertThrows(IOException.class, () -> Imaging.getAllBufferedImages(truncated));
+    }
+
+    @ParameterizedTest
+    @MethodSource("animatedImageData")
+    public void testFrameIterator(final File imageFile) throws Exception {
+        final List<BufferedImage> images = Imaging.getAllBufferedImages(imageFile);
+        final GifImageMetadata metadata = (GifImageMetadata) Imaging.getMetadata(imageFile);
+        final BufferedImage first = images.get(0);
+        final GifImageMetadataItem firstItem = metadata.getItems().get(0);
+        int count = 0;
+        try (GifFrameIterator frames = new GifImageParser().getFrameIterator(ByteSource.file(imageFile))) {
+            assertEquals(metadata.getWidth(), frames.getWidth());
+            assertEquals(metadata.getHeight(), frames.getHeight());
+            final int[] argb = new int[frames.getWidth() * frames.getHeight()];
+            while (frames.hasNext()) {
+                frames.next(argb);
+                assertEquals(metadata.getItems().get(count).getDelay(), frames.getMetadataItem().getDelay());
+                if (count == 0) {
+                    // the first frame is drawn on an empty canvas
+                    for (int y = 0; y < first.getHeight(); y++) {
+                        for (int x = 0; x < first.getWidth(); x++) {
+                            final int pixel = argb[(y + firstItem.getTopPosition()) * frames.getWidth() + x + firstItem.getLeftPosition()];
+                            assertEquals(first.getRGB(x, y), pixel);
+                        }
+                    }
+                }
+                count++;
+            }
+        }
+        assertEquals(images.size(), count);
+    }
+
+    @Test
+    public void testFrameIteratorDisposal() throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        os.write("GIF89a".getBytes(StandardCharsets.US_ASCII));
+        // a 4x1 screen with a four color global color table: black, red, green, blue
+        os.write(new byte[] { 4, 0, 1, 0, (byte) 0x81, 0, 0 });
+        os.write(new byte[] { 0, 0, 0, (byte) 0xff, 0, 0, 0, (byte) 0xff, 0, 0, 0, (byte) 0xff });
+        writeFrame(os, 1, -1, 0, new byte[] { 1, 1, 1, 1 });
+        writeFrame(os, 3, 3, 1, new byte[] { 2, 3 });
+        writeFrame(os, 2, -1, 3, new byte[] { 2 });
+        writeFrame(os, 0, -1, 0, new byte[] { 0 });
+        os.write(0x3b);
+
+        final int black = 0xff000000;
+        final int red = 0xffff0000;
+        final int green = 0xff00ff00;
+        final int[][] expected = {
+            { red, red, red, red },
+            { red, green, red, red },
+            { red, red, red, green },
+            { black, red, red, 0 },
+        };
+        final DisposalMethod[] disposals = { DisposalMethod.DO_NOT_DISPOSE, DisposalMethod.RESTORE_TO_PREVIOUS,
+                DisposalMethod.RESTORE_TO_BACKGROUND, DisposalMethod.UNSPECIFIED };
+        try (GifFrameIterator frames = new GifImageParser().getFrameIterator(ByteSource.array(os.toByteArray()))) {
+            for (int i = 0; i < expected.length; i++) {
+                assertTrue(frames.hasNext());
+                final BufferedImage frame = frames.next();
+                assertArrayEquals(expected[i], frame.getRGB(0, 0, 4, 1, null, 0, 4));
+                assertEquals(disposals[i], frames.getMetadataItem().getDisposalMethod());
+            }
+            assertFalse(frames.hasNext());
+            assertThrows(NoSuchElementException.class, frames::next);
+        }
+    }
+
     @ParameterizedTest
     @MethodSource("data")
     public void testImageDimensions(final File imageFile) throws Exception {
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.jpeg;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.BinaryFunctions;
+import org.apache.commons.imaging.common.ImageMetadata;
+import org.apache.commons.imaging.formats.jpeg.xmp.JpegXmpParser;
+import org.apache.commons.imaging.formats.tiff.TiffImageParser;
+import org.apache.commons.imaging.formats.tiff.TiffImagingParameters;
+import org.apache.commons.io.build.AbstractOrigin.ByteArrayOrigin;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class JpegSegmentIndexTest extends JpegBaseTest {
+
+    public static Stream<File> data() throws Exception {
+        return getJpegImages().stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("data")
+    public void testSegmentOffsets(final File imageFile) throws Exception {
+        final byte[] bytes = Files.readAllBytes(imageFile.toPath());
+        final JpegSegmentIndex segmentIndex = new JpegImageParser().getSegmentIndex(ByteSource.array(bytes));
+
+        for (int i = 0; i < segmentIndex.size(); i++) {
+            final int offset = (int) segmentIndex.getDataOffset(i);
+            final int length = segmentIndex.getDataLength(i);
+            assertEquals(segmentIndex.getMarker(i), ((0xff & bytes[offset - 4]) << 8) | (0xff & bytes[offset - 3]));
+            assertEquals(length + 2, ((0xff & bytes[offset - 2]) << 8) | (0xff & bytes[offset - 1]));
+            assertArrayEquals(Arrays.copyOfRange(bytes, offset, offset + length), segmentIndex.getSegmentData(i));
+            assertSame(segmentIndex.getSegmentData(i), segmentIndex.getSegmentData(i));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("data")
+    public void testSharedIndex(final File imageFile) throws Exception {
+        final byte[] bytes = Files.readAllBytes(imageFile.toPath());
+        final AtomicInteger streams = new AtomicInteger();
+        final ByteSource byteSource = new ByteSource(new ByteArrayOrigin(bytes), imageFile.getName()) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                streams.incrementAndGet();
+                return super.getInputStream();
+            }
+        };
+        final JpegImageParser parser = new JpegImageParser();
+
+        final JpegSegmentIndex segmentIndex = parser.getSegmentIndex(byteSource);
+        final String imageInfo = parser.getImageInfo(segmentIndex, null).toString();
+        final ImageMetadata metadata = parser.getMetadata(segmentIndex, null);
+        final byte[] iccProfile = parser.getICCProfileBytes(segmentIndex);
+        final String xmpXml = parser.getXmpXml(segmentIndex);
+        // all queries on the index share the single pass over the marker stream
+        assertEquals(1, streams.get());
+
+        try (ByteSource fileSource = ByteSource.file(imageFile)) {
+            assertEquals(parser.getImageInfo(fileSource, null).toString(), imageInfo);
+            assertEquals(Objects.toString(parser.getMetadata(fileSource, null)), Objects.toString(metadata));
+            assertArrayEquals(parser.getICCProfileBytes(fileSource, null), iccProfile);
+            assertEquals(parser.getXmpXml(fileSource, null), xmpXml);
+        }
+
+        // the ByteSource overloads go through an index too, so compare with a traversal of the marker stream
+        final List<Integer> markers = new ArrayList<>();
+        final List<byte[]> segments = new ArrayList<>();
+        new JpegUtils().traverseJFIF(ByteSource.array(bytes), new JpegUtils.Visitor() {
+            @Override
+            public boolean beginSOS() {
+                return false;
+            }
+
+            @Override
+            public boolean visitSegment(final int marker, final byte[] markerBytes, final int markerLength, final byte[] markerLengthBytes,
+                    final byte[] segmentData) {
+                if (marker == JpegConstants.EOI_MARKER) {
+                    return false;
+                }
+                markers.add(marker);
+                segments.add(segmentData);
+                return true;
+            }
+
+            @Override
+            public void visitSOS(final int marker, final byte[] markerBytes, final byte[] imageData) {
+                // don't need image data
+            }
+        });
+        assertEquals(markers.size(), segmentIndex.size());
+        byte[] exifSegment = null;
+        String firstXmpXml = null;
+        for (int i = 0; i < markers.size(); i++) {
+            assertEquals(markers.get(i), segmentIndex.getMarker(i));
+            assertArrayEquals(segments.get(i), segmentIndex.getSegmentData(i));
+            if (markers.get(i) == JpegConstants.JPEG_APP1_MARKER) {
+                if (exifSegment == null && BinaryFunctions.startsWith(segments.get(i), JpegConstants.EXIF_IDENTIFIER_CODE)) {
+                    exifSegment = segments.get(i);
+                } else if (firstXmpXml == null && new JpegXmpParser().isXmpJpegSegment(segments.get(i))) {
+                    firstXmpXml = new JpegXmpParser().parseXmpJpegSegment(segments.get(i));
+                }
+            }
+        }
+        assertEquals(firstXmpXml, xmpXml);
+        if (exifSegment == null) {
+            assertNull(parser.getExifRawData(segmentIndex));
+        } else {
+            final byte[] exif = Arrays.copyOfRange(exifSegment, 6, exifSegment.length);
+            assertArrayEquals(exif, parser.getExifRawData(segmentIndex));
+            final TiffImagingParameters params = new TiffImagingParameters();
+            params.setReadThumbnails(Boolean.TRUE);
+            assertEquals(new TiffImageParser().getMetadata(exif, params).toString(), ((JpegImageMetadata) metadata).getExif().toString());
+        }
+    }
+}
@@ -19,6 +19,8 @@ package org.apache.commons.imaging.formats.jpeg.decoder;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.Arrays;
+
 import org.junit.jupiter.api.Test;
 
 public class DctTest {
@@ -92,6 +94,28 @@ public class DctTest {
         return ret;
     }
 
+    private static float[][] REFERENCE_reducedInverseDCT(final float[][] matrix, final int size) {
+        final float[][] ret = new float[size][size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                float sum = 0;
+                for (int u = 0; u < size; u++) {
+                    for (int v = 0; v < size; v++) {
+                        final float cu = (u == 0) ? ((float) (1.0 / Math.sqrt(2)))
+                                : 1;
+                        final float cv = (v == 0) ? ((float) (1.0 / Math.sqrt(2)))
+                                : 1;
+                        sum += cu * cv * matrix[v][u]
+                                * Math.cos((2 * x + 1) * u * Math.PI / (2 * size))
+                                * Math.cos((2 * y + 1) * v * Math.PI / (2 * size));
+                    }
+                }
+                ret[y][x] = 0.25f * sum;
+            }
+        }
+        return ret;
+    }
+
     @Test
     public void testMatrices() {
         final float[] originalData = new float[8 * 8];
@@ -156,4 +180,46 @@ public class DctTest {
             assertEquals(data[i], originalData[i], 0.001);
         }
     }
+
+    @Test
+    public void testReducedMatrices() {
+        final float[][] coefficients8x8 = new float[8][8];
+        final float[] coefficients = new float[8 * 8];
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                final float value = (8 * y + x) * ((x + y) % 2 == 0 ? 1 : -1);
+                coefficients8x8[y][x] = value;
+                coefficients[8 * y + x] = value;
+            }
+        }
+
+        for (final int size : new int[] { 1, 2, 4 }) {
+            final float[][] expected = REFERENCE_reducedInverseDCT(coefficients8x8, size);
+            final float[] data = coefficients.clone();
+            if (size == 4) {
+                Dct.inverseDCT4x4(data);
+            } else if (size == 2) {
+                Dct.inverseDCT2x2(data);
+            } else {
+                Dct.inverseDCT1x1(data);
+            }
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    assertEquals(expected[y][x], data[8 * y + x], 0.001);
+                }
+            }
+        }
+
+        // a reduced transform of a block's DCT averages the pixels it covers
+        final float[] flat = new float[8 * 8];
+        Arrays.fill(flat, 100);
+        Dct.forwardDCT8x8(flat);
+        Dct.scaleQuantizationMatrix(flat);
+        Dct.inverseDCT4x4(flat);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                assertEquals(100, flat[8 * y + x], 0.001);
+            }
+        }
+    }
 }
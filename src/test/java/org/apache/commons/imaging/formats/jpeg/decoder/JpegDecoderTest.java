@@ -17,10 +17,19 @@
 
 package org.apache.commons.imaging.formats.jpeg.decoder;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.BufferedImageFactory;
+import org.apache.commons.imaging.common.SimpleBufferedImageFactory;
+import org.apache.commons.imaging.formats.jpeg.ChromaSubsampling;
+import org.apache.commons.imaging.formats.jpeg.JpegImagingParameters;
+import org.apache.commons.imaging.formats.jpeg.encoder.JpegEncoder;
+import org.apache.commons.imaging.formats.jpeg.encoder.JpegEncoderTest;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -29,6 +38,16 @@ import org.junit.jupiter.api.Test;
  */
 public class JpegDecoderTest {
 
+    private static void assertSamePixels(final BufferedImage expected, final BufferedImage actual) {
+        Assertions.assertEquals(expected.getWidth(), actual.getWidth());
+        Assertions.assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                Assertions.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
     /**
      * Test that a bad file does not hang or take too long to be processed.
      */
@@ -41,4 +60,146 @@ public class JpegDecoderTest {
         final ByteSource byteSourceFile = ByteSource.file(inputFile);
         Assertions.assertThrows(ImagingException.class, () -> new JpegDecoder().decode(byteSourceFile));
     }
+
+    /**
+     * Test that fancy upsampling reproduces smooth chroma better than replicating samples, gives the same pixels
+     * whether rows are converted serially or concurrently, and leaves images without subsampled components unchanged.
+     */
+    @Test
+    public void testDecodeFancyUpsampling() throws Exception {
+        final BufferedImage source = new BufferedImage(123, 77, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                // chroma changes by several levels per pixel, so that interpolating it pays off
+                final int red = (int) (128 + 100 * Math.sin(x / 4.0));
+                final int blue = (int) (128 + 100 * Math.cos((x + y) / 5.0));
+                source.setRGB(x, y, red << 16 | (3 * y) << 8 | blue);
+            }
+        }
+        for (final ChromaSubsampling chromaSubsampling : ChromaSubsampling.values()) {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            new JpegEncoder(new JpegImagingParameters().setQuality(100).setChromaSubsampling(chromaSubsampling)).encode(source, baos);
+            final ByteSource byteSource = ByteSource.array(baos.toByteArray());
+            final BufferedImage replicated = new JpegDecoder().decode(byteSource);
+            final BufferedImage fancy = new JpegDecoder(new JpegImagingParameters().setFancyUpsampling(true)).decode(byteSource);
+            assertSamePixels(fancy,
+                    new JpegDecoder(new JpegImagingParameters().setFancyUpsampling(true).setExecutor(ForkJoinPool.commonPool())).decode(byteSource));
+            if (chromaSubsampling == ChromaSubsampling.YCBCR_444) {
+                assertSamePixels(replicated, fancy);
+            } else {
+                final double replicatedDifference = JpegEncoderTest.meanDifference(source, replicated);
+                final double fancyDifference = JpegEncoderTest.meanDifference(source, fancy);
+                Assertions.assertTrue(fancyDifference < replicatedDifference,
+                        chromaSubsampling + ": " + fancyDifference + " is not less than " + replicatedDifference);
+            }
+        }
+    }
+
+    /**
+     * Test that decoding into the images of a buffered image factory gives the same pixels as decoding into packed RGB.
+     */
+    @Test
+    public void testDecodeIntoFactoryImages() throws Exception {
+        final BufferedImage gray = new BufferedImage(61, 37, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < gray.getHeight(); y++) {
+            for (int x = 0; x < gray.getWidth(); x++) {
+                gray.getRaster().setSample(x, y, 0, 4 * x + 3 * y);
+            }
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new JpegEncoder(null).encode(gray, baos);
+        final ByteSource grayJpeg = ByteSource.array(baos.toByteArray());
+        final BufferedImage packedGray = new JpegDecoder().decode(grayJpeg);
+        final BufferedImage byteGray = new JpegDecoder(new JpegImagingParameters().setBufferedImageFactory(new SimpleBufferedImageFactory()))
+                .decode(grayJpeg);
+        Assertions.assertEquals(BufferedImage.TYPE_BYTE_GRAY, byteGray.getType());
+        // samples are stored straight into the factory's images
+        Assertions.assertEquals(JpegDecoder.OutputLayout.GRAY, JpegDecoder.getOutputLayout(byteGray, 1));
+        Assertions.assertEquals(JpegDecoder.OutputLayout.PACKED_RGB,
+                JpegDecoder.getOutputLayout(new SimpleBufferedImageFactory().getColorBufferedImage(61, 37, false), 3));
+        assertSamePixels(packedGray, byteGray);
+
+        final ByteSource colorJpeg = ByteSource.file(new File(
+                JpegDecoderTest.class.getResource("/images/jpeg/photoshop/IMAGING-246/FallHarvestKitKat_07610.jpg").getFile()));
+        final JpegImagingParameters params = new JpegImagingParameters().setBufferedImageFactory(new BufferedImageFactory() {
+            @Override
+            public BufferedImage getColorBufferedImage(final int width, final int height, final boolean hasAlpha) {
+                return new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+            }
+
+            @Override
+            public BufferedImage getGrayscaleBufferedImage(final int width, final int height, final boolean hasAlpha) {
+                return getColorBufferedImage(width, height, hasAlpha);
+            }
+        });
+        final BufferedImage bgr = new JpegDecoder(params.setExecutor(ForkJoinPool.commonPool())).decode(colorJpeg);
+        Assertions.assertEquals(BufferedImage.TYPE_3BYTE_BGR, bgr.getType());
+        assertSamePixels(new JpegDecoder().decode(colorJpeg), bgr);
+    }
+
+    /**
+     * Test that decoding restart intervals on an executor gives the same pixels as decoding them serially.
+     */
+    @Test
+    public void testDecodeRestartIntervalsInParallel() throws Exception {
+        // From IMAGING-246, which has a DRI segment
+        final File inputFile = new File(
+                JpegDecoderTest.class.getResource("/images/jpeg/photoshop/IMAGING-246/FallHarvestKitKat_07610.jpg").getFile());
+        final ByteSource byteSource = ByteSource.file(inputFile);
+        final BufferedImage serial = new JpegDecoder().decode(byteSource);
+        final JpegImagingParameters params = new JpegImagingParameters();
+        params.setExecutor(ForkJoinPool.commonPool());
+        final BufferedImage parallel = new JpegDecoder(params).decode(byteSource);
+        assertSamePixels(serial, parallel);
+
+        // without restart intervals, only the conversion of rows of pixels is concurrent
+        final BufferedImage image = new BufferedImage(97, 131, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, serial.getRGB(x, y));
+            }
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new JpegEncoder(null).encode(image, baos);
+        final ByteSource noIntervals = ByteSource.array(baos.toByteArray());
+        assertSamePixels(new JpegDecoder().decode(noIntervals), new JpegDecoder(params).decode(noIntervals));
+    }
+
+    /**
+     * Test that scaled decoding produces the reduced size and stays close to averaging the full size pixels.
+     */
+    @Test
+    public void testDecodeScaled() throws Exception {
+        final File inputFile = new File(
+                JpegDecoderTest.class.getResource("/images/jpeg/photoshop/IMAGING-246/FallHarvestKitKat_07610.jpg").getFile());
+        final ByteSource byteSource = ByteSource.file(inputFile);
+        final BufferedImage full = new JpegDecoder().decode(byteSource);
+        for (final int scale : new int[] { 2, 4, 8 }) {
+            final BufferedImage scaled = new JpegDecoder(new JpegImagingParameters().setScaleDenominator(scale)).decode(byteSource);
+            Assertions.assertEquals((full.getWidth() + scale - 1) / scale, scaled.getWidth());
+            Assertions.assertEquals((full.getHeight() + scale - 1) / scale, scaled.getHeight());
+            long difference = 0;
+            final int width = full.getWidth() / scale;
+            final int height = full.getHeight() / scale;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    final int[] sums = new int[3];
+                    for (int yy = 0; yy < scale; yy++) {
+                        for (int xx = 0; xx < scale; xx++) {
+                            final int argb = full.getRGB(x * scale + xx, y * scale + yy);
+                            sums[0] += (argb >> 16) & 0xff;
+                            sums[1] += (argb >> 8) & 0xff;
+                            sums[2] += argb & 0xff;
+                        }
+                    }
+                    final int argb = scaled.getRGB(x, y);
+                    difference += Math.abs(sums[0] / (scale * scale) - ((argb >> 16) & 0xff));
+                    difference += Math.abs(sums[1] / (scale * scale) - ((argb >> 8) & 0xff));
+                    difference += Math.abs(sums[2] / (scale * scale) - (argb & 0xff));
+                }
+            }
+            final double meanDifference = (double) difference / (3L * width * height);
+            Assertions.assertTrue(meanDifference < 4, "Mean difference " + meanDifference + " at 1/" + scale);
+        }
+    }
 }
@@ -16,6 +16,8 @@
  */
 package org.apache.commons.imaging.formats.jpeg.decoder;
 
+import java.io.ByteArrayInputStream;
+
 import org.apache.commons.imaging.ImagingException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -26,12 +28,36 @@ import org.junit.jupiter.api.Test;
  **/
 public class JpegInputStreamTest {
 
+  @Test
+  public void testNextBitsSkipsStuffedBytes() throws ImagingException {
+    final byte[] byteArray = {(byte) 0xA5, (byte) 0xFF, 0x00, 0x3C};
+    final JpegInputStream jpegInputStream = new JpegInputStream(new ByteArrayInputStream(byteArray));
+
+    Assertions.assertEquals(0x5, jpegInputStream.nextBits(3));
+    Assertions.assertEquals(0x2FF, jpegInputStream.peekBits(12));
+    Assertions.assertEquals(0x2FF, jpegInputStream.nextBits(12));
+    Assertions.assertTrue(jpegInputStream.hasNext());
+    Assertions.assertEquals(0x13C, jpegInputStream.nextBits(9));
+    Assertions.assertFalse(jpegInputStream.hasNext());
+  }
+
+  @Test
+  public void testPeekBitsPadsAtMarker() throws ImagingException {
+    final byte[] byteArray = {(byte) 0x81, (byte) 0xFF, (byte) 0xD9};
+    final JpegInputStream jpegInputStream = new JpegInputStream(new ByteArrayInputStream(byteArray));
+
+    Assertions.assertEquals(0x102, jpegInputStream.peekBits(9));
+    Assertions.assertEquals(0x81, jpegInputStream.nextBits(8));
+    Assertions.assertEquals(0, jpegInputStream.peekBits(9));
+    Assertions.assertThrows(ImagingException.class, () -> jpegInputStream.skipBits(1));
+  }
+
   @Test
   public void testNextBitThrowsImageReadExceptionOne() {
-    final int[] byteArray = new int[6];
+    final byte[] byteArray = new byte[6];
     byteArray[0] = (byte) (-1);
     byteArray[1] = (byte) 74;
-    final JpegInputStream jpegInputStream = new JpegInputStream(byteArray);
+    final JpegInputStream jpegInputStream = new JpegInputStream(new ByteArrayInputStream(byteArray));
 
     Assertions.assertThrows(ImagingException.class, jpegInputStream::nextBit);
 
@@ -39,11 +65,27 @@ public class JpegInputStreamTest {
 
   @Test
   public void testNextBitThrowsImageReadExceptionTwo() {
-    final int[] byteArray = {};
-    final JpegInputStream jpegInputStream = new JpegInputStream(byteArray);
+    final byte[] byteArray = {};
+    final JpegInputStream jpegInputStream = new JpegInputStream(new ByteArrayInputStream(byteArray));
 
     Assertions.assertThrows(IllegalStateException.class, jpegInputStream::nextBit);
 
   }
 
+  @Test
+  public void testRestartSkipsToNextInterval() throws ImagingException {
+    // two intervals separated by RST0, with a stuffed 0xFF and padding bits in the first
+    final byte[] byteArray = {(byte) 0xFF, 0x00, (byte) 0x9F, (byte) 0xFF, (byte) 0xD0, 0x42, (byte) 0xFF, (byte) 0xD1, 0x17};
+    final JpegInputStream jpegInputStream = new JpegInputStream(new ByteArrayInputStream(byteArray));
+
+    Assertions.assertEquals(0xFF9, jpegInputStream.nextBits(12));
+    Assertions.assertTrue(jpegInputStream.restart());
+    Assertions.assertEquals(5, jpegInputStream.position());
+    Assertions.assertEquals(0x42, jpegInputStream.nextBits(8));
+    Assertions.assertThrows(ImagingException.class, () -> jpegInputStream.skipBits(1));
+    Assertions.assertTrue(jpegInputStream.restart());
+    Assertions.assertEquals(0x17, jpegInputStream.nextBits(8));
+    Assertions.assertFalse(jpegInputStream.restart());
+  }
+
 }
@@ -22,6 +22,6 @@ import org.apache.commons.imaging.test.PrintShallowObjectSizes;
 public class PrintShallowSizes {
 
     public static void main(final String[] args) {
-        PrintShallowObjectSizes.print(Block.class, JpegInputStream.class);
+        PrintShallowObjectSizes.print(JpegInputStream.class);
     }
 }
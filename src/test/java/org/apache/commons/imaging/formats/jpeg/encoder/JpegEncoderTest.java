@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.jpeg.encoder;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.imaging.ImageInfo;
+import org.apache.commons.imaging.Imaging;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.formats.jpeg.ChromaSubsampling;
+import org.apache.commons.imaging.formats.jpeg.JpegImagingParameters;
+import org.apache.commons.imaging.formats.jpeg.decoder.JpegDecoder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the JpegEncoder.
+ */
+public class JpegEncoderTest {
+
+    private static byte[] encode(final BufferedImage image, final JpegImagingParameters params) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new JpegEncoder(params).encode(image, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Gets the mean absolute difference between the RGB samples of two images of the same size.
+     */
+    public static double meanDifference(final BufferedImage expected, final BufferedImage actual) {
+        Assertions.assertEquals(expected.getWidth(), actual.getWidth());
+        Assertions.assertEquals(expected.getHeight(), actual.getHeight());
+        long difference = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                final int a = expected.getRGB(x, y);
+                final int b = actual.getRGB(x, y);
+                for (int shift = 0; shift < 24; shift += 8) {
+                    difference += Math.abs(((a >> shift) & 0xff) - ((b >> shift) & 0xff));
+                }
+            }
+        }
+        return (double) difference / (3L * expected.getWidth() * expected.getHeight());
+    }
+
+    private static BufferedImage readTestImage() throws IOException {
+        final File inputFile = new File(
+                JpegEncoderTest.class.getResource("/images/jpeg/photoshop/IMAGING-246/FallHarvestKitKat_07610.jpg").getFile());
+        return new JpegDecoder().decode(ByteSource.file(inputFile));
+    }
+
+    /**
+     * Test that encoding on an executor writes the same bytes as encoding serially, with and without restart
+     * intervals.
+     */
+    @Test
+    public void testEncodeInParallel() throws Exception {
+        final BufferedImage image = readTestImage();
+        for (final int restartIntervalRows : new int[] { 0, 1, 5 }) {
+            final JpegImagingParameters params = new JpegImagingParameters().setRestartIntervalRows(restartIntervalRows);
+            final byte[] serial = encode(image, params);
+            final byte[] parallel = encode(image, params.setExecutor(ForkJoinPool.commonPool()));
+            Assertions.assertArrayEquals(serial, parallel, "Restart interval rows " + restartIntervalRows);
+            Assertions.assertTrue(meanDifference(image, new JpegDecoder().decode(ByteSource.array(parallel))) < 3);
+        }
+    }
+
+    /**
+     * Test that grayscale images are written with one component, which keeps their samples.
+     */
+    @Test
+    public void testEncodeGrayscale() throws Exception {
+        final BufferedImage image = new BufferedImage(37, 21, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.getRaster().setSample(x, y, 0, (x * 7 + y * 3) & 0xff);
+            }
+        }
+        final byte[] bytes = encode(image, new JpegImagingParameters().setQuality(100));
+        final ImageInfo imageInfo = Imaging.getImageInfo(bytes);
+        Assertions.assertEquals(ImageInfo.ColorType.GRAYSCALE, imageInfo.getColorType());
+        final BufferedImage decoded = new JpegDecoder().decode(ByteSource.array(bytes));
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                Assertions.assertEquals(image.getRaster().getSample(x, y, 0), decoded.getRGB(x, y) & 0xff, 1);
+            }
+        }
+    }
+
+    /**
+     * Test that optimized Huffman tables make the file smaller without changing the decoded pixels.
+     */
+    @Test
+    public void testEncodeOptimizedHuffmanTables() throws Exception {
+        final BufferedImage image = readTestImage();
+        final JpegImagingParameters params = new JpegImagingParameters().setRestartIntervalRows(2);
+        final byte[] standard = encode(image, params);
+        final byte[] optimized = encode(image, params.setOptimizeHuffmanTables(true));
+        Assertions.assertTrue(optimized.length < standard.length);
+        final BufferedImage expected = new JpegDecoder().decode(ByteSource.array(standard));
+        final BufferedImage actual = new JpegDecoder().decode(ByteSource.array(optimized));
+        Assertions.assertEquals(0, meanDifference(expected, actual));
+    }
+
+    /**
+     * Test that each chroma subsampling and a range of qualities decode close to the original image, and that
+     * higher qualities are closer.
+     */
+    @Test
+    public void testEncodeRoundTrip() throws Exception {
+        final BufferedImage image = readTestImage();
+        for (final ChromaSubsampling chromaSubsampling : ChromaSubsampling.values()) {
+            double previous = Double.MAX_VALUE;
+            for (final int quality : new int[] { 25, 75, 95 }) {
+                final byte[] bytes = encode(image,
+                        new JpegImagingParameters().setChromaSubsampling(chromaSubsampling).setQuality(quality));
+                final double difference = meanDifference(image, Imaging.getBufferedImage(bytes));
+                Assertions.assertTrue(difference < 6, chromaSubsampling + " at quality " + quality + ": " + difference);
+                Assertions.assertTrue(difference < previous, chromaSubsampling + " at quality " + quality + ": " + difference);
+                previous = difference;
+            }
+        }
+    }
+
+    /**
+     * Test that XMP XML is written in an APP1 segment that reads back, and that XML too long for one segment is
+     * rejected.
+     */
+    @Test
+    public void testEncodeXmpXml() throws Exception {
+        final BufferedImage image = new BufferedImage(16, 8, BufferedImage.TYPE_INT_RGB);
+        final String xmpXml = "<x:xmpmeta xmlns:x=\"adobe:ns:meta/\"><d\u00e9tail/></x:xmpmeta>";
+        final byte[] bytes = encode(image, new JpegImagingParameters().setXmpXml(xmpXml));
+        Assertions.assertEquals(xmpXml, Imaging.getXmpXml(bytes));
+        Assertions.assertEquals(16, Imaging.getBufferedImage(bytes).getWidth());
+
+        final StringBuilder tooLong = new StringBuilder();
+        while (tooLong.length() < 0x10000) {
+            tooLong.append("<x/>");
+        }
+        Assertions.assertThrows(ImagingException.class,
+                () -> encode(image, new JpegImagingParameters().setXmpXml(tooLong.toString())));
+    }
+
+    /**
+     * Test that optimal Huffman tables keep codes within 16 bits, even for frequencies that would otherwise need
+     * longer codes.
+     */
+    @Test
+    public void testOptimalHuffmanTableCodeLengths() {
+        final long[] frequencies = new long[256];
+        long previous = 1;
+        long current = 1;
+        for (int i = 0; i < 40; i++) {
+            frequencies[i] = current;
+            final long next = previous + current;
+            previous = current;
+            current = next;
+        }
+        final HuffmanEncodingTable table = HuffmanEncodingTable.optimal(frequencies);
+        Assertions.assertEquals(40, table.values.length);
+        double kraftSum = 0;
+        for (int i = 0; i < 40; i++) {
+            Assertions.assertTrue(table.sizes[i] > 0 && table.sizes[i] <= 16);
+            kraftSum += Math.pow(2, -table.sizes[i]);
+        }
+        // one code is left for the reserved symbol, so that no code is all 1 bits
+        Assertions.assertTrue(kraftSum < 1);
+    }
+}
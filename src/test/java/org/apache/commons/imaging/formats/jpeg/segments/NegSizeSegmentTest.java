@@ -27,7 +27,7 @@ import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.bytesource.ByteSource;
 import org.apache.commons.imaging.formats.jpeg.JpegImageParser;
 import org.apache.commons.imaging.formats.jpeg.JpegImagingParameters;
-import org.apache.commons.imaging.formats.jpeg.JpegUtils;
+import org.apache.commons.imaging.formats.jpeg.JpegSegmentIndex;
 import org.junit.jupiter.api.Test;
 
 public class NegSizeSegmentTest {
@@ -52,7 +52,7 @@ public class NegSizeSegmentTest {
             fail("Expecting exception: ImageReadException");
         } catch (final ImagingException e) {
             assertEquals("Invalid segment size", e.getMessage());
-            assertEquals(JpegUtils.class.getName(), e.getStackTrace()[0].getClassName());
+            assertEquals(JpegSegmentIndex.class.getName(), e.getStackTrace()[0].getClassName());
         }
 
     }
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.png;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class DeflatedBlockTest {
+
+    private static byte[] createData(final int length) {
+        // compressible data with long-range repeats, so blocks benefit from the dictionary
+        final Random random = new Random(length);
+        final byte[] pattern = new byte[5000];
+        random.nextBytes(pattern);
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (pattern[i % pattern.length] + (random.nextInt(16) == 0 ? 1 : 0));
+        }
+        return data;
+    }
+
+    private static byte[] inflate(final byte[] zlib) throws DataFormatException {
+        final Inflater inflater = new Inflater();
+        inflater.setInput(zlib);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        while (!inflater.finished()) {
+            final int count = inflater.inflate(buffer);
+            assertTrue(count > 0 || !inflater.needsInput(), "truncated stream");
+            out.write(buffer, 0, count);
+        }
+        assertEquals(0, inflater.getRemaining());
+        inflater.end();
+        return out.toByteArray();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { Deflater.DEFAULT_COMPRESSION, Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, 5, Deflater.BEST_COMPRESSION })
+    public void testBlocksFormOneZlibStream(final int level) throws DataFormatException {
+        final byte[] data = createData(300_000);
+        final int blockSize = 70_000;
+        for (final int strategy : new int[] { Deflater.DEFAULT_STRATEGY, Deflater.FILTERED, Deflater.HUFFMAN_ONLY }) {
+            final ByteArrayOutputStream zlib = new ByteArrayOutputStream();
+            zlib.write(DeflatedBlock.zlibHeader(level, strategy), 0, 2);
+            int adler32 = 1;
+            for (int start = 0; start < data.length; start += blockSize) {
+                final int end = Math.min(data.length, start + blockSize);
+                final DeflatedBlock block = DeflatedBlock.deflate(Arrays.copyOfRange(data, start, end),
+                        Arrays.copyOfRange(data, 0, start), end == data.length, level, strategy);
+                assertEquals(end - start, block.getLength());
+                adler32 = DeflatedBlock.combineAdler32(adler32, block.getAdler32(), block.getLength());
+                zlib.write(block.getCompressed(), 0, block.getCompressed().length);
+            }
+            zlib.write(DeflatedBlock.zlibTrailer(adler32), 0, 4);
+
+            final Adler32 expected = new Adler32();
+            expected.update(data, 0, data.length);
+            assertEquals((int) expected.getValue(), adler32);
+            // Inflater checks the header and the combined checksum
+            assertArrayEquals(data, inflate(zlib.toByteArray()));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { Deflater.DEFAULT_COMPRESSION, Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, 5, 7, Deflater.BEST_COMPRESSION })
+    public void testZlibHeaderMatchesDeflater(final int level) {
+        for (final int strategy : new int[] { Deflater.DEFAULT_STRATEGY, Deflater.FILTERED, Deflater.HUFFMAN_ONLY }) {
+            final Deflater deflater = new Deflater(level);
+            deflater.setStrategy(strategy);
+            deflater.setInput(new byte[] { 1, 2, 3 });
+            deflater.finish();
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[64];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            deflater.end();
+            assertArrayEquals(Arrays.copyOf(output.toByteArray(), 2), DeflatedBlock.zlibHeader(level, strategy), "level " + level + ", strategy " + strategy);
+        }
+    }
+}
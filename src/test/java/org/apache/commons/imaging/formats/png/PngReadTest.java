@@ -22,16 +22,25 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
+import java.util.zip.CRC32;
 
+import org.apache.commons.imaging.ImageFormats;
 import org.apache.commons.imaging.ImageInfo;
 import org.apache.commons.imaging.Imaging;
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.BufferedImageFactory;
 import org.apache.commons.imaging.common.GenericImageMetadata;
 import org.apache.commons.imaging.common.ImageMetadata;
+import org.apache.commons.imaging.common.RgbBufferedImageFactory;
+import org.apache.commons.imaging.common.SimpleBufferedImageFactory;
 import org.apache.commons.imaging.internal.Debug;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -79,6 +88,129 @@ public class PngReadTest extends PngBaseTest {
         }
     }
 
+    /**
+     * Checks that images decoded into a layout the parser does not write
+     * directly have the same pixels as those it does.
+     */
+    @Test
+    public void testBufferedImageFactory() throws Exception {
+        final BufferedImageFactory abgrFactory = new BufferedImageFactory() {
+            @Override
+            public BufferedImage getColorBufferedImage(final int width, final int height, final boolean hasAlpha) {
+                return new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+            }
+
+            @Override
+            public BufferedImage getGrayscaleBufferedImage(final int width, final int height, final boolean hasAlpha) {
+                return getColorBufferedImage(width, height, hasAlpha);
+            }
+        };
+        final PngImageParser parser = new PngImageParser();
+        for (final File imageFile : getPngImages()) {
+            if (isInvalidPngTestFile(imageFile)) {
+                continue;
+            }
+            final BufferedImage expected = parser.getBufferedImage(ByteSource.file(imageFile),
+                    new PngImagingParameters().setBufferedImageFactory(new RgbBufferedImageFactory()));
+            final BufferedImage actual = parser.getBufferedImage(ByteSource.file(imageFile),
+                    new PngImagingParameters().setBufferedImageFactory(abgrFactory));
+            assertEquals(BufferedImage.TYPE_4BYTE_ABGR, actual.getType());
+            for (int y = 0; y < expected.getHeight(); y++) {
+                for (int x = 0; x < expected.getWidth(); x++) {
+                    assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), imageFile + " (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites a PNG so that its image data is split into IDAT chunks of at
+     * most {@code chunkSize} bytes, with an empty IDAT chunk after the first.
+     */
+    private static byte[] splitImageData(final byte[] png, final int chunkSize) throws IOException {
+        final ByteBuffer in = ByteBuffer.wrap(png);
+        final ByteArrayOutputStream imageData = new ByteArrayOutputStream();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final DataOutputStream dos = new DataOutputStream(out);
+        dos.write(png, 0, PngConstants.PNG_SIGNATURE.size());
+        in.position(PngConstants.PNG_SIGNATURE.size());
+        while (in.hasRemaining()) {
+            final int length = in.getInt();
+            final int type = in.getInt();
+            final byte[] data = new byte[length];
+            in.get(data);
+            in.getInt(); // CRC
+            if (type == ChunkType.IDAT.value) {
+                imageData.write(data);
+                continue;
+            }
+            if (type == ChunkType.IEND.value) {
+                final byte[] compressed = imageData.toByteArray();
+                for (int offset = 0; offset < compressed.length; offset += chunkSize) {
+                    writeChunk(dos, ChunkType.IDAT.value, Arrays.copyOfRange(compressed, offset, Math.min(compressed.length, offset + chunkSize)));
+                    if (offset == 0) {
+                        writeChunk(dos, ChunkType.IDAT.value, new byte[0]);
+                    }
+                }
+            }
+            writeChunk(dos, type, data);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeChunk(final DataOutputStream dos, final int type, final byte[] data) throws IOException {
+        final CRC32 crc = new CRC32();
+        final byte[] typeBytes = ByteBuffer.allocate(4).putInt(type).array();
+        crc.update(typeBytes);
+        crc.update(data);
+        dos.writeInt(data.length);
+        dos.write(typeBytes);
+        dos.write(data);
+        dos.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Test that grey images are read straight into the one byte per pixel of the default factory's grey images.
+     */
+    @Test
+    public void testGrayImageFastPath() throws Exception {
+        final BufferedImage image = new SimpleBufferedImageFactory().getGrayscaleBufferedImage(61, 47, false);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.getRaster().setSample(x, y, 0, (x * 4 + y * 3) & 0xff);
+            }
+        }
+        final BufferedImage result = Imaging.getBufferedImage(Imaging.writeImageToBytes(image, ImageFormats.PNG));
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, result.getType());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(image.getRaster().getSample(x, y, 0), result.getRaster().getSample(x, y, 0));
+            }
+        }
+
+        final ScanExpediter expediter = new ScanExpediterSimple(61, 47, null, image, PngColorType.GREYSCALE, 8, 8, null, null, null);
+        assertNotNull(expediter.grayPixels);
+    }
+
+    @Test
+    public void testImageDataSplitAcrossChunks() throws Exception {
+        final BufferedImage image = new BufferedImage(61, 47, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 4) << 24 | (y * 5) << 16 | (x * y) << 8 | (x + y));
+            }
+        }
+        final byte[] png = Imaging.writeImageToBytes(image, ImageFormats.PNG);
+        for (final int chunkSize : new int[] { 1, 7, 100 }) {
+            final BufferedImage result = Imaging.getBufferedImage(splitImageData(png, chunkSize));
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    assertEquals(image.getRGB(x, y), result.getRGB(x, y));
+                }
+            }
+        }
+    }
+
     /**
      * Test reading metadata from PNG file with UTF-8 characters in the text chunks.
      *
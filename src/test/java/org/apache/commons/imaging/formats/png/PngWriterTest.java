@@ -16,7 +16,9 @@
  */
 package org.apache.commons.imaging.formats.png;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.awt.image.BufferedImage;
@@ -27,6 +29,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.imaging.Imaging;
+import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.palette.Palette;
 import org.apache.commons.imaging.palette.PaletteFactory;
 import org.apache.commons.imaging.palette.SimplePalette;
@@ -96,4 +99,40 @@ public class PngWriterTest extends PngBaseTest {
 
         assertEquals(1, countColors(palettedBytes));
     }
+
+    @Test
+    public void testRowSupplier() throws IOException {
+        // larger than one slice of uncompressed data, so several IDAT chunks are written
+        final int width = 300;
+        final int height = 1000;
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x + y) << 24 | x << 16 | y << 8 | (x ^ y) & 0xff);
+            }
+        }
+        final PngImagingParameters params = new PngImagingParameters().setAdaptiveFilterEnabled(true);
+        final int[] nextRow = { 0 };
+        final byte[] supplied;
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+            new PngWriter().writeImage(width, height, true, (y, argb) -> {
+                // rows are pulled once each, in order
+                assertEquals(nextRow[0]++, y);
+                image.getRGB(0, y, width, 1, argb, 0, width);
+            }, os, params);
+            supplied = os.toByteArray();
+        }
+        assertEquals(height, nextRow[0]);
+        assertArrayEquals(getImageBytes(image, params, null), supplied);
+
+        final BufferedImage read = Imaging.getBufferedImage(supplied);
+        assertArrayEquals(image.getRGB(0, 0, width, height, null, 0, width), read.getRGB(0, 0, width, height, null, 0, width));
+    }
+
+    @Test
+    public void testRowSupplierIndexedColor() {
+        final PngImagingParameters params = new PngImagingParameters().setForceIndexedColor(true);
+        assertThrows(ImagingException.class,
+                () -> new PngWriter().writeImage(10, 10, false, (y, argb) -> { }, new ByteArrayOutputStream(), params));
+    }
 }
@@ -29,6 +29,8 @@ import org.apache.commons.imaging.ImageFormats;
 import org.apache.commons.imaging.ImageInfo;
 import org.apache.commons.imaging.Imaging;
 import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.SimpleBufferedImageFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -36,6 +38,33 @@ public class PnmImageParserTest {
 
     private static final Charset US_ASCII = StandardCharsets.US_ASCII;
 
+    @Test
+    public void testBufferedImageFactory() throws ImagingException, IOException {
+        final PnmImageParser parser = new PnmImageParser();
+        final PnmImagingParameters params = new PnmImagingParameters();
+        params.setBufferedImageFactory(new SimpleBufferedImageFactory());
+
+        // grayscale images are read into one byte per pixel, with the samples unchanged
+        final byte[] pgm = "P2\n4 2\n255\n0 1 127 128\n200 254 255 3\n".getBytes(US_ASCII);
+        final int[] samples = { 0, 1, 127, 128, 200, 254, 255, 3 };
+        final BufferedImage gray = parser.getBufferedImage(ByteSource.array(pgm), params);
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, gray.getType());
+        final BufferedImage expectedGray = parser.getBufferedImage(ByteSource.array(pgm), null);
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 4; x++) {
+                assertEquals(samples[y * 4 + x], gray.getRaster().getSample(x, y, 0));
+                assertEquals(expectedGray.getRGB(x, y), gray.getRGB(x, y));
+            }
+        }
+
+        // color images are read into the packed pixels of the factory's image
+        final byte[] ppm = "P3\n2 1\n255\n255 0 16 1 2 3\n".getBytes(US_ASCII);
+        final BufferedImage color = parser.getBufferedImage(ByteSource.array(ppm), params);
+        assertEquals(BufferedImage.TYPE_INT_RGB, color.getType());
+        assertEquals(0xffff0010, color.getRGB(0, 0));
+        assertEquals(0xff010203, color.getRGB(1, 0));
+    }
+
     @Test
     public void testGetImageInfo_happyCase() throws ImagingException, IOException {
         final byte[] bytes = "P1\n3 2\n0 1 0\n1 0 1\n".getBytes(US_ASCII);
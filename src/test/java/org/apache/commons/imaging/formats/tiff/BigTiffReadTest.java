@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.ByteConversions;
+import org.apache.commons.imaging.formats.tiff.constants.TiffDirectoryConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.apache.commons.imaging.formats.tiff.fieldtypes.FieldType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class BigTiffReadTest {
+
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 2;
+    private static final byte[] PIXELS = { 0, 32, 64, 96, (byte) 128, (byte) 160, (byte) 192, (byte) 255 };
+
+    /**
+     * Builds an uncompressed 8-bit grey BigTIFF, with each strip's offset and
+     * byte count stored as LONG8 values.
+     */
+    private static byte[] createBigTiff(final ByteOrder byteOrder, final int rowsPerStrip) {
+        final int strips = (HEIGHT + rowsPerStrip - 1) / rowsPerStrip;
+        final int entries = 9;
+        final long ifdOffset = 16;
+        final long ifdEnd = ifdOffset + 8 + 20 * entries + 8;
+        // arrays of more than one LONG8 do not fit in an entry
+        final long offsetsOffset = ifdEnd;
+        final long byteCountsOffset = offsetsOffset + (strips > 1 ? 8 * strips : 0);
+        final long pixelsOffset = byteCountsOffset + (strips > 1 ? 8 * strips : 0);
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) pixelsOffset + PIXELS.length).order(byteOrder);
+        buffer.put(byteOrder == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        buffer.put(buffer.get(0));
+        buffer.putShort((short) 43);
+        buffer.putShort((short) 8);
+        buffer.putShort((short) 0);
+        buffer.putLong(ifdOffset);
+
+        buffer.putLong(entries);
+        putShortEntry(buffer, TiffTagConstants.TIFF_TAG_IMAGE_WIDTH.tag, WIDTH);
+        putShortEntry(buffer, TiffTagConstants.TIFF_TAG_IMAGE_LENGTH.tag, HEIGHT);
+        putShortEntry(buffer, TiffTagConstants.TIFF_TAG_BITS_PER_SAMPLE.tag, 8);
+        putShortEntry(buffer, TiffTagConstants.TIFF_TAG_COMPRESSION.tag, 1);
+        putShortEntry(buffer, TiffTagConstants.TIFF_TAG_PHOTOMETRIC_INTERPRETATION.tag, 1);
+        putLong8Entry(buffer, TiffTagConstants.TIFF_TAG_STRIP_OFFSETS.tag, strips, strips > 1 ? offsetsOffset : pixelsOffset);
+        putShortEntry(buffer, TiffTagConstants.TIFF_TAG_SAMPLES_PER_PIXEL.tag, 1);
+        putShortEntry(buffer, TiffTagConstants.TIFF_TAG_ROWS_PER_STRIP.tag, rowsPerStrip);
+        putLong8Entry(buffer, TiffTagConstants.TIFF_TAG_STRIP_BYTE_COUNTS.tag, strips, strips > 1 ? byteCountsOffset : PIXELS.length);
+        buffer.putLong(0);
+
+        if (strips > 1) {
+            final int stripLength = WIDTH * rowsPerStrip;
+            for (int i = 0; i < strips; i++) {
+                buffer.putLong(pixelsOffset + (long) i * stripLength);
+            }
+            for (int i = 0; i < strips; i++) {
+                buffer.putLong(stripLength);
+            }
+        }
+        buffer.put(PIXELS);
+        return buffer.array();
+    }
+
+    private static TiffField createLong8Field(final long... values) {
+        final byte[] bytes = ByteConversions.toBytes(values, ByteOrder.BIG_ENDIAN);
+        return new TiffField(TiffTagConstants.TIFF_TAG_STRIP_OFFSETS.tag, TiffDirectoryConstants.DIRECTORY_TYPE_ROOT, FieldType.LONG8, values.length, 0,
+                bytes, ByteOrder.BIG_ENDIAN, 0);
+    }
+
+    private static void putLong8Entry(final ByteBuffer buffer, final int tag, final long count, final long valueOrOffset) {
+        buffer.putShort((short) tag);
+        buffer.putShort((short) FieldType.LONG8.getType());
+        buffer.putLong(count);
+        buffer.putLong(valueOrOffset);
+    }
+
+    private static void putShortEntry(final ByteBuffer buffer, final int tag, final int value) {
+        buffer.putShort((short) tag);
+        buffer.putShort((short) FieldType.SHORT.getType());
+        buffer.putLong(1);
+        // values are left-justified in the 8-byte value field
+        buffer.putShort((short) value);
+        buffer.putShort((short) 0);
+        buffer.putInt(0);
+    }
+
+    @Test
+    public void testIntValuesOutOfRange() throws Exception {
+        final TiffField fits = createLong8Field(7, 1L << 30);
+        assertArrayEquals(new int[] { 7, 1 << 30 }, fits.getIntArrayValue());
+        assertEquals(7 + (1 << 30), fits.getIntValueOrArraySum());
+
+        final TiffField tooLarge = createLong8Field(7, 1L << 32);
+        assertThrows(ImagingException.class, tooLarge::getIntArrayValue);
+        assertThrows(ImagingException.class, tooLarge::getIntValueOrArraySum);
+        assertThrows(ImagingException.class, createLong8Field(1L << 32)::getIntValue);
+    }
+
+    @Test
+    public void testLong8TypesOnlyForBigTiff() throws Exception {
+        assertEquals(FieldType.LONG8, FieldType.getFieldType(16));
+        assertEquals(FieldType.IFD8, FieldType.getFieldType(18));
+        assertFalse(FieldType.ANY.contains(FieldType.LONG8));
+        assertFalse(FieldType.ANY.contains(FieldType.SLONG8));
+        assertFalse(FieldType.ANY.contains(FieldType.IFD8));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 2 })
+    public void testReadBigEndian(final int rowsPerStrip) throws Exception {
+        checkImage(createBigTiff(ByteOrder.BIG_ENDIAN, rowsPerStrip));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 2 })
+    public void testReadLittleEndian(final int rowsPerStrip) throws Exception {
+        checkImage(createBigTiff(ByteOrder.LITTLE_ENDIAN, rowsPerStrip));
+    }
+
+    private void checkImage(final byte[] bytes) throws Exception {
+        final TiffContents contents = new TiffReader(true).readDirectories(ByteSource.array(bytes), true, FormatCompliance.getDefault());
+        assertTrue(contents.header.isBigTiff());
+        final TiffField stripOffsets = contents.directories.get(0).findField(TiffTagConstants.TIFF_TAG_STRIP_OFFSETS);
+        assertEquals(FieldType.LONG8, stripOffsets.getFieldType());
+        // a single LONG8 fits in the 8-byte value of a BigTIFF entry
+        assertEquals(stripOffsets.getCount() == 1, stripOffsets.isLocalValue());
+        assertEquals(stripOffsets.getCount() == 1, stripOffsets.getOversizeValueElement() == null);
+
+        final BufferedImage image = new TiffImageParser().getBufferedImage(ByteSource.array(bytes), new TiffImagingParameters());
+        assertEquals(WIDTH, image.getWidth());
+        assertEquals(HEIGHT, image.getHeight());
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final int grey = 0xff & PIXELS[y * WIDTH + x];
+                assertEquals(0xff000000 | grey * 0x010101, image.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.ImagingTestConstants;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that decoding strips and tiles concurrently gives the same result as
+ * decoding them serially.
+ */
+public class TiffParallelReadTest extends TiffBaseTest {
+
+    private static TiffDirectory readFirstDirectory(final File file) throws ImagingException, IOException {
+        final TiffReader tiffReader = new TiffReader(true);
+        final TiffContents contents = tiffReader.readDirectories(ByteSource.file(file), true, FormatCompliance.getDefault());
+        return contents.directories.get(0);
+    }
+
+    private static BufferedImage readImage(final File file, final Executor executor) throws ImagingException, IOException {
+        final TiffImagingParameters params = new TiffImagingParameters();
+        params.setExecutor(executor);
+        return new TiffImageParser().getBufferedImage(ByteSource.file(file), params);
+    }
+
+    private List<File> getTiledImages() throws ImagingException, IOException {
+        final List<File> tiled = new ArrayList<>();
+        for (final File file : getTiffImages()) {
+            if (!file.getName().toLowerCase().contains("bad") && !readFirstDirectory(file).imageDataInStrips()) {
+                tiled.add(file);
+            }
+        }
+        return tiled;
+    }
+
+    /**
+     * Reads every tiled test image, decoding tiles on the given executor.
+     *
+     * @param executor the executor, or {@code null} to read serially.
+     */
+    public void readTiledImages(final Executor executor) throws ImagingException, IOException {
+        for (final File file : getTiledImages()) {
+            readImage(file, executor);
+        }
+    }
+
+    @Test
+    public void testImagesMatchSerialRead() throws Exception {
+        for (final File file : getTiffImages()) {
+            final BufferedImage serial;
+            try {
+                serial = readImage(file, null);
+            } catch (final ImagingException e) {
+                // unsupported or damaged files are covered elsewhere
+                continue;
+            }
+            final BufferedImage parallel = readImage(file, ForkJoinPool.commonPool());
+            assertEquals(serial.getWidth(), parallel.getWidth(), file.getName());
+            assertEquals(serial.getHeight(), parallel.getHeight(), file.getName());
+            assertArrayEquals(serial.getRGB(0, 0, serial.getWidth(), serial.getHeight(), null, 0, serial.getWidth()),
+                    parallel.getRGB(0, 0, parallel.getWidth(), parallel.getHeight(), null, 0, parallel.getWidth()), file.getName());
+        }
+    }
+
+    @Test
+    public void testRasterDataMatchesSerialRead() throws Exception {
+        final File folder = new File(new File(ImagingTestConstants.TEST_IMAGE_FOLDER, "tiff"), "9");
+        for (final String name : new String[] { "Sample64BitFloatingPointPix451x337.tiff", "USGS_13_n38w077_dir5.tiff" }) {
+            final TiffDirectory directory = readFirstDirectory(new File(folder, name));
+            final TiffRasterData serial = directory.getRasterData(new TiffImagingParameters());
+            final TiffImagingParameters params = new TiffImagingParameters();
+            params.setExecutor(ForkJoinPool.commonPool());
+            params.setSubImage(7, 5, serial.getWidth() - 20, serial.getHeight() - 10);
+            final TiffRasterData parallel = directory.getRasterData(params);
+            for (int y = 0; y < parallel.getHeight(); y++) {
+                for (int x = 0; x < parallel.getWidth(); x++) {
+                    assertEquals(serial.getValue(x + 7, y + 5), parallel.getValue(x, y), name);
+                }
+            }
+        }
+    }
+}
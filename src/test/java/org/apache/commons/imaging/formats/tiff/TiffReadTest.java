@@ -17,10 +17,18 @@
 
 package org.apache.commons.imaging.formats.tiff;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.imaging.FormatCompliance;
@@ -28,11 +36,18 @@ import org.apache.commons.imaging.ImageInfo;
 import org.apache.commons.imaging.Imaging;
 import org.apache.commons.imaging.bytesource.ByteSource;
 import org.apache.commons.imaging.common.ImageMetadata;
+import org.apache.commons.imaging.common.SimpleBufferedImageFactory;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.apache.commons.imaging.formats.tiff.fieldtypes.FieldType;
 import org.apache.commons.imaging.internal.Debug;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class TiffReadTest extends TiffBaseTest {
 
+    @TempDir
+    Path tempDir;
+
     @Test
     public void test() throws Exception {
         final List<File> images = getTiffImages();
@@ -53,6 +68,106 @@ public class TiffReadTest extends TiffBaseTest {
         }
     }
 
+    /**
+     * Builds an uncompressed 8-bit BlackIsZero grayscale TIFF in a single strip.
+     */
+    private static byte[] createGrayTiff(final int width, final int height, final byte[] samples) {
+        final int entries = 9;
+        final int pixelsOffset = 8 + 2 + 12 * entries + 4;
+        final ByteBuffer buffer = ByteBuffer.allocate(pixelsOffset + samples.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        buffer.putShort((short) entries);
+        putEntry(buffer, TiffTagConstants.TIFF_TAG_IMAGE_WIDTH.tag, FieldType.SHORT, width);
+        putEntry(buffer, TiffTagConstants.TIFF_TAG_IMAGE_LENGTH.tag, FieldType.SHORT, height);
+        putEntry(buffer, TiffTagConstants.TIFF_TAG_BITS_PER_SAMPLE.tag, FieldType.SHORT, 8);
+        putEntry(buffer, TiffTagConstants.TIFF_TAG_COMPRESSION.tag, FieldType.SHORT, 1);
+        putEntry(buffer, TiffTagConstants.TIFF_TAG_PHOTOMETRIC_INTERPRETATION.tag, FieldType.SHORT, 1);
+        putEntry(buffer, TiffTagConstants.TIFF_TAG_STRIP_OFFSETS.tag, FieldType.LONG, pixelsOffset);
+        putEntry(buffer, TiffTagConstants.TIFF_TAG_SAMPLES_PER_PIXEL.tag, FieldType.SHORT, 1);
+        putEntry(buffer, TiffTagConstants.TIFF_TAG_ROWS_PER_STRIP.tag, FieldType.SHORT, height);
+        putEntry(buffer, TiffTagConstants.TIFF_TAG_STRIP_BYTE_COUNTS.tag, FieldType.LONG, samples.length);
+        buffer.putInt(0);
+        buffer.put(samples);
+        return buffer.array();
+    }
+
+    private static void putEntry(final ByteBuffer buffer, final int tag, final FieldType fieldType, final int value) {
+        buffer.putShort((short) tag);
+        buffer.putShort((short) fieldType.getType());
+        buffer.putInt(1);
+        if (fieldType == FieldType.SHORT) {
+            // values are left-justified in the 4-byte value field
+            buffer.putShort((short) value).putShort((short) 0);
+        } else {
+            buffer.putInt(value);
+        }
+    }
+
+    @Test
+    public void testBufferedImageFactory() throws Exception {
+        final TiffImageParser parser = new TiffImageParser();
+        final TiffImagingParameters params = new TiffImagingParameters();
+        params.setBufferedImageFactory(new SimpleBufferedImageFactory());
+
+        // grayscale images are read into one byte per pixel, with the samples unchanged
+        final int width = 37;
+        final int height = 5;
+        final byte[] samples = new byte[width * height];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (byte) (i * 7);
+        }
+        final byte[] grayTiff = createGrayTiff(width, height, samples);
+        final BufferedImage gray = parser.getBufferedImage(ByteSource.array(grayTiff), params);
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, gray.getType());
+        final BufferedImage expectedGray = parser.getBufferedImage(ByteSource.array(grayTiff), new TiffImagingParameters());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(0xff & samples[y * width + x], gray.getRaster().getSample(x, y, 0));
+                assertEquals(expectedGray.getRGB(x, y), gray.getRGB(x, y));
+            }
+        }
+
+        // color images are read into the packed pixels of the factory's image
+        final BufferedImage src = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                src.setRGB(x, y, x * 0x070503 + y * 0x302010);
+            }
+        }
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        parser.writeImage(src, bos, new TiffImagingParameters());
+        final BufferedImage color = parser.getBufferedImage(ByteSource.array(bos.toByteArray()), params);
+        assertEquals(BufferedImage.TYPE_INT_RGB, color.getType());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(src.getRGB(x, y), color.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testMetadataHoldsImageData() throws Exception {
+        final BufferedImage src = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < src.getHeight(); y++) {
+            for (int x = 0; x < src.getWidth(); x++) {
+                src.setRGB(x, y, x * 0x060401 + y * 0x010305);
+            }
+        }
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new TiffImageParser().writeImage(src, bos, new TiffImagingParameters());
+        final byte[] bytes = bos.toByteArray();
+        final File file = tempDir.resolve("metadata.tiff").toFile();
+        Files.write(file.toPath(), bytes);
+
+        final TiffImageMetadata metadata = (TiffImageMetadata) Imaging.getMetadata(file);
+        // the file is closed, so the strips must have been read with the directory
+        Files.write(file.toPath(), new byte[bytes.length]);
+        final TiffImageData imageData = metadata.contents.directories.get(0).getTiffImageData();
+        for (final TiffElement.DataElement element : imageData.getImageData()) {
+            assertArrayEquals(Arrays.copyOfRange(bytes, (int) element.offset, (int) element.offset + element.length), element.getData());
+        }
+    }
+
     @Test
     public void testReadDirectories() throws Exception {
         // same as above, but test reading the TIFF directories
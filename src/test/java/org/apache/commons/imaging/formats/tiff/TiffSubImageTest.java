@@ -17,6 +17,7 @@
 package org.apache.commons.imaging.formats.tiff;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.awt.image.BufferedImage;
@@ -24,9 +25,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.imaging.Imaging;
 import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.io.build.AbstractOrigin.ByteArrayOrigin;
 import org.junit.jupiter.api.Test;
 
 public class TiffSubImageTest extends TiffBaseTest {
@@ -119,5 +123,37 @@ public class TiffSubImageTest extends TiffBaseTest {
         }
     }
 
+    @Test
+    public void testSubImageReadsOnlyCoveringStrips() throws ImagingException, IOException {
+        final TiffImageParser tiffImageParser = new TiffImageParser();
+        final BufferedImage src = new BufferedImage(256, 1024, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < src.getHeight(); y++) {
+            for (int x = 0; x < src.getWidth(); x++) {
+                src.setRGB(x, y, x * 65536 + y);
+            }
+        }
+        final byte[] imageBytes;
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            tiffImageParser.writeImage(src, baos, new TiffImagingParameters());
+            imageBytes = baos.toByteArray();
+        }
 
-}
\ No newline at end of file
+        final AtomicLong bytesRead = new AtomicLong();
+        final ByteSource byteSource = new ByteSource(new ByteArrayOrigin(imageBytes), null) {
+            @Override
+            public byte[] getByteArray(final long position, final int length) throws IOException {
+                bytesRead.addAndGet(length);
+                return super.getByteArray(position, length);
+            }
+        };
+        final TiffImagingParameters params = new TiffImagingParameters();
+        params.setSubImage(10, 500, 20, 10);
+        final BufferedImage image = tiffImageParser.getBufferedImage(byteSource, params);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(src.getRGB(x + 10, y + 500), image.getRGB(x, y));
+            }
+        }
+        assertTrue(bytesRead.get() < imageBytes.length / 10, "Read " + bytesRead.get() + " of " + imageBytes.length + " bytes");
+    }
+}
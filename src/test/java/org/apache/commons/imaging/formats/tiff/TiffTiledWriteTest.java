@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.formats.tiff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.formats.tiff.constants.TiffConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that images written as tiles, serially or concurrently, read back
+ * unchanged.
+ */
+public class TiffTiledWriteTest {
+
+    // neither dimension is a multiple of the tile size, so the edge tiles are padded
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 70;
+
+    private static BufferedImage createImage(final boolean bilevel) {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (bilevel) {
+                    image.setRGB(x, y, ((x / 3 + y / 5) & 1) == 0 ? 0xffffff : 0);
+                } else {
+                    image.setRGB(x, y, (x * 2) << 16 | (y * 3) << 8 | (x + y));
+                }
+            }
+        }
+        return image;
+    }
+
+    private static byte[] write(final BufferedImage image, final int compression, final Executor executor)
+            throws ImagingException, IOException {
+        final TiffImagingParameters params = new TiffImagingParameters();
+        params.setCompression(compression);
+        params.setTileSize(32, 16);
+        params.setExecutor(executor);
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            new TiffImageParser().writeImage(image, bos, params);
+            return bos.toByteArray();
+        }
+    }
+
+    @Test
+    public void testInvalidTileSize() {
+        final TiffImagingParameters params = new TiffImagingParameters();
+        assertThrows(IllegalArgumentException.class, () -> params.setTileSize(20, 16));
+        assertThrows(IllegalArgumentException.class, () -> params.setTileSize(16, 0));
+        params.setTileSize(0, 0);
+        assertEquals(0, params.getTileWidth());
+    }
+
+    @Test
+    public void testParallelWriteMatchesSerialWrite() throws Exception {
+        final BufferedImage image = createImage(false);
+        for (final int compression : new int[] { TiffConstants.TIFF_COMPRESSION_LZW, TiffConstants.TIFF_COMPRESSION_DEFLATE_ADOBE }) {
+            assertArrayEquals(write(image, compression, null), write(image, compression, ForkJoinPool.commonPool()));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { TiffConstants.TIFF_COMPRESSION_UNCOMPRESSED, TiffConstants.TIFF_COMPRESSION_LZW,
+            TiffConstants.TIFF_COMPRESSION_PACKBITS, TiffConstants.TIFF_COMPRESSION_DEFLATE_ADOBE,
+            TiffConstants.TIFF_COMPRESSION_CCITT_1D, TiffConstants.TIFF_COMPRESSION_CCITT_GROUP_3,
+            TiffConstants.TIFF_COMPRESSION_CCITT_GROUP_4 })
+    public void testTiledRoundTrip(final int compression) throws Exception {
+        final boolean bilevel = compression == TiffConstants.TIFF_COMPRESSION_CCITT_1D
+                || compression == TiffConstants.TIFF_COMPRESSION_CCITT_GROUP_3
+                || compression == TiffConstants.TIFF_COMPRESSION_CCITT_GROUP_4;
+        final BufferedImage image = createImage(bilevel);
+        final byte[] bytes = write(image, compression, ForkJoinPool.commonPool());
+
+        final TiffContents contents = new TiffReader(true).readDirectories(ByteSource.array(bytes), true, FormatCompliance.getDefault());
+        final TiffDirectory directory = contents.directories.get(0);
+        assertFalse(directory.imageDataInStrips());
+        assertEquals(32, directory.getFieldValue(TiffTagConstants.TIFF_TAG_TILE_WIDTH, true)[0]);
+        assertEquals(16, directory.getFieldValue(TiffTagConstants.TIFF_TAG_TILE_LENGTH, true)[0]);
+        assertEquals(4 * 5, directory.getTiffImageData().getImageData().length);
+
+        final BufferedImage result = new TiffImageParser().getBufferedImage(ByteSource.array(bytes), new TiffImagingParameters());
+        assertEquals(WIDTH, result.getWidth());
+        assertEquals(HEIGHT, result.getHeight());
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(image.getRGB(x, y), result.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.commons.imaging.ImageFormat;
+import org.apache.commons.imaging.ImageFormats;
+import org.apache.commons.imaging.ImageInfo;
+import org.apache.commons.imaging.ImageParser;
+import org.apache.commons.imaging.ImagingParameters;
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.common.ImageMetadata;
+import org.apache.commons.imaging.formats.jpeg.JpegImageParser;
+import org.apache.commons.imaging.formats.png.PngImageParser;
+import org.apache.commons.imaging.formats.tiff.TiffImageParser;
+import org.junit.jupiter.api.Test;
+
+public class ImageParserFactoryTest {
+
+    /**
+     * Parser registered in {@code META-INF/services} of the test class path.
+     */
+    public static final class TestImageParser extends ImageParser<TestImagingParameters> {
+
+        @Override
+        protected String[] getAcceptedExtensions() {
+            return TEST_FORMAT.getExtensions();
+        }
+
+        @Override
+        protected ImageFormat[] getAcceptedTypes() {
+            return new ImageFormat[] { TEST_FORMAT };
+        }
+
+        @Override
+        public BufferedImage getBufferedImage(final ByteSource byteSource, final TestImagingParameters params) {
+            return null;
+        }
+
+        @Override
+        public String getDefaultExtension() {
+            return TEST_FORMAT.getDefaultExtension();
+        }
+
+        @Override
+        public TestImagingParameters getDefaultParameters() {
+            return new TestImagingParameters();
+        }
+
+        @Override
+        public byte[] getICCProfileBytes(final ByteSource byteSource, final TestImagingParameters params) {
+            return null;
+        }
+
+        @Override
+        public ImageInfo getImageInfo(final ByteSource byteSource, final TestImagingParameters params) {
+            return null;
+        }
+
+        @Override
+        public Dimension getImageSize(final ByteSource byteSource, final TestImagingParameters params) {
+            return null;
+        }
+
+        @Override
+        public ImageMetadata getMetadata(final ByteSource byteSource, final TestImagingParameters params) {
+            return null;
+        }
+
+        @Override
+        public String getName() {
+            return TEST_FORMAT.getName();
+        }
+    }
+
+    public static final class TestImagingParameters extends ImagingParameters<TestImagingParameters> {
+        // empty
+    }
+
+    private static final ImageFormat TEST_FORMAT = new ImageFormat() {
+
+        @Override
+        public String getDefaultExtension() {
+            return "imagingtest";
+        }
+
+        @Override
+        public String[] getExtensions() {
+            return new String[] { "imagingtest" };
+        }
+
+        @Override
+        public String getName() {
+            return "Imaging Test";
+        }
+    };
+
+    @Test
+    public void testConcurrentLookups() {
+        final List<CompletableFuture<ImageParser<?>>> futures = IntStream.range(0, 16)
+                .mapToObj(i -> CompletableFuture.<ImageParser<?>>supplyAsync(() -> ImageParserFactory.getImageParser(ImageFormats.TIFF)))
+                .collect(Collectors.toList());
+        final ImageParser<?> expected = ImageParserFactory.getImageParser(ImageFormats.TIFF);
+        futures.forEach(future -> assertSame(expected, future.join()));
+    }
+
+    @Test
+    public void testGetImageParserByExtension() {
+        assertTrue(ImageParserFactory.getImageParser(".jpeg") instanceof JpegImageParser);
+        assertTrue(ImageParserFactory.getImageParser("photo.JPG") instanceof JpegImageParser);
+        assertTrue(ImageParserFactory.getImageParser("/tmp/a.b/scan.tif") instanceof TiffImageParser);
+        assertSame(ImageParserFactory.getImageParser(".png"), ImageParserFactory.getImageParser(ImageFormats.PNG));
+        assertThrows(IllegalArgumentException.class, () -> ImageParserFactory.getImageParser("noextension"));
+        assertThrows(IllegalArgumentException.class, () -> ImageParserFactory.getImageParser(".unknown"));
+    }
+
+    @Test
+    public void testGetImageParserByFormat() {
+        assertTrue(ImageParserFactory.getImageParser(ImageFormats.PNG) instanceof PngImageParser);
+        assertSame(ImageParserFactory.getImageParser(ImageFormats.PNG), ImageParserFactory.getImageParser(ImageFormats.PNG));
+        assertThrows(IllegalArgumentException.class, () -> ImageParserFactory.getImageParser(ImageFormats.UNKNOWN));
+    }
+
+    @Test
+    public void testGetImageParsers() {
+        final List<ImageParser<?>> parsers = ImageParserFactory.getImageParsers();
+        assertSame(parsers, ImageParserFactory.getImageParsers());
+        assertEquals(ImageParser.getAllImageParsers().size() + 1, parsers.size());
+        assertThrows(UnsupportedOperationException.class, () -> parsers.remove(0));
+    }
+
+    @Test
+    public void testServiceLoaderParser() {
+        assertTrue(ImageParserFactory.getImageParser(TEST_FORMAT) instanceof TestImageParser);
+        assertTrue(ImageParserFactory.getImageParser("image.imagingtest") instanceof TestImageParser);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.imaging.mylzw;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class MyLzwDecompressorTest {
+
+    /**
+     * Counts the clear codes and records the largest code read.
+     */
+    private static final class CodeCounter implements MyLzwDecompressor.Listener {
+        int clearCode;
+        int clearCodes;
+        int maxCode;
+
+        @Override
+        public void code(final int code) {
+            if (code == clearCode) {
+                clearCodes++;
+            }
+            maxCode = Math.max(maxCode, code);
+        }
+
+        @Override
+        public void init(final int clearCode, final int eoiCode) {
+            this.clearCode = clearCode;
+        }
+    }
+
+    private static byte[] compress(final byte[] bytes, final int initialCodeSize, final boolean earlyChange) throws IOException {
+        // TIFF writes codes most significant bit first and changes code width early, GIF does neither
+        final ByteOrder byteOrder = earlyChange ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        return new MyLzwCompressor(initialCodeSize, byteOrder, earlyChange).compress(bytes);
+    }
+
+    private static byte[] decompress(final byte[] compressed, final int initialCodeSize, final boolean earlyChange, final int expectedLength,
+            final MyLzwDecompressor.Listener listener) throws IOException {
+        final ByteOrder byteOrder = earlyChange ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        return new MyLzwDecompressor(initialCodeSize, byteOrder, earlyChange, listener).decompress(new ByteArrayInputStream(compressed),
+                expectedLength);
+    }
+
+    /**
+     * Random symbols from a small alphabet, which repeat often enough to build long strings.
+     */
+    private static byte[] randomBytes(final int length, final int alphabet) {
+        final Random random = new Random(length * 31L + alphabet);
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) random.nextInt(alphabet);
+        }
+        return bytes;
+    }
+
+    /**
+     * A single repeated byte makes each new code the string being defined, the case of a code read before it
+     * is in the table.
+     */
+    @ParameterizedTest
+    @CsvSource({ "2, false", "8, false", "8, true" })
+    public void testCodeNotYetInTable(final int initialCodeSize, final boolean earlyChange) throws IOException {
+        final byte[] bytes = new byte[5000];
+        Arrays.fill(bytes, (byte) 1);
+        final byte[] compressed = compress(bytes, initialCodeSize, earlyChange);
+        assertArrayEquals(bytes, decompress(compressed, initialCodeSize, earlyChange, bytes.length, null));
+    }
+
+    /**
+     * Enough data to fill the table several times: codes grow to 12 bits, and the compressor clears the table
+     * each time it is full.
+     */
+    @ParameterizedTest
+    @CsvSource({ "2, false", "4, false", "8, false", "8, true" })
+    public void testCodeWidthGrowthAndClearCodes(final int initialCodeSize, final boolean earlyChange) throws IOException {
+        final byte[] bytes = randomBytes(200_000, Math.min(1 << initialCodeSize, 16));
+        final byte[] compressed = compress(bytes, initialCodeSize, earlyChange);
+        final CodeCounter counter = new CodeCounter();
+        assertArrayEquals(bytes, decompress(compressed, initialCodeSize, earlyChange, bytes.length, counter));
+        // the leading clear code, then at least one table reset
+        assertTrue(counter.clearCodes >= 2, "clear codes: " + counter.clearCodes);
+        assertTrue(counter.maxCode >= 1 << 11, "largest code: " + counter.maxCode);
+    }
+
+    /**
+     * With early change, codes widen one code sooner, so data only decodes with the setting it was written with.
+     */
+    @ParameterizedTest
+    @CsvSource({ "false", "true" })
+    public void testEarlyChangeMustMatch(final boolean earlyChange) throws IOException {
+        final byte[] bytes = randomBytes(20_000, 16);
+        final byte[] compressed = compress(bytes, 8, earlyChange);
+        assertArrayEquals(bytes, decompress(compressed, 8, earlyChange, bytes.length, null));
+
+        final ByteOrder byteOrder = earlyChange ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        byte[] mismatched;
+        try {
+            mismatched = new MyLzwDecompressor(8, byteOrder, !earlyChange).decompress(new ByteArrayInputStream(compressed), bytes.length);
+        } catch (final IOException e) {
+            mismatched = null;
+        }
+        assertFalse(Arrays.equals(bytes, mismatched));
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "false", "true" })
+    public void testShortInput(final boolean earlyChange) throws IOException {
+        for (final byte[] bytes : new byte[][] { { 7 }, { 7, 7 }, { 1, 2, 3, 1, 2, 3, 1, 2, 3 } }) {
+            final byte[] compressed = compress(bytes, 8, earlyChange);
+            final byte[] decompressed = decompress(compressed, 8, earlyChange, bytes.length, null);
+            assertEquals(bytes.length, decompressed.length);
+            assertArrayEquals(bytes, decompressed);
+        }
+    }
+}
@@ -16,11 +16,16 @@
  */
 package org.apache.commons.imaging.palette;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.imaging.ImagingException;
 import org.junit.jupiter.api.Test;
@@ -63,4 +68,80 @@ public class DitheringTest {
       assertEquals(-1, bufferedImage.getRGB(2,2) );
   }
 
+  private static BufferedImage gradient(final int width, final int height) {
+      final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+      for (int y = 0; y < height; y++) {
+          for (int x = 0; x < width; x++) {
+              image.setRGB(x, y, 0xff000000 | (x * 255 / width) << 16 | (y * 255 / height) << 8 | (x + y) & 0xff);
+          }
+      }
+      return image;
+  }
+
+  @Test
+  public void testFloydSteinbergDitheringInParallel() throws ImagingException {
+      final BufferedImage image = gradient(150, 70);
+      final Palette palette = new PaletteFactory().makeQuantizedRgbPalette(image, 16);
+      final int[] argb = image.getRGB(0, 0, 150, 70, null, 0, 150);
+      final ExecutorService executor = Executors.newFixedThreadPool(3);
+      try {
+          Dithering.applyFloydSteinbergDithering(argb, 150, 70, palette, executor);
+      } finally {
+          executor.shutdownNow();
+      }
+      Dithering.applyFloydSteinbergDithering(image, palette);
+
+      // the wavefront gives the same result as a serial pass
+      assertArrayEquals(image.getRGB(0, 0, 150, 70, null, 0, 150), argb);
+  }
+
+  @Test
+  public void testOrderedDithering() throws ImagingException {
+      final Palette palette = new Palette() {
+          @Override
+          public int getEntry(final int index) {
+              return index == 0 ? 0xff000000 : 0xffffffff;
+          }
+
+          @Override
+          public int getPaletteIndex(final int rgb) {
+              return (rgb & 0xff) < 0x80 ? 0 : 1;
+          }
+
+          @Override
+          public int length() {
+              return 2;
+          }
+      };
+      final ExecutorService executor = Executors.newFixedThreadPool(2);
+      try {
+          for (int pass = 0; pass < 2; pass++) {
+              final int[] gray = new int[64 * 64];
+              Arrays.fill(gray, 0xff808080);
+              final int[] parallel = gray.clone();
+              if (pass == 0) {
+                  Dithering.applyOrderedDithering(gray, 64, 64, palette, null);
+                  Dithering.applyOrderedDithering(parallel, 64, 64, palette, executor);
+              } else {
+                  Dithering.applyBlueNoiseDithering(gray, 64, 64, palette, null);
+                  Dithering.applyBlueNoiseDithering(parallel, 64, 64, palette, executor);
+              }
+              assertArrayEquals(gray, parallel);
+
+              // mid gray comes out as about half black and half white
+              int white = 0;
+              for (final int pixel : gray) {
+                  if (pixel == 0xffffffff) {
+                      white++;
+                  } else {
+                      assertEquals(0xff000000, pixel);
+                  }
+              }
+              assertTrue(Math.abs(white - gray.length / 2) < gray.length / 20, "white pixels: " + white);
+          }
+      } finally {
+          executor.shutdownNow();
+      }
+  }
+
 }
@@ -17,8 +17,12 @@
 package org.apache.commons.imaging.palette;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.imaging.ImagingException;
 import org.apache.commons.imaging.ImagingTest;
@@ -56,6 +60,15 @@ public class PaletteQuantizationTest extends ImagingTest {
             //checkDithering(image, palette);
         }
 
+        for (final MedianCut medianCut : new MedianCut[] { new LongestAxisMedianCut(), new MostPopulatedBoxesMedianCut() }) {
+            palette = paletteFactory.makeQuantizedRgbPalette(image, limit, medianCut, null);
+            assertEquals(expectedSize, palette.length());
+            checkUniqueColors(image, palette);
+            if (exact) {
+                checkPixelsAreIdentical(image, palette);
+            }
+        }
+
         final MedianCutQuantizer medianCutQuantizer = new MedianCutQuantizer(true);
         palette = medianCutQuantizer.process(
                 image, limit, new MostPopulatedBoxesMedianCut());
@@ -85,6 +98,62 @@ public class PaletteQuantizationTest extends ImagingTest {
         assertEquals(palette.length(), ditheredPalette.length());
     }
 
+    @Test
+    public void testHistogramQuantizationRejectsOtherMedianCuts() {
+        final BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        final PaletteFactory paletteFactory = new PaletteFactory();
+        final MedianCut custom = (colorGroups, ignoreAlpha) -> false;
+        assertThrows(IllegalArgumentException.class, () -> paletteFactory.makeQuantizedRgbPalette(image, 4, custom, null));
+        final MedianCut subclass = new LongestAxisMedianCut() {
+        };
+        assertThrows(IllegalArgumentException.class, () -> paletteFactory.makeQuantizedRgbPalette(image, 4, subclass, null));
+    }
+
+    @Test
+    public void testHistogramQuantization() throws ImagingException {
+        final BufferedImage image = new BufferedImage(256, 200, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, x << 16 | y << 8 | (x * y & 0xff));
+            }
+        }
+        final PaletteFactory paletteFactory = new PaletteFactory();
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (final MedianCut medianCut : new MedianCut[] { new LongestAxisMedianCut(), new MostPopulatedBoxesMedianCut() }) {
+                final Palette serial = paletteFactory.makeQuantizedRgbPalette(image, 256, medianCut, null);
+                final Palette parallel = paletteFactory.makeQuantizedRgbPalette(image, 256, medianCut, executor);
+                assertEquals(256, serial.length());
+                assertEquals(serial.length(), parallel.length());
+                for (int i = 0; i < serial.length(); i++) {
+                    assertEquals(serial.getEntry(i), parallel.getEntry(i));
+                }
+                // every entry is the mean of the pixels mapped to it
+                final long[] sums = new long[3 * serial.length()];
+                final int[] counts = new int[serial.length()];
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        final int rgb = image.getRGB(x, y);
+                        final int index = serial.getPaletteIndex(rgb);
+                        counts[index]++;
+                        for (int c = 0; c < 3; c++) {
+                            sums[3 * index + c] += 0xff & rgb >> 16 - 8 * c;
+                        }
+                    }
+                }
+                for (int i = 0; i < serial.length(); i++) {
+                    assertTrue(counts[i] > 0, "entry " + i + " is unused");
+                    for (int c = 0; c < 3; c++) {
+                        final long mean = Math.round(sums[3 * i + c] / (double) counts[i]);
+                        assertEquals(mean, 0xff & serial.getEntry(i) >> 16 - 8 * c, "entry " + i);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testPaletteQuantization() throws ImagingException {
         final BufferedImage whiteImage = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
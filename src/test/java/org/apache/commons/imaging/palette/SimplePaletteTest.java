@@ -34,5 +34,23 @@ public class SimplePaletteTest{
 
     }
 
+    @Test
+    public void testGetPaletteIndex() {
+        final int[] colors = new int[256];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xff000000 | i * 0x010101;
+        }
+        // a duplicate color maps to its first entry
+        colors[200] = colors[100];
+        final SimplePalette simplePalette = new SimplePalette(colors);
+
+        for (int i = 0; i < colors.length; i++) {
+            assertEquals(i == 200 ? 100 : i, simplePalette.getPaletteIndex(colors[i]));
+        }
+        assertEquals(-1, simplePalette.getPaletteIndex(0x00000000));
+        assertEquals(-1, simplePalette.getPaletteIndex(0xff123456));
+        assertEquals(-1, new SimplePalette(new int[0]).getPaletteIndex(0));
+    }
+
 
 }
\ No newline at end of file
@@ -16,22 +16,39 @@
  */
 package org.apache.commons.imaging.performance;
 
+import org.apache.commons.imaging.bytesource.ByteSource;
+import org.apache.commons.imaging.formats.gif.GifReadTest;
+import org.apache.commons.imaging.formats.jpeg.JpegImagingParameters;
 import org.apache.commons.imaging.formats.jpeg.JpegReadTest;
+import org.apache.commons.imaging.formats.jpeg.decoder.JpegDecoder;
+import org.apache.commons.imaging.formats.jpeg.encoder.JpegEncoder;
 import org.apache.commons.imaging.formats.pcx.PcxReadTest;
 import org.apache.commons.imaging.formats.png.ConvertPngToGifTest;
 import org.apache.commons.imaging.formats.tiff.*;
 import org.apache.commons.imaging.formats.xbm.XbmReadTest;
 import org.apache.commons.imaging.formats.xpm.XpmReadTest;
+import org.apache.commons.imaging.palette.MedianCutQuantizer;
+import org.apache.commons.imaging.palette.MostPopulatedBoxesMedianCut;
+import org.apache.commons.imaging.palette.Palette;
+import org.apache.commons.imaging.palette.PaletteFactory;
 
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.State;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 @State(Scope.Benchmark)
 public class ImagingBenchmark {
+    private final GifReadTest gifReadTest = new GifReadTest();
+
     private final JpegReadTest jpegReadTest = new JpegReadTest();
 
     private final PcxReadTest pcxReadTest = new PcxReadTest();
@@ -44,12 +61,114 @@ public class ImagingBenchmark {
 
     private final TiffLzwTest tiffLzwTest = new TiffLzwTest();
 
+    private final TiffParallelReadTest tiffParallelReadTest = new TiffParallelReadTest();
+
     private final TiffReadTest tiffReadTest = new TiffReadTest();
 
     private final XbmReadTest xbmReadTest = new XbmReadTest();
 
     private XpmReadTest xpmReadTest;
 
+    private final BufferedImage quantizationImage = createQuantizationImage();
+
+    private final byte[] jpegBytes = createJpegBytes(quantizationImage);
+
+    private static byte[] createJpegBytes(final BufferedImage image) {
+        try {
+            return writeJpeg(image, new JpegImagingParameters().setRestartIntervalRows(1));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BufferedImage createQuantizationImage() {
+        // a noisy gradient has the many distinct colors of a photograph
+        final BufferedImage image = new BufferedImage(1024, 768, BufferedImage.TYPE_INT_RGB);
+        final Random random = new Random(0);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                final int red = Math.min(255, x / 4 + random.nextInt(16));
+                final int green = Math.min(255, y / 3 + random.nextInt(16));
+                final int blue = Math.min(255, (x + y) / 7 + random.nextInt(16));
+                image.setRGB(x, y, red << 16 | green << 8 | blue);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] writeJpeg(final BufferedImage image, final JpegImagingParameters params) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new JpegEncoder(params).encode(image, baos);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public void gifReadTestImagesBench() {
+        try {
+            for (final File file : GifReadTest.data().toArray(File[]::new)) {
+                gifReadTest.testBufferedImage(file);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Benchmark
+    public void jpegReadTestImagesBench() {
+        try {
+            for (final File file : JpegReadTest.data().toArray(File[]::new)) {
+                jpegReadTest.test(file);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Benchmark
+    public BufferedImage jpegDecodeBench() {
+        try {
+            return new JpegDecoder().decode(ByteSource.array(jpegBytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public BufferedImage jpegDecodeParallelBench() {
+        try {
+            return new JpegDecoder(new JpegImagingParameters().setExecutor(ForkJoinPool.commonPool())).decode(ByteSource.array(jpegBytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] jpegWriteBench() {
+        try {
+            return writeJpeg(quantizationImage, new JpegImagingParameters().setRestartIntervalRows(1));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] jpegWriteOptimizedHuffmanBench() {
+        try {
+            return writeJpeg(quantizationImage, new JpegImagingParameters().setOptimizeHuffmanTables(true));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] jpegWriteParallelBench() {
+        try {
+            return writeJpeg(quantizationImage,
+                    new JpegImagingParameters().setRestartIntervalRows(1).setExecutor(ForkJoinPool.commonPool()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
     @Benchmark
     public void pcxReadTestImagesBench() {
@@ -69,6 +188,26 @@ public class ImagingBenchmark {
         }
     }
 
+    @Benchmark
+    public Palette paletteHistogramMedianCutBench() {
+        return new PaletteFactory().makeQuantizedRgbPalette(quantizationImage, 256, new MostPopulatedBoxesMedianCut(), null);
+    }
+
+    @Benchmark
+    public Palette paletteHistogramMedianCutParallelBench() {
+        return new PaletteFactory().makeQuantizedRgbPalette(quantizationImage, 256, new MostPopulatedBoxesMedianCut(),
+                ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public Palette paletteMedianCutBench() {
+        try {
+            return new MedianCutQuantizer(true).process(quantizationImage, 256, new MostPopulatedBoxesMedianCut());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Benchmark
     public void tiffCcittTestImagesBench() {
         tiffCcittTest.testAll5x2Images();
@@ -138,6 +277,24 @@ public class ImagingBenchmark {
         }
     }
 
+    @Benchmark
+    public void tiffTiledReadSerialBench() {
+        try {
+            tiffParallelReadTest.readTiledImages(null);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Benchmark
+    public void tiffTiledReadParallelBench() {
+        try {
+            tiffParallelReadTest.readTiledImages(ForkJoinPool.commonPool());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Benchmark
     public void xbmReadTestBench() {
         try {
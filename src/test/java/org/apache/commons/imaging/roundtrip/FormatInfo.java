@@ -82,8 +82,8 @@ class FormatInfo {
                     COLOR_FULL_RGB, true, true), //
             new FormatInfo(ImageFormats.TIFF, true, true,
                     COLOR_FULL_RGB, true, true), //
-            new FormatInfo(ImageFormats.JPEG, true, false,
-                    COLOR_FULL_RGB, true, true), //
+            new FormatInfo(ImageFormats.JPEG, true, true,
+                    COLOR_FULL_RGB, false, true), //
             new FormatInfo(ImageFormats.BMP, true, true,
                     COLOR_FULL_RGB, true, true), //
             new FormatInfo(ImageFormats.PSD, true, false,